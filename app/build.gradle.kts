@@ -15,6 +15,10 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Firestore emulator host, e.g. -PfirestoreEmulatorHost=10.0.2.2:8080 (empty = production)
+        val firestoreEmulatorHost = (project.findProperty("firestoreEmulatorHost") as String?) ?: ""
+        buildConfigField("String", "FIRESTORE_EMULATOR_HOST", "\"$firestoreEmulatorHost\"")
     }
     buildFeatures {
         buildConfig = true
@@ -64,5 +68,9 @@ dependencies {
     implementation (libs.firebase.appcheck.playintegrity)
     implementation (libs.firebase.appcheck.debug)
     implementation(libs.swiperefreshlayout)
+    implementation(libs.recyclerview)
+    // Background scheduling
+    implementation(libs.work.runtime)
+    implementation(libs.concurrent.futures)
     implementation("com.google.code.gson:gson:2.10.1")
 }
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.example.paydaylay.firebase;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.paydaylay.BuildConfig;
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Money;
+import com.example.paydaylay.models.Transaction;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * Testy liczników utrzymywanych w transakcjach Firestore (sumy użytkownika i wydatki budżetów)
+ * wykonywane na emulatorze Firestore. Uruchamiane tylko w buildzie ze wskazanym emulatorem:
+ * ./gradlew connectedDebugAndroidTest -PfirestoreEmulatorHost=10.0.2.2:8080
+ */
+@RunWith(AndroidJUnit4.class)
+public class CounterEmulatorTest {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private Context context;
+    private DatabaseManager databaseManager;
+    private FirebaseFirestore db;
+    private String userId;
+
+    @Before
+    public void setUp() {
+        assumeFalse("Firestore emulator not configured", BuildConfig.FIRESTORE_EMULATOR_HOST.isEmpty());
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        databaseManager = DatabaseManager.getInstance();
+        db = FirebaseFirestore.getInstance();
+        // Każdy test działa na nowym użytkowniku, więc nie zależy od danych pozostawionych w emulatorze
+        userId = "test-" + UUID.randomUUID();
+    }
+
+    @Test
+    public void concurrentWrites_keepTotalsExact() throws Exception {
+        List<Task<Void>> writes = new ArrayList<>();
+        List<Transaction> expenses = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Transaction expense = transaction(1_000, null, true);
+            expenses.add(expense);
+            writes.add(add(expense));
+            writes.add(add(transaction(2_000, null, false)));
+        }
+        await(Tasks.whenAll(writes));
+        await(delete(expenses.get(0)));
+
+        DatabaseManager.UserTotals totals = await(userTotals());
+        assertEquals(9, totals.count);
+        assertEquals(Money.ofMinor(10_000), totals.income);
+        assertEquals(Money.ofMinor(4_000), totals.expenses);
+    }
+
+    @Test
+    public void newBudget_includesExpensesAlreadyInPeriod() throws Exception {
+        await(add(transaction(2_500, "food", true)));
+
+        Budget budget = await(save(monthlyBudget("food")));
+
+        assertEquals(2_500, awaitSpent(budget, 2_500));
+    }
+
+    @Test
+    public void editingBudget_keepsIncrementedSpent() throws Exception {
+        Budget budget = await(save(monthlyBudget("food")));
+        await(add(transaction(700, "food", true)));
+        assertEquals(700, awaitSpent(budget, 700));
+
+        budget.setLimit(Money.ofMinor(90_000));
+        budget.setSpent(Money.ZERO);
+        await(save(budget));
+        await(add(transaction(300, "food", true)));
+
+        assertEquals(1_000, awaitSpent(budget, 1_000));
+        assertEquals(Money.ofMinor(90_000), Budget.fromDocument(await(budgetDocument(budget))).getLimit());
+    }
+
+    private Transaction transaction(long amountMinor, String categoryId, boolean isExpense) {
+        return new Transaction(Money.ofMinor(amountMinor), new Date(), categoryId, null, userId, isExpense);
+    }
+
+    private Budget monthlyBudget(String categoryId) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return new Budget(Money.ofMinor(50_000), categoryId, userId, calendar.getTimeInMillis(),
+                Budget.PERIOD_MONTHLY);
+    }
+
+    private Task<Void> add(Transaction transaction) {
+        TaskCompletionSource<Void> result = new TaskCompletionSource<>();
+        databaseManager.addTransaction(transaction, listener(result), context);
+        return result.getTask();
+    }
+
+    private Task<Void> delete(Transaction transaction) {
+        TaskCompletionSource<Void> result = new TaskCompletionSource<>();
+        databaseManager.deleteTransaction(userId, transaction.getId(), listener(result));
+        return result.getTask();
+    }
+
+    private Task<Budget> save(Budget budget) {
+        TaskCompletionSource<Budget> result = new TaskCompletionSource<>();
+        databaseManager.saveBudget(budget, new DatabaseManager.OnBudgetSavedListener() {
+            @Override
+            public void onBudgetSaved(Budget saved) {
+                result.setResult(saved);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                result.setException(e);
+            }
+        });
+        return result.getTask();
+    }
+
+    private Task<DatabaseManager.UserTotals> userTotals() {
+        TaskCompletionSource<DatabaseManager.UserTotals> result = new TaskCompletionSource<>();
+        databaseManager.getUserTotals(userId, new DatabaseManager.OnUserTotalsLoadedListener() {
+            @Override
+            public void onUserTotalsLoaded(DatabaseManager.UserTotals totals) {
+                result.setResult(totals);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                result.setException(e);
+            }
+        });
+        return result.getTask();
+    }
+
+    private static DatabaseManager.OnTransactionListener listener(TaskCompletionSource<Void> result) {
+        return new DatabaseManager.OnTransactionListener() {
+            @Override
+            public void onSuccess() {
+                result.setResult(null);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                result.setException(e);
+            }
+        };
+    }
+
+    private Task<DocumentSnapshot> budgetDocument(Budget budget) {
+        return db.collection("users").document(userId).collection("budgets").document(budget.getId())
+                .get(Source.SERVER);
+    }
+
+    /**
+     * Czeka, aż wydatki budżetu na serwerze osiągną oczekiwaną wartość - przeliczenie liczników
+     * po zapisie budżetu działa w tle. Zwraca ostatnio odczytaną wartość.
+     */
+    private long awaitSpent(Budget budget, long expectedMinor) throws Exception {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        long spent;
+        do {
+            spent = Budget.fromDocument(await(budgetDocument(budget))).getSpent().getMinorUnits();
+            if (spent == expectedMinor) {
+                return spent;
+            }
+            Thread.sleep(200);
+        } while (System.currentTimeMillis() < deadline);
+        return spent;
+    }
+
+    private static <T> T await(Task<T> task) throws Exception {
+        return Tasks.await(task, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
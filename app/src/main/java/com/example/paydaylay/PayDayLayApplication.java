@@ -5,7 +5,11 @@ import android.content.Context;
 import android.util.Log;
 
 import com.example.paydaylay.database.AppDatabase;
+import com.example.paydaylay.firebase.AuthManager;
 import com.example.paydaylay.firebase.DatabaseManager;
+import com.example.paydaylay.firebase.MigrationStore;
+import com.example.paydaylay.services.BackgroundScheduler;
+import com.example.paydaylay.utils.BudgetEngine;
 import com.example.paydaylay.utils.LocaleHelper;
 import com.example.paydaylay.utils.NotificationUtils;
 import com.example.paydaylay.utils.ThemeUtils;
@@ -47,8 +51,14 @@ public class PayDayLayApplication extends Application {
         // Konfiguracja emulatorów Firebase w trybie debugowania
         if (BuildConfig.DEBUG) {
             try {
-                // Konfiguracja emulatorów Firebase (jeśli potrzebne)
-                // FirebaseFirestore.getInstance().useEmulator("10.0.2.2", 8080);
+                // Emulator Firestore wskazany przy budowaniu (-PfirestoreEmulatorHost=host:port)
+                String emulatorHost = BuildConfig.FIRESTORE_EMULATOR_HOST;
+                if (!emulatorHost.isEmpty()) {
+                    int separator = emulatorHost.lastIndexOf(':');
+                    FirebaseFirestore.getInstance().useEmulator(emulatorHost.substring(0, separator),
+                            Integer.parseInt(emulatorHost.substring(separator + 1)));
+                    Log.d(TAG, "Using Firestore emulator at " + emulatorHost);
+                }
                 // FirebaseAuth.getInstance().useEmulator("10.0.2.2", 9099);
 
                 // Wyłączenie weryfikacji SSL dla połączeń z emulatorami
@@ -61,12 +71,16 @@ public class PayDayLayApplication extends Application {
         // Konfiguracja Firebase z włączoną persystencją offline
         FirebaseFirestoreSettings settings = new FirebaseFirestoreSettings.Builder()
                 .setPersistenceEnabled(true)
+                .setCacheSizeBytes(FirebaseFirestoreSettings.CACHE_SIZE_UNLIMITED)
                 .build();
         FirebaseFirestore.getInstance().setFirestoreSettings(settings);
 
         // Inicjalizacja bazy danych Room
         AppDatabase.getInstance(this);
 
+        // Ocena progów budżetów przy każdym zapisie transakcji
+        DatabaseManager.getInstance().addOnTransactionChangedListener(BudgetEngine.getInstance(this));
+
         // Pominięcie inicjalizacji App Check (jeśli powoduje problemy)
         // DatabaseManager.initAppCheck(this);
 
@@ -83,5 +97,12 @@ public class PayDayLayApplication extends Application {
 
         // Tworzenie kanałów powiadomień
         NotificationUtils.createNotificationChannels(this);
+
+        // Planowanie pracy w tle (unikalne zadania - bez duplikatów przy każdym starcie).
+        // Przed migracją danych do podkolekcji zadania odczytywałyby niepełne dane - planuje je wtedy
+        // MainActivity po zakończeniu migracji
+        if (new MigrationStore(this).isMigrated(new AuthManager().getCurrentUserId())) {
+            BackgroundScheduler.schedule(this);
+        }
     }
 }
\ No newline at end of file
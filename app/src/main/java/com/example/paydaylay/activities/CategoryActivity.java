@@ -127,7 +127,7 @@ public class CategoryActivity extends BaseActivity {
         setContentView(R.layout.activity_category);
 
         // Inicjalizacja menedżerów
-        databaseManager = new DatabaseManager();
+        databaseManager = DatabaseManager.getInstance();
         authManager = new AuthManager();
 
         // Konfiguracja paska narzędzi
@@ -376,7 +376,8 @@ public class CategoryActivity extends BaseActivity {
      */
     private void deleteCategory() {
         if (currentCategory != null) {
-            databaseManager.deleteCategory(currentCategory.getId(), new DatabaseManager.OnCategoryOperationListener() {
+            databaseManager.deleteCategory(currentCategory.getUserId(), currentCategory.getId(),
+                    new DatabaseManager.OnCategoryOperationListener() {
                 @Override
                 public void onSuccess() {
                     Toast.makeText(CategoryActivity.this,
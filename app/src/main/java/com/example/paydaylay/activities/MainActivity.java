@@ -3,6 +3,7 @@ package com.example.paydaylay.activities;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.TextView;
@@ -17,6 +18,8 @@ import androidx.fragment.app.Fragment;
 
 import com.example.paydaylay.R;
 import com.example.paydaylay.firebase.AuthManager;
+import com.example.paydaylay.firebase.DatabaseManager;
+import com.example.paydaylay.services.BackgroundScheduler;
 import com.example.paydaylay.utils.LocaleHelper;
 import com.example.paydaylay.utils.NotificationUtils;
 import com.google.android.material.navigation.NavigationView;
@@ -32,6 +35,7 @@ import com.example.paydaylay.fragments.BudgetFragment;
  * oraz zarządza szufladą nawigacyjną.
  */
 public class MainActivity extends BaseActivity implements NavigationView.OnNavigationItemSelectedListener {
+    private static final String TAG = "MainActivity";
 
     private DrawerLayout drawerLayout; // Layout szuflady nawigacyjnej
     private NavigationView navigationView; // Widok nawigacji
@@ -96,14 +100,39 @@ public class MainActivity extends BaseActivity implements NavigationView.OnNavig
             navUsername.setText(authManager.getCurrentUser().getEmail());
         }
 
-        // Ustawienie domyślnego fragmentu (DashboardFragment)
+        // Ustawienie domyślnego fragmentu (DashboardFragment) po przeniesieniu danych do podkolekcji użytkownika
         if (savedInstanceState == null) {
-            getSupportFragmentManager().beginTransaction()
-                    .replace(R.id.fragment_container, new DashboardFragment())
-                    .commit();
-            navigationView.setCheckedItem(R.id.nav_dashboard);
-            setTitle(R.string.menu_dashboard);
+            DatabaseManager.getInstance().migrateUserData(this, authManager.getCurrentUserId(),
+                    new DatabaseManager.OnCompletionListener() {
+                        @Override
+                        public void onSuccess() {
+                            showDashboard();
+                            // Praca w tle jest planowana dopiero po migracji (zob. PayDayLayApplication)
+                            BackgroundScheduler.schedule(getApplicationContext());
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            // Np. brak sieci - migracja zostanie wznowiona przy następnym uruchomieniu
+                            Log.e(TAG, "User data migration failed", e);
+                            showDashboard();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Wyświetla fragment pulpitu jako domyślny ekran.
+     */
+    private void showDashboard() {
+        if (isFinishing() || getSupportFragmentManager().isStateSaved()) {
+            return;
         }
+        getSupportFragmentManager().beginTransaction()
+                .replace(R.id.fragment_container, new DashboardFragment())
+                .commit();
+        navigationView.setCheckedItem(R.id.nav_dashboard);
+        setTitle(R.string.menu_dashboard);
     }
 
     /**
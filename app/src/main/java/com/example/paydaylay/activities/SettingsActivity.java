@@ -21,7 +21,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.paydaylay.R;
-import com.example.paydaylay.utils.BudgetAlarmScheduler;
+import com.example.paydaylay.services.BackgroundScheduler;
 import com.example.paydaylay.utils.LocaleHelper;
 import com.example.paydaylay.utils.NotificationUtils;
 import com.example.paydaylay.utils.ThemeUtils;
@@ -167,11 +167,12 @@ public class SettingsActivity extends BaseActivity {
             NotificationUtils.setNotificationsEnabled(this, isChecked);
             buttonCustomizeNotifications.setEnabled(isChecked);
 
-            // Planowanie lub anulowanie alarmów budżetowych
+            // Planowanie lub anulowanie sprawdzania budżetów
             if (isChecked) {
-                BudgetAlarmScheduler.scheduleBudgetCheck(this);
+                BackgroundScheduler.scheduleBudgetChecks(this);
+                BackgroundScheduler.checkBudgetsNow(this);
             } else {
-                BudgetAlarmScheduler.cancelBudgetCheck(this);
+                BackgroundScheduler.cancelBudgetChecks(this);
             }
         });
 
@@ -18,9 +18,12 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.paydaylay.R;
+import com.example.paydaylay.database.CategoryDictionary;
+import com.example.paydaylay.database.TransactionRepository;
 import com.example.paydaylay.firebase.AuthManager;
 import com.example.paydaylay.firebase.DatabaseManager;
 import com.example.paydaylay.models.Category;
+import com.example.paydaylay.models.Money;
 import com.example.paydaylay.models.Transaction;
 
 import java.text.SimpleDateFormat;
@@ -47,7 +50,7 @@ public class TransactionActivity extends BaseActivity {
     // Deklaracje pól pomocniczych
     private Calendar calendar;
     private SimpleDateFormat dateFormat;
-    private DatabaseManager databaseManager;
+    private TransactionRepository transactionRepository;
     private AuthManager authManager;
     private List<Category> categories;
     private Transaction currentTransaction;
@@ -65,7 +68,7 @@ public class TransactionActivity extends BaseActivity {
         setContentView(R.layout.activity_transaction);
 
         // Inicjalizacja menedżerów i kalendarza
-        databaseManager = new DatabaseManager();
+        transactionRepository = TransactionRepository.getInstance(this);
         authManager = new AuthManager();
         calendar = Calendar.getInstance();
         dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
@@ -115,7 +118,7 @@ public class TransactionActivity extends BaseActivity {
      */
     private void fillFormWithTransactionData() {
         if (currentTransaction != null) {
-            editTextAmount.setText(String.valueOf(currentTransaction.getAmount()));
+            editTextAmount.setText(currentTransaction.getAmount().toString());
             calendar.setTime(currentTransaction.getDate());
             updateDateDisplay();
             editTextDescription.setText(currentTransaction.getDescription());
@@ -127,10 +130,11 @@ public class TransactionActivity extends BaseActivity {
      * Ładuje kategorie z bazy danych i ustawia je w spinnerze.
      */
     private void loadCategories() {
-        databaseManager.getCategories(authManager.getCurrentUserId(), new DatabaseManager.OnCategoriesLoadedListener() {
+        CategoryDictionary.getInstance(this).getCategories(authManager.getCurrentUserId(),
+                new CategoryDictionary.OnCategoriesChangedListener() {
             @Override
-            public void onCategoriesLoaded(List<Category> loadedCategories) {
-                categories = loadedCategories;
+            public void onCategoriesChanged(CategoryDictionary.Snapshot snapshot) {
+                categories = snapshot.getList();
                 setupCategorySpinner();
 
                 // Ustawienie wybranej kategorii w trybie edycji
@@ -202,7 +206,7 @@ public class TransactionActivity extends BaseActivity {
             return;
         }
 
-        double amount = Double.parseDouble(editTextAmount.getText().toString());
+        Money amount = Money.of(Double.parseDouble(editTextAmount.getText().toString()));
         Date date = calendar.getTime();
         String description = editTextDescription.getText().toString();
         boolean isIncome = switchExpenseIncome.isChecked();
@@ -224,7 +228,7 @@ public class TransactionActivity extends BaseActivity {
         }
 
         if (isEditMode) {
-            databaseManager.updateTransaction(transaction, new DatabaseManager.OnTransactionListener() {
+            transactionRepository.updateTransaction(transaction, new DatabaseManager.OnTransactionListener() {
                 @Override
                 public void onSuccess() {
                     Toast.makeText(TransactionActivity.this,
@@ -240,7 +244,7 @@ public class TransactionActivity extends BaseActivity {
                 }
             }, TransactionActivity.this);
         } else {
-            databaseManager.addTransaction(transaction, new DatabaseManager.OnTransactionListener() {
+            transactionRepository.addTransaction(transaction, new DatabaseManager.OnTransactionListener() {
                 @Override
                 public void onSuccess() {
                     Toast.makeText(TransactionActivity.this,
@@ -308,7 +312,8 @@ public class TransactionActivity extends BaseActivity {
      */
     private void deleteTransaction() {
         if (currentTransaction != null) {
-            databaseManager.deleteTransaction(currentTransaction.getId(), new DatabaseManager.OnTransactionListener() {
+            transactionRepository.deleteTransaction(currentTransaction.getUserId(), currentTransaction.getId(),
+                    new DatabaseManager.OnTransactionListener() {
                 @Override
                 public void onSuccess() {
                     Toast.makeText(TransactionActivity.this,
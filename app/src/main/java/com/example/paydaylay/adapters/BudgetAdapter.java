@@ -1,8 +1,6 @@
 package com.example.paydaylay.adapters;
 
 import android.app.AlertDialog;
-import android.content.Context;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,55 +9,117 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.paydaylay.R;
-import com.example.paydaylay.firebase.DatabaseManager;
 import com.example.paydaylay.models.Budget;
 import com.example.paydaylay.models.Category;
-import com.example.paydaylay.models.Transaction;
-import com.example.paydaylay.widgets.BudgetWidgetProvider;
+import com.example.paydaylay.models.Money;
+import com.example.paydaylay.utils.BudgetPeriod;
 
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
+import java.util.Objects;
 
 /**
  * Adapter BudgetAdapter obsługuje wyświetlanie listy budżetów w RecyclerView.
  * Umożliwia użytkownikowi przeglądanie szczegółów budżetów, takich jak kategoria,
  * limit, okres, wydatki oraz pozostałe środki.
+ * Zmiany listy są porównywane przez DiffUtil w wątku tła.
  */
-public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetViewHolder> {
-
-    // Lista budżetów i kategorii
-    private List<Budget> budgets;
-    private List<Category> categories;
+public class BudgetAdapter extends ListAdapter<Budget, BudgetAdapter.BudgetViewHolder> {
+
+    private static final DiffUtil.ItemCallback<Budget> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<Budget>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull Budget oldItem, @NonNull Budget newItem) {
+                    return Objects.equals(oldItem.getId(), newItem.getId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull Budget oldItem, @NonNull Budget newItem) {
+                    return oldItem.getLimit().equals(newItem.getLimit())
+                            && oldItem.getSpent().equals(newItem.getSpent())
+                            && oldItem.getPeriodType() == newItem.getPeriodType()
+                            && oldItem.getPeriodStartDate() == newItem.getPeriodStartDate()
+                            && Objects.equals(oldItem.getCategoryId(), newItem.getCategoryId());
+                }
+            };
 
     // Mapa kategorii dla szybkiego dostępu
-    private Map<String, Category> categoryMap = new HashMap<>();
-    private DatabaseManager databaseManager;
+    private final Map<String, Category> categoryMap = new HashMap<>();
+
+    // Stabilne identyfikatory elementów przypisane identyfikatorom dokumentów
+    private final StableIdMap stableIds = new StableIdMap();
+
+    private final OnBudgetDeleteListener deleteListener;
 
     /**
      * Konstruktor adaptera.
+     * Adapter jedynie wyświetla dane - wydatki budżetów muszą być obliczone
+     * (Budget.getSpent()) przed przekazaniem listy.
      *
      * @param budgets Lista budżetów do wyświetlenia.
      * @param categories Lista kategorii powiązanych z budżetami.
+     * @param deleteListener Interfejs zwrotny wywoływany po potwierdzeniu usunięcia budżetu.
      */
-    public BudgetAdapter(List<Budget> budgets, List<Category> categories) {
-        this.budgets = budgets;
-        this.categories = categories;
-        this.databaseManager = new DatabaseManager();
-
-        // Tworzenie mapy kategorii
-        for (Category category : categories) {
-            categoryMap.put(category.getId(), category);
+    public BudgetAdapter(List<Budget> budgets, List<Category> categories, OnBudgetDeleteListener deleteListener) {
+        super(DIFF_CALLBACK);
+        this.deleteListener = deleteListener;
+        setHasStableIds(true);
+        updateData(budgets, categories);
+    }
+
+    /**
+     * Aktualizuje listę budżetów i kategorii. Lista jest porównywana z obecną w wątku tła,
+     * a odświeżane są tylko zmienione wiersze.
+     * Przekazywane budżety nie mogą być później modyfikowane - każde obliczenie wydatków
+     * powinno tworzyć nowe obiekty, aby DiffUtil mógł wykryć zmianę.
+     *
+     * @param newBudgets Nowa lista budżetów z obliczonymi wydatkami.
+     * @param newCategories Nowa lista kategorii.
+     */
+    public void updateData(List<Budget> newBudgets, List<Category> newCategories) {
+        if (!sameCategories(newCategories)) {
+            categoryMap.clear();
+            for (Category category : newCategories) {
+                categoryMap.put(category.getId(), category);
+            }
+            notifyItemRangeChanged(0, getItemCount());
+        }
+        submitList(new ArrayList<>(newBudgets));
+    }
+
+    private boolean sameCategories(List<Category> newCategories) {
+        if (newCategories.size() != categoryMap.size()) {
+            return false;
+        }
+        for (Category category : newCategories) {
+            Category current = categoryMap.get(category.getId());
+            if (current == null || !Objects.equals(current.getName(), category.getName())) {
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * Zwraca stabilny identyfikator elementu na podstawie identyfikatora dokumentu budżetu.
+     *
+     * @param position Pozycja elementu w liście.
+     * @return Stabilny identyfikator.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.get(getItem(position).getId());
     }
 
     /**
@@ -85,7 +145,7 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
      */
     @Override
     public void onBindViewHolder(@NonNull BudgetViewHolder holder, int position) {
-        Budget budget = budgets.get(position);
+        Budget budget = getItem(position);
 
         // Pobieranie nazwy kategorii
         String categoryName;
@@ -98,7 +158,7 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
 
         // Formatowanie limitu
         NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance();
-        String formattedLimit = currencyFormatter.format(budget.getLimit());
+        String formattedLimit = currencyFormatter.format(budget.getLimit().toDouble());
 
         // Ustawianie typu okresu
         String periodType;
@@ -122,33 +182,16 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
         holder.textViewLimit.setText(formattedLimit);
         holder.textViewPeriodType.setText(periodType);
 
-        // Obliczanie zakresu dat
-        Date startDate = new Date(budget.getPeriodStartDate());
+        // Obliczanie zakresu dat bieżącego okresu
+        BudgetPeriod.Range period = BudgetPeriod.current(budget);
         SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd", Locale.getDefault());
 
-        Calendar endCal = Calendar.getInstance();
-        endCal.setTimeInMillis(budget.getPeriodStartDate());
-
-        switch (budget.getPeriodType()) {
-            case Budget.PERIOD_DAILY:
-                endCal.add(Calendar.DAY_OF_YEAR, 1);
-                break;
-            case Budget.PERIOD_WEEKLY:
-                endCal.add(Calendar.WEEK_OF_YEAR, 1);
-                break;
-            case Budget.PERIOD_MONTHLY:
-                endCal.add(Calendar.MONTH, 1);
-                break;
-            case Budget.PERIOD_YEARLY:
-                endCal.add(Calendar.YEAR, 1);
-                break;
-        }
-
-        String dateRange = dateFormat.format(startDate) + " - " + dateFormat.format(endCal.getTime());
+        String dateRange = dateFormat.format(new Date(period.start)) + " - "
+                + dateFormat.format(new Date(period.getLastInstant()));
         holder.textViewDateRange.setText(dateRange);
 
-        // Ładowanie danych transakcji
-        loadTransactionsForBudget(holder, budget);
+        // Wyświetlanie stanu budżetu
+        bindProgress(holder, budget);
 
         // Obsługa przycisku usuwania
         holder.buttonDelete.setOnClickListener(v -> {
@@ -156,26 +199,9 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
                     .setTitle("Delete Budget")
                     .setMessage("Are you sure you want to delete this budget?")
                     .setPositiveButton("Delete", (dialog, which) -> {
-                        databaseManager.deleteBudget(budget, new DatabaseManager.OnCompletionListener() {
-                            @Override
-                            public void onSuccess() {
-                                int pos = budgets.indexOf(budget);
-                                if (pos != -1) {
-                                    budgets.remove(pos);
-                                    notifyItemRemoved(pos);
-
-                                    if (budgets.isEmpty()) {
-                                        // Powiadomienie o pustym stanie
-                                        notifyDataSetChanged();
-                                    }
-                                }
-                            }
-
-                            @Override
-                            public void onError(Exception e) {
-                                // Obsługa błędu
-                            }
-                        });
+                        if (deleteListener != null) {
+                            deleteListener.onBudgetDelete(budget);
+                        }
                     })
                     .setNegativeButton("Cancel", null)
                     .show();
@@ -183,94 +209,45 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
     }
 
     /**
-     * Ładuje transakcje dla danego budżetu i aktualizuje widok.
+     * Wyświetla obliczony stan budżetu.
      *
      * @param holder Obiekt BudgetViewHolder.
-     * @param budget Obiekt budżetu.
+     * @param budget Budżet z obliczonymi wydatkami.
      */
-    private void loadTransactionsForBudget(BudgetViewHolder holder, Budget budget) {
-        // Wyświetlanie stanu ładowania
-        holder.progressBar.setProgress(0);
-        holder.textViewSpent.setText("Loading...");
+    private void bindProgress(BudgetViewHolder holder, Budget budget) {
+        Money totalSpent = budget.getSpent();
+        Money remaining = budget.getLimit().minus(totalSpent);
 
-        // Pobieranie zakresu dat
-        Date startDate = new Date(budget.getPeriodStartDate());
-        Calendar endCal = Calendar.getInstance();
-        endCal.setTimeInMillis(budget.getPeriodStartDate());
-
-        switch (budget.getPeriodType()) {
-            case Budget.PERIOD_DAILY:
-                endCal.add(Calendar.DAY_OF_YEAR, 1);
-                break;
-            case Budget.PERIOD_WEEKLY:
-                endCal.add(Calendar.WEEK_OF_YEAR, 1);
-                break;
-            case Budget.PERIOD_MONTHLY:
-                endCal.add(Calendar.MONTH, 1);
-                break;
-            case Budget.PERIOD_YEARLY:
-                endCal.add(Calendar.YEAR, 1);
-                break;
+        // Aktualizacja widoku
+        NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance();
+        String formattedSpent = currencyFormatter.format(totalSpent.toDouble());
+        String formattedRemaining = currencyFormatter.format(remaining.isPositive() ? remaining.toDouble() : 0);
+
+        // Obliczanie procentu
+        int percentage = (int) Math.min(100, totalSpent.percentOf(budget.getLimit()));
+
+        holder.progressBar.setProgress(percentage);
+        holder.textViewSpent.setText("Spent: " + formattedSpent);
+        holder.textViewRemaining.setText("Remaining: " + formattedRemaining);
+
+        // Ustawianie koloru paska postępu
+        if (percentage >= 90) {
+            holder.progressBar.setProgressTintList(
+                    android.content.res.ColorStateList.valueOf(0xFFFF5252)); // Czerwony
+        } else if (percentage >= 75) {
+            holder.progressBar.setProgressTintList(
+                    android.content.res.ColorStateList.valueOf(0xFFFFB74D)); // Pomarańczowy
+        } else {
+            holder.progressBar.setProgressTintList(
+                    android.content.res.ColorStateList.valueOf(0xFF4CAF50)); // Zielony
         }
-
-        // Pobieranie transakcji
-        databaseManager.getTransactionsForBudget(
-                budget.getUserId(),
-                budget.getCategoryId(),
-                startDate,
-                endCal.getTime(),
-                new DatabaseManager.OnTransactionsLoadedListener() {
-                    @Override
-                    public void onTransactionsLoaded(List<Transaction> transactions) {
-                        // Obliczanie całkowitych wydatków
-                        double totalSpent = 0;
-                        for (Transaction transaction : transactions) {
-                            if (transaction.isExpense()) {
-                                totalSpent += transaction.getAmount();
-                            }
-                        }
-
-                        // Aktualizacja widoku
-                        NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance();
-                        String formattedSpent = currencyFormatter.format(totalSpent);
-                        String formattedRemaining = currencyFormatter.format(Math.max(0, budget.getLimit() - totalSpent));
-
-                        // Obliczanie procentu
-                        int percentage = budget.getLimit() > 0 ?
-                                (int) Math.min(100, (totalSpent / budget.getLimit()) * 100) : 0;
-
-                        holder.progressBar.setProgress(percentage);
-                        holder.textViewSpent.setText("Spent: " + formattedSpent);
-                        holder.textViewRemaining.setText("Remaining: " + formattedRemaining);
-
-                        // Ustawianie koloru paska postępu
-                        if (percentage >= 90) {
-                            holder.progressBar.setProgressTintList(
-                                    android.content.res.ColorStateList.valueOf(0xFFFF5252)); // Czerwony
-                        } else if (percentage >= 75) {
-                            holder.progressBar.setProgressTintList(
-                                    android.content.res.ColorStateList.valueOf(0xFFFFB74D)); // Pomarańczowy
-                        } else {
-                            holder.progressBar.setProgressTintList(
-                                    android.content.res.ColorStateList.valueOf(0xFF4CAF50)); // Zielony
-                        }
-                    }
-
-                    @Override
-                    public void onError(Exception e) {
-                        holder.textViewSpent.setText("Error loading data");
-                    }
-                });
     }
 
     /**
-     * Zwraca liczbę elementów w liście.
-     *
-     * @return Liczba elementów.
+     * Interfejs zwrotny dla usuwania budżetu.
      */
-    @Override
-    public int getItemCount() {
-        return budgets.size();
+    public interface OnBudgetDeleteListener {
+        void onBudgetDelete(Budget budget);
     }
 
     /**
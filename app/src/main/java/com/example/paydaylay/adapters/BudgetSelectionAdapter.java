@@ -7,6 +7,8 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.paydaylay.R;
@@ -14,21 +16,40 @@ import com.example.paydaylay.models.Budget;
 import com.example.paydaylay.models.Category;
 
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Adapter BudgetSelectionAdapter obsługuje wyświetlanie listy budżetów w RecyclerView
  * w celu ich wyboru przez użytkownika. Umożliwia wyświetlanie szczegółów budżetu,
  * takich jak kategoria, limit oraz okres.
  */
-public class BudgetSelectionAdapter extends RecyclerView.Adapter<BudgetSelectionAdapter.BudgetViewHolder> {
+public class BudgetSelectionAdapter extends ListAdapter<Budget, BudgetSelectionAdapter.BudgetViewHolder> {
+
+    private static final DiffUtil.ItemCallback<Budget> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<Budget>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull Budget oldItem, @NonNull Budget newItem) {
+                    return Objects.equals(oldItem.getId(), newItem.getId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull Budget oldItem, @NonNull Budget newItem) {
+                    return oldItem.getLimit().equals(newItem.getLimit())
+                            && oldItem.getPeriodType() == newItem.getPeriodType()
+                            && Objects.equals(oldItem.getCategoryId(), newItem.getCategoryId());
+                }
+            };
 
     // Kontekst aplikacji
     private final Context context;
 
-    // Lista budżetów i kategorii
-    private final List<Budget> budgets;
-    private final List<Category> categories;
+    // Lista kategorii powiązanych z budżetami
+    private final List<Category> categories = new ArrayList<>();
+
+    // Stabilne identyfikatory elementów przypisane identyfikatorom dokumentów
+    private final StableIdMap stableIds = new StableIdMap();
 
     // Listener obsługujący wybór budżetu
     private OnBudgetSelectedListener listener;
@@ -48,9 +69,36 @@ public class BudgetSelectionAdapter extends RecyclerView.Adapter<BudgetSelection
      * @param categories Lista kategorii powiązanych z budżetami.
      */
     public BudgetSelectionAdapter(Context context, List<Budget> budgets, List<Category> categories) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.budgets = budgets;
-        this.categories = categories;
+        setHasStableIds(true);
+        updateData(budgets, categories);
+    }
+
+    /**
+     * Aktualizuje listę budżetów i kategorii. Lista jest porównywana z obecną w wątku tła.
+     *
+     * @param newBudgets Nowa lista budżetów.
+     * @param newCategories Nowa lista kategorii.
+     */
+    public void updateData(List<Budget> newBudgets, List<Category> newCategories) {
+        if (!categories.equals(newCategories)) {
+            categories.clear();
+            categories.addAll(newCategories);
+            notifyItemRangeChanged(0, getItemCount());
+        }
+        submitList(new ArrayList<>(newBudgets));
+    }
+
+    /**
+     * Zwraca stabilny identyfikator elementu na podstawie identyfikatora dokumentu budżetu.
+     *
+     * @param position Pozycja elementu w liście.
+     * @return Stabilny identyfikator.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.get(getItem(position).getId());
     }
 
     /**
@@ -84,7 +132,7 @@ public class BudgetSelectionAdapter extends RecyclerView.Adapter<BudgetSelection
      */
     @Override
     public void onBindViewHolder(@NonNull BudgetViewHolder holder, int position) {
-        Budget budget = budgets.get(position);
+        Budget budget = getItem(position);
 
         // Ustawienie nazwy kategorii lub "Ogólny budżet"
         String categoryName = context.getString(R.string.overall_budget);
@@ -101,7 +149,7 @@ public class BudgetSelectionAdapter extends RecyclerView.Adapter<BudgetSelection
 
         // Formatowanie kwoty budżetu
         NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
-        holder.textViewAmount.setText(currencyFormat.format(budget.getLimit()));
+        holder.textViewAmount.setText(currencyFormat.format(budget.getLimit().toDouble()));
 
         // Określenie okresu budżetu
         String periodText = "";
@@ -130,16 +178,6 @@ public class BudgetSelectionAdapter extends RecyclerView.Adapter<BudgetSelection
         });
     }
 
-    /**
-     * Zwraca liczbę elementów w liście.
-     *
-     * @return Liczba elementów.
-     */
-    @Override
-    public int getItemCount() {
-        return budgets.size();
-    }
-
     /**
      * Klasa BudgetViewHolder przechowuje widoki dla elementu budżetu.
      */
@@ -10,21 +10,41 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.paydaylay.R;
 import com.example.paydaylay.models.Category;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Adapter CategoryAdapter obsługuje wyświetlanie listy kategorii w RecyclerView.
  * Umożliwia użytkownikowi przeglądanie i wybieranie kategorii.
+ * Zmiany listy są porównywane przez DiffUtil w wątku tła.
  */
-public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.CategoryViewHolder> {
+public class CategoryAdapter extends ListAdapter<Category, CategoryAdapter.CategoryViewHolder> {
 
-    // Lista kategorii
-    private final List<Category> categories;
+    private static final DiffUtil.ItemCallback<Category> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<Category>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull Category oldItem, @NonNull Category newItem) {
+                    return Objects.equals(oldItem.getId(), newItem.getId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull Category oldItem, @NonNull Category newItem) {
+                    return oldItem.getColor() == newItem.getColor()
+                            && Objects.equals(oldItem.getName(), newItem.getName())
+                            && Objects.equals(oldItem.getIconName(), newItem.getIconName());
+                }
+            };
+
+    // Stabilne identyfikatory elementów przypisane identyfikatorom dokumentów
+    private final StableIdMap stableIds = new StableIdMap();
 
     // Kontekst aplikacji
     private final Context context;
@@ -47,9 +67,22 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
      * @param listener Listener obsługujący kliknięcia na kategorie.
      */
     public CategoryAdapter(Context context, List<Category> categories, OnCategoryClickListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.categories = categories;
         this.listener = listener;
+        setHasStableIds(true);
+        submitList(new ArrayList<>(categories));
+    }
+
+    /**
+     * Zwraca stabilny identyfikator elementu na podstawie identyfikatora dokumentu kategorii.
+     *
+     * @param position Pozycja elementu w liście.
+     * @return Stabilny identyfikator.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.get(getItem(position).getId());
     }
 
     /**
@@ -74,29 +107,17 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
      */
     @Override
     public void onBindViewHolder(@NonNull CategoryViewHolder holder, int position) {
-        Category category = categories.get(position);
-        holder.bind(category, position);
-    }
-
-    /**
-     * Zwraca liczbę elementów w liście.
-     *
-     * @return Liczba elementów.
-     */
-    @Override
-    public int getItemCount() {
-        return categories.size();
+        holder.bind(getItem(position));
     }
 
     /**
-     * Aktualizuje listę kategorii i odświeża widok.
+     * Aktualizuje listę kategorii. Lista jest porównywana z obecną w wątku tła,
+     * a odświeżane są tylko zmienione wiersze.
      *
      * @param newCategories Nowa lista kategorii.
      */
     public void updateCategories(List<Category> newCategories) {
-        this.categories.clear();
-        this.categories.addAll(newCategories);
-        notifyDataSetChanged();
+        submitList(new ArrayList<>(newCategories));
     }
 
     /**
@@ -118,9 +139,8 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
          * Wiąże dane kategorii z widokiem.
          *
          * @param category Obiekt kategorii.
-         * @param position Pozycja elementu w liście.
          */
-        void bind(final Category category, final int position) {
+        void bind(final Category category) {
             textViewCategoryName.setText(category.getName());
 
             // Ustawienie koloru kategorii
@@ -137,8 +157,10 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
             }
 
             // Ustawienie nasłuchiwacza kliknięcia
+            // Pozycja jest odczytywana przy kliknięciu - po zmianie listy element mógł się przesunąć
             itemView.setOnClickListener(v -> {
-                if (listener != null) {
+                int position = getAdapterPosition();
+                if (listener != null && position != RecyclerView.NO_POSITION) {
                     listener.onCategoryClick(category, position);
                 }
             });
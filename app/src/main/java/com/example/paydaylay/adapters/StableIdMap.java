@@ -0,0 +1,29 @@
+package com.example.paydaylay.adapters;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Przypisuje identyfikatorom dokumentów Firestore stabilne identyfikatory elementów RecyclerView.
+ * Ten sam dokument otrzymuje ten sam identyfikator przez cały czas życia adaptera,
+ * dzięki czemu RecyclerView może ponownie użyć jego widoku po zmianie listy.
+ */
+final class StableIdMap {
+
+    private final Map<String, Long> ids = new HashMap<>();
+
+    /**
+     * Zwraca stabilny identyfikator dokumentu, przydzielając nowy przy pierwszym wywołaniu.
+     *
+     * @param documentId Identyfikator dokumentu.
+     * @return Stabilny identyfikator elementu.
+     */
+    long get(String documentId) {
+        Long id = ids.get(documentId);
+        if (id == null) {
+            id = (long) ids.size();
+            ids.put(documentId, id);
+        }
+        return id;
+    }
+}
@@ -2,13 +2,16 @@ package com.example.paydaylay.adapters;
 
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.paydaylay.R;
@@ -16,24 +19,50 @@ import com.example.paydaylay.activities.TransactionActivity;
 import com.example.paydaylay.models.Category;
 import com.example.paydaylay.models.Transaction;
 
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Adapter TransactionAdapter obsługuje wyświetlanie listy transakcji w RecyclerView.
  * Umożliwia użytkownikowi przeglądanie szczegółów transakcji, takich jak opis, kwota,
  * data oraz kategoria.
+ * Transakcje są zamieniane na gotowe wiersze (TransactionRow) w wątku tła, a zmiany listy
+ * są porównywane przez DiffUtil, więc wiązanie widoku jedynie przypisuje gotowe wartości.
  */
-public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.TransactionViewHolder> {
+public class TransactionAdapter extends ListAdapter<TransactionRow, TransactionAdapter.TransactionViewHolder> {
+
+    private static final DiffUtil.ItemCallback<TransactionRow> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<TransactionRow>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull TransactionRow oldItem, @NonNull TransactionRow newItem) {
+                    return Objects.equals(oldItem.id, newItem.id);
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull TransactionRow oldItem, @NonNull TransactionRow newItem) {
+                    return oldItem.hasSameContent(newItem);
+                }
+            };
+
+    // Jeden wątek dla wszystkich adapterów - zachowuje kolejność aktualizacji
+    private static final ExecutorService rowExecutor = Executors.newSingleThreadExecutor();
 
     private final Context context;
-    private final List<Transaction> transactions;
-    private final Map<String, Category> categoryMap;
-    private final SimpleDateFormat dateFormat;
-    private final String currencySymbol;
+    private final TransactionRow.Factory rowFactory;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final StableIdMap stableIds = new StableIdMap();
+
+    // Stan odczytywany i zmieniany wyłącznie w wątku głównym
+    private List<Transaction> latestTransactions = Collections.emptyList();
+    private Map<String, Category> categoryMap = Collections.emptyMap();
+    // Ostatnio zbudowane wiersze - mogą jeszcze czekać na zakończenie porównywania
+    private List<TransactionRow> latestRows = Collections.emptyList();
 
     /**
      * Konstruktor adaptera.
@@ -43,16 +72,22 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
      * @param categories Lista kategorii powiązanych z transakcjami.
      */
     public TransactionAdapter(Context context, List<Transaction> transactions, List<Category> categories) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.transactions = transactions;
-        this.categoryMap = new HashMap<>();
-        this.dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-        this.currencySymbol = context.getString(R.string.currency_symbol);
+        this.rowFactory = new TransactionRow.Factory(context);
+        setHasStableIds(true);
+        updateData(transactions, categories);
+    }
 
-        // Tworzenie mapy kategorii dla szybkiego dostępu
-        for (Category category : categories) {
-            categoryMap.put(category.getId(), category);
-        }
+    /**
+     * Zwraca stabilny identyfikator elementu na podstawie identyfikatora dokumentu transakcji.
+     *
+     * @param position Pozycja elementu w liście.
+     * @return Stabilny identyfikator.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.get(getItem(position).id);
     }
 
     /**
@@ -66,7 +101,17 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
     @Override
     public TransactionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context).inflate(R.layout.item_transaction, parent, false);
-        return new TransactionViewHolder(view);
+        TransactionViewHolder holder = new TransactionViewHolder(view);
+
+        // Nasłuchiwacz jest ustawiany raz - transakcja jest odczytywana z aktualnie powiązanego wiersza
+        view.setOnClickListener(v -> {
+            if (holder.row != null) {
+                Intent intent = new Intent(context, TransactionActivity.class);
+                intent.putExtra("transaction", holder.row.transaction);
+                context.startActivity(intent);
+            }
+        });
+        return holder;
     }
 
     /**
@@ -77,72 +122,102 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
      */
     @Override
     public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
-        Transaction transaction = transactions.get(position);
-        Category category = categoryMap.get(transaction.getCategoryId());
-
-        // Ustawienie opisu transakcji
-        if (transaction.getDescription() != null && !transaction.getDescription().isEmpty()) {
-            holder.textViewTransactionDescription.setText(transaction.getDescription());
-        } else {
-            holder.textViewTransactionDescription.setText(R.string.no_description);
-        }
-
-        // Ustawienie kwoty transakcji
-        String amountText = (transaction.isExpense() ? "- " : "+ ") +
-                String.format(Locale.getDefault(), "%.2f %s",
-                        transaction.getAmount(), currencySymbol);
-        holder.textViewTransactionAmount.setText(amountText);
-        holder.textViewTransactionAmount.setTextColor(
-                transaction.isExpense() ?
-                        context.getResources().getColor(R.color.expense_color) :
-                        context.getResources().getColor(R.color.income_color));
-
-        // Ustawienie daty transakcji
-        holder.textViewTransactionDate.setText(dateFormat.format(transaction.getDate()));
-
-        // Ustawienie informacji o kategorii
-        if (category != null) {
-            holder.textViewCategoryName.setText(category.getName());
-            holder.viewCategoryColor.setBackgroundColor(category.getColor());
-        } else {
-            holder.textViewCategoryName.setText(R.string.unknown_category);
-            holder.viewCategoryColor.setBackgroundColor(Color.GRAY);
-        }
-
-        // Ustawienie nasłuchiwacza kliknięcia
-        holder.itemView.setOnClickListener(v -> {
-            Intent intent = new Intent(context, TransactionActivity.class);
-            intent.putExtra("transaction", transaction);
-            context.startActivity(intent);
-        });
+        TransactionRow row = getItem(position);
+        holder.row = row;
+        holder.textViewTransactionDescription.setText(row.description);
+        holder.textViewTransactionAmount.setText(row.amountText);
+        holder.textViewTransactionAmount.setTextColor(row.amountColor);
+        holder.textViewTransactionDate.setText(row.dateText);
+        holder.textViewCategoryName.setText(row.categoryName);
+        holder.viewCategoryColor.setBackgroundColor(row.categoryColor);
     }
 
     /**
-     * Zwraca liczbę elementów w liście.
+     * Aktualizuje dane transakcji i kategorii. Wiersze są budowane i porównywane
+     * z obecnymi w wątku tła, a odświeżane są tylko zmienione wiersze.
      *
-     * @return Liczba elementów.
+     * @param newTransactions Nowa lista transakcji.
+     * @param newCategories Nowa lista kategorii.
      */
-    @Override
-    public int getItemCount() {
-        return transactions.size();
+    public void updateData(List<Transaction> newTransactions, List<Category> newCategories) {
+        categoryMap = toMap(newCategories);
+        updateTransactions(newTransactions, null);
     }
 
     /**
-     * Aktualizuje dane transakcji i kategorii oraz odświeża widok.
+     * Zastępuje listę transakcji, zachowując bieżące kategorie.
      *
      * @param newTransactions Nowa lista transakcji.
-     * @param newCategories Nowa lista kategorii.
+     * @param commitCallback Wywoływany po wyświetleniu nowej listy (może być null).
      */
-    public void updateData(List<Transaction> newTransactions, List<Category> newCategories) {
-        this.transactions.clear();
-        this.transactions.addAll(newTransactions);
+    public void updateTransactions(List<Transaction> newTransactions, Runnable commitCallback) {
+        latestTransactions = new ArrayList<>(newTransactions);
+        rebuildRows(commitCallback);
+    }
 
-        this.categoryMap.clear();
-        for (Category category : newCategories) {
-            categoryMap.put(category.getId(), category);
+    /**
+     * Dopisuje kolejną stronę transakcji na końcu listy. Budowane są tylko wiersze nowej strony.
+     *
+     * @param page Transakcje do dopisania.
+     * @param commitCallback Wywoływany po wyświetleniu nowej listy (może być null).
+     */
+    public void appendTransactions(List<Transaction> page, Runnable commitCallback) {
+        if (page.isEmpty()) {
+            if (commitCallback != null) {
+                commitCallback.run();
+            }
+            return;
         }
+        List<Transaction> combined = new ArrayList<>(latestTransactions.size() + page.size());
+        combined.addAll(latestTransactions);
+        combined.addAll(page);
+        latestTransactions = combined;
+
+        List<Transaction> pageCopy = new ArrayList<>(page);
+        Map<String, Category> categories = categoryMap;
+        rowExecutor.execute(() -> {
+            List<TransactionRow> pageRows = rowFactory.create(pageCopy, categories);
+            mainHandler.post(() -> {
+                // Zadania są wykonywane po kolei, więc latestRows zawiera już wiersze poprzednich aktualizacji
+                List<TransactionRow> rows = new ArrayList<>(latestRows.size() + pageRows.size());
+                rows.addAll(latestRows);
+                rows.addAll(pageRows);
+                submitRows(rows, commitCallback);
+            });
+        });
+    }
 
-        notifyDataSetChanged();
+    /**
+     * Aktualizuje kategorie bez zmiany listy transakcji.
+     * Wiersze są budowane ponownie, a DiffUtil odświeża tylko te, których kategoria się zmieniła.
+     *
+     * @param categories Niezmienna mapa kategorii według identyfikatora (np. ze słownika kategorii).
+     */
+    public void updateCategories(Map<String, Category> categories) {
+        categoryMap = categories;
+        rebuildRows(null);
+    }
+
+    private void rebuildRows(Runnable commitCallback) {
+        List<Transaction> transactions = latestTransactions;
+        Map<String, Category> categories = categoryMap;
+        rowExecutor.execute(() -> {
+            List<TransactionRow> rows = rowFactory.create(transactions, categories);
+            mainHandler.post(() -> submitRows(rows, commitCallback));
+        });
+    }
+
+    private void submitRows(List<TransactionRow> rows, Runnable commitCallback) {
+        latestRows = rows;
+        submitList(rows, commitCallback);
+    }
+
+    private static Map<String, Category> toMap(List<Category> categories) {
+        Map<String, Category> map = new HashMap<>();
+        for (Category category : categories) {
+            map.put(category.getId(), category);
+        }
+        return map;
     }
 
     /**
@@ -154,6 +229,7 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
         TextView textViewTransactionDate;
         TextView textViewCategoryName;
         TextView textViewTransactionAmount;
+        TransactionRow row;
 
         public TransactionViewHolder(@NonNull View itemView) {
             super(itemView);
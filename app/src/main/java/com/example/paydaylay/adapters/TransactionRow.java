@@ -0,0 +1,109 @@
+package com.example.paydaylay.adapters;
+
+import android.content.Context;
+import android.graphics.Color;
+
+import androidx.core.content.ContextCompat;
+
+import com.example.paydaylay.R;
+import com.example.paydaylay.models.Category;
+import com.example.paydaylay.models.Transaction;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Niezmienny model wiersza listy transakcji.
+ * Zawiera gotowe do wyświetlenia teksty i kolory - formatowanie kwoty i daty oraz
+ * wyszukanie kategorii odbywa się raz, w wątku tła, a nie przy każdym wiązaniu widoku.
+ */
+public final class TransactionRow {
+
+    final Transaction transaction;
+    final String id;
+    final String description;
+    final String amountText;
+    final int amountColor;
+    final String dateText;
+    final String categoryName;
+    final int categoryColor;
+
+    private TransactionRow(Transaction transaction, String description, String amountText, int amountColor,
+                           String dateText, String categoryName, int categoryColor) {
+        this.transaction = transaction;
+        this.id = transaction.getId();
+        this.description = description;
+        this.amountText = amountText;
+        this.amountColor = amountColor;
+        this.dateText = dateText;
+        this.categoryName = categoryName;
+        this.categoryColor = categoryColor;
+    }
+
+    /**
+     * Porównuje wyświetlane dane wiersza.
+     *
+     * @param other Inny wiersz.
+     * @return True, jeśli oba wiersze wyglądają tak samo.
+     */
+    boolean hasSameContent(TransactionRow other) {
+        return amountColor == other.amountColor
+                && categoryColor == other.categoryColor
+                && amountText.equals(other.amountText)
+                && dateText.equals(other.dateText)
+                && description.equals(other.description)
+                && categoryName.equals(other.categoryName);
+    }
+
+    /**
+     * Tworzy wiersze z transakcji. Zasoby (waluta, kolory, teksty domyślne) są odczytywane
+     * raz przy tworzeniu fabryki. Fabryka nie jest bezpieczna wątkowo (SimpleDateFormat) -
+     * należy jej używać z jednego wątku.
+     */
+    static final class Factory {
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+        private final String currencySymbol;
+        private final String noDescription;
+        private final String unknownCategory;
+        private final int expenseColor;
+        private final int incomeColor;
+
+        Factory(Context context) {
+            currencySymbol = context.getString(R.string.currency_symbol);
+            noDescription = context.getString(R.string.no_description);
+            unknownCategory = context.getString(R.string.unknown_category);
+            expenseColor = ContextCompat.getColor(context, R.color.expense_color);
+            incomeColor = ContextCompat.getColor(context, R.color.income_color);
+        }
+
+        List<TransactionRow> create(List<Transaction> transactions, Map<String, Category> categoryMap) {
+            List<TransactionRow> rows = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                rows.add(create(transaction, categoryMap.get(transaction.getCategoryId())));
+            }
+            return rows;
+        }
+
+        TransactionRow create(Transaction transaction, Category category) {
+            String description = transaction.getDescription() != null && !transaction.getDescription().isEmpty()
+                    ? transaction.getDescription()
+                    : noDescription;
+
+            String amountText = (transaction.isExpense() ? "- " : "+ ") +
+                    String.format(Locale.getDefault(), "%.2f %s", transaction.getAmount().toDouble(), currencySymbol);
+            int amountColor = transaction.isExpense() ? expenseColor : incomeColor;
+
+            String dateText = transaction.getDate() != null ? dateFormat.format(transaction.getDate()) : "";
+
+            String categoryName = category != null ? Objects.toString(category.getName(), "") : unknownCategory;
+            int categoryColor = category != null ? category.getColor() : Color.GRAY;
+
+            return new TransactionRow(transaction, description, amountText, amountColor,
+                    dateText, categoryName, categoryColor);
+        }
+    }
+}
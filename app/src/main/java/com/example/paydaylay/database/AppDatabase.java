@@ -2,28 +2,215 @@ package com.example.paydaylay.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
-import com.example.paydaylay.models.TransactionEntity;
-import com.example.paydaylay.models.CategoryEntity;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Klasa AppDatabase definiuje bazę danych Room dla aplikacji PaydayLay.
- * Zawiera tabele dla transakcji i kategorii.
+ * Zawiera tabele dla transakcji i kategorii oraz dzienne sumy transakcji (daily_totals)
+ * i podsumowanie użytkownika (ledger_summary), aktualizowane przez wyzwalacze
+ * przy każdym zapisie i usunięciu transakcji.
  */
-@Database(entities = {TransactionEntity.class, CategoryEntity.class}, version = 1, exportSchema = false)
+@Database(entities = {TransactionEntity.class, CategoryEntity.class, DailyTotalEntity.class,
+        LedgerSummaryEntity.class},
+        version = 7, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
     private static AppDatabase instance;
 
+    // Wspólny wątek dla operacji na bazie (Room nie pozwala na zapytania w wątku głównym)
+    public static final ExecutorService databaseExecutor = Executors.newSingleThreadExecutor();
+
     // DAO dla transakcji
     public abstract TransactionDao transactionDao();
 
     // DAO dla kategorii
     public abstract CategoryDao categoryDao();
 
+    // DAO dla dziennych sum transakcji
+    public abstract DailyTotalDao dailyTotalDao();
+
+    // DAO dla podsumowania transakcji użytkownika
+    public abstract LedgerDao ledgerDao();
+
+    // Klucz dnia (rrrrmmdd, UTC) wiersza transakcji NEW lub OLD - ten sam co DailyTotalEntity.dayKey.
+    // Strefa stała, a nie lokalna: po zmianie strefy urządzenia wyzwalacz usunięcia
+    // musi trafić w ten sam wiersz, do którego transakcja została dodana
+    private static final String DAY_NEW = dayKeySql("NEW.dateTimestamp");
+    private static final String DAY_OLD = dayKeySql("OLD.dateTimestamp");
+
+    private static final String KEY_NEW = "userId = NEW.userId AND day = " + DAY_NEW +
+            " AND categoryId = COALESCE(NEW.categoryId, '') AND isExpense = NEW.isExpense";
+    private static final String KEY_OLD = "userId = OLD.userId AND day = " + DAY_OLD +
+            " AND categoryId = COALESCE(OLD.categoryId, '') AND isExpense = OLD.isExpense";
+
+    private static final String ADD_NEW =
+            "INSERT OR IGNORE INTO daily_totals (userId, day, categoryId, isExpense, total, count) " +
+            "VALUES (NEW.userId, " + DAY_NEW + ", COALESCE(NEW.categoryId, ''), NEW.isExpense, 0, 0); " +
+            "UPDATE daily_totals SET total = total + NEW.amountMinor, count = count + 1 WHERE " + KEY_NEW + "; ";
+    private static final String REMOVE_OLD =
+            "UPDATE daily_totals SET total = total - OLD.amountMinor, count = count - 1 WHERE " + KEY_OLD + "; " +
+            "DELETE FROM daily_totals WHERE " + KEY_OLD + " AND count <= 0; ";
+
+    private static final String LEDGER_ADD_NEW =
+            "INSERT OR IGNORE INTO ledger_summary (userId, totalIncome, totalExpense, count) " +
+            "VALUES (NEW.userId, 0, 0, 0); " +
+            "UPDATE ledger_summary SET " +
+            "totalIncome = totalIncome + CASE WHEN NEW.isExpense THEN 0 ELSE NEW.amountMinor END, " +
+            "totalExpense = totalExpense + CASE WHEN NEW.isExpense THEN NEW.amountMinor ELSE 0 END, " +
+            "count = count + 1 WHERE userId = NEW.userId; ";
+    private static final String LEDGER_REMOVE_OLD =
+            "UPDATE ledger_summary SET " +
+            "totalIncome = totalIncome - CASE WHEN OLD.isExpense THEN 0 ELSE OLD.amountMinor END, " +
+            "totalExpense = totalExpense - CASE WHEN OLD.isExpense THEN OLD.amountMinor ELSE 0 END, " +
+            "count = count - 1 WHERE userId = OLD.userId; " +
+            "DELETE FROM ledger_summary WHERE userId = OLD.userId AND count <= 0; ";
+
+    /**
+     * Migracja 3 -> 4: tworzy tabelę daily_totals i wypełnia ją na podstawie istniejących transakcji.
+     * Wyzwalacze zakłada dopiero migracja 4 -> 5, która przebudowuje obie tabele.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_totals` (`userId` TEXT NOT NULL, " +
+                    "`day` INTEGER NOT NULL, `categoryId` TEXT NOT NULL, `isExpense` INTEGER NOT NULL, " +
+                    "`total` REAL NOT NULL, `count` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`userId`, `day`, `categoryId`, `isExpense`))");
+            db.execSQL("INSERT INTO daily_totals (userId, day, categoryId, isExpense, total, count) " +
+                    "SELECT userId, " + dayKeySql("dateTimestamp") + ", " +
+                    "COALESCE(categoryId, ''), isExpense, SUM(amount), COUNT(*) FROM transactions " +
+                    "WHERE userId IS NOT NULL GROUP BY 1, 2, 3, 4");
+        }
+    };
+
+    /**
+     * Migracja 4 -> 5: kwoty są przechowywane jako liczby całkowite groszy (Money).
+     * SQLite nie pozwala zmienić typu kolumny, więc tabela transakcji jest przebudowywana
+     * z przeliczeniem kwot, a daily_totals tworzona i wypełniana od nowa.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP TRIGGER IF EXISTS daily_totals_after_insert");
+            db.execSQL("DROP TRIGGER IF EXISTS daily_totals_after_delete");
+            db.execSQL("DROP TRIGGER IF EXISTS daily_totals_after_update");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `transactions_new` (`id` TEXT NOT NULL, " +
+                    "`amountMinor` INTEGER NOT NULL, `dateTimestamp` INTEGER NOT NULL, `categoryId` TEXT, " +
+                    "`description` TEXT, `userId` TEXT, `isExpense` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+            db.execSQL("INSERT INTO transactions_new (id, amountMinor, dateTimestamp, categoryId, description, " +
+                    "userId, isExpense) SELECT id, CAST(ROUND(amount * 100) AS INTEGER), dateTimestamp, " +
+                    "categoryId, description, userId, isExpense FROM transactions");
+            db.execSQL("DROP TABLE transactions");
+            db.execSQL("ALTER TABLE transactions_new RENAME TO transactions");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_userId_dateTimestamp` " +
+                    "ON `transactions` (`userId`, `dateTimestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_userId_categoryId_dateTimestamp` " +
+                    "ON `transactions` (`userId`, `categoryId`, `dateTimestamp`)");
+
+            db.execSQL("DROP TABLE IF EXISTS daily_totals");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_totals` (`userId` TEXT NOT NULL, " +
+                    "`day` INTEGER NOT NULL, `categoryId` TEXT NOT NULL, `isExpense` INTEGER NOT NULL, " +
+                    "`total` INTEGER NOT NULL, `count` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`userId`, `day`, `categoryId`, `isExpense`))");
+            fillDailyTotals(db);
+            createDailyTotalTriggers(db);
+        }
+    };
+
+    /**
+     * Migracja 5 -> 6: tworzy tabelę ledger_summary, wypełnia ją na podstawie
+     * istniejących transakcji i zakłada wyzwalacze.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `ledger_summary` (`userId` TEXT NOT NULL, " +
+                    "`totalIncome` INTEGER NOT NULL, `totalExpense` INTEGER NOT NULL, `count` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`userId`))");
+            db.execSQL("INSERT INTO ledger_summary (userId, totalIncome, totalExpense, count) " +
+                    "SELECT userId, SUM(CASE WHEN isExpense THEN 0 ELSE amountMinor END), " +
+                    "SUM(CASE WHEN isExpense THEN amountMinor ELSE 0 END), COUNT(*) FROM transactions " +
+                    "WHERE userId IS NOT NULL GROUP BY userId");
+            createLedgerTriggers(db);
+        }
+    };
+
+    /**
+     * Migracja 6 -> 7: klucz dnia w daily_totals jest liczony w UTC zamiast w strefie urządzenia.
+     * Wiersze zapisane w strefie lokalnej są przeliczane od nowa, a wyzwalacze zakładane ponownie.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP TRIGGER IF EXISTS daily_totals_after_insert");
+            db.execSQL("DROP TRIGGER IF EXISTS daily_totals_after_delete");
+            db.execSQL("DROP TRIGGER IF EXISTS daily_totals_after_update");
+            db.execSQL("DELETE FROM daily_totals");
+            fillDailyTotals(db);
+            createDailyTotalTriggers(db);
+        }
+    };
+
+    /**
+     * Zwraca wyrażenie SQL z kluczem dnia (rrrrmmdd, UTC) dla kolumny znacznika czasu w milisekundach.
+     */
+    private static String dayKeySql(String timestampColumn) {
+        return "CAST(strftime('%Y%m%d', " + timestampColumn + " / 1000, 'unixepoch') AS INTEGER)";
+    }
+
+    /**
+     * Wypełnia pustą tabelę daily_totals na podstawie transakcji (kwoty w groszach).
+     *
+     * @param db Baza danych.
+     */
+    static void fillDailyTotals(SupportSQLiteDatabase db) {
+        db.execSQL("INSERT INTO daily_totals (userId, day, categoryId, isExpense, total, count) " +
+                "SELECT userId, " + dayKeySql("dateTimestamp") + ", " +
+                "COALESCE(categoryId, ''), isExpense, SUM(amountMinor), COUNT(*) FROM transactions " +
+                "WHERE userId IS NOT NULL GROUP BY 1, 2, 3, 4");
+    }
+
+    /**
+     * Zakłada wyzwalacze utrzymujące tabelę daily_totals (jeśli jeszcze nie istnieją).
+     * Zapis transakcji musi odbywać się przez INSERT/UPDATE (Upsert), a nie INSERT OR REPLACE -
+     * usunięcie wiersza przez REPLACE nie uruchamia wyzwalacza DELETE.
+     *
+     * @param db Baza danych.
+     */
+    static void createDailyTotalTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS daily_totals_after_insert AFTER INSERT ON transactions " +
+                "BEGIN " + ADD_NEW + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS daily_totals_after_delete AFTER DELETE ON transactions " +
+                "BEGIN " + REMOVE_OLD + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS daily_totals_after_update " +
+                "AFTER UPDATE OF userId, amountMinor, dateTimestamp, categoryId, isExpense ON transactions " +
+                "BEGIN " + REMOVE_OLD + ADD_NEW + "END");
+    }
+
+    /**
+     * Zakłada wyzwalacze utrzymujące tabelę ledger_summary (jeśli jeszcze nie istnieją).
+     *
+     * @param db Baza danych.
+     */
+    static void createLedgerTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS ledger_summary_after_insert AFTER INSERT ON transactions " +
+                "BEGIN " + LEDGER_ADD_NEW + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS ledger_summary_after_delete AFTER DELETE ON transactions " +
+                "BEGIN " + LEDGER_REMOVE_OLD + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS ledger_summary_after_update " +
+                "AFTER UPDATE OF userId, amountMinor, isExpense ON transactions " +
+                "BEGIN " + LEDGER_REMOVE_OLD + LEDGER_ADD_NEW + "END");
+    }
+
     /**
      * Pobiera instancję bazy danych.
      *
@@ -36,7 +223,16 @@ public abstract class AppDatabase extends RoomDatabase {
                             context.getApplicationContext(),
                             AppDatabase.class,
                             "paydaylay_database")
+                    .addMigrations(MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7)
                     .fallbackToDestructiveMigration()
+                    .addCallback(new Callback() {
+                        @Override
+                        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                            // Nowa baza (lub odtworzona po migracji destrukcyjnej) nie ma jeszcze wyzwalaczy
+                            createDailyTotalTriggers(db);
+                            createLedgerTriggers(db);
+                        }
+                    })
                     .build();
         }
         return instance;
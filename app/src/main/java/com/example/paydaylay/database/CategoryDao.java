@@ -4,8 +4,7 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
-
-import com.example.paydaylay.models.CategoryEntity;
+import androidx.room.Transaction;
 
 import java.util.List;
 
@@ -24,6 +23,15 @@ public interface CategoryDao {
     @Query("SELECT * FROM categories WHERE userId = :userId")
     List<CategoryEntity> getCategoriesByUser(String userId);
 
+    /**
+     * Pobiera kategorie o podanych identyfikatorach.
+     *
+     * @param ids Identyfikatory kategorii.
+     * @return Lista znalezionych kategorii.
+     */
+    @Query("SELECT * FROM categories WHERE id IN (:ids)")
+    List<CategoryEntity> getByIds(List<String> ids);
+
     /**
      * Wstawia listę kategorii do bazy danych.
      * Jeśli kategoria już istnieje, zostanie zastąpiona.
@@ -40,4 +48,16 @@ public interface CategoryDao {
      */
     @Query("DELETE FROM categories WHERE userId = :userId")
     void deleteAllByUser(String userId);
+
+    /**
+     * Zastępuje wszystkie kategorie użytkownika nową listą w jednej transakcji bazy danych.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param categories Nowa lista kategorii.
+     */
+    @Transaction
+    default void replaceAllByUser(String userId, List<CategoryEntity> categories) {
+        deleteAllByUser(userId);
+        insertAll(categories);
+    }
 }
\ No newline at end of file
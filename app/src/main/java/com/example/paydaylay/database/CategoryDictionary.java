@@ -0,0 +1,348 @@
+package com.example.paydaylay.database;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.paydaylay.firebase.DatabaseManager;
+import com.example.paydaylay.models.Category;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Słownik kategorii użytkownika przechowywany w pamięci.
+ * Dla każdego użytkownika działa jeden nasłuchiwacz zmian Firestore - każda zmiana kolekcji
+ * kategorii tworzy nową, niezmienną migawkę (Snapshot) z kolejnym numerem wersji
+ * i jest zapisywana w tabeli kategorii Room. Przed nadejściem pierwszych danych z Firestore
+ * słownik jest wypełniany z bazy Room.
+ * Odbiorcy mogą porównać numer wersji i pominąć przebudowę struktur pochodnych, jeśli nic się nie zmieniło.
+ * Praca w tle odczytuje słownik przez readCategories, który nie pozostawia otwartego nasłuchiwacza.
+ * Wszystkie metody publiczne muszą być wywoływane w wątku głównym.
+ */
+public class CategoryDictionary {
+    private static final String TAG = "CategoryDictionary";
+    private static final long INITIAL_RETRY_DELAY_MS = 5_000;
+    private static final long MAX_RETRY_DELAY_MS = 5 * 60 * 1000;
+
+    private static CategoryDictionary instance;
+
+    private final CategoryDao categoryDao;
+    private final DatabaseManager databaseManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Entry> entries = new HashMap<>();
+    // Numery wersji są unikalne w całym procesie, także po ponownym uruchomieniu słownika użytkownika
+    private long nextVersion = 1;
+
+    private CategoryDictionary(Context context) {
+        this.categoryDao = AppDatabase.getInstance(context).categoryDao();
+        this.databaseManager = DatabaseManager.getInstance();
+    }
+
+    /**
+     * Pobiera instancję słownika.
+     *
+     * @param context Kontekst aplikacji.
+     * @return Instancja CategoryDictionary.
+     */
+    public static synchronized CategoryDictionary getInstance(Context context) {
+        if (instance == null) {
+            instance = new CategoryDictionary(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Zwraca bieżącą migawkę słownika bez oczekiwania na dane.
+     *
+     * @param userId Identyfikator użytkownika.
+     * @return Migawka lub Snapshot.EMPTY (wersja 0), jeśli dane nie zostały jeszcze załadowane.
+     */
+    public Snapshot get(String userId) {
+        Entry entry = entries.get(userId);
+        return entry != null ? entry.snapshot : Snapshot.EMPTY;
+    }
+
+    /**
+     * Rejestruje odbiorcę zmian słownika. Jeśli dane są już dostępne, odbiorca otrzymuje
+     * je natychmiast, a następnie przy każdej zmianie kategorii. Po błędzie nasłuchiwania
+     * odbiorca pozostaje zarejestrowany - nasłuchiwacz Firestore jest tworzony ponownie.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param listener Odbiorca zmian.
+     */
+    public void observe(String userId, OnCategoriesChangedListener listener) {
+        Entry entry = start(userId);
+        entry.retained = true;
+        addObserver(entry, listener);
+    }
+
+    /**
+     * Wyrejestrowuje odbiorcę zmian słownika.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param listener Odbiorca zmian.
+     */
+    public void removeObserver(String userId, OnCategoriesChangedListener listener) {
+        Entry entry = entries.get(userId);
+        if (entry != null) {
+            entry.observers.remove(listener);
+        }
+    }
+
+    /**
+     * Dostarcza jednorazowo migawkę słownika - natychmiast, jeśli jest już załadowana,
+     * albo po nadejściu pierwszych danych. Słownik pozostaje potem aktywny dla kolejnych ekranów.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param listener Interfejs zwrotny wywoływany jeden raz.
+     */
+    public void getCategories(String userId, OnCategoriesChangedListener listener) {
+        read(userId, true, listener);
+    }
+
+    /**
+     * Dostarcza jednorazowo migawkę słownika na potrzeby pracy w tle (zadania, powiadomienia).
+     * Jeśli słownika nie używa żaden ekran, nasłuchiwacz uruchomiony na potrzeby odczytu
+     * jest zamykany zaraz po dostarczeniu danych.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param listener Interfejs zwrotny wywoływany jeden raz.
+     */
+    public void readCategories(String userId, OnCategoriesChangedListener listener) {
+        read(userId, false, listener);
+    }
+
+    /**
+     * Zatrzymuje nasłuchiwanie zmian i usuwa słownik użytkownika (np. po wylogowaniu).
+     *
+     * @param userId Identyfikator użytkownika.
+     */
+    public void release(String userId) {
+        Entry entry = entries.remove(userId);
+        if (entry != null) {
+            if (entry.registration != null) {
+                entry.registration.remove();
+            }
+            entry.observers.clear();
+        }
+    }
+
+    private void addObserver(Entry entry, OnCategoriesChangedListener listener) {
+        entry.observers.add(listener);
+        if (entry.snapshot.version > 0) {
+            listener.onCategoriesChanged(entry.snapshot);
+        }
+    }
+
+    private void read(String userId, boolean retain, OnCategoriesChangedListener listener) {
+        Entry entry = start(userId);
+        if (retain) {
+            entry.retained = true;
+        }
+        if (entry.snapshot.version > 0) {
+            listener.onCategoriesChanged(entry.snapshot);
+            releaseIfUnused(userId, entry);
+            return;
+        }
+        addObserver(entry, new OnCategoriesChangedListener() {
+            @Override
+            public void onCategoriesChanged(Snapshot snapshot) {
+                entry.observers.remove(this);
+                listener.onCategoriesChanged(snapshot);
+                releaseIfUnused(userId, entry);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                entry.observers.remove(this);
+                listener.onError(e);
+                releaseIfUnused(userId, entry);
+            }
+        });
+    }
+
+    /**
+     * Zamyka słownik uruchomiony tylko na potrzeby jednorazowych odczytów w tle.
+     */
+    private void releaseIfUnused(String userId, Entry entry) {
+        if (entries.get(userId) == entry && !entry.retained && entry.observers.isEmpty()) {
+            release(userId);
+        }
+    }
+
+    private Entry start(String userId) {
+        Entry existing = entries.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        Entry entry = new Entry();
+        entries.put(userId, entry);
+
+        // Szybki start z bazy Room - pomijany, jeśli Firestore zdążył dostarczyć dane
+        AppDatabase.databaseExecutor.execute(() -> {
+            List<Category> cached = new ArrayList<>();
+            for (CategoryEntity entity : categoryDao.getCategoriesByUser(userId)) {
+                cached.add(entity.toCategory());
+            }
+            mainHandler.post(() -> {
+                if (entries.get(userId) == entry && !entry.fromFirestore && !cached.isEmpty()) {
+                    publish(entry, cached);
+                }
+            });
+        });
+
+        listen(userId, entry);
+        return entry;
+    }
+
+    /**
+     * Rejestruje nasłuchiwacz Firestore dla słownika użytkownika.
+     */
+    private void listen(String userId, Entry entry) {
+        entry.registration = databaseManager.listenCategories(userId, new DatabaseManager.OnCategoriesLoadedListener() {
+            @Override
+            public void onCategoriesLoaded(List<Category> categories) {
+                if (entries.get(userId) != entry) {
+                    return;
+                }
+                entry.fromFirestore = true;
+                entry.retryDelayMs = INITIAL_RETRY_DELAY_MS;
+                if (publish(entry, categories)) {
+                    List<CategoryEntity> entities = new ArrayList<>(categories.size());
+                    for (Category category : categories) {
+                        entities.add(CategoryEntity.fromCategory(category));
+                    }
+                    AppDatabase.databaseExecutor.execute(() -> categoryDao.replaceAllByUser(userId, entities));
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Category listener failed for user " + userId, e);
+                // Nasłuchiwacz Firestore jest zamykany po błędzie
+                entry.registration = null;
+                for (OnCategoriesChangedListener observer : new ArrayList<>(entry.observers)) {
+                    observer.onError(e);
+                }
+                if (entries.get(userId) != entry) {
+                    return;
+                }
+                if (entry.observers.isEmpty()) {
+                    // Nikt nie czeka na zmiany - kolejne wywołanie utworzy słownik od nowa
+                    entries.remove(userId);
+                    return;
+                }
+                // Zarejestrowani odbiorcy zostają - nasłuchiwanie jest wznawiane z rosnącym opóźnieniem
+                long delay = entry.retryDelayMs;
+                entry.retryDelayMs = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+                mainHandler.postDelayed(() -> {
+                    if (entries.get(userId) == entry && entry.registration == null) {
+                        listen(userId, entry);
+                    }
+                }, delay);
+            }
+        });
+    }
+
+    /**
+     * Publikuje nową migawkę, jeśli kategorie różnią się od bieżącej.
+     *
+     * @return True, jeśli opublikowano nową wersję.
+     */
+    private boolean publish(Entry entry, List<Category> categories) {
+        if (entry.snapshot.version > 0 && entry.snapshot.hasSameContent(categories)) {
+            return false;
+        }
+        entry.snapshot = new Snapshot(nextVersion++, categories);
+        for (OnCategoriesChangedListener observer : new ArrayList<>(entry.observers)) {
+            observer.onCategoriesChanged(entry.snapshot);
+        }
+        return true;
+    }
+
+    /**
+     * Stan słownika jednego użytkownika.
+     */
+    private static final class Entry {
+        final List<OnCategoriesChangedListener> observers = new ArrayList<>();
+        Snapshot snapshot = Snapshot.EMPTY;
+        ListenerRegistration registration;
+        boolean fromFirestore;
+        // Słownik używany przez ekrany - nie jest zamykany po jednorazowym odczycie w tle
+        boolean retained;
+        long retryDelayMs = INITIAL_RETRY_DELAY_MS;
+    }
+
+    /**
+     * Niezmienna migawka kategorii użytkownika.
+     * Obiekty Category są współdzielone przez wszystkich odbiorców i nie mogą być modyfikowane.
+     */
+    public static final class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(0, Collections.emptyList());
+
+        private final long version;
+        private final List<Category> list;
+        private final Map<String, Category> byId;
+
+        private Snapshot(long version, List<Category> categories) {
+            Map<String, Category> map = new LinkedHashMap<>();
+            for (Category category : categories) {
+                map.put(category.getId(), category);
+            }
+            this.version = version;
+            this.list = Collections.unmodifiableList(new ArrayList<>(categories));
+            this.byId = Collections.unmodifiableMap(map);
+        }
+
+        /**
+         * @return Numer wersji - inny dla każdej zmiany kategorii (0 przed załadowaniem danych).
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public List<Category> getList() {
+            return list;
+        }
+
+        public Map<String, Category> getCategories() {
+            return byId;
+        }
+
+        public Category get(String categoryId) {
+            return byId.get(categoryId);
+        }
+
+        private boolean hasSameContent(List<Category> categories) {
+            if (categories.size() != byId.size()) {
+                return false;
+            }
+            for (Category category : categories) {
+                Category current = byId.get(category.getId());
+                if (current == null
+                        || current.getColor() != category.getColor()
+                        || !Objects.equals(current.getName(), category.getName())
+                        || !Objects.equals(current.getIconName(), category.getIconName())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Interfejs zwrotny dla zmian słownika kategorii (wywoływany w wątku głównym).
+     */
+    public interface OnCategoriesChangedListener {
+        void onCategoriesChanged(Snapshot snapshot);
+        void onError(Exception e);
+    }
+}
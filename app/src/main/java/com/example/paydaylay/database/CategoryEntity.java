@@ -13,6 +13,7 @@ public class CategoryEntity {
     private String name;
     private int color;
     private String userId;
+    private String iconName;
 
     // Default constructor
     public CategoryEntity() {
@@ -61,6 +62,14 @@ public class CategoryEntity {
         this.userId = userId;
     }
 
+    public String getIconName() {
+        return iconName;
+    }
+
+    public void setIconName(String iconName) {
+        this.iconName = iconName;
+    }
+
     // Conversion methods
     public static CategoryEntity fromCategory(com.example.paydaylay.models.Category category) {
         CategoryEntity entity = new CategoryEntity();
@@ -68,6 +77,7 @@ public class CategoryEntity {
         entity.name = category.getName();
         entity.color = category.getColor();
         entity.userId = category.getUserId();
+        entity.iconName = category.getIconName();
         return entity;
     }
 
@@ -77,6 +87,7 @@ public class CategoryEntity {
         category.setName(name);
         category.setColor(color);
         category.setUserId(userId);
+        category.setIconName(iconName);
         return category;
     }
 }
\ No newline at end of file
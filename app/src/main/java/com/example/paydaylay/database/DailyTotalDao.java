@@ -0,0 +1,29 @@
+package com.example.paydaylay.database;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Zapytania do dziennych sum transakcji (daily_totals).
+ * Sumy za pełne dni są odczytywane z indeksu DailyTotalsIndex budowanego z tej tabeli,
+ * a tylko niepełne dni na krańcach zakresu - bezpośrednio z tabeli transakcji (TransactionDao).
+ */
+@Dao
+public interface DailyTotalDao {
+
+    /**
+     * Pobiera wszystkie dzienne sumy użytkownika (budowa DailyTotalsIndex).
+     */
+    @Query("SELECT * FROM daily_totals WHERE userId = :userId")
+    List<DailyTotalEntity> getAllForUser(String userId);
+
+    /**
+     * Pobiera dzienne sumy wydatków z dni [fromDay, toDay) - jeden odczyt obejmujący okresy
+     * wszystkich budżetów (BudgetEvaluator).
+     */
+    @Query("SELECT * FROM daily_totals WHERE userId = :userId AND isExpense = 1 " +
+            "AND day >= :fromDay AND day < :toDay")
+    List<DailyTotalEntity> getExpenseDays(String userId, int fromDay, int toDay);
+}
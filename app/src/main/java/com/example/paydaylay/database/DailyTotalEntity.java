@@ -0,0 +1,122 @@
+package com.example.paydaylay.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Dzienna suma transakcji użytkownika dla jednej kategorii i jednego typu (wydatek/przychód).
+ * Tabela jest utrzymywana przez wyzwalacze SQLite na tabeli transakcji (AppDatabase),
+ * więc każdy zapis i usunięcie transakcji od razu aktualizuje odpowiedni wiersz.
+ * Dzień jest zapisywany jako liczba rrrrmmdd w UTC - doba w UTC ma zawsze 24 godziny,
+ * a zmiana strefy czasowej urządzenia nie przesuwa kluczy już zapisanych wierszy.
+ * Brak kategorii jest zapisywany jako pusty tekst (kolumny klucza nie mogą być null).
+ */
+@Entity(tableName = "daily_totals",
+        primaryKeys = {"userId", "day", "categoryId", "isExpense"})
+public class DailyTotalEntity {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    @NonNull
+    private String userId = "";
+    private int day;
+    @NonNull
+    private String categoryId = "";
+    private boolean isExpense;
+    // Suma w groszach
+    private long total;
+    private int count;
+
+    public DailyTotalEntity() {
+        // Required by Room
+    }
+
+    /**
+     * Zwraca klucz dnia (rrrrmmdd) dla chwili w UTC -
+     * ten sam, który wyzwalacze wyliczają przez strftime('%Y%m%d', ..., 'unixepoch').
+     *
+     * @param timestamp Chwila w milisekundach.
+     * @return Klucz dnia.
+     */
+    public static int dayKey(long timestamp) {
+        Calendar calendar = new GregorianCalendar(UTC);
+        calendar.setTimeInMillis(timestamp);
+        return calendar.get(Calendar.YEAR) * 10000
+                + (calendar.get(Calendar.MONTH) + 1) * 100
+                + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    /**
+     * Zwraca początek dnia (północ UTC) zawierającego podaną chwilę.
+     *
+     * @param timestamp Chwila w milisekundach.
+     * @return Znacznik czasu północy.
+     */
+    public static long startOfDay(long timestamp) {
+        return Math.floorDiv(timestamp, DAY_MS) * DAY_MS;
+    }
+
+    /**
+     * Zwraca początek dnia (północ UTC) następującego po dniu zawierającym podaną chwilę.
+     *
+     * @param timestamp Chwila w milisekundach.
+     * @return Znacznik czasu kolejnej północy.
+     */
+    public static long startOfNextDay(long timestamp) {
+        return startOfDay(timestamp) + DAY_MS;
+    }
+
+    @NonNull
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(@NonNull String userId) {
+        this.userId = userId;
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    public void setDay(int day) {
+        this.day = day;
+    }
+
+    @NonNull
+    public String getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(@NonNull String categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public boolean isExpense() {
+        return isExpense;
+    }
+
+    public void setExpense(boolean expense) {
+        isExpense = expense;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.paydaylay.database;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indeks sum prefiksowych (drzewo Fenwicka) nad dziennymi sumami transakcji jednego użytkownika.
+ * Osobne drzewa są utrzymywane dla wszystkich wydatków, wszystkich przychodów oraz dla każdej
+ * kategorii i typu, dzięki czemu suma i liczba transakcji z dowolnego zakresu dni
+ * to dwa odczyty prefiksów - O(log n) zamiast przeglądania wierszy.
+ * Indeks jest budowany z tabeli daily_totals i aktualizowany punktowo przy zapisie transakcji.
+ * Nie jest bezpieczny wątkowo - korzysta z niego wyłącznie AppDatabase.databaseExecutor.
+ */
+final class DailyTotalsIndex {
+    // Zapas dni przed najstarszym i po najnowszym dniu, aby nowe transakcje nie wymagały przebudowy
+    private static final int MARGIN_DAYS = 366;
+
+    private final int firstDay;
+    private final int capacity;
+    private final Fenwick[] totals;
+    private final Map<String, Fenwick[]> byCategory = new HashMap<>();
+
+    private DailyTotalsIndex(int firstDay, int capacity) {
+        this.firstDay = firstDay;
+        this.capacity = capacity;
+        this.totals = new Fenwick[]{new Fenwick(capacity), new Fenwick(capacity)};
+    }
+
+    /**
+     * Buduje indeks z wierszy tabeli daily_totals użytkownika.
+     *
+     * @param rows  Dzienne sumy użytkownika.
+     * @param today Klucz dnia bieżącego (rrrrmmdd) - indeks obejmuje zawsze okolice dzisiejszej daty.
+     * @return Indeks.
+     */
+    static DailyTotalsIndex build(List<DailyTotalEntity> rows, int today) {
+        int minDay = epochDay(today);
+        int maxDay = minDay;
+        for (DailyTotalEntity row : rows) {
+            int day = epochDay(row.getDay());
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        }
+
+        DailyTotalsIndex index = new DailyTotalsIndex(minDay - MARGIN_DAYS, maxDay - minDay + 2 * MARGIN_DAYS + 1);
+        for (DailyTotalEntity row : rows) {
+            index.add(row.getDay(), row.getCategoryId(), row.isExpense(), row.getTotal(), row.getCount());
+        }
+        return index;
+    }
+
+    /**
+     * Dodaje transakcję do indeksu (sign = 1) lub ją z niego odejmuje (sign = -1).
+     *
+     * @return False, jeśli dzień transakcji wykracza poza zakres indeksu i indeks należy przebudować.
+     */
+    boolean add(TransactionEntity entity, int sign) {
+        return add(DailyTotalEntity.dayKey(entity.getDateTimestamp()), entity.getCategoryId(), entity.isExpense(),
+                sign * entity.getAmountMinor(), sign);
+    }
+
+    private boolean add(int dayKey, String categoryId, boolean isExpense, long amount, int count) {
+        int position = epochDay(dayKey) - firstDay;
+        if (position < 0 || position >= capacity) {
+            return false;
+        }
+        int type = isExpense ? 0 : 1;
+        totals[type].add(position, amount, count);
+
+        String key = categoryId != null ? categoryId : "";
+        Fenwick[] trees = byCategory.get(key);
+        if (trees == null) {
+            trees = new Fenwick[2];
+            byCategory.put(key, trees);
+        }
+        if (trees[type] == null) {
+            trees[type] = new Fenwick(capacity);
+        }
+        trees[type].add(position, amount, count);
+        return true;
+    }
+
+    /**
+     * Zwraca sumę i liczbę transakcji danego typu z dni [fromDay, toDay).
+     *
+     * @param categoryId Identyfikator kategorii lub null dla wszystkich kategorii.
+     * @param isExpense  True dla wydatków, false dla przychodów.
+     * @param fromDay    Klucz pierwszego dnia (rrrrmmdd, włącznie).
+     * @param toDay      Klucz dnia końcowego (rrrrmmdd, wyłącznie).
+     * @return Suma w groszach i liczba transakcji.
+     */
+    RangeTotal sum(String categoryId, boolean isExpense, int fromDay, int toDay) {
+        Fenwick tree;
+        if (categoryId == null) {
+            tree = totals[isExpense ? 0 : 1];
+        } else {
+            Fenwick[] trees = byCategory.get(categoryId);
+            tree = trees != null ? trees[isExpense ? 0 : 1] : null;
+        }
+        if (tree == null) {
+            return new RangeTotal(0, 0);
+        }
+        int from = clamp(epochDay(fromDay) - firstDay);
+        int to = clamp(epochDay(toDay) - firstDay);
+        if (from >= to) {
+            return new RangeTotal(0, 0);
+        }
+        return new RangeTotal(tree.amountBefore(to) - tree.amountBefore(from),
+                tree.countBefore(to) - tree.countBefore(from));
+    }
+
+    private int clamp(int position) {
+        return Math.max(0, Math.min(position, capacity));
+    }
+
+    /**
+     * Przelicza klucz dnia (rrrrmmdd) na numer dnia od 1970-01-01 w kalendarzu gregoriańskim.
+     */
+    static int epochDay(int dayKey) {
+        int year = dayKey / 10000;
+        int month = dayKey / 100 % 100;
+        int day = dayKey % 100;
+        // Rok liczony od marca - dzień przestępny wypada na końcu roku
+        if (month <= 2) {
+            year--;
+        }
+        int era = Math.floorDiv(year, 400);
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Suma (w groszach) i liczba transakcji z zakresu dni.
+     */
+    static final class RangeTotal {
+        final long amount;
+        final int count;
+
+        RangeTotal(long amount, int count) {
+            this.amount = amount;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Drzewo Fenwicka z sumami kwot i liczbą transakcji dla kolejnych dni.
+     */
+    private static final class Fenwick {
+        private final long[] amounts;
+        private final int[] counts;
+
+        Fenwick(int size) {
+            amounts = new long[size + 1];
+            counts = new int[size + 1];
+        }
+
+        void add(int position, long amount, int count) {
+            for (int i = position + 1; i < amounts.length; i += i & -i) {
+                amounts[i] += amount;
+                counts[i] += count;
+            }
+        }
+
+        /** Suma kwot z pozycji [0, position). */
+        long amountBefore(int position) {
+            long sum = 0;
+            for (int i = position; i > 0; i -= i & -i) {
+                sum += amounts[i];
+            }
+            return sum;
+        }
+
+        /** Liczba transakcji z pozycji [0, position). */
+        int countBefore(int position) {
+            int sum = 0;
+            for (int i = position; i > 0; i -= i & -i) {
+                sum += counts[i];
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.paydaylay.database;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+/**
+ * Odczyt podsumowania transakcji użytkownika (ledger_summary).
+ * Tabela jest zapisywana wyłącznie przez wyzwalacze na tabeli transakcji.
+ */
+@Dao
+public interface LedgerDao {
+
+    /**
+     * Pobiera podsumowanie użytkownika.
+     *
+     * @return Podsumowanie lub null, jeśli użytkownik nie ma jeszcze transakcji w bazie lokalnej.
+     */
+    @Query("SELECT * FROM ledger_summary WHERE userId = :userId")
+    LedgerSummaryEntity getSummary(String userId);
+}
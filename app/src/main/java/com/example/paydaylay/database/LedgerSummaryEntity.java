@@ -0,0 +1,67 @@
+package com.example.paydaylay.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.example.paydaylay.models.Money;
+
+/**
+ * Podsumowanie wszystkich transakcji użytkownika: suma przychodów, suma wydatków i liczba transakcji.
+ * Wiersz jest utrzymywany przez wyzwalacze SQLite na tabeli transakcji (AppDatabase),
+ * więc bilans jest odczytywany jednym wierszem niezależnie od długości historii.
+ * Kwoty są przechowywane w groszach.
+ */
+@Entity(tableName = "ledger_summary")
+public class LedgerSummaryEntity {
+    @PrimaryKey
+    @NonNull
+    private String userId = "";
+    private long totalIncome;
+    private long totalExpense;
+    private int count;
+
+    public LedgerSummaryEntity() {
+        // Required by Room
+    }
+
+    /**
+     * @return Bilans (przychody minus wydatki).
+     */
+    public Money getBalance() {
+        return Money.ofMinor(totalIncome - totalExpense);
+    }
+
+    @NonNull
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(@NonNull String userId) {
+        this.userId = userId;
+    }
+
+    public long getTotalIncome() {
+        return totalIncome;
+    }
+
+    public void setTotalIncome(long totalIncome) {
+        this.totalIncome = totalIncome;
+    }
+
+    public long getTotalExpense() {
+        return totalExpense;
+    }
+
+    public void setTotalExpense(long totalExpense) {
+        this.totalExpense = totalExpense;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.paydaylay.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Przechowuje znaczniki synchronizacji (watermark) dla kolekcji Firestore.
+ * Znacznik to największy czas modyfikacji (updatedAt) dokumentu widziany podczas
+ * ostatniej synchronizacji - kolejna synchronizacja pobiera tylko dokumenty zmienione od tego czasu.
+ * Znaczniki są przechowywane osobno dla każdego użytkownika.
+ */
+public class SyncWatermarkStore {
+    private static final String PREFS_NAME = "SyncWatermarks";
+
+    public static final String TRANSACTIONS = "transactions";
+
+    private final SharedPreferences prefs;
+
+    public SyncWatermarkStore(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Zwraca znacznik synchronizacji kolekcji.
+     *
+     * @param collection Nazwa kolekcji.
+     * @param userId     Identyfikator użytkownika.
+     * @return Znacznik czasu w milisekundach lub 0, jeśli kolekcja nie była jeszcze synchronizowana.
+     */
+    public long get(String collection, String userId) {
+        return prefs.getLong(key(collection, userId), 0);
+    }
+
+    /**
+     * Zapisuje znacznik synchronizacji kolekcji.
+     *
+     * @param collection Nazwa kolekcji.
+     * @param userId     Identyfikator użytkownika.
+     * @param watermark  Znacznik czasu w milisekundach.
+     */
+    public void put(String collection, String userId, long watermark) {
+        prefs.edit().putLong(key(collection, userId), watermark).apply();
+    }
+
+    private static String key(String collection, String userId) {
+        return collection + "_" + userId;
+    }
+}
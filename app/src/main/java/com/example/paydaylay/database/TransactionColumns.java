@@ -0,0 +1,136 @@
+package com.example.paydaylay.database;
+
+import android.database.Cursor;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Niezmienna, kolumnowa migawka transakcji użytkownika do analiz (wykresy).
+ * Zamiast listy obiektów Transaction przechowuje posortowane rosnąco znaczniki czasu (long[]),
+ * kwoty w groszach (long[]), indeksy kategorii w słowniku (int[]) i typ transakcji (BitSet).
+ * Zakres czasowy jest wyznaczany wyszukiwaniem binarnym, a sumy - pętlą po tablicach prymitywów.
+ */
+public final class TransactionColumns {
+
+    public static final TransactionColumns EMPTY =
+            new TransactionColumns(new long[0], new long[0], new int[0], new String[0], new BitSet(), 0);
+
+    private final long[] timestamps;
+    private final long[] amounts;
+    private final int[] categories;
+    private final String[] categoryIds;
+    private final BitSet expenses;
+    private final int size;
+
+    private TransactionColumns(long[] timestamps, long[] amounts, int[] categories, String[] categoryIds,
+                               BitSet expenses, int size) {
+        this.timestamps = timestamps;
+        this.amounts = amounts;
+        this.categories = categories;
+        this.categoryIds = categoryIds;
+        this.expenses = expenses;
+        this.size = size;
+    }
+
+    /**
+     * Buduje migawkę z kursora zwróconego przez TransactionDao.getColumnsCursor
+     * (kolumny dateTimestamp, amountMinor, categoryId, isExpense, posortowane według daty).
+     * Kursor nie jest zamykany.
+     *
+     * @param cursor Kursor z wierszami transakcji.
+     * @return Migawka kolumnowa.
+     */
+    static TransactionColumns fromCursor(Cursor cursor) {
+        int size = cursor.getCount();
+        long[] timestamps = new long[size];
+        long[] amounts = new long[size];
+        int[] categories = new int[size];
+        BitSet expenses = new BitSet(size);
+        Map<String, Integer> dictionary = new HashMap<>();
+
+        int row = 0;
+        while (cursor.moveToNext()) {
+            timestamps[row] = cursor.getLong(0);
+            amounts[row] = cursor.getLong(1);
+            String categoryId = cursor.isNull(2) ? null : cursor.getString(2);
+            Integer index = dictionary.get(categoryId);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.put(categoryId, index);
+            }
+            categories[row] = index;
+            if (cursor.getInt(3) != 0) {
+                expenses.set(row);
+            }
+            row++;
+        }
+
+        String[] categoryIds = new String[dictionary.size()];
+        for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+            categoryIds[entry.getValue()] = entry.getKey();
+        }
+        return new TransactionColumns(timestamps, amounts, categories, categoryIds, expenses, row);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Liczba różnych kategorii (rozmiar słownika).
+     */
+    public int getCategoryCount() {
+        return categoryIds.length;
+    }
+
+    /**
+     * Zwraca identyfikator kategorii o podanym indeksie słownika.
+     *
+     * @param categoryIndex Indeks w słowniku kategorii.
+     * @return Identyfikator kategorii lub null dla transakcji bez kategorii.
+     */
+    public String getCategoryId(int categoryIndex) {
+        return categoryIds[categoryIndex];
+    }
+
+    /**
+     * Zwraca indeks pierwszej transakcji o znaczniku czasu >= time.
+     *
+     * @param time Znacznik czasu w milisekundach.
+     * @return Indeks z przedziału [0, size()].
+     */
+    public int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sumuje kwoty transakcji danego typu z zakresu [startTime, endTime) w podziale na kategorie.
+     *
+     * @param startTime Początek zakresu (włącznie).
+     * @param endTime   Koniec zakresu (wyłącznie).
+     * @param expense   True dla wydatków, false dla przychodów.
+     * @return Sumy w groszach, indeksowane jak słownik kategorii.
+     */
+    public long[] sumByCategory(long startTime, long endTime, boolean expense) {
+        long[] sums = new long[categoryIds.length];
+        int to = lowerBound(endTime);
+        for (int i = lowerBound(startTime); i < to; i++) {
+            if (expenses.get(i) == expense) {
+                sums[categories[i]] += amounts[i];
+            }
+        }
+        return sums;
+    }
+}
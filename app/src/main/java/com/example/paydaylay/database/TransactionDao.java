@@ -1,21 +1,207 @@
 // app/src/main/java/com/example/paydaylay/database/TransactionDao.java
 package com.example.paydaylay.database;
 
+import android.database.Cursor;
+
 import androidx.room.Dao;
-import androidx.room.Insert;
-import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.Upsert;
 
 import java.util.List;
 
 @Dao
 public interface TransactionDao {
-    @Query("SELECT * FROM transactions WHERE userId = :userId")
+    @Query("SELECT * FROM transactions WHERE userId = :userId ORDER BY dateTimestamp DESC")
     List<TransactionEntity> getTransactionsByUser(String userId);
 
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    /**
+     * Zapisuje nowe i aktualizuje istniejące transakcje.
+     * Upsert (a nie INSERT OR REPLACE) jest wymagany przez wyzwalacze tabeli daily_totals -
+     * zastąpienie wiersza przez REPLACE nie uruchamia wyzwalacza usunięcia.
+     *
+     * @param transactions Transakcje do zapisania.
+     */
+    @Upsert
     void insertAll(List<TransactionEntity> transactions);
 
     @Query("DELETE FROM transactions WHERE userId = :userId")
     void deleteAllByUser(String userId);
-}
\ No newline at end of file
+
+    /**
+     * Zastępuje wszystkie transakcje użytkownika nową listą w jednej transakcji bazy danych.
+     *
+     * @param userId       Identyfikator użytkownika.
+     * @param transactions Nowa lista transakcji.
+     */
+    @Transaction
+    default void replaceAllByUser(String userId, List<TransactionEntity> transactions) {
+        deleteAllByUser(userId);
+        insertAll(transactions);
+    }
+
+    /**
+     * Usuwa rekordy o podanych identyfikatorach.
+     *
+     * @param ids Identyfikatory do usunięcia.
+     */
+    @Query("DELETE FROM transactions WHERE id IN (:ids)")
+    void deleteByIds(List<String> ids);
+
+    /**
+     * Pobiera rekordy o podanych identyfikatorach.
+     *
+     * @param ids Identyfikatory (najwyżej 999 - limit parametrów SQLite).
+     */
+    @Query("SELECT * FROM transactions WHERE id IN (:ids)")
+    List<TransactionEntity> getByIds(List<String> ids);
+
+    /**
+     * Stosuje zmiany z synchronizacji przyrostowej w jednej transakcji bazy danych:
+     * zapisuje zmienione rekordy i usuwa te, dla których przyszły nagrobki.
+     *
+     * @param changed    Zmienione lub nowe rekordy.
+     * @param deletedIds Identyfikatory usuniętych rekordów.
+     */
+    @Transaction
+    default void applyChanges(List<TransactionEntity> changed, List<String> deletedIds) {
+        if (!changed.isEmpty()) {
+            insertAll(changed);
+        }
+        // Limit parametrów SQLite (999) - usuwanie w porcjach
+        for (int i = 0; i < deletedIds.size(); i += 500) {
+            deleteByIds(deletedIds.subList(i, Math.min(i + 500, deletedIds.size())));
+        }
+    }
+
+    // Zapytania zakresowe - obsługiwane przez indeks (userId, dateTimestamp)
+
+    /**
+     * Pobiera transakcje użytkownika z zakresu [startTime, endTime).
+     */
+    @Query("SELECT * FROM transactions WHERE userId = :userId " +
+            "AND dateTimestamp >= :startTime AND dateTimestamp < :endTime " +
+            "ORDER BY dateTimestamp DESC")
+    List<TransactionEntity> getTransactionsInRange(String userId, long startTime, long endTime);
+
+    /**
+     * Pobiera transakcje użytkownika z danej kategorii z zakresu [startTime, endTime).
+     * Obsługiwane przez indeks (userId, categoryId, dateTimestamp).
+     */
+    @Query("SELECT * FROM transactions WHERE userId = :userId AND categoryId = :categoryId " +
+            "AND dateTimestamp >= :startTime AND dateTimestamp < :endTime " +
+            "ORDER BY dateTimestamp DESC")
+    List<TransactionEntity> getTransactionsForCategoryInRange(String userId, String categoryId,
+                                                              long startTime, long endTime);
+
+    /**
+     * Zlicza transakcje użytkownika z zakresu [startTime, endTime).
+     */
+    @Query("SELECT COUNT(*) FROM transactions WHERE userId = :userId " +
+            "AND dateTimestamp >= :startTime AND dateTimestamp < :endTime")
+    int countInRange(String userId, long startTime, long endTime);
+
+    // Stronicowanie kluczowe (keyset) - kolejność (dateTimestamp DESC, id ASC)
+
+    /**
+     * Pobiera pierwszą stronę transakcji użytkownika.
+     */
+    @Query("SELECT * FROM transactions WHERE userId = :userId " +
+            "ORDER BY dateTimestamp DESC, id ASC LIMIT :limit")
+    List<TransactionEntity> getFirstPage(String userId, int limit);
+
+    /**
+     * Pobiera stronę transakcji następującą po kursorze (afterTimestamp, afterId).
+     */
+    @Query("SELECT * FROM transactions WHERE userId = :userId " +
+            "AND (dateTimestamp < :afterTimestamp OR (dateTimestamp = :afterTimestamp AND id > :afterId)) " +
+            "ORDER BY dateTimestamp DESC, id ASC LIMIT :limit")
+    List<TransactionEntity> getPageAfter(String userId, long afterTimestamp, String afterId, int limit);
+
+    /**
+     * Zwraca datę najstarszej transakcji użytkownika lub null, jeśli nie ma transakcji.
+     */
+    @Query("SELECT MIN(dateTimestamp) FROM transactions WHERE userId = :userId")
+    Long getOldestDate(String userId);
+
+    /**
+     * Zwraca datę najnowszej transakcji użytkownika lub null, jeśli nie ma transakcji.
+     */
+    @Query("SELECT MAX(dateTimestamp) FROM transactions WHERE userId = :userId")
+    Long getNewestDate(String userId);
+
+    /**
+     * Zwraca kursor z kolumnami potrzebnymi do analiz (TransactionColumns), posortowany według daty.
+     * Kursor pozwala zbudować migawkę kolumnową bez tworzenia obiektu dla każdego wiersza.
+     */
+    @Query("SELECT dateTimestamp, amountMinor, categoryId, isExpense FROM transactions " +
+            "WHERE userId = :userId ORDER BY dateTimestamp")
+    Cursor getColumnsCursor(String userId);
+
+    // Zapytania agregujące - kwoty w groszach
+
+    /**
+     * Sumuje wydatki użytkownika z zakresu [startTime, endTime) - budżet ogólny.
+     */
+    @Query("SELECT COALESCE(SUM(amountMinor), 0) FROM transactions WHERE userId = :userId " +
+            "AND isExpense = 1 AND dateTimestamp >= :startTime AND dateTimestamp < :endTime")
+    long sumExpensesInRange(String userId, long startTime, long endTime);
+
+    /**
+     * Sumuje wydatki użytkownika w danej kategorii z zakresu [startTime, endTime) - budżet kategorii.
+     */
+    @Query("SELECT COALESCE(SUM(amountMinor), 0) FROM transactions WHERE userId = :userId " +
+            "AND categoryId = :categoryId AND isExpense = 1 " +
+            "AND dateTimestamp >= :startTime AND dateTimestamp < :endTime")
+    long sumExpensesForCategoryInRange(String userId, String categoryId, long startTime, long endTime);
+
+    /**
+     * Sumuje wydatki (w groszach) z zakresu [startTime, endTime) - niepełne dni zakresów
+     * odczytywanych z indeksu sum dziennych.
+     *
+     * @param categoryId Identyfikator kategorii lub null dla wszystkich kategorii.
+     */
+    default long sumExpenses(String userId, String categoryId, long startTime, long endTime) {
+        if (startTime >= endTime) {
+            return 0;
+        }
+        return categoryId == null
+                ? sumExpensesInRange(userId, startTime, endTime)
+                : sumExpensesForCategoryInRange(userId, categoryId, startTime, endTime);
+    }
+
+    /**
+     * Sumuje kwoty transakcji danego typu w podziale na kategorie (wykresy kołowe).
+     */
+    @Query("SELECT categoryId, SUM(amountMinor) AS total, COUNT(*) AS count FROM transactions " +
+            "WHERE userId = :userId AND isExpense = :isExpense " +
+            "AND dateTimestamp >= :startTime AND dateTimestamp < :endTime " +
+            "GROUP BY categoryId")
+    List<CategoryTotal> sumByCategoryInRange(String userId, boolean isExpense, long startTime, long endTime);
+
+    /**
+     * Sumuje kwoty transakcji w podziale na wydatki i przychody (podsumowanie zakresu dat).
+     */
+    @Query("SELECT isExpense, SUM(amountMinor) AS total, COUNT(*) AS count FROM transactions " +
+            "WHERE userId = :userId AND dateTimestamp >= :startTime AND dateTimestamp < :endTime " +
+            "GROUP BY isExpense")
+    List<TypeTotal> sumByTypeInRange(String userId, long startTime, long endTime);
+
+    /**
+     * Suma i liczba transakcji jednej kategorii.
+     */
+    class CategoryTotal {
+        public String categoryId;
+        public long total;
+        public int count;
+    }
+
+    /**
+     * Suma i liczba transakcji jednego typu (wydatek/przychód).
+     */
+    class TypeTotal {
+        public boolean isExpense;
+        public long total;
+        public int count;
+    }
+}
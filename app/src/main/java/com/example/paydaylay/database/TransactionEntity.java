@@ -3,16 +3,24 @@ package com.example.paydaylay.database;
 
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import com.example.paydaylay.models.Money;
+
 import java.util.Date;
 
-@Entity(tableName = "transactions")
+@Entity(tableName = "transactions",
+        indices = {
+                @Index(value = {"userId", "dateTimestamp"}),
+                @Index(value = {"userId", "categoryId", "dateTimestamp"})
+        })
 public class TransactionEntity {
     @PrimaryKey
     @NonNull
     private String id;
-    private double amount;
+    // Kwota w groszach (Money.getMinorUnits)
+    private long amountMinor;
     private long dateTimestamp;
     private String categoryId;
     private String description;
@@ -25,11 +33,11 @@ public class TransactionEntity {
     }
 
     // Parameterized constructor
-    public TransactionEntity(@NonNull String id, double amount, long dateTimestamp,
+    public TransactionEntity(@NonNull String id, long amountMinor, long dateTimestamp,
                              String categoryId, String description, String userId,
                              boolean isExpense) {
         this.id = id;
-        this.amount = amount;
+        this.amountMinor = amountMinor;
         this.dateTimestamp = dateTimestamp;
         this.categoryId = categoryId;
         this.description = description;
@@ -47,12 +55,12 @@ public class TransactionEntity {
         this.id = id;
     }
 
-    public double getAmount() {
-        return amount;
+    public long getAmountMinor() {
+        return amountMinor;
     }
 
-    public void setAmount(double amount) {
-        this.amount = amount;
+    public void setAmountMinor(long amountMinor) {
+        this.amountMinor = amountMinor;
     }
 
     public long getDateTimestamp() {
@@ -99,7 +107,7 @@ public class TransactionEntity {
     public static TransactionEntity fromTransaction(com.example.paydaylay.models.Transaction transaction) {
         TransactionEntity entity = new TransactionEntity();
         entity.id = transaction.getId();
-        entity.amount = transaction.getAmount();
+        entity.amountMinor = transaction.getAmount().getMinorUnits();
         entity.dateTimestamp = transaction.getDate().getTime();
         entity.categoryId = transaction.getCategoryId();
         entity.description = transaction.getDescription();
@@ -111,7 +119,7 @@ public class TransactionEntity {
     public com.example.paydaylay.models.Transaction toTransaction() {
         com.example.paydaylay.models.Transaction transaction = new com.example.paydaylay.models.Transaction();
         transaction.setId(id);
-        transaction.setAmount(amount);
+        transaction.setAmount(Money.ofMinor(amountMinor));
         transaction.setDate(new Date(dateTimestamp));
         transaction.setCategoryId(categoryId);
         transaction.setDescription(description);
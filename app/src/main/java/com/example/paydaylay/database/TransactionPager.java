@@ -0,0 +1,335 @@
+package com.example.paydaylay.database;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.paydaylay.firebase.DatabaseManager;
+import com.example.paydaylay.models.Transaction;
+import com.google.android.gms.tasks.CancellationTokenSource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Stronicowanie listy transakcji z kursorem kluczowym (dateTimestamp DESC, id ASC).
+ * Strony są czytane z bazy Room; gdy lokalna baza się kończy, brakujące transakcje
+ * są pobierane z Firestore kursorem startAfter i zapisywane w Room.
+ * Wszystkie metody publiczne muszą być wywoływane w wątku głównym.
+ */
+public class TransactionPager {
+    private static final String TAG = "TransactionPager";
+
+    public static final int DEFAULT_PAGE_SIZE = 30;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 10;
+
+    private final TransactionDao transactionDao;
+    private final DatabaseManager databaseManager;
+    private final TransactionRepository transactionRepository;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final String userId;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final OnPageLoadedListener listener;
+
+    // Kursor - ostatnia dostarczona transakcja (null przed pierwszą stroną)
+    private long cursorTimestamp;
+    private String cursorId;
+    private int loadedCount;
+
+    private boolean loading;
+    private boolean endReached;
+    private boolean remoteExhausted;
+    // Firestore był niedostępny w bieżącej generacji - kolejne strony są czytane tylko z Room
+    // aż do odświeżenia lub ponownego połączenia (retryRemote), bez powtarzania błędu przy każdym przewinięciu
+    private boolean remoteUnavailable;
+    // Zwiększane przy odświeżeniu, aby odrzucić wyniki zapytań sprzed odświeżenia
+    private int generation;
+    // Anuluje zapytania Firestore bieżącej generacji
+    private CancellationTokenSource cancellation = new CancellationTokenSource();
+
+    public TransactionPager(Context context, String userId, OnPageLoadedListener listener) {
+        this(context, userId, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE, listener);
+    }
+
+    public TransactionPager(Context context, String userId, int pageSize, int prefetchDistance,
+                            OnPageLoadedListener listener) {
+        this.transactionDao = AppDatabase.getInstance(context).transactionDao();
+        this.databaseManager = DatabaseManager.getInstance();
+        this.transactionRepository = TransactionRepository.getInstance(context);
+        this.userId = userId;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.listener = listener;
+    }
+
+    /**
+     * Ładuje listę od początku. Pierwsza strona jest dostarczana z bazy Room,
+     * a jeśli przyrostowa synchronizacja z Firestore przyniesie zmiany,
+     * załadowane okno jest odczytywane ponownie.
+     */
+    public void refresh() {
+        reset();
+        loadPage(true);
+        syncChanges(generation);
+    }
+
+    /**
+     * Powinno być wywoływane przy przewijaniu listy - ładuje kolejną stronę,
+     * gdy do końca załadowanych danych zostało mniej niż prefetchDistance elementów.
+     *
+     * @param lastVisiblePosition Pozycja ostatniego widocznego elementu.
+     * @param itemCount           Liczba elementów w adapterze.
+     */
+    public void onScrolled(int lastVisiblePosition, int itemCount) {
+        if (lastVisiblePosition >= itemCount - 1 - prefetchDistance) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Ładuje kolejną stronę, jeśli nie trwa już ładowanie i lista nie została wyczerpana.
+     */
+    public void loadNextPage() {
+        loadPage(false);
+    }
+
+    /**
+     * Ponawia pobieranie stron z Firestore po przywróceniu połączenia,
+     * jeśli w bieżącej generacji wcześniejsze pobranie zakończyło się błędem.
+     */
+    public void retryRemote() {
+        if (!remoteUnavailable) {
+            return;
+        }
+        remoteUnavailable = false;
+        loadNextPage();
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    /**
+     * Anuluje trwające ładowanie (np. gdy widok fragmentu jest niszczony).
+     * Wyniki zapytań nie zostaną przekazane do listenera, a niepobrane strony nie będą parsowane.
+     */
+    public void cancel() {
+        generation++;
+        loading = false;
+        cancellation.cancel();
+        cancellation = new CancellationTokenSource();
+    }
+
+    private void reset() {
+        cancel();
+        cursorTimestamp = 0;
+        cursorId = null;
+        loadedCount = 0;
+        loading = false;
+        endReached = false;
+        remoteExhausted = false;
+        remoteUnavailable = false;
+    }
+
+    private void loadPage(boolean reset) {
+        if (loading || endReached) {
+            return;
+        }
+        loading = true;
+
+        int requestGeneration = generation;
+        long afterTimestamp = cursorTimestamp;
+        String afterId = cursorId;
+        AppDatabase.databaseExecutor.execute(() -> {
+            List<TransactionEntity> page = queryLocal(afterTimestamp, afterId, pageSize);
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                if (page.size() == pageSize || remoteExhausted || remoteUnavailable) {
+                    deliver(toTransactions(page), reset);
+                } else {
+                    fetchRemotePage(toTransactions(page), reset, requestGeneration);
+                }
+            });
+        });
+    }
+
+    /**
+     * Uzupełnia niepełną lokalną stronę transakcjami pobranymi z Firestore.
+     *
+     * @param localPage         Transakcje odczytane z bazy Room.
+     * @param reset             Czy strona zastępuje dotychczasową listę.
+     * @param requestGeneration Generacja, w której rozpoczęto ładowanie.
+     */
+    private void fetchRemotePage(List<Transaction> localPage, boolean reset, int requestGeneration) {
+        Date afterDate = cursorId != null ? new Date(cursorTimestamp) : null;
+        String afterId = cursorId;
+        if (!localPage.isEmpty()) {
+            Transaction last = localPage.get(localPage.size() - 1);
+            afterDate = last.getDate();
+            afterId = last.getId();
+        }
+        fetchRemotePage(localPage, afterDate, afterId, reset, requestGeneration);
+    }
+
+    private void fetchRemotePage(List<Transaction> collected, Date afterDate, String afterId,
+                                 boolean reset, int requestGeneration) {
+        int remaining = pageSize - collected.size();
+
+        databaseManager.getTransactionsPage(userId, afterDate, afterId, remaining, cancellation.getToken(),
+                new DatabaseManager.OnTransactionsLoadedListener() {
+                    @Override
+                    public void onTransactionsLoaded(List<Transaction> transactions) {
+                        if (requestGeneration != generation) {
+                            return;
+                        }
+                        if (transactions.size() < remaining) {
+                            remoteExhausted = true;
+                        }
+
+                        List<Transaction> live = new ArrayList<>();
+                        List<String> deletedIds = new ArrayList<>();
+                        for (Transaction transaction : transactions) {
+                            if (transaction.isDeleted()) {
+                                deletedIds.add(transaction.getId());
+                            } else {
+                                live.add(transaction);
+                            }
+                        }
+
+                        AppDatabase.databaseExecutor.execute(() -> {
+                            transactionRepository.writeChanges(userId, toEntities(live), deletedIds);
+                            mainHandler.post(() -> {
+                                if (requestGeneration != generation) {
+                                    return;
+                                }
+                                List<Transaction> page = new ArrayList<>(collected);
+                                page.addAll(live);
+                                if (page.size() < pageSize && !remoteExhausted) {
+                                    // Część strony stanowiły nagrobki - pobieramy dalej za ostatnim dokumentem
+                                    Transaction last = transactions.get(transactions.size() - 1);
+                                    fetchRemotePage(page, last.getDate(), last.getId(), reset, requestGeneration);
+                                } else {
+                                    deliver(page, reset);
+                                }
+                            });
+                        });
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (requestGeneration != generation) {
+                            return;
+                        }
+                        // Bez połączenia pokazujemy to, co jest w bazie lokalnej
+                        loading = false;
+                        remoteUnavailable = true;
+                        if (!collected.isEmpty() || reset) {
+                            applyPage(collected, reset);
+                        }
+                        listener.onError(e);
+                    }
+                });
+    }
+
+    /**
+     * Uruchamia przyrostową synchronizację transakcji i - jeśli przyniosła zmiany -
+     * ponownie odczytuje z Room całe załadowane dotąd okno.
+     */
+    private void syncChanges(int requestGeneration) {
+        transactionRepository.sync(userId, new TransactionRepository.OnSyncListener() {
+            @Override
+            public void onSynced(boolean changed) {
+                if (changed) {
+                    reloadLoadedWindow(requestGeneration);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Transaction sync failed, showing local data", e);
+            }
+        });
+    }
+
+    private void reloadLoadedWindow(int requestGeneration) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        int windowSize = Math.max(loadedCount, pageSize);
+        generation++;
+        int reloadGeneration = generation;
+        loading = true;
+        AppDatabase.databaseExecutor.execute(() -> {
+            List<TransactionEntity> window = transactionDao.getFirstPage(userId, windowSize);
+            mainHandler.post(() -> {
+                if (reloadGeneration != generation) {
+                    return;
+                }
+                cursorTimestamp = 0;
+                cursorId = null;
+                loadedCount = 0;
+                endReached = false;
+                deliver(toTransactions(window), true);
+            });
+        });
+    }
+
+    private void deliver(List<Transaction> page, boolean reset) {
+        loading = false;
+        if (page.size() < pageSize && remoteExhausted) {
+            endReached = true;
+        }
+        applyPage(page, reset);
+    }
+
+    private void applyPage(List<Transaction> page, boolean reset) {
+        if (!page.isEmpty()) {
+            Transaction last = page.get(page.size() - 1);
+            cursorTimestamp = last.getDate() != null ? last.getDate().getTime() : 0;
+            cursorId = last.getId();
+        }
+        loadedCount += page.size();
+        listener.onPageLoaded(page, reset);
+    }
+
+    private List<TransactionEntity> queryLocal(long afterTimestamp, String afterId, int limit) {
+        if (afterId == null) {
+            return transactionDao.getFirstPage(userId, limit);
+        }
+        return transactionDao.getPageAfter(userId, afterTimestamp, afterId, limit);
+    }
+
+    private static List<Transaction> toTransactions(List<TransactionEntity> entities) {
+        List<Transaction> transactions = new ArrayList<>(entities.size());
+        for (TransactionEntity entity : entities) {
+            transactions.add(entity.toTransaction());
+        }
+        return transactions;
+    }
+
+    private static List<TransactionEntity> toEntities(List<Transaction> transactions) {
+        List<TransactionEntity> entities = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            entities.add(TransactionEntity.fromTransaction(transaction));
+        }
+        return entities;
+    }
+
+    /**
+     * Interfejs zwrotny dostarczający kolejne strony transakcji (w wątku głównym).
+     */
+    public interface OnPageLoadedListener {
+        /**
+         * @param page  Transakcje strony.
+         * @param reset true, jeśli strona zastępuje dotychczasową listę; false, jeśli należy ją dopisać.
+         */
+        void onPageLoaded(List<Transaction> page, boolean reset);
+
+        void onError(Exception e);
+    }
+}
@@ -0,0 +1,847 @@
+package com.example.paydaylay.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.paydaylay.firebase.DatabaseManager;
+import com.example.paydaylay.models.Money;
+import com.example.paydaylay.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Repozytorium transakcji działające w trybie offline-first.
+ * Odczyty są obsługiwane natychmiast z lokalnej bazy Room, a synchronizacja z Firestore
+ * odbywa się w tle - jej wynik jest zapisywany w tabeli transakcji i ponownie przekazywany do listenera.
+ * Synchronizacja jest przyrostowa (znacznik updatedAt), a usunięcia docierają jako nagrobki.
+ */
+public class TransactionRepository {
+    private static final String TAG = "TransactionRepository";
+    private static final long SYNC_OVERLAP_MS = 5 * 60 * 1000;
+
+    private static TransactionRepository instance;
+
+    private final TransactionDao transactionDao;
+    private final DailyTotalDao dailyTotalDao;
+    private final LedgerDao ledgerDao;
+    private final DatabaseManager databaseManager;
+    private final SyncWatermarkStore watermarkStore;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Indeksy sum dziennych użytkowników - używane wyłącznie w AppDatabase.databaseExecutor
+    private final Map<String, DailyTotalsIndex> indexes = new HashMap<>();
+
+    private TransactionRepository(Context context) {
+        this.transactionDao = AppDatabase.getInstance(context).transactionDao();
+        this.dailyTotalDao = AppDatabase.getInstance(context).dailyTotalDao();
+        this.ledgerDao = AppDatabase.getInstance(context).ledgerDao();
+        this.databaseManager = DatabaseManager.getInstance();
+        this.watermarkStore = new SyncWatermarkStore(context);
+    }
+
+    /**
+     * Pobiera instancję repozytorium.
+     *
+     * @param context Kontekst aplikacji.
+     * @return Instancja TransactionRepository.
+     */
+    public static synchronized TransactionRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new TransactionRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Pobiera transakcje użytkownika.
+     * Listener jest wywoływany najpierw z danymi z pamięci podręcznej (jeśli istnieją),
+     * a następnie ponownie po zakończeniu synchronizacji z Firestore.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji (wywoływany w wątku głównym).
+     */
+    public void getTransactions(String userId, DatabaseManager.OnTransactionsLoadedListener listener) {
+        query(userId, () -> toTransactions(transactionDao.getTransactionsByUser(userId)), listener);
+    }
+
+    /**
+     * Pobiera transakcje użytkownika z zakresu [startTime, endTime) za pomocą indeksowanego zapytania.
+     *
+     * @param userId    Identyfikator użytkownika.
+     * @param startTime Początek zakresu (włącznie).
+     * @param endTime   Koniec zakresu (wyłącznie).
+     * @param listener  Interfejs zwrotny do obsługi wyniku operacji (wywoływany w wątku głównym).
+     */
+    public void getTransactionsInRange(String userId, long startTime, long endTime,
+                                       DatabaseManager.OnTransactionsLoadedListener listener) {
+        query(userId, () -> toTransactions(transactionDao.getTransactionsInRange(userId, startTime, endTime)), listener);
+    }
+
+    /**
+     * Pobiera transakcje z okresu budżetu za pomocą indeksowanego zapytania.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param categoryId Identyfikator kategorii lub null dla budżetu ogólnego.
+     * @param startDate  Początek zakresu (włącznie).
+     * @param endDate    Koniec zakresu (wyłącznie).
+     * @param listener   Interfejs zwrotny do obsługi wyniku operacji (wywoływany w wątku głównym).
+     */
+    public void getTransactionsForBudget(String userId, String categoryId, Date startDate, Date endDate,
+                                         DatabaseManager.OnTransactionsLoadedListener listener) {
+        long startTime = startDate.getTime();
+        long endTime = endDate.getTime();
+        if (categoryId == null) {
+            getTransactionsInRange(userId, startTime, endTime, listener);
+        } else {
+            query(userId, () -> toTransactions(transactionDao.getTransactionsForCategoryInRange(
+                    userId, categoryId, startTime, endTime)), listener);
+        }
+    }
+
+    /**
+     * Pobiera podsumowanie użytkownika (przychody, wydatki, bilans) z tabeli ledger_summary
+     * oraz najnowsze transakcje zapytaniem po indeksie (userId, dateTimestamp) z limitem.
+     * Koszt odczytu nie zależy od długości historii transakcji. Dopóki transakcje nie zostały
+     * w pełni zsynchronizowane, bilans jest odczytywany z sum utrzymywanych przez liczniki w Firestore.
+     *
+     * @param userId      Identyfikator użytkownika.
+     * @param recentLimit Liczba najnowszych transakcji.
+     * @param listener    Interfejs zwrotny do obsługi wyniku operacji (wywoływany w wątku głównym).
+     */
+    public void getLedger(String userId, int recentLimit, OnLedgerLoadedListener listener) {
+        LocalQuery<Ledger> localQuery = () -> new Ledger(ledgerDao.getSummary(userId),
+                toTransactions(transactionDao.getFirstPage(userId, recentLimit)));
+        OnLocalResultListener<Ledger> resultListener = new OnLocalResultListener<Ledger>() {
+            @Override
+            public void onLoaded(Ledger ledger) {
+                listener.onLedgerLoaded(ledger);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        };
+        if (hasSynced(userId)) {
+            query(userId, localQuery, ledger -> ledger.count > 0, resultListener);
+            return;
+        }
+
+        // Przed pierwszą pełną synchronizacją lokalne podsumowanie obejmuje tylko przeglądane strony -
+        // bilans pochodzi wtedy z liczników w Firestore, a podsumowanie lokalne zastępuje go po synchronizacji
+        databaseManager.getUserTotals(userId, new DatabaseManager.OnUserTotalsLoadedListener() {
+            @Override
+            public void onUserTotalsLoaded(DatabaseManager.UserTotals totals) {
+                AppDatabase.databaseExecutor.execute(() -> {
+                    if (hasSynced(userId)) {
+                        return;
+                    }
+                    List<Transaction> recent = toTransactions(transactionDao.getFirstPage(userId, recentLimit));
+                    mainHandler.post(() -> listener.onLedgerLoaded(new Ledger(totals, recent)));
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "User totals unavailable, waiting for sync", e);
+            }
+        });
+        syncTransactions(userId, localQuery, resultListener, false);
+    }
+
+    /**
+     * Pobiera sumy transakcji w podziale na miesiące (czasu lokalnego) i typ.
+     * Klucze tabeli dziennych sum są dniami UTC, dlatego miesiące nie są grupowane po kluczu dnia -
+     * każdy miesiąc jest sumowany jak zakres w getRangeTotals: pełne dni UTC z indeksu sum dziennych,
+     * a godziny na krańcach miesiąca z tabeli transakcji.
+     *
+     * @param userId    Identyfikator użytkownika.
+     * @param startTime Początek zakresu (0 dla całej historii).
+     * @param listener  Interfejs zwrotny do obsługi wyniku operacji (wywoływany w wątku głównym).
+     */
+    public void getMonthlyTotals(String userId, long startTime, OnMonthlyTotalsLoadedListener listener) {
+        query(userId, () -> sumMonthlyTotals(userId, startTime), totals -> !totals.isEmpty(),
+                new OnLocalResultListener<List<MonthTotal>>() {
+                    @Override
+                    public void onLoaded(List<MonthTotal> totals) {
+                        listener.onMonthlyTotalsLoaded(totals);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        listener.onError(e);
+                    }
+                });
+    }
+
+    /**
+     * Sumuje transakcje w kolejnych miesiącach czasu lokalnego, od startTime (lub najstarszej
+     * transakcji) do miesiąca najnowszej transakcji. Pierwszy miesiąc zaczyna się od startTime.
+     * Musi być wywoływane w AppDatabase.databaseExecutor.
+     *
+     * @param userId    Identyfikator użytkownika.
+     * @param startTime Początek zakresu (0 dla całej historii).
+     * @return Sumy miesięczne posortowane według miesiąca (tylko typy z transakcjami).
+     */
+    private List<MonthTotal> sumMonthlyTotals(String userId, long startTime) {
+        List<MonthTotal> totals = new ArrayList<>();
+        Long oldest = transactionDao.getOldestDate(userId);
+        Long newest = transactionDao.getNewestDate(userId);
+        if (oldest == null || newest == null || newest < startTime) {
+            return totals;
+        }
+
+        long from = Math.max(startTime, oldest);
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(from);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        while (from <= newest) {
+            int month = calendar.get(Calendar.YEAR) * 100 + calendar.get(Calendar.MONTH) + 1;
+            calendar.add(Calendar.MONTH, 1);
+            long to = calendar.getTimeInMillis();
+
+            long[] amounts = new long[2];
+            int[] counts = new int[2];
+            addRangeTotals(userId, from, to, amounts, counts);
+            for (int type = 0; type < 2; type++) {
+                if (counts[type] > 0) {
+                    totals.add(new MonthTotal(month, type == 0, amounts[type], counts[type]));
+                }
+            }
+            from = to;
+        }
+        return totals;
+    }
+
+    /**
+     * Pobiera sumy transakcji danego typu z zakresu [startTime, endTime) w podziale na kategorie.
+     * Agregacja jest wykonywana w SQLite z użyciem indeksu (userId, dateTimestamp), więc wynik
+     * jest dostępny bez wczytywania wszystkich transakcji do pamięci.
+     *
+     * @param userId    Identyfikator użytkownika.
+     * @param isExpense True dla wydatków, false dla przychodów.
+     * @param startTime Początek zakresu (włącznie).
+     * @param endTime   Koniec zakresu (wyłącznie).
+     * @param listener  Interfejs zwrotny do obsługi wyniku operacji (wywoływany w wątku głównym).
+     */
+    public void getCategoryTotals(String userId, boolean isExpense, long startTime, long endTime,
+                                  OnCategoryTotalsLoadedListener listener) {
+        query(userId, () -> transactionDao.sumByCategoryInRange(userId, isExpense, startTime, endTime),
+                totals -> !totals.isEmpty(), new OnLocalResultListener<List<TransactionDao.CategoryTotal>>() {
+                    @Override
+                    public void onLoaded(List<TransactionDao.CategoryTotal> totals) {
+                        listener.onCategoryTotalsLoaded(totals);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        listener.onError(e);
+                    }
+                });
+    }
+
+    /**
+     * Pobiera kolumnową migawkę wszystkich transakcji użytkownika do analiz.
+     * Migawka jest budowana bezpośrednio z kursora, bez tworzenia obiektów Transaction.
+     * Listener jest wywoływany z danymi lokalnymi, a po synchronizacji - ponownie, jeśli się zmieniły.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji (wywoływany w wątku głównym).
+     */
+    public void getTransactionColumns(String userId, OnTransactionColumnsLoadedListener listener) {
+        query(userId, () -> {
+            try (Cursor cursor = transactionDao.getColumnsCursor(userId)) {
+                return TransactionColumns.fromCursor(cursor);
+            }
+        }, columns -> columns.size() > 0, new OnLocalResultListener<TransactionColumns>() {
+            @Override
+            public void onLoaded(TransactionColumns columns) {
+                listener.onTransactionColumnsLoaded(columns);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Sumuje wydatki z zakresu [startTime, endTime) w lokalnej bazie, np. okresu budżetu.
+     * Pełne dni (UTC) są odczytywane z indeksu sum dziennych, a niepełne dni na początku i końcu
+     * zakresu (okres budżetu zaczyna się o północy czasu lokalnego) - z tabeli transakcji.
+     * Musi być wywoływane w AppDatabase.databaseExecutor.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param categoryId Identyfikator kategorii lub null dla wszystkich kategorii.
+     * @param startTime  Początek zakresu (włącznie).
+     * @param endTime    Koniec zakresu (wyłącznie).
+     * @return Suma wydatków.
+     */
+    public Money sumExpensesInRange(String userId, String categoryId, long startTime, long endTime) {
+        long firstFullDay = DailyTotalEntity.startOfDay(startTime) == startTime
+                ? startTime
+                : DailyTotalEntity.startOfNextDay(startTime);
+        long lastFullDayEnd = DailyTotalEntity.startOfDay(endTime);
+        if (firstFullDay >= lastFullDayEnd) {
+            return Money.ofMinor(transactionDao.sumExpenses(userId, categoryId, startTime, endTime));
+        }
+
+        DailyTotalsIndex.RangeTotal fullDays = getIndex(userId).sum(categoryId, true,
+                DailyTotalEntity.dayKey(firstFullDay), DailyTotalEntity.dayKey(lastFullDayEnd));
+        return Money.ofMinor(transactionDao.sumExpenses(userId, categoryId, startTime, firstFullDay)
+                + fullDays.amount
+                + transactionDao.sumExpenses(userId, categoryId, lastFullDayEnd, endTime));
+    }
+
+    /**
+     * Pobiera dzienne sumy wydatków z dni [fromDay, toDay) (klucze rrrrmmdd w UTC).
+     * Musi być wywoływane w AppDatabase.databaseExecutor.
+     *
+     * @param userId  Identyfikator użytkownika.
+     * @param fromDay Pierwszy dzień (włącznie).
+     * @param toDay   Ostatni dzień (wyłącznie).
+     * @return Wiersze tabeli daily_totals.
+     */
+    public List<DailyTotalEntity> getExpenseDays(String userId, int fromDay, int toDay) {
+        return dailyTotalDao.getExpenseDays(userId, fromDay, toDay);
+    }
+
+    /**
+     * Sumuje wydatki z zakresu [startTime, endTime) w podziale na kategorie, bezpośrednio
+     * z tabeli transakcji (niepełne dni na krańcach okresów).
+     * Musi być wywoływane w AppDatabase.databaseExecutor.
+     *
+     * @param userId    Identyfikator użytkownika.
+     * @param startTime Początek zakresu (włącznie).
+     * @param endTime   Koniec zakresu (wyłącznie).
+     * @return Sumy kategorii.
+     */
+    public List<TransactionDao.CategoryTotal> sumExpensesByCategory(String userId, long startTime, long endTime) {
+        if (startTime >= endTime) {
+            return Collections.emptyList();
+        }
+        return transactionDao.sumByCategoryInRange(userId, true, startTime, endTime);
+    }
+
+    /**
+     * Pobiera sumy i liczby wydatków oraz przychodów z zakresu [startTime, endTime).
+     * Pełne dni (UTC) są odczytywane z indeksu sum dziennych, a niepełne dni na krańcach zakresu -
+     * z tabeli transakcji, więc odczyt może być wykonywany przy każdej zmianie zakresu.
+     * Dopóki transakcje nie zostały choć raz w pełni zsynchronizowane, lokalna baza zawiera
+     * tylko przeglądane strony - wtedy sumy są liczone dopiero po synchronizacji.
+     *
+     * @param userId    Identyfikator użytkownika.
+     * @param startTime Początek zakresu (włącznie).
+     * @param endTime   Koniec zakresu (wyłącznie).
+     * @param listener  Interfejs zwrotny do obsługi wyniku operacji (wywoływany w wątku głównym).
+     */
+    public void getRangeTotals(String userId, long startTime, long endTime, OnRangeTotalsLoadedListener listener) {
+        if (hasSynced(userId)) {
+            sumRangeTotals(userId, startTime, endTime, listener);
+            return;
+        }
+        sync(userId, new OnSyncListener() {
+            @Override
+            public void onSynced(boolean changed) {
+                sumRangeTotals(userId, startTime, endTime, listener);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        });
+    }
+
+    private void sumRangeTotals(String userId, long startTime, long endTime, OnRangeTotalsLoadedListener listener) {
+        AppDatabase.databaseExecutor.execute(() -> {
+            long[] amounts = new long[2];
+            int[] counts = new int[2];
+            addRangeTotals(userId, startTime, endTime, amounts, counts);
+            RangeTotals totals = new RangeTotals(Money.ofMinor(amounts[0]), counts[0],
+                    Money.ofMinor(amounts[1]), counts[1]);
+            mainHandler.post(() -> listener.onRangeTotalsLoaded(totals));
+        });
+    }
+
+    /**
+     * Dodaje sumy i liczby transakcji z zakresu [startTime, endTime) (indeks 0 - wydatki, 1 - przychody):
+     * pełne dni UTC z indeksu sum dziennych, a niepełne dni na krańcach zakresu z tabeli transakcji.
+     * Musi być wywoływane w AppDatabase.databaseExecutor.
+     */
+    private void addRangeTotals(String userId, long startTime, long endTime, long[] amounts, int[] counts) {
+        long firstFullDay = DailyTotalEntity.startOfDay(startTime) == startTime
+                ? startTime
+                : DailyTotalEntity.startOfNextDay(startTime);
+        long lastFullDayEnd = DailyTotalEntity.startOfDay(endTime);
+        if (firstFullDay >= lastFullDayEnd) {
+            addRawTotals(userId, startTime, endTime, amounts, counts);
+            return;
+        }
+        DailyTotalsIndex index = getIndex(userId);
+        int fromDay = DailyTotalEntity.dayKey(firstFullDay);
+        int toDay = DailyTotalEntity.dayKey(lastFullDayEnd);
+        for (int type = 0; type < 2; type++) {
+            DailyTotalsIndex.RangeTotal fullDays = index.sum(null, type == 0, fromDay, toDay);
+            amounts[type] += fullDays.amount;
+            counts[type] += fullDays.count;
+        }
+        addRawTotals(userId, startTime, firstFullDay, amounts, counts);
+        addRawTotals(userId, lastFullDayEnd, endTime, amounts, counts);
+    }
+
+    /**
+     * Dodaje sumy i liczby transakcji z zakresu [startTime, endTime) odczytane z tabeli transakcji
+     * (indeks 0 - wydatki, 1 - przychody).
+     */
+    private void addRawTotals(String userId, long startTime, long endTime, long[] amounts, int[] counts) {
+        if (startTime >= endTime) {
+            return;
+        }
+        for (TransactionDao.TypeTotal total : transactionDao.sumByTypeInRange(userId, startTime, endTime)) {
+            int type = total.isExpense ? 0 : 1;
+            amounts[type] += total.total;
+            counts[type] += total.count;
+        }
+    }
+
+    /**
+     * Dodaje transakcję w Firestore i od razu zapisuje ją w lokalnej bazie.
+     * Zapisy oczekujące na serwer nie mają jeszcze znacznika updatedAt, więc synchronizacja przyrostowa
+     * obejmie je dopiero po potwierdzeniu - zapis lokalny sprawia, że sumy dzienne i podsumowanie
+     * salda uwzględniają zmianę natychmiast, także bez połączenia z siecią.
+     *
+     * @param transaction Obiekt transakcji.
+     * @param listener    Interfejs zwrotny do obsługi wyniku operacji.
+     * @param context     Kontekst aplikacji (do odświeżenia widżetów).
+     */
+    public void addTransaction(Transaction transaction, DatabaseManager.OnTransactionListener listener,
+                               Context context) {
+        databaseManager.addTransaction(transaction, rollbackOnError(transaction.getUserId(), listener), context);
+        writeLocal(transaction.getUserId(), Collections.singletonList(TransactionEntity.fromTransaction(transaction)),
+                Collections.emptyList());
+    }
+
+    /**
+     * Aktualizuje transakcję w Firestore i od razu w lokalnej bazie.
+     *
+     * @param transaction Obiekt transakcji.
+     * @param listener    Interfejs zwrotny do obsługi wyniku operacji.
+     * @param context     Kontekst aplikacji (do odświeżenia widżetów).
+     */
+    public void updateTransaction(Transaction transaction, DatabaseManager.OnTransactionListener listener,
+                                  Context context) {
+        databaseManager.updateTransaction(transaction, rollbackOnError(transaction.getUserId(), listener), context);
+        writeLocal(transaction.getUserId(), Collections.singletonList(TransactionEntity.fromTransaction(transaction)),
+                Collections.emptyList());
+    }
+
+    /**
+     * Usuwa transakcję w Firestore i od razu z lokalnej bazy.
+     *
+     * @param userId        Identyfikator użytkownika.
+     * @param transactionId Identyfikator transakcji.
+     * @param listener      Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void deleteTransaction(String userId, String transactionId, DatabaseManager.OnTransactionListener listener) {
+        databaseManager.deleteTransaction(userId, transactionId, rollbackOnError(userId, listener));
+        writeLocal(userId, Collections.emptyList(), Collections.singletonList(transactionId));
+    }
+
+    private void writeLocal(String userId, List<TransactionEntity> changed, List<String> deletedIds) {
+        AppDatabase.databaseExecutor.execute(() -> writeChanges(userId, changed, deletedIds));
+    }
+
+    /**
+     * Opakowuje listener zapisu tak, aby odrzucony przez Firestore zapis nie pozostał w lokalnej bazie:
+     * znacznik synchronizacji jest zerowany, więc kolejna synchronizacja będzie pełna
+     * i zastąpi lokalne transakcje stanem z serwera.
+     */
+    private DatabaseManager.OnTransactionListener rollbackOnError(String userId,
+                                                                  DatabaseManager.OnTransactionListener listener) {
+        return new DatabaseManager.OnTransactionListener() {
+            @Override
+            public void onSuccess() {
+                listener.onSuccess();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Transaction write rejected, scheduling full sync", e);
+                watermarkStore.put(SyncWatermarkStore.TRANSACTIONS, userId, 0);
+                listener.onError(e);
+            }
+        };
+    }
+
+    /**
+     * Zwraca indeks sum dziennych użytkownika, budując go przy pierwszym użyciu.
+     */
+    private DailyTotalsIndex getIndex(String userId) {
+        DailyTotalsIndex index = indexes.get(userId);
+        if (index == null) {
+            index = DailyTotalsIndex.build(dailyTotalDao.getAllForUser(userId),
+                    DailyTotalEntity.dayKey(System.currentTimeMillis()));
+            indexes.put(userId, index);
+        }
+        return index;
+    }
+
+    /**
+     * Zapisuje zmienione i usuwa skasowane transakcje, aktualizując punktowo indeks sum dziennych:
+     * poprzednie wersje rekordów są z niego odejmowane, a nowe dodawane.
+     * Musi być wywoływane w AppDatabase.databaseExecutor.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param changed    Zmienione lub nowe rekordy.
+     * @param deletedIds Identyfikatory usuniętych rekordów.
+     */
+    void writeChanges(String userId, List<TransactionEntity> changed, List<String> deletedIds) {
+        DailyTotalsIndex index = indexes.get(userId);
+        if (index == null) {
+            transactionDao.applyChanges(changed, deletedIds);
+            return;
+        }
+
+        List<String> ids = new ArrayList<>(deletedIds);
+        for (TransactionEntity entity : changed) {
+            ids.add(entity.getId());
+        }
+        List<TransactionEntity> previous = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += 500) {
+            previous.addAll(transactionDao.getByIds(ids.subList(i, Math.min(i + 500, ids.size()))));
+        }
+        transactionDao.applyChanges(changed, deletedIds);
+
+        boolean inRange = true;
+        for (TransactionEntity entity : previous) {
+            inRange &= index.add(entity, -1);
+        }
+        for (TransactionEntity entity : changed) {
+            inRange &= index.add(entity, 1);
+        }
+        if (!inRange) {
+            // Transakcja spoza zakresu dni indeksu - zostanie przebudowany przy kolejnym odczycie
+            indexes.remove(userId);
+        }
+    }
+
+    /**
+     * Sprawdza, czy transakcje użytkownika zostały już choć raz zsynchronizowane z Firestore,
+     * tzn. czy lokalna baza jest pełną kopią (a nie jedynie stronami pobranymi przy przewijaniu).
+     *
+     * @param userId Identyfikator użytkownika.
+     * @return True, jeśli pełna synchronizacja została wykonana.
+     */
+    public boolean hasSynced(String userId) {
+        return watermarkStore.get(SyncWatermarkStore.TRANSACTIONS, userId) > 0;
+    }
+
+    /**
+     * Wykonuje zapytanie lokalne, a po synchronizacji z Firestore wykonuje je ponownie.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param localQuery Zapytanie do bazy Room.
+     * @param listener   Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    private void query(String userId, LocalQuery<List<Transaction>> localQuery,
+                       DatabaseManager.OnTransactionsLoadedListener listener) {
+        query(userId, localQuery, transactions -> !transactions.isEmpty(),
+                new OnLocalResultListener<List<Transaction>>() {
+            @Override
+            public void onLoaded(List<Transaction> transactions) {
+                listener.onTransactionsLoaded(transactions);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Wykonuje dowolne zapytanie lokalne, a po synchronizacji z Firestore wykonuje je ponownie.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param localQuery Zapytanie do bazy Room.
+     * @param hasData    Sprawdza, czy wynik zapytania zawiera dane do wyświetlenia.
+     * @param listener   Odbiorca wyniku.
+     */
+    private <T> void query(String userId, LocalQuery<T> localQuery, Predicate<T> hasData,
+                           OnLocalResultListener<T> listener) {
+        AppDatabase.databaseExecutor.execute(() -> {
+            T cached = localQuery.run();
+            boolean hasCache = hasData.test(cached);
+            mainHandler.post(() -> {
+                if (hasCache) {
+                    listener.onLoaded(cached);
+                }
+                syncTransactions(userId, localQuery, listener, hasCache);
+            });
+        });
+    }
+
+    /**
+     * Synchronizuje transakcje użytkownika z Firestore i - jeśli coś się zmieniło lub
+     * listener nie otrzymał jeszcze danych - przekazuje mu wynik ponownie wykonanego zapytania lokalnego.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param localQuery Zapytanie do bazy Room.
+     * @param listener   Interfejs zwrotny do obsługi wyniku operacji.
+     * @param hasCache   Czy listener otrzymał już dane z pamięci podręcznej.
+     */
+    private <T> void syncTransactions(String userId, LocalQuery<T> localQuery,
+                                      OnLocalResultListener<T> listener, boolean hasCache) {
+        sync(userId, new OnSyncListener() {
+            @Override
+            public void onSynced(boolean changed) {
+                if (!changed && hasCache) {
+                    return;
+                }
+                AppDatabase.databaseExecutor.execute(() -> {
+                    T fresh = localQuery.run();
+                    mainHandler.post(() -> listener.onLoaded(fresh));
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (hasCache) {
+                    // Dane z pamięci podręcznej zostały już wyświetlone
+                    Log.w(TAG, "Transaction sync failed, serving cached data", e);
+                } else {
+                    listener.onError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Synchronizuje przyrostowo transakcje użytkownika z Firestore.
+     * Pobierane są tylko dokumenty zmienione od ostatniego znacznika synchronizacji;
+     * przy pierwszej synchronizacji pobierana jest cała kolekcja.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji (wywoływany w wątku głównym).
+     */
+    public void sync(String userId, OnSyncListener listener) {
+        long watermark = watermarkStore.get(SyncWatermarkStore.TRANSACTIONS, userId);
+        // Zakładka chroni przed zapisami, których znacznik serwera jest wcześniejszy
+        // niż moment, w którym stały się widoczne dla zapytań
+        Date since = watermark > 0 ? new Date(watermark - SYNC_OVERLAP_MS) : null;
+
+        databaseManager.getTransactionChanges(userId, since, new DatabaseManager.OnTransactionsLoadedListener() {
+            @Override
+            public void onTransactionsLoaded(List<Transaction> changes) {
+                AppDatabase.databaseExecutor.execute(() -> {
+                    boolean changed = applyChanges(userId, changes, since == null, watermark);
+                    mainHandler.post(() -> listener.onSynced(changed));
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Zapisuje zmiany z Firestore w bazie Room i przesuwa znacznik synchronizacji.
+     *
+     * @param userId    Identyfikator użytkownika.
+     * @param changes   Zmienione transakcje (wraz z nagrobkami).
+     * @param fullSync  Czy była to pełna synchronizacja.
+     * @param watermark Dotychczasowy znacznik synchronizacji.
+     * @return True, jeśli lokalne dane mogły się zmienić.
+     */
+    private boolean applyChanges(String userId, List<Transaction> changes, boolean fullSync, long watermark) {
+        List<TransactionEntity> changed = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        long newWatermark = watermark;
+        for (Transaction transaction : changes) {
+            if (transaction.getUpdatedAt() != null) {
+                newWatermark = Math.max(newWatermark, transaction.getUpdatedAt().getTime());
+            }
+            if (transaction.isDeleted()) {
+                deletedIds.add(transaction.getId());
+            } else {
+                changed.add(TransactionEntity.fromTransaction(transaction));
+            }
+        }
+
+        if (fullSync) {
+            transactionDao.replaceAllByUser(userId, changed);
+            indexes.remove(userId);
+        } else {
+            writeChanges(userId, changed, deletedIds);
+        }
+        // Zmiany pochodzą wyłącznie z serwera (getTransactionChanges), więc znacznik nigdy nie jest
+        // przesuwany na podstawie niepełnej pamięci podręcznej Firestore.
+        // Dokumenty sprzed wprowadzenia pola updatedAt nie przesuwają znacznika -
+        // po pełnej synchronizacji znacznik musi być jednak niezerowy
+        watermarkStore.put(SyncWatermarkStore.TRANSACTIONS, userId, Math.max(newWatermark, 1));
+        return fullSync || !changes.isEmpty();
+    }
+
+    /**
+     * Konwertuje listę encji Room na modele transakcji.
+     *
+     * @param entities Lista encji.
+     * @return Lista transakcji.
+     */
+    private static List<Transaction> toTransactions(List<TransactionEntity> entities) {
+        List<Transaction> transactions = new ArrayList<>(entities.size());
+        for (TransactionEntity entity : entities) {
+            transactions.add(entity.toTransaction());
+        }
+        return transactions;
+    }
+
+    /**
+     * Interfejs zwrotny synchronizacji.
+     */
+    public interface OnSyncListener {
+        /**
+         * @param changed True, jeśli lokalne dane mogły się zmienić.
+         */
+        void onSynced(boolean changed);
+
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania sum kategorii.
+     */
+    public interface OnCategoryTotalsLoadedListener {
+        void onCategoryTotalsLoaded(List<TransactionDao.CategoryTotal> totals);
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania kolumnowej migawki transakcji.
+     */
+    public interface OnTransactionColumnsLoadedListener {
+        void onTransactionColumnsLoaded(TransactionColumns columns);
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania podsumowania użytkownika.
+     */
+    public interface OnLedgerLoadedListener {
+        void onLedgerLoaded(Ledger ledger);
+        void onError(Exception e);
+    }
+
+    /**
+     * Podsumowanie wszystkich transakcji użytkownika i jego najnowsze transakcje.
+     */
+    public static class Ledger {
+        public final Money income;
+        public final Money expenses;
+        public final int count;
+        public final List<Transaction> recent;
+
+        Ledger(LedgerSummaryEntity summary, List<Transaction> recent) {
+            this.income = summary != null ? Money.ofMinor(summary.getTotalIncome()) : Money.ZERO;
+            this.expenses = summary != null ? Money.ofMinor(summary.getTotalExpense()) : Money.ZERO;
+            this.count = summary != null ? summary.getCount() : 0;
+            this.recent = recent;
+        }
+
+        Ledger(DatabaseManager.UserTotals totals, List<Transaction> recent) {
+            this.income = totals.income;
+            this.expenses = totals.expenses;
+            this.count = (int) totals.count;
+            this.recent = recent;
+        }
+
+        /**
+         * @return Bilans (przychody minus wydatki).
+         */
+        public Money getBalance() {
+            return income.minus(expenses);
+        }
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania sum z zakresu dat.
+     */
+    public interface OnRangeTotalsLoadedListener {
+        void onRangeTotalsLoaded(RangeTotals totals);
+        void onError(Exception e);
+    }
+
+    /**
+     * Sumy i liczby wydatków oraz przychodów z zakresu dat.
+     */
+    public static class RangeTotals {
+        public final Money expenses;
+        public final int expenseCount;
+        public final Money income;
+        public final int incomeCount;
+
+        RangeTotals(Money expenses, int expenseCount, Money income, int incomeCount) {
+            this.expenses = expenses;
+            this.expenseCount = expenseCount;
+            this.income = income;
+            this.incomeCount = incomeCount;
+        }
+    }
+
+    /**
+     * Suma i liczba transakcji jednego typu w jednym miesiącu (czasu lokalnego).
+     */
+    public static class MonthTotal {
+        public final int month; // rrrrmm
+        public final boolean isExpense;
+        public final long total; // w groszach
+        public final int count;
+
+        MonthTotal(int month, boolean isExpense, long total, int count) {
+            this.month = month;
+            this.isExpense = isExpense;
+            this.total = total;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania sum miesięcznych.
+     */
+    public interface OnMonthlyTotalsLoadedListener {
+        void onMonthlyTotalsLoaded(List<MonthTotal> totals);
+        void onError(Exception e);
+    }
+
+    /**
+     * Zapytanie wykonywane na lokalnej bazie Room.
+     */
+    private interface LocalQuery<T> {
+        T run();
+    }
+
+    /**
+     * Odbiorca wyniku zapytania lokalnego (wywoływany w wątku głównym).
+     */
+    private interface OnLocalResultListener<T> {
+        void onLoaded(T result);
+        void onError(Exception e);
+    }
+}
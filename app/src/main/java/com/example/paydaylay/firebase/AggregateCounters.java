@@ -0,0 +1,311 @@
+package com.example.paydaylay.firebase;
+
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Money;
+import com.example.paydaylay.models.Transaction;
+import com.example.paydaylay.utils.BudgetPeriod;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Zbiera zmiany jednego zapisu transakcji i dopisuje do transakcji Firestore (lub - bez połączenia
+ * z serwerem - do partii zapisu) atomowe przyrosty liczników: sum użytkownika oraz wydatków (spent)
+ * budżetów, których bieżący okres obejmuje transakcję.
+ * Sumy użytkownika są rozłożone na kilka dokumentów (shardów) w users/{uid}/totals, aby częste
+ * zapisy nie przekraczały limitu zapisów jednego dokumentu; odczyt sumuje wszystkie shardy.
+ */
+final class AggregateCounters {
+    static final String TOTALS_COLLECTION = "totals";
+    static final int TOTALS_SHARDS = 4;
+
+    static final String FIELD_INCOME = "incomeMinor";
+    static final String FIELD_EXPENSE = "expenseMinor";
+    static final String FIELD_COUNT = "count";
+
+    private long incomeDelta;
+    private long expenseDelta;
+    private long countDelta;
+    // Transakcje ze znakiem: +1 dla dodanych, -1 dla usuniętych (edycja to usunięcie starej i dodanie nowej wersji)
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final List<Integer> signs = new ArrayList<>();
+    // Budżety zmienione przez ostatnie writeTo
+    private final List<TransactionChange.BudgetChange> budgetChanges = new ArrayList<>();
+    // Czy ostatnie writeTo pominęło budżet z nieaktualnym okresem
+    private boolean skippedBudgets;
+
+    /**
+     * Dolicza transakcję do liczników.
+     *
+     * @param transaction Zapisywana transakcja lub null.
+     */
+    void add(Transaction transaction) {
+        apply(transaction, 1);
+    }
+
+    /**
+     * Odejmuje transakcję od liczników.
+     *
+     * @param transaction Poprzednia wersja transakcji lub null.
+     */
+    void remove(Transaction transaction) {
+        apply(transaction, -1);
+    }
+
+    private void apply(Transaction transaction, int sign) {
+        if (transaction == null || transaction.isDeleted()) {
+            return;
+        }
+        long amount = sign * transaction.getAmount().getMinorUnits();
+        if (transaction.isExpense()) {
+            expenseDelta += amount;
+        } else {
+            incomeDelta += amount;
+        }
+        countDelta += sign;
+        transactions.add(transaction);
+        signs.add(sign);
+    }
+
+    /**
+     * Dopisuje do transakcji Firestore przyrosty sum użytkownika i wydatków pasujących budżetów.
+     * Budżety muszą być odczytane w tej samej transakcji. Budżet, którego zapisany okres minął,
+     * jest przesuwany do bieżącego okresu z wydatkami równymi zmianie z tego zapisu - przesunięcie
+     * następuje tylko wtedy, gdy odczytany w transakcji periodStartDate jest nadal nieaktualny,
+     * a równoległy zapis budżetu powoduje ponowienie transakcji, więc nie nadpisuje cudzych przyrostów.
+     * Zmienione budżety są zapamiętywane z wydatkami przed i po zapisie (zob. {@link #toChange(String)}).
+     *
+     * @param db          Instancja Firestore.
+     * @param transaction Transakcja Firestore, w której zapisywana jest sama transakcja użytkownika.
+     * @param userId      Identyfikator użytkownika.
+     * @param budgets     Budżety użytkownika odczytane w transakcji (bez nagrobków).
+     * @param now         Chwila obecna w milisekundach.
+     */
+    void writeTo(FirebaseFirestore db, com.google.firebase.firestore.Transaction transaction, String userId,
+                 List<Budget> budgets, long now) {
+        for (Write write : increments(db, userId, budgets, now, true)) {
+            write.applyTo(transaction);
+        }
+    }
+
+    /**
+     * Dopisuje do partii wyłącznie przyrosty - dla zapisu wykonywanego bez połączenia z serwerem,
+     * gdy transakcja Firestore nie jest dostępna. Budżety z nieaktualnym okresem są pomijane,
+     * ponieważ ich przesunięcie wymaga odczytu stanu serwera.
+     *
+     * @param db      Instancja Firestore.
+     * @param batch   Partia zapisu, w której zapisywana jest sama transakcja.
+     * @param userId  Identyfikator użytkownika.
+     * @param budgets Budżety użytkownika z pamięci podręcznej (bez nagrobków).
+     * @param now     Chwila obecna w milisekundach.
+     * @return True, jeśli pominięto budżet i liczniki wymagają ponownego przeliczenia.
+     */
+    boolean writeTo(FirebaseFirestore db, WriteBatch batch, String userId, List<Budget> budgets, long now) {
+        List<Write> writes = increments(db, userId, budgets, now, false);
+        for (Write write : writes) {
+            write.applyTo(batch);
+        }
+        return skippedBudgets;
+    }
+
+    /**
+     * Zapisuje w transakcji Firestore wartości bezwzględne liczników obliczone ze wszystkich
+     * dodanych transakcji: sumy użytkownika w pierwszym shardzie (pozostałe są zerowane)
+     * oraz wydatki budżetów w ich bieżącym okresie. Służy do jednorazowego przeliczenia liczników.
+     *
+     * @param db          Instancja Firestore.
+     * @param transaction Transakcja Firestore.
+     * @param userId      Identyfikator użytkownika.
+     * @param budgets     Budżety użytkownika (bez nagrobków).
+     * @param now         Chwila obecna w milisekundach.
+     */
+    void writeAbsolute(FirebaseFirestore db, com.google.firebase.firestore.Transaction transaction, String userId,
+                       List<Budget> budgets, long now) {
+        for (int i = 0; i < TOTALS_SHARDS; i++) {
+            Map<String, Object> totals = new HashMap<>();
+            totals.put(FIELD_INCOME, i == 0 ? incomeDelta : 0L);
+            totals.put(FIELD_EXPENSE, i == 0 ? expenseDelta : 0L);
+            totals.put(FIELD_COUNT, i == 0 ? countDelta : 0L);
+            totals.put("updatedAt", FieldValue.serverTimestamp());
+            transaction.set(shard(db, userId, i), totals);
+        }
+
+        for (Budget budget : budgets) {
+            BudgetPeriod.Range period = BudgetPeriod.containing(budget, now);
+            long spent = spentDelta(budget, period);
+            Map<String, Object> updates = new HashMap<>();
+            if (period.start > budget.getPeriodStartDate()) {
+                updates.put("periodStartDate", period.start);
+            }
+            updates.put("spentMinor", spent);
+            updates.put("spent", Money.ofMinor(spent).toDouble());
+            updates.put("updatedAt", FieldValue.serverTimestamp());
+            transaction.update(budget(db, userId, budget), updates);
+        }
+    }
+
+    /**
+     * Tworzy zapisy przyrostów sum użytkownika i wydatków budżetów.
+     *
+     * @param allowRollOver Czy budżety z nieaktualnym okresem mogą zostać przesunięte
+     *                      (tylko w transakcji, która odczytała ich stan z serwera).
+     */
+    private List<Write> increments(FirebaseFirestore db, String userId, List<Budget> budgets, long now,
+                                   boolean allowRollOver) {
+        List<Write> writes = new ArrayList<>();
+        if (incomeDelta != 0 || expenseDelta != 0 || countDelta != 0) {
+            Map<String, Object> increments = new HashMap<>();
+            increments.put(FIELD_INCOME, FieldValue.increment(incomeDelta));
+            increments.put(FIELD_EXPENSE, FieldValue.increment(expenseDelta));
+            increments.put(FIELD_COUNT, FieldValue.increment(countDelta));
+            increments.put("updatedAt", FieldValue.serverTimestamp());
+            writes.add(Write.merge(shard(db, userId, ThreadLocalRandom.current().nextInt(TOTALS_SHARDS)),
+                    increments));
+        }
+
+        budgetChanges.clear();
+        skippedBudgets = false;
+        for (Budget stored : budgets) {
+            BudgetPeriod.Range period = BudgetPeriod.containing(stored, now);
+            boolean rolled = period.start > stored.getPeriodStartDate();
+            long delta = spentDelta(stored, period);
+            if (!rolled && delta == 0) {
+                continue;
+            }
+            if (rolled && !allowRollOver) {
+                skippedBudgets |= delta != 0;
+                continue;
+            }
+            Money spentBefore = rolled ? Money.ZERO : stored.getSpent();
+            Budget budget = stored.withSpent(spentBefore.plus(Money.ofMinor(delta)));
+            budget.setPeriodStartDate(period.start);
+            budgetChanges.add(new TransactionChange.BudgetChange(budget, spentBefore, budget.getSpent()));
+
+            Map<String, Object> updates = new HashMap<>();
+            if (rolled) {
+                updates.put("periodStartDate", period.start);
+                updates.put("spentMinor", delta);
+                updates.put("spent", Money.ofMinor(delta).toDouble());
+            } else {
+                updates.put("spentMinor", FieldValue.increment(delta));
+                updates.put("spent", FieldValue.increment(Money.ofMinor(delta).toDouble()));
+            }
+            updates.put("updatedAt", FieldValue.serverTimestamp());
+            writes.add(Write.update(budget(db, userId, budget), updates));
+        }
+        return writes;
+    }
+
+    /**
+     * Tworzy zdarzenie zmiany z budżetów zmienionych przez ostatnie {@link #writeTo}.
+     *
+     * @param userId Identyfikator użytkownika.
+     * @return Zdarzenie zmiany transakcji.
+     */
+    TransactionChange toChange(String userId) {
+        return new TransactionChange(userId, new ArrayList<>(budgetChanges));
+    }
+
+    /**
+     * Zwraca zmianę wydatków budżetu: sumę wydatków z jego kategorii (lub wszystkich dla budżetu
+     * ogólnego), których data wypada w podanym okresie.
+     */
+    private long spentDelta(Budget budget, BudgetPeriod.Range period) {
+        long delta = 0;
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (!transaction.isExpense() || transaction.getDate() == null) {
+                continue;
+            }
+            if (budget.getCategoryId() != null && !budget.getCategoryId().equals(transaction.getCategoryId())) {
+                continue;
+            }
+            if (period.contains(transaction.getDate().getTime())) {
+                delta += signs.get(i) * transaction.getAmount().getMinorUnits();
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Zwraca dokument shardu sum użytkownika.
+     *
+     * @param db     Instancja Firestore.
+     * @param userId Identyfikator użytkownika.
+     * @param index  Numer shardu z przedziału [0, TOTALS_SHARDS).
+     * @return Referencja dokumentu.
+     */
+    static DocumentReference shard(FirebaseFirestore db, String userId, int index) {
+        return userDocument(db, userId).collection(TOTALS_COLLECTION).document("shard_" + index);
+    }
+
+    private static DocumentReference budget(FirebaseFirestore db, String userId, Budget budget) {
+        return userDocument(db, userId).collection("budgets").document(budget.getId());
+    }
+
+    static DocumentReference userDocument(FirebaseFirestore db, String userId) {
+        return db.collection("users").document(userId);
+    }
+
+    /**
+     * Pojedynczy zapis dokumentu, który można dopisać do partii lub do transakcji Firestore.
+     */
+    static final class Write {
+        private static final int SET = 0;
+        private static final int MERGE = 1;
+        private static final int UPDATE = 2;
+
+        private final int kind;
+        private final DocumentReference ref;
+        private final Map<String, Object> data;
+
+        private Write(int kind, DocumentReference ref, Map<String, Object> data) {
+            this.kind = kind;
+            this.ref = ref;
+            this.data = data;
+        }
+
+        /** Zastępuje cały dokument. */
+        static Write set(DocumentReference ref, Map<String, Object> data) {
+            return new Write(SET, ref, data);
+        }
+
+        /** Scala pola z dokumentem, tworząc go w razie potrzeby. */
+        static Write merge(DocumentReference ref, Map<String, Object> data) {
+            return new Write(MERGE, ref, data);
+        }
+
+        /** Aktualizuje pola istniejącego dokumentu. */
+        static Write update(DocumentReference ref, Map<String, Object> data) {
+            return new Write(UPDATE, ref, data);
+        }
+
+        void applyTo(WriteBatch batch) {
+            if (kind == SET) {
+                batch.set(ref, data);
+            } else if (kind == MERGE) {
+                batch.set(ref, data, SetOptions.merge());
+            } else {
+                batch.update(ref, data);
+            }
+        }
+
+        void applyTo(com.google.firebase.firestore.Transaction transaction) {
+            if (kind == SET) {
+                transaction.set(ref, data);
+            } else if (kind == MERGE) {
+                transaction.set(ref, data, SetOptions.merge());
+            } else {
+                transaction.update(ref, data);
+            }
+        }
+    }
+}
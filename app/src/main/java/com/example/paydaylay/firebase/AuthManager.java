@@ -6,7 +6,7 @@ import android.content.SharedPreferences;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
-
+import com.example.paydaylay.database.CategoryDictionary;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.AuthResult;
@@ -131,6 +131,10 @@ public class AuthManager {
      * @param context Kontekst aplikacji.
      */
     public void logoutUser(Context context) {
+        String userId = getCurrentUserId();
+        if (userId != null) {
+            CategoryDictionary.getInstance(context).release(userId);
+        }
         auth.signOut();
         clearUserSession(context);
     }
@@ -0,0 +1,180 @@
+package com.example.paydaylay.firebase;
+
+import android.util.Log;
+
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Transaction;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Przelicza liczniki użytkownika (sumy w users/{uid}/totals i wydatki budżetów) od nowa
+ * ze wszystkich transakcji. Liczniki utrzymywane przyrostami nie obejmują transakcji zapisanych
+ * przed ich wprowadzeniem ani zapisów bez połączenia, które pominęły budżet z nieaktualnym okresem,
+ * dlatego przeliczenie jest wykonywane raz po migracji danych oraz ponownie po takim zapisie.
+ * Wykonana wersja jest zapisywana w dokumencie users/{uid}/meta/counters.
+ * Transakcje są odczytywane zapytaniem poza transakcją Firestore, dlatego przed zapisem wartości
+ * bezwzględnych sprawdzane jest, czy od tego odczytu nie zmienił się żaden shard sum, budżet
+ * ani znacznik przeliczenia - każdy zapis zmieniający liczniki zmienia ich updatedAt. W takim
+ * przypadku przeliczenie jest powtarzane od odczytu transakcji (najwyżej MAX_ATTEMPTS razy).
+ */
+final class CounterReconciliation {
+    private static final String TAG = "CounterReconciliation";
+
+    // Zwiększenie wersji wymusza ponowne przeliczenie liczników wszystkich użytkowników
+    private static final long VERSION = 1;
+    private static final String FIELD_VERSION = "version";
+    private static final String FIELD_UPDATED_AT = "updatedAt";
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final FirebaseFirestore db;
+    private final String userId;
+    private final DocumentReference marker;
+
+    CounterReconciliation(FirebaseFirestore db, String userId) {
+        this.db = db;
+        this.userId = userId;
+        this.marker = marker(db, userId);
+    }
+
+    /**
+     * Przelicza liczniki, jeśli nie zostały jeszcze przeliczone w bieżącej wersji.
+     *
+     * @return Zadanie zakończone po zapisaniu liczników (od razu, jeśli są aktualne).
+     */
+    Task<Void> run() {
+        return attempt(1);
+    }
+
+    private Task<Void> attempt(int attempt) {
+        // Odczyty z serwera - bez sieci przeliczenie kończy się błędem zamiast liczyć z pamięci podręcznej
+        return marker.get(Source.SERVER).onSuccessTask(snapshot -> {
+            Long version = snapshot.exists() ? snapshot.getLong(FIELD_VERSION) : null;
+            if (version != null && version >= VERSION) {
+                return Tasks.forResult(null);
+            }
+            List<Task<DocumentSnapshot>> shards = new ArrayList<>(AggregateCounters.TOTALS_SHARDS);
+            for (int i = 0; i < AggregateCounters.TOTALS_SHARDS; i++) {
+                shards.add(AggregateCounters.shard(db, userId, i).get(Source.SERVER));
+            }
+            // Shardy są odczytywane przed transakcjami - zapis wykonany pomiędzy zmienia ich updatedAt
+            return Tasks.whenAllSuccess(shards).onSuccessTask(shardResults -> {
+                Task<QuerySnapshot> transactions = userCollection("transactions").get(Source.SERVER);
+                Task<QuerySnapshot> budgets = userCollection("budgets").get(Source.SERVER);
+                return Tasks.whenAllSuccess(transactions, budgets)
+                        .onSuccessTask(results -> recompute(snapshot, shards, transactions.getResult(),
+                                budgets.getResult()));
+            });
+        }).continueWithTask(task -> {
+            if (!task.isSuccessful() && task.getException() instanceof ConcurrentWriteException
+                    && attempt < MAX_ATTEMPTS) {
+                Log.d(TAG, "Counters changed during reconciliation, retrying");
+                return attempt(attempt + 1);
+            }
+            return task;
+        });
+    }
+
+    private Task<Void> recompute(DocumentSnapshot markerSnapshot, List<Task<DocumentSnapshot>> shardTasks,
+                                 QuerySnapshot transactionSnapshots, QuerySnapshot budgetSnapshots) {
+        AggregateCounters counters = new AggregateCounters();
+        for (DocumentSnapshot doc : transactionSnapshots) {
+            counters.add(Transaction.fromDocument(doc));
+        }
+        List<DocumentSnapshot> budgetDocs = new ArrayList<>();
+        for (DocumentSnapshot doc : budgetSnapshots) {
+            if (!Budget.fromDocument(doc).isDeleted()) {
+                budgetDocs.add(doc);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        return db.runTransaction(transaction -> {
+            // Dokumenty odczytane w transakcji muszą być takie same jak przy odczycie transakcji użytkownika;
+            // zmiana po odczycie w transakcji powoduje jej ponowienie przez Firestore
+            if (!unchanged(markerSnapshot, transaction.get(marker))) {
+                throw new ConcurrentWriteException();
+            }
+            for (Task<DocumentSnapshot> shardTask : shardTasks) {
+                DocumentSnapshot shard = shardTask.getResult();
+                if (!unchanged(shard, transaction.get(shard.getReference()))) {
+                    throw new ConcurrentWriteException();
+                }
+            }
+            List<Budget> budgets = new ArrayList<>(budgetDocs.size());
+            for (DocumentSnapshot read : budgetDocs) {
+                DocumentSnapshot doc = transaction.get(read.getReference());
+                if (!unchanged(read, doc)) {
+                    throw new ConcurrentWriteException();
+                }
+                budgets.add(Budget.fromDocument(doc));
+            }
+            counters.writeAbsolute(db, transaction, userId, budgets, now);
+            transaction.set(marker, versionMap(VERSION));
+            return null;
+        }).addOnSuccessListener(aVoid -> Log.d(TAG, "Recomputed counters from "
+                + transactionSnapshots.size() + " transactions"));
+    }
+
+    /**
+     * Sprawdza, czy dokument nie zmienił się od wcześniejszego odczytu (istnienie i updatedAt).
+     */
+    private static boolean unchanged(DocumentSnapshot before, DocumentSnapshot now) {
+        if (before.exists() != now.exists()) {
+            return false;
+        }
+        return Objects.equals(before.getTimestamp(FIELD_UPDATED_AT), now.getTimestamp(FIELD_UPDATED_AT));
+    }
+
+    /**
+     * Oznacza liczniki do ponownego przeliczenia przy kolejnym uruchomieniu (w tej samej partii co zapis,
+     * który ich nie zaktualizował).
+     *
+     * @param db     Instancja Firestore.
+     * @param batch  Partia zapisu.
+     * @param userId Identyfikator użytkownika.
+     */
+    static void invalidate(FirebaseFirestore db, WriteBatch batch, String userId) {
+        batch.set(marker(db, userId), versionMap(0), SetOptions.merge());
+    }
+
+    /**
+     * Zgłaszana w transakcji Firestore, gdy liczniki zmieniły się od odczytu transakcji użytkownika.
+     * Nie jest wyjątkiem Firestore, więc transakcja nie jest ponawiana z nieaktualnymi danymi.
+     */
+    private static final class ConcurrentWriteException extends IllegalStateException {
+        ConcurrentWriteException() {
+            super("Counters changed during reconciliation");
+        }
+    }
+
+    private CollectionReference userCollection(String collection) {
+        return AggregateCounters.userDocument(db, userId).collection(collection);
+    }
+
+    private static DocumentReference marker(FirebaseFirestore db, String userId) {
+        return AggregateCounters.userDocument(db, userId).collection("meta").document("counters");
+    }
+
+    private static Map<String, Object> versionMap(long version) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(FIELD_VERSION, version);
+        map.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        return map;
+    }
+}
@@ -6,15 +6,32 @@ import android.os.Looper;
 import android.util.Log;
 
 import com.example.paydaylay.database.AppDatabase;
+import com.example.paydaylay.database.SyncWatermarkStore;
 import com.example.paydaylay.database.TransactionEntity;
 import com.example.paydaylay.models.Budget;
 import com.example.paydaylay.models.Category;
+import com.example.paydaylay.models.Money;
 import com.example.paydaylay.models.Transaction;
+import com.example.paydaylay.utils.BudgetPeriod;
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.FirebaseApp;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -22,41 +39,228 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
-import android.appwidget.AppWidgetManager;
-import android.content.ComponentName;
 import com.example.paydaylay.widgets.BudgetWidgetDataHelper;
 
-import android.content.Intent;
 import java.util.Calendar;
-import android.content.ComponentName;
-import com.example.paydaylay.widgets.BudgetWidgetProvider;
 
 /**
  * Klasa DatabaseManager zarządza operacjami na danych w Firebase Firestore oraz lokalnej bazie danych.
  * Oferuje metody do obsługi użytkowników, transakcji, kategorii i budżetów.
+ * Jedna instancja jest współdzielona w całym procesie (getInstance()). Identyczne odczyty
+ * wywołane w czasie, gdy poprzedni jeszcze trwa, korzystają z tego samego zadania Firestore
+ * i tej samej listy obiektów - każdy wywołujący dostaje własną kopię listy, ale obiekty
+ * modelu są współdzielone.
+ * Dokumenty są zamieniane na obiekty modelu w wątku tła, a do wątku głównego trafiają
+ * tylko gotowe listy. Odczyty przyjmujące CancellationToken nie wywołują listenera po anulowaniu.
  */
 public class DatabaseManager {
     private static final String TAG = "DatabaseManager";
+    private static volatile DatabaseManager instance;
     private final FirebaseFirestore db;
     private final String TRANSACTIONS_COLLECTION = "transactions";
     private final String CATEGORIES_COLLECTION = "categories";
     private final String BUDGETS_COLLECTION = "budgets";
     private final String USERS_COLLECTION = "users";
 
+    // Pola wspólne dla synchronizacji przyrostowej
+    private static final String FIELD_UPDATED_AT = "updatedAt";
+    private static final String FIELD_DELETED = "deleted";
+
+    // Trwające odczyty według klucza (kolekcja, użytkownik, zakres)
+    private final Map<String, Flight<?>> inFlight = new HashMap<>();
+
+    // Trwające lub zakończone migracje danych do podkolekcji użytkownika (tylko w wątku głównym)
+    private final Map<String, Task<Void>> migrations = new HashMap<>();
+
+    // Trwające lub zakończone przeliczenia liczników użytkowników (tylko w wątku głównym)
+    private final Map<String, Task<Void>> reconciliations = new HashMap<>();
+
+    // Odbiorcy zdarzeń zapisu transakcji (wywoływani w wątku głównym)
+    private final List<OnTransactionChangedListener> transactionChangedListeners = new CopyOnWriteArrayList<>();
+
+    // Zamiana dokumentów na obiekty modelu odbywa się poza wątkiem głównym
+    private static final ExecutorService parseExecutor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
     /**
      * Konstruktor klasy DatabaseManager.
-     * Inicjalizuje instancję FirebaseFirestore z włączoną obsługą offline.
+     * Ustawienia Firestore (obsługa offline) są konfigurowane raz w PayDayLayApplication.
      */
-    public DatabaseManager() {
+    private DatabaseManager() {
         db = FirebaseFirestore.getInstance();
+    }
+
+    /**
+     * Pobiera współdzieloną instancję DatabaseManager.
+     *
+     * @return Instancja DatabaseManager.
+     */
+    public static DatabaseManager getInstance() {
+        if (instance == null) {
+            synchronized (DatabaseManager.class) {
+                if (instance == null) {
+                    instance = new DatabaseManager();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Zwraca trwające zadanie o podanym kluczu lub uruchamia nowe.
+     * Zadanie jest usuwane z mapy po zakończeniu, więc późniejsze wywołania pobierają świeże dane.
+     * Odczyt, którego wszyscy wywołujący anulowali swoje tokeny, nie jest już współdzielony.
+     *
+     * @param key    Klucz odczytu (kolekcja, użytkownik, zakres).
+     * @param token  Token anulowania wywołującego lub null.
+     * @param loader Uruchamia zadanie, jeśli żadne nie trwa.
+     * @return Zadanie współdzielone przez wszystkich wywołujących.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Task<T> singleFlight(String key, CancellationToken token, Function<Flight<T>, Task<T>> loader) {
+        synchronized (inFlight) {
+            Flight<T> flight = (Flight<T>) inFlight.get(key);
+            if (flight != null && flight.join(token)) {
+                return flight.task;
+            }
+            Flight<T> started = new Flight<>();
+            started.join(token);
+            started.task = loader.apply(started);
+            inFlight.put(key, started);
+            started.task.addOnCompleteListener(parseExecutor, t -> {
+                synchronized (inFlight) {
+                    inFlight.remove(key, started);
+                }
+            });
+            return started.task;
+        }
+    }
+
+    /**
+     * Uruchamia (lub dołącza do trwającego) zapytania i parsuje wynik jeden raz w wątku tła.
+     * Parsowanie jest pomijane, jeśli wszyscy oczekujący anulowali odczyt.
+     *
+     * @param key    Klucz odczytu.
+     * @param token  Token anulowania wywołującego lub null.
+     * @param query  Zapytanie Firestore.
+     * @param parser Zamienia wynik zapytania na listę obiektów modelu.
+     * @return Zadanie zwracające listę obiektów.
+     */
+    private <T> Task<List<T>> sharedQuery(String key, CancellationToken token, Query query,
+                                          Function<QuerySnapshot, List<T>> parser) {
+        return sharedQuery(key, token, query, Source.DEFAULT, parser);
+    }
+
+    /**
+     * Uruchamia (lub dołącza do trwającego) zapytania z podanego źródła i parsuje wynik jeden raz w wątku tła.
+     *
+     * @param key    Klucz odczytu.
+     * @param token  Token anulowania wywołującego lub null.
+     * @param query  Zapytanie Firestore.
+     * @param source Źródło danych (np. Source.SERVER, gdy wynik z pamięci podręcznej byłby niepełny).
+     * @param parser Zamienia wynik zapytania na listę obiektów modelu.
+     * @return Zadanie zwracające listę obiektów.
+     */
+    private <T> Task<List<T>> sharedQuery(String key, CancellationToken token, Query query, Source source,
+                                          Function<QuerySnapshot, List<T>> parser) {
+        return singleFlight(key, token, flight -> query.get(source).continueWith(parseExecutor, task -> {
+            QuerySnapshot snapshots = resultOf(task);
+            flight.throwIfAbandoned();
+            return parser.apply(snapshots);
+        }));
+    }
+
+    /**
+     * Przekazuje wynik zadania do wywołującego w wątku głównym, chyba że anulował on odczyt.
+     *
+     * @param task      Zadanie odczytu.
+     * @param token     Token anulowania wywołującego lub null.
+     * @param onSuccess Odbiorca wyniku.
+     * @param onFailure Odbiorca błędu.
+     */
+    private static <T> void deliver(Task<T> task, CancellationToken token,
+                                    OnSuccessListener<T> onSuccess, OnFailureListener onFailure) {
+        task.addOnCompleteListener(t -> {
+            if (token != null && token.isCancellationRequested()) {
+                return;
+            }
+            if (t.isSuccessful()) {
+                onSuccess.onSuccess(t.getResult());
+            } else {
+                onFailure.onFailure(t.getException());
+            }
+        });
+    }
+
+    /**
+     * Współdzielony odczyt wraz z liczbą wywołujących, którzy wciąż czekają na wynik.
+     * Wywołujący bez tokena anulowania czekają zawsze.
+     */
+    private static final class Flight<T> {
+        Task<T> task;
+        private int waiting;
+
+        /**
+         * Dołącza wywołującego do odczytu.
+         *
+         * @return False, jeśli odczyt został już porzucony i trzeba uruchomić nowy.
+         */
+        synchronized boolean join(CancellationToken token) {
+            if (task != null && waiting == 0) {
+                return false;
+            }
+            waiting++;
+            if (token != null) {
+                token.onCanceledRequested(this::leave);
+            }
+            return true;
+        }
+
+        private synchronized void leave() {
+            waiting--;
+        }
+
+        synchronized void throwIfAbandoned() {
+            if (waiting == 0) {
+                throw new CancellationException("Read cancelled by all callers");
+            }
+        }
+    }
 
-        // Konfiguracja Firestore dla obsługi offline
-        FirebaseFirestoreSettings settings = new FirebaseFirestoreSettings.Builder()
-                .setPersistenceEnabled(true)
-                .setCacheSizeBytes(FirebaseFirestoreSettings.CACHE_SIZE_UNLIMITED)
-                .build();
-        db.setFirestoreSettings(settings);
+    /**
+     * Zwraca wynik zakończonego zadania lub rzuca jego oryginalny wyjątek.
+     */
+    private static <T> T resultOf(Task<T> task) throws Exception {
+        if (!task.isSuccessful()) {
+            throw task.getException();
+        }
+        return task.getResult();
+    }
+
+    /**
+     * Zwraca podkolekcję danych użytkownika (users/{uid}/{collection}).
+     * Zapytania w obrębie podkolekcji nie wymagają filtrowania po userId.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param collection Nazwa kolekcji.
+     * @return Referencja podkolekcji.
+     */
+    private CollectionReference userCollection(String userId, String collection) {
+        return db.collection(USERS_COLLECTION).document(userId).collection(collection);
+    }
+
+    private static String readKey(String collection, Object... parts) {
+        StringBuilder key = new StringBuilder(collection);
+        for (Object part : parts) {
+            key.append('|').append(part);
+        }
+        return key.toString();
     }
 
     /**
@@ -92,6 +296,58 @@ public class DatabaseManager {
                 .addOnFailureListener(listener::onError);
     }
 
+    /**
+     * Przenosi dane użytkownika z płaskich kolekcji do podkolekcji users/{uid}/...
+     * Migracja jest wznawiana od ostatniej skopiowanej partii i wykonywana raz na proces;
+     * po błędzie kolejne wywołanie próbuje ponownie. Należy ją zakończyć przed odczytem danych użytkownika.
+     * Zakończenie jest zapamiętywane w MigrationStore - kolejne wywołania kończą się od razu,
+     * bez odczytu postępu z serwera. Po migracji liczniki są w tle uzgadniane z transakcjami,
+     * a znacznik synchronizacji transakcji jest zerowany, więc kolejna synchronizacja pobiera
+     * podkolekcję w całości.
+     *
+     * @param context  Kontekst aplikacji.
+     * @param userId   Identyfikator użytkownika.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void migrateUserData(Context context, String userId, OnCompletionListener listener) {
+        MigrationStore store = new MigrationStore(context);
+        if (store.isMigrated(userId)) {
+            listener.onSuccess();
+            reconcileCounters(userId);
+            return;
+        }
+
+        Task<Void> task = migrations.get(userId);
+        if (task == null || (task.isComplete() && !task.isSuccessful())) {
+            task = new UserDataMigration(db, userId).run()
+                    .addOnSuccessListener(aVoid -> {
+                        new SyncWatermarkStore(context).put(SyncWatermarkStore.TRANSACTIONS, userId, 0);
+                        store.setMigrated(userId);
+                        reconcileCounters(userId);
+                    });
+            migrations.put(userId, task);
+        }
+        task.addOnSuccessListener(aVoid -> listener.onSuccess())
+                .addOnFailureListener(listener::onError);
+    }
+
+    /**
+     * Przelicza liczniki użytkownika, jeśli nie zostały jeszcze przeliczone w bieżącej wersji
+     * lub zostały oznaczone do przeliczenia (zob. CounterReconciliation). Trwające przeliczenie
+     * nie jest uruchamiane ponownie; błąd (np. brak sieci) jest tylko zapisywany w logu.
+     *
+     * @param userId Identyfikator użytkownika.
+     */
+    private void reconcileCounters(String userId) {
+        Task<Void> task = reconciliations.get(userId);
+        if (task != null && !task.isComplete()) {
+            return;
+        }
+        task = new CounterReconciliation(db, userId).run()
+                .addOnFailureListener(e -> Log.w(TAG, "Counter reconciliation failed", e));
+        reconciliations.put(userId, task);
+    }
+
     /**
      * Tworzy mapę danych użytkownika.
      *
@@ -109,15 +365,14 @@ public class DatabaseManager {
     }
 
     /**
-     * Usuwa transakcje powiązane z daną kategorią.
+     * Oznacza transakcje powiązane z daną kategorią jako usunięte (nagrobki).
      *
      * @param userId     Identyfikator użytkownika.
      * @param categoryId Identyfikator kategorii.
      * @param listener   Interfejs zwrotny do obsługi wyniku operacji.
      */
     public void deleteTransactionsForCategory(String userId, String categoryId, OnTransactionListener listener) {
-        db.collection(TRANSACTIONS_COLLECTION)
-                .whereEqualTo("userId", userId)
+        userCollection(userId, TRANSACTIONS_COLLECTION)
                 .whereEqualTo("categoryId", categoryId)
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
@@ -126,12 +381,15 @@ public class DatabaseManager {
                         return;
                     }
 
-                    com.google.firebase.firestore.WriteBatch batch = db.batch();
+                    List<DocumentReference> live = new ArrayList<>();
+                    List<AggregateCounters.Write> tombstones = new ArrayList<>();
                     for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                        batch.delete(doc.getReference());
+                        if (isTombstone(doc)) continue;
+                        live.add(doc.getReference());
+                        tombstones.add(AggregateCounters.Write.update(doc.getReference(), createTombstoneMap()));
                     }
 
-                    batch.commit()
+                    writeWithCounters(userId, live, null, tombstones)
                             .addOnSuccessListener(aVoid -> listener.onSuccess())
                             .addOnFailureListener(listener::onError);
                 })
@@ -145,7 +403,7 @@ public class DatabaseManager {
      * @param listener Interfejs zwrotny do obsługi wyniku operacji.
      */
     public void addBudget(Budget budget, OnBudgetOperationListener listener) {
-        db.collection(BUDGETS_COLLECTION)
+        userCollection(budget.getUserId(), BUDGETS_COLLECTION)
                 .add(budget.toMap())
                 .addOnSuccessListener(documentReference -> {
                     budget.setId(documentReference.getId());
@@ -157,25 +415,32 @@ public class DatabaseManager {
     /**
      * Pobiera budżet na podstawie jego identyfikatora.
      *
+     * @param userId   Identyfikator użytkownika.
      * @param budgetId Identyfikator budżetu.
      * @param listener Interfejs zwrotny do obsługi wyniku operacji.
      */
-    public void getBudgetById(String budgetId, OnBudgetLoadedListener listener) {
-        db.collection(BUDGETS_COLLECTION).document(budgetId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    Budget budget = null;
-                    if (documentSnapshot.exists()) {
-                        budget = documentSnapshot.toObject(Budget.class);
-                        budget.setId(documentSnapshot.getId());
-                    }
-                    listener.onBudgetLoaded(budget);
-                })
+    public void getBudgetById(String userId, String budgetId, OnBudgetLoadedListener listener) {
+        Task<Budget> task = singleFlight(readKey(BUDGETS_COLLECTION, userId, "id", budgetId), null, flight ->
+                userCollection(userId, BUDGETS_COLLECTION).document(budgetId)
+                        .get()
+                        .continueWith(parseExecutor, t -> {
+                            DocumentSnapshot documentSnapshot = resultOf(t);
+                            Budget budget = null;
+                            if (documentSnapshot.exists() && !isTombstone(documentSnapshot)) {
+                                budget = Budget.fromDocument(documentSnapshot);
+                            }
+                            return budget;
+                        }));
+        task.addOnSuccessListener(listener::onBudgetLoaded)
                 .addOnFailureListener(listener::onError);
     }
 
     /**
      * Zapisuje lub aktualizuje budżet w Firestore.
+     * Wydatki (spentMinor) są licznikiem utrzymywanym przez zapisy transakcji: nowy budżet jest
+     * zapisywany z zerowymi wydatkami, a edycja ich nie zmienia. Ponieważ nowy okres lub kategoria
+     * mogą już obejmować wydatki, w tej samej partii liczniki są oznaczane do przeliczenia
+     * (CounterReconciliation.invalidate), które jest uruchamiane po zapisie.
      *
      * @param budget   Obiekt budżetu.
      * @param listener Interfejs zwrotny do obsługi wyniku operacji.
@@ -188,27 +453,33 @@ public class DatabaseManager {
             return;
         }
 
-        if (budget.getId() == null || budget.getId().isEmpty()) {
-            db.collection(BUDGETS_COLLECTION)
-                    .add(budget.toMap())
-                    .addOnSuccessListener(documentReference -> {
-                        budget.setId(documentReference.getId());
-                        if (listener != null) {
-                            listener.onBudgetSaved(budget);
-                        }
-                    })
-                    .addOnFailureListener(listener::onError);
+        String userId = budget.getUserId();
+        boolean isNew = budget.getId() == null || budget.getId().isEmpty();
+        WriteBatch batch = db.batch();
+        if (isNew) {
+            DocumentReference ref = userCollection(userId, BUDGETS_COLLECTION).document();
+            budget.setId(ref.getId());
+            batch.set(ref, budget.withSpent(Money.ZERO).toMap());
         } else {
-            db.collection(BUDGETS_COLLECTION)
-                    .document(budget.getId())
-                    .update(budget.toMap())
-                    .addOnSuccessListener(aVoid -> {
-                        if (listener != null) {
-                            listener.onBudgetSaved(budget);
-                        }
-                    })
-                    .addOnFailureListener(listener::onError);
+            batch.update(userCollection(userId, BUDGETS_COLLECTION).document(budget.getId()), budget.toEditMap());
         }
+        CounterReconciliation.invalidate(db, batch, userId);
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    reconcileCounters(userId);
+                    if (listener != null) {
+                        listener.onBudgetSaved(budget);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    if (isNew) {
+                        // Ponowny zapis po błędzie ma ponownie utworzyć dokument
+                        budget.setId(null);
+                    }
+                    if (listener != null) {
+                        listener.onError(e);
+                    }
+                });
     }
 
     /**
@@ -218,33 +489,637 @@ public class DatabaseManager {
      * @param listener Interfejs zwrotny do obsługi wyniku operacji.
      */
     public void getTransactions(String userId, OnTransactionsLoadedListener listener) {
-        fetchTransactionsFromFirestore(userId, listener, null);
+        getTransactions(userId, null, listener);
+    }
+
+    /**
+     * Pobiera transakcje użytkownika z Firestore z możliwością anulowania.
+     * Po anulowaniu tokena listener nie zostanie wywołany.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param token    Token anulowania (np. powiązany z widokiem fragmentu) lub null.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void getTransactions(String userId, CancellationToken token, OnTransactionsLoadedListener listener) {
+        fetchTransactionsFromFirestore(userId, null, token, listener);
+    }
+
+    /**
+     * Pobiera transakcje użytkownika z Firestore, opcjonalnie zawężone do jednej kategorii.
+     * Wyniki są posortowane od najnowszych.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param categoryId Identyfikator kategorii lub null dla wszystkich kategorii.
+     * @param token      Token anulowania lub null.
+     * @param listener   Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    private void fetchTransactionsFromFirestore(String userId, String categoryId, CancellationToken token,
+                                                OnTransactionsLoadedListener listener) {
+        Query query = userCollection(userId, TRANSACTIONS_COLLECTION);
+        if (categoryId != null) {
+            query = query.whereEqualTo("categoryId", categoryId);
+        }
+
+        Task<List<Transaction>> task = sharedQuery(readKey(TRANSACTIONS_COLLECTION, userId, categoryId), token, query,
+                snapshots -> {
+                    List<Transaction> transactions = parseTransactions(snapshots, false);
+                    Collections.sort(transactions, (t1, t2) -> t2.getDate().compareTo(t1.getDate()));
+                    return transactions;
+                });
+        deliver(task, token, transactions -> listener.onTransactionsLoaded(new ArrayList<>(transactions)),
+                listener::onError);
+    }
+
+    /**
+     * Pobiera transakcje użytkownika zmienione od podanego znacznika synchronizacji.
+     * Wynik zawiera również nagrobki (isDeleted()), które należy usunąć z lokalnej bazy.
+     * Zmiany są odczytywane wyłącznie z serwera - wynik z pamięci podręcznej Firestore mógłby być
+     * niepełny, a przesunięty na jego podstawie znacznik pominąłby brakujące dokumenty na zawsze.
+     * Bez połączenia odczyt kończy się błędem.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param since    Znacznik synchronizacji lub null dla pełnej synchronizacji.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void getTransactionChanges(String userId, Date since, OnTransactionsLoadedListener listener) {
+        String key = readKey(TRANSACTIONS_COLLECTION, userId, "changes", since != null ? since.getTime() : null);
+        Task<List<Transaction>> task = sharedQuery(key, null, changesQuery(TRANSACTIONS_COLLECTION, userId, since),
+                Source.SERVER, snapshots -> parseTransactions(snapshots, true));
+        deliver(task, null, transactions -> listener.onTransactionsLoaded(new ArrayList<>(transactions)),
+                listener::onError);
+    }
+
+    /**
+     * Tworzy zapytanie o dokumenty użytkownika zmienione od znacznika synchronizacji.
+     * Dokumenty zapisane przed wprowadzeniem pola updatedAt są zwracane tylko przy pełnej synchronizacji.
+     *
+     * @param collection Nazwa kolekcji.
+     * @param userId     Identyfikator użytkownika.
+     * @param since      Znacznik synchronizacji lub null dla pełnej synchronizacji.
+     * @return Zapytanie Firestore.
+     */
+    private Query changesQuery(String collection, String userId, Date since) {
+        Query query = userCollection(userId, collection);
+        if (since != null) {
+            query = query.whereGreaterThanOrEqualTo(FIELD_UPDATED_AT, new Timestamp(since));
+        }
+        return query;
+    }
+
+    /**
+     * Tworzy mapę aktualizacji zamieniającą dokument w nagrobek.
+     *
+     * @return Mapa pól nagrobka.
+     */
+    private Map<String, Object> createTombstoneMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put(FIELD_DELETED, true);
+        map.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        return map;
+    }
+
+    /**
+     * Sprawdza, czy dokument jest nagrobkiem usuniętego rekordu.
+     *
+     * @param doc Dokument Firestore.
+     * @return True, jeśli dokument oznaczono jako usunięty.
+     */
+    private static boolean isTombstone(DocumentSnapshot doc) {
+        return Boolean.TRUE.equals(doc.getBoolean(FIELD_DELETED));
+    }
+
+    /**
+     * Pobiera jedną stronę transakcji użytkownika, posortowaną od najnowszych.
+     * Kolejne strony są pobierane kursorem startAfter (data, identyfikator dokumentu),
+     * więc pobierane i parsowane są tylko dokumenty z widocznego okna listy.
+     * Strona zawiera również nagrobki (isDeleted()), aby kursor mógł je pominąć.
+     *
+     * @param userId    Identyfikator użytkownika.
+     * @param afterDate Data ostatniej transakcji poprzedniej strony lub null dla pierwszej strony.
+     * @param afterId   Identyfikator ostatniej transakcji poprzedniej strony.
+     * @param limit     Maksymalna liczba transakcji na stronie.
+     * @param token     Token anulowania lub null. Po anulowaniu listener nie zostanie wywołany.
+     * @param listener  Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void getTransactionsPage(String userId, Date afterDate, String afterId, int limit,
+                                    CancellationToken token, OnTransactionsLoadedListener listener) {
+        Query query = userCollection(userId, TRANSACTIONS_COLLECTION)
+                .orderBy("date", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.ASCENDING);
+        if (afterDate != null && afterId != null) {
+            query = query.startAfter(new Timestamp(afterDate), afterId);
+        }
+
+        String key = readKey(TRANSACTIONS_COLLECTION, userId, "page",
+                afterDate != null ? afterDate.getTime() : null, afterId, limit);
+        Task<List<Transaction>> task = sharedQuery(key, token, query.limit(limit),
+                snapshots -> parseTransactions(snapshots, true));
+        deliver(task, token, transactions -> listener.onTransactionsLoaded(new ArrayList<>(transactions)),
+                listener::onError);
+    }
+
+    /**
+     * Pobiera transakcje użytkownika z zakresu dat budżetu.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param categoryId Identyfikator kategorii lub null dla budżetu ogólnego.
+     * @param startDate  Początek zakresu (włącznie).
+     * @param endDate    Koniec zakresu (wyłącznie).
+     * @param listener   Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void getTransactionsForBudget(String userId, String categoryId, Date startDate, Date endDate,
+                                         OnTransactionsLoadedListener listener) {
+        getTransactionsForBudget(userId, categoryId, startDate, endDate, null, listener);
+    }
+
+    /**
+     * Pobiera transakcje użytkownika z zakresu dat budżetu z możliwością anulowania.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param categoryId Identyfikator kategorii lub null dla budżetu ogólnego.
+     * @param startDate  Początek zakresu (włącznie).
+     * @param endDate    Koniec zakresu (wyłącznie).
+     * @param token      Token anulowania lub null. Po anulowaniu listener nie zostanie wywołany.
+     * @param listener   Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void getTransactionsForBudget(String userId, String categoryId, Date startDate, Date endDate,
+                                         CancellationToken token, OnTransactionsLoadedListener listener) {
+        Query query = userCollection(userId, TRANSACTIONS_COLLECTION);
+        if (categoryId != null) {
+            query = query.whereEqualTo("categoryId", categoryId);
+        }
+
+        query = query.whereGreaterThanOrEqualTo("date", startDate)
+                .whereLessThan("date", endDate);
+
+        String key = readKey(TRANSACTIONS_COLLECTION, userId, categoryId, startDate.getTime(), endDate.getTime());
+        Task<List<Transaction>> task = sharedQuery(key, token, query, snapshots -> parseTransactions(snapshots, false));
+        deliver(task, token, transactions -> listener.onTransactionsLoaded(new ArrayList<>(transactions)),
+                listener::onError);
+    }
+
+    /**
+     * Dodaje nową transakcję do Firestore i odświeża widżety budżetowe.
+     * W tej samej transakcji Firestore zwiększane są sumy użytkownika i wydatki pasujących budżetów.
+     *
+     * @param transaction Obiekt transakcji.
+     * @param listener    Interfejs zwrotny do obsługi wyniku operacji.
+     * @param context     Kontekst aplikacji (do odświeżenia widżetów).
+     */
+    public void addTransaction(Transaction transaction, OnTransactionListener listener, Context context) {
+        DocumentReference ref = userCollection(transaction.getUserId(), TRANSACTIONS_COLLECTION).document();
+        // Identyfikator jest nadawany od razu, aby transakcję można było zapisać lokalnie przed potwierdzeniem serwera
+        transaction.setId(ref.getId());
+        writeWithCounters(transaction.getUserId(), Collections.emptyList(), transaction,
+                Collections.singletonList(AggregateCounters.Write.set(ref, transaction.toMap())))
+                .addOnSuccessListener(aVoid -> {
+                    updateBudgetWidgets(context);
+                    listener.onSuccess();
+                })
+                .addOnFailureListener(listener::onError);
+    }
+
+    /**
+     * Aktualizuje istniejącą transakcję w Firestore i odświeża widżety budżetowe.
+     * Liczniki są korygowane o różnicę między poprzednią a nową wersją transakcji.
+     *
+     * @param transaction Obiekt transakcji.
+     * @param listener    Interfejs zwrotny do obsługi wyniku operacji.
+     * @param context     Kontekst aplikacji (do odświeżenia widżetów).
+     */
+    public void updateTransaction(Transaction transaction, OnTransactionListener listener, Context context) {
+        DocumentReference ref = userCollection(transaction.getUserId(), TRANSACTIONS_COLLECTION)
+                .document(transaction.getId());
+        writeWithCounters(transaction.getUserId(), Collections.singletonList(ref), transaction,
+                Collections.singletonList(AggregateCounters.Write.set(ref, transaction.toMap())))
+                .addOnSuccessListener(aVoid -> {
+                    updateBudgetWidgets(context);
+                    listener.onSuccess();
+                })
+                .addOnFailureListener(listener::onError);
+    }
+
+    /**
+     * Usuwa transakcję z Firestore.
+     * Dokument nie jest kasowany, lecz oznaczany jako nagrobek, aby synchronizacja
+     * przyrostowa na innych urządzeniach mogła usunąć go z lokalnej bazy.
+     * Liczniki są pomniejszane o usuniętą transakcję.
+     *
+     * @param userId        Identyfikator użytkownika.
+     * @param transactionId Identyfikator transakcji.
+     * @param listener      Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void deleteTransaction(String userId, String transactionId, OnTransactionListener listener) {
+        DocumentReference ref = userCollection(userId, TRANSACTIONS_COLLECTION).document(transactionId);
+        writeWithCounters(userId, Collections.singletonList(ref), null,
+                Collections.singletonList(AggregateCounters.Write.update(ref, createTombstoneMap())))
+                .addOnSuccessListener(aVoid -> listener.onSuccess())
+                .addOnFailureListener(listener::onError);
+    }
+
+    /**
+     * Zapisuje transakcje razem z przyrostami liczników w jednej transakcji Firestore.
+     * Poprzednie wersje dokumentów i budżety, których dotyczy zmiana, są odczytywane w tej samej
+     * transakcji, więc równoległa edycja tej samej transakcji lub przesunięcie okresu budżetu
+     * powoduje jej ponowienie zamiast podwójnego odjęcia kwoty lub nadpisania cudzych przyrostów.
+     * Poprzednie wersje są odejmowane, a nowa dodawana do sum użytkownika i wydatków budżetów,
+     * których bieżący okres obejmuje datę transakcji. Po zatwierdzeniu publikowane jest
+     * zdarzenie {@link TransactionChange} ze zmienionymi budżetami.
+     * Bez połączenia z serwerem transakcja Firestore nie jest dostępna - zapis trafia wtedy
+     * do partii z samymi przyrostami (zob. {@link #writeWithCountersOffline}).
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param previous Dokumenty, których poprzednie wersje należy odjąć od liczników.
+     * @param current  Nowa wersja transakcji lub null przy usuwaniu.
+     * @param writes   Zapisy samych dokumentów transakcji.
+     * @return Zadanie zakończone po zatwierdzeniu zapisu.
+     */
+    private Task<Void> writeWithCounters(String userId, List<DocumentReference> previous, Transaction current,
+                                         List<AggregateCounters.Write> writes) {
+        return userCollection(userId, BUDGETS_COLLECTION).get().continueWithTask(budgetsTask -> {
+            List<Budget> cachedBudgets = parseBudgets(resultOf(budgetsTask));
+            long now = System.currentTimeMillis();
+            return db.runTransaction(transaction -> {
+                List<Transaction> old = new ArrayList<>(previous.size());
+                for (DocumentReference ref : previous) {
+                    DocumentSnapshot snapshot = transaction.get(ref);
+                    if (snapshot.exists()) {
+                        old.add(Transaction.fromDocument(snapshot));
+                    }
+                }
+                List<Budget> budgets = new ArrayList<>();
+                for (Budget cached : cachedBudgets) {
+                    if (!affects(cached, current) && !affectsAny(cached, old)) continue;
+                    DocumentSnapshot snapshot = transaction.get(
+                            userCollection(userId, BUDGETS_COLLECTION).document(cached.getId()));
+                    if (snapshot.exists() && !isTombstone(snapshot)) {
+                        budgets.add(Budget.fromDocument(snapshot));
+                    }
+                }
+
+                AggregateCounters counters = new AggregateCounters();
+                for (Transaction transactionBefore : old) {
+                    counters.remove(transactionBefore);
+                }
+                counters.add(current);
+                for (AggregateCounters.Write write : writes) {
+                    write.applyTo(transaction);
+                }
+                counters.writeTo(db, transaction, userId, budgets, now);
+                return counters.toChange(userId);
+            }).continueWithTask(transactionTask -> {
+                if (transactionTask.isSuccessful()) {
+                    publishTransactionChange(transactionTask.getResult());
+                    return Tasks.forResult(null);
+                }
+                if (!isUnavailable(transactionTask.getException())) {
+                    return Tasks.forException(transactionTask.getException());
+                }
+                return writeWithCountersOffline(userId, previous, current, writes, cachedBudgets);
+            });
+        });
+    }
+
+    /**
+     * Zapisuje transakcje bez połączenia z serwerem: poprzednie wersje i budżety pochodzą z pamięci
+     * podręcznej, a do partii trafiają wyłącznie przyrosty, które można bezpiecznie złożyć z innymi
+     * zapisami. Jeśli zmiana dotyczyła budżetu z nieaktualnym okresem, liczniki są oznaczane
+     * do ponownego przeliczenia. Zdarzenie {@link TransactionChange} jest publikowane od razu
+     * po zastosowaniu partii w lokalnej bazie, przed potwierdzeniem serwera.
+     */
+    private Task<Void> writeWithCountersOffline(String userId, List<DocumentReference> previous,
+                                                Transaction current, List<AggregateCounters.Write> writes,
+                                                List<Budget> budgets) {
+        List<Task<DocumentSnapshot>> reads = new ArrayList<>(previous.size());
+        for (DocumentReference ref : previous) {
+            reads.add(ref.get());
+        }
+        return Tasks.whenAllComplete(reads).continueWithTask(t -> {
+            AggregateCounters counters = new AggregateCounters();
+            for (Task<DocumentSnapshot> read : reads) {
+                DocumentSnapshot snapshot = resultOf(read);
+                if (snapshot.exists()) {
+                    counters.remove(Transaction.fromDocument(snapshot));
+                }
+            }
+            counters.add(current);
+
+            WriteBatch batch = db.batch();
+            for (AggregateCounters.Write write : writes) {
+                write.applyTo(batch);
+            }
+            if (counters.writeTo(db, batch, userId, budgets, System.currentTimeMillis())) {
+                CounterReconciliation.invalidate(db, batch, userId);
+            }
+            Task<Void> commit = batch.commit();
+            publishTransactionChange(counters.toChange(userId));
+            return commit;
+        });
     }
 
     /**
-     * Pobiera kategorie użytkownika z Firestore.
+     * Sprawdza, czy wydatek może zmienić wydatki budżetu (budżet ogólny lub budżet jego kategorii).
+     */
+    private static boolean affects(Budget budget, Transaction transaction) {
+        return transaction != null && !transaction.isDeleted() && transaction.isExpense()
+                && (budget.getCategoryId() == null || budget.getCategoryId().equals(transaction.getCategoryId()));
+    }
+
+    private static boolean affectsAny(Budget budget, List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            if (affects(budget, transaction)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isUnavailable(Exception e) {
+        return e instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.UNAVAILABLE;
+    }
+
+    /**
+     * Rejestruje odbiorcę zdarzeń zapisu transakcji.
+     *
+     * @param listener Odbiorca zdarzeń.
+     */
+    public void addOnTransactionChangedListener(OnTransactionChangedListener listener) {
+        transactionChangedListeners.add(listener);
+    }
+
+    /**
+     * Wyrejestrowuje odbiorcę zdarzeń zapisu transakcji.
+     *
+     * @param listener Odbiorca zdarzeń.
+     */
+    public void removeOnTransactionChangedListener(OnTransactionChangedListener listener) {
+        transactionChangedListeners.remove(listener);
+    }
+
+    private void publishTransactionChange(TransactionChange change) {
+        // Zapis, który nie dotyczy żadnego budżetu, nie wymaga ich ponownej oceny
+        if (change.getBudgetChanges().isEmpty()) {
+            return;
+        }
+        for (OnTransactionChangedListener listener : transactionChangedListeners) {
+            listener.onTransactionChanged(change);
+        }
+    }
+
+    /**
+     * Zamienia wynik zapytania na listę budżetów, pomijając nagrobki.
+     *
+     * @param snapshots Wynik zapytania o budżety.
+     * @return Lista budżetów.
+     */
+    private static List<Budget> parseBudgets(QuerySnapshot snapshots) {
+        List<Budget> budgets = new ArrayList<>(snapshots.size());
+        for (DocumentSnapshot doc : snapshots) {
+            if (isTombstone(doc)) continue;
+            budgets.add(Budget.fromDocument(doc));
+        }
+        return budgets;
+    }
+
+    /**
+     * Pobiera sumy przychodów i wydatków użytkownika utrzymywane przez liczniki,
+     * sumując wszystkie shardy (TOTALS_SHARDS odczytów pojedynczych dokumentów).
      *
      * @param userId   Identyfikator użytkownika.
      * @param listener Interfejs zwrotny do obsługi wyniku operacji.
      */
-    public void getCategories(String userId, OnCategoriesLoadedListener listener) {
-        db.collection(CATEGORIES_COLLECTION)
-                .whereEqualTo("userId", userId)
+    public void getUserTotals(String userId, OnUserTotalsLoadedListener listener) {
+        userCollection(userId, AggregateCounters.TOTALS_COLLECTION)
                 .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<Category> categories = new ArrayList<>();
-                    for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                        Category category = doc.toObject(Category.class);
-                        if (category != null) {
-                            category.setId(doc.getId());
-                            categories.add(category);
-                        }
+                .addOnSuccessListener(snapshots -> {
+                    long income = 0;
+                    long expenses = 0;
+                    long count = 0;
+                    for (DocumentSnapshot doc : snapshots) {
+                        income += longOrZero(doc, AggregateCounters.FIELD_INCOME);
+                        expenses += longOrZero(doc, AggregateCounters.FIELD_EXPENSE);
+                        count += longOrZero(doc, AggregateCounters.FIELD_COUNT);
                     }
-                    listener.onCategoriesLoaded(categories);
+                    listener.onUserTotalsLoaded(new UserTotals(Money.ofMinor(income), Money.ofMinor(expenses), count));
+                })
+                .addOnFailureListener(listener::onError);
+    }
+
+    private static long longOrZero(DocumentSnapshot doc, String field) {
+        Long value = doc.getLong(field);
+        return value != null ? value : 0;
+    }
+
+    /**
+     * Dodaje nową kategorię do Firestore.
+     *
+     * @param category Obiekt kategorii.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void addCategory(Category category, OnCategoryOperationListener listener) {
+        userCollection(category.getUserId(), CATEGORIES_COLLECTION)
+                .add(category.toMap())
+                .addOnSuccessListener(documentReference -> {
+                    category.setId(documentReference.getId());
+                    listener.onSuccess();
                 })
                 .addOnFailureListener(listener::onError);
     }
 
+    /**
+     * Aktualizuje istniejącą kategorię w Firestore.
+     *
+     * @param category Obiekt kategorii.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void updateCategory(Category category, OnCategoryOperationListener listener) {
+        userCollection(category.getUserId(), CATEGORIES_COLLECTION)
+                .document(category.getId())
+                .set(category.toMap())
+                .addOnSuccessListener(aVoid -> listener.onSuccess())
+                .addOnFailureListener(listener::onError);
+    }
+
+    /**
+     * Usuwa kategorię z Firestore (oznacza ją jako nagrobek).
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param categoryId Identyfikator kategorii.
+     * @param listener   Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void deleteCategory(String userId, String categoryId, OnCategoryOperationListener listener) {
+        userCollection(userId, CATEGORIES_COLLECTION)
+                .document(categoryId)
+                .update(createTombstoneMap())
+                .addOnSuccessListener(aVoid -> listener.onSuccess())
+                .addOnFailureListener(listener::onError);
+    }
+
+    /**
+     * Pobiera kategorię na podstawie jej identyfikatora.
+     *
+     * @param userId     Identyfikator użytkownika.
+     * @param categoryId Identyfikator kategorii.
+     * @param listener   Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void getCategoryById(String userId, String categoryId, OnCategoryLoadedListener listener) {
+        Task<Category> task = singleFlight(readKey(CATEGORIES_COLLECTION, userId, "id", categoryId), null, flight ->
+                userCollection(userId, CATEGORIES_COLLECTION).document(categoryId)
+                        .get()
+                        .continueWith(parseExecutor, t -> {
+                            DocumentSnapshot documentSnapshot = resultOf(t);
+                            Category category = null;
+                            if (documentSnapshot.exists() && !isTombstone(documentSnapshot)) {
+                                category = Category.fromDocument(documentSnapshot);
+                            }
+                            return category;
+                        }));
+        task.addOnSuccessListener(listener::onCategoryLoaded)
+                .addOnFailureListener(listener::onError);
+    }
+
+    /**
+     * Pobiera budżety użytkownika z Firestore.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void getBudgets(String userId, OnBudgetsLoadedListener listener) {
+        getBudgets(userId, null, listener);
+    }
+
+    /**
+     * Pobiera budżety użytkownika z Firestore z możliwością anulowania.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param token    Token anulowania lub null. Po anulowaniu listener nie zostanie wywołany.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void getBudgets(String userId, CancellationToken token, OnBudgetsLoadedListener listener) {
+        Query query = userCollection(userId, BUDGETS_COLLECTION);
+        Task<List<Budget>> task = sharedQuery(readKey(BUDGETS_COLLECTION, userId), token, query, snapshots -> {
+            List<Budget> budgets = parseBudgets(snapshots);
+
+            // Budżety, których okres minął, są przesuwane do bieżącego okresu
+            List<Budget> rolled = BudgetPeriod.rollForward(budgets, System.currentTimeMillis());
+            if (!rolled.isEmpty()) {
+                saveBudgetPeriods(rolled);
+            }
+            return budgets;
+        });
+        deliver(task, token, budgets -> listener.onBudgetsLoaded(new ArrayList<>(budgets)), listener::onError);
+    }
+
+    /**
+     * Zapisuje nowe okresy budżetów przesuniętych do bieżącego okresu.
+     * Wydatki są zerowane w transakcji Firestore tylko wtedy, gdy zapisany periodStartDate budżetu
+     * jest nadal wcześniejszy niż nowy - budżet przesunięty już przez zapis transakcji
+     * (wraz z przyrostami z nowego okresu) pozostaje bez zmian.
+     *
+     * @param budgets Budżety przesunięte przez BudgetPeriod.rollForward.
+     */
+    private void saveBudgetPeriods(List<Budget> budgets) {
+        db.runTransaction(transaction -> {
+            List<DocumentSnapshot> stored = new ArrayList<>(budgets.size());
+            for (Budget budget : budgets) {
+                stored.add(transaction.get(budgetDocument(budget)));
+            }
+            int rolled = 0;
+            for (int i = 0; i < budgets.size(); i++) {
+                Budget budget = budgets.get(i);
+                DocumentSnapshot snapshot = stored.get(i);
+                Long periodStartDate = snapshot.getLong("periodStartDate");
+                if (!snapshot.exists() || isTombstone(snapshot)
+                        || (periodStartDate != null && periodStartDate >= budget.getPeriodStartDate())) {
+                    continue;
+                }
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("periodStartDate", budget.getPeriodStartDate());
+                updates.put("spentMinor", budget.getSpent().getMinorUnits());
+                updates.put("spent", budget.getSpent().toDouble());
+                updates.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+                transaction.update(budgetDocument(budget), updates);
+                rolled++;
+            }
+            return rolled;
+        })
+                .addOnSuccessListener(rolled -> Log.d(TAG, "Rolled " + rolled + " budgets into current period"))
+                .addOnFailureListener(e -> Log.e(TAG, "Error saving rolled budget periods", e));
+    }
+
+    private DocumentReference budgetDocument(Budget budget) {
+        return userCollection(budget.getUserId(), BUDGETS_COLLECTION).document(budget.getId());
+    }
+
+    /**
+     * Usuwa budżet z Firestore (oznacza go jako nagrobek).
+     *
+     * @param budget   Obiekt budżetu.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void deleteBudget(Budget budget, OnCompletionListener listener) {
+        userCollection(budget.getUserId(), BUDGETS_COLLECTION)
+                .document(budget.getId())
+                .update(createTombstoneMap())
+                .addOnSuccessListener(aVoid -> listener.onSuccess())
+                .addOnFailureListener(listener::onError);
+    }
+
+    /**
+     * Nasłuchuje zmian kategorii użytkownika. Listener jest wywoływany z pełną listą kategorii
+     * (bez nagrobków) od razu oraz po każdej zmianie kolekcji. Dokumenty są parsowane w wątku tła,
+     * a listener jest wywoływany w wątku głównym.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     * @return Rejestracja, którą należy usunąć po zakończeniu nasłuchiwania.
+     */
+    public ListenerRegistration listenCategories(String userId, OnCategoriesLoadedListener listener) {
+        return userCollection(userId, CATEGORIES_COLLECTION)
+                .addSnapshotListener(parseExecutor, (snapshots, e) -> {
+                    if (e != null) {
+                        mainHandler.post(() -> listener.onError(e));
+                        return;
+                    }
+                    if (snapshots != null) {
+                        List<Category> categories = parseCategories(snapshots);
+                        mainHandler.post(() -> listener.onCategoriesLoaded(categories));
+                    }
+                });
+    }
+
+    /**
+     * Zamienia wynik zapytania na listę transakcji.
+     *
+     * @param snapshots        Wynik zapytania.
+     * @param includeTombstones Czy zachować nagrobki (dla synchronizacji i stronicowania).
+     * @return Lista transakcji.
+     */
+    private static List<Transaction> parseTransactions(QuerySnapshot snapshots, boolean includeTombstones) {
+        List<Transaction> transactions = new ArrayList<>(snapshots.size());
+        for (DocumentSnapshot doc : snapshots) {
+            if (!includeTombstones && isTombstone(doc)) continue;
+            transactions.add(Transaction.fromDocument(doc));
+        }
+        return transactions;
+    }
+
+    /**
+     * Zamienia wynik zapytania na listę kategorii (bez nagrobków).
+     *
+     * @param snapshots Wynik zapytania.
+     * @return Lista kategorii.
+     */
+    private static List<Category> parseCategories(QuerySnapshot snapshots) {
+        List<Category> categories = new ArrayList<>(snapshots.size());
+        for (DocumentSnapshot doc : snapshots) {
+            if (isTombstone(doc)) continue;
+            categories.add(Category.fromDocument(doc));
+        }
+        return categories;
+    }
+
     /**
      * Aktualizuje widżety budżetowe.
      *
@@ -269,14 +1144,8 @@ public class DatabaseManager {
                 BudgetWidgetDataHelper dataHelper = new BudgetWidgetDataHelper(context);
                 dataHelper.saveAllBudgets(budgets);
 
-                AppWidgetManager widgetManager = AppWidgetManager.getInstance(context);
-                ComponentName widgetComponent = new ComponentName(context, BudgetWidgetProvider.class);
-                int[] widgetIds = widgetManager.getAppWidgetIds(widgetComponent);
-
-                Intent updateIntent = new Intent(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-                updateIntent.setComponent(widgetComponent);
-                updateIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, widgetIds);
-                context.sendBroadcast(updateIntent);
+                // Widżety otrzymują tylko zmienione pola zamiast pełnego przerysowania
+                dataHelper.updateAllWidgets();
             }
 
             @Override
@@ -285,4 +1154,126 @@ public class DatabaseManager {
             }
         });
     }
+
+    /**
+     * Sumy przychodów i wydatków użytkownika utrzymywane przez liczniki w Firestore.
+     */
+    public static final class UserTotals {
+        public final Money income;
+        public final Money expenses;
+        public final long count;
+
+        UserTotals(Money income, Money expenses, long count) {
+            this.income = income;
+            this.expenses = expenses;
+            this.count = count;
+        }
+
+        public Money getBalance() {
+            return income.minus(expenses);
+        }
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania sum użytkownika.
+     */
+    public interface OnUserTotalsLoadedListener {
+        void onUserTotalsLoaded(UserTotals totals);
+        void onError(Exception e);
+    }
+
+    /**
+     * Odbiorca zdarzeń zapisu transakcji, wywoływany w wątku głównym.
+     */
+    public interface OnTransactionChangedListener {
+        void onTransactionChanged(TransactionChange change);
+    }
+
+    /**
+     * Interfejs zwrotny dla operacji na profilu użytkownika.
+     */
+    public interface OnUserOperationListener {
+        void onSuccess();
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla operacji zapisu i usuwania transakcji.
+     */
+    public interface OnTransactionListener {
+        void onSuccess();
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania listy transakcji.
+     */
+    public interface OnTransactionsLoadedListener {
+        void onTransactionsLoaded(List<Transaction> transactions);
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania listy kategorii.
+     */
+    public interface OnCategoriesLoadedListener {
+        void onCategoriesLoaded(List<Category> categories);
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania pojedynczej kategorii.
+     */
+    public interface OnCategoryLoadedListener {
+        void onCategoryLoaded(Category category);
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla operacji zapisu i usuwania kategorii.
+     */
+    public interface OnCategoryOperationListener {
+        void onSuccess();
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla dodawania budżetu.
+     */
+    public interface OnBudgetOperationListener {
+        void onSuccess();
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania pojedynczego budżetu.
+     */
+    public interface OnBudgetLoadedListener {
+        void onBudgetLoaded(Budget budget);
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla zapisu budżetu.
+     */
+    public interface OnBudgetSavedListener {
+        void onBudgetSaved(Budget budget);
+        void onError(Exception e);
+    }
+
+    /**
+     * Interfejs zwrotny dla pobierania listy budżetów.
+     */
+    public interface OnBudgetsLoadedListener {
+        void onBudgetsLoaded(List<Budget> budgets);
+        void onError(Exception e);
+    }
+
+    /**
+     * Ogólny interfejs zwrotny informujący o zakończeniu operacji.
+     */
+    public interface OnCompletionListener {
+        void onSuccess();
+        void onError(Exception e);
+    }
 }
@@ -0,0 +1,39 @@
+package com.example.paydaylay.firebase;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Zapamiętuje użytkowników, których dane zostały przeniesione do podkolekcji users/{uid}/...
+ * Dzięki temu po zakończonej migracji aplikacja nie czeka przy starcie na odczyt jej postępu
+ * z serwera, a praca w tle może sprawdzić, czy dane w podkolekcjach są już kompletne.
+ */
+public class MigrationStore {
+    private static final String PREFS_NAME = "UserDataMigration";
+    private static final String KEY_MIGRATED_PREFIX = "migrated_";
+
+    private final SharedPreferences prefs;
+
+    public MigrationStore(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Sprawdza, czy migracja danych użytkownika została zakończona na tym urządzeniu.
+     *
+     * @param userId Identyfikator użytkownika.
+     * @return True, jeśli dane użytkownika są już w podkolekcjach.
+     */
+    public boolean isMigrated(String userId) {
+        return userId != null && prefs.getBoolean(KEY_MIGRATED_PREFIX + userId, false);
+    }
+
+    /**
+     * Zapisuje zakończenie migracji danych użytkownika.
+     *
+     * @param userId Identyfikator użytkownika.
+     */
+    public void setMigrated(String userId) {
+        prefs.edit().putBoolean(KEY_MIGRATED_PREFIX + userId, true).apply();
+    }
+}
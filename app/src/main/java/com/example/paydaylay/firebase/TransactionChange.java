@@ -0,0 +1,64 @@
+package com.example.paydaylay.firebase;
+
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Money;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Zdarzenie zapisu transakcji (dodanie, edycja lub usunięcie) publikowane przez DatabaseManager
+ * po zastosowaniu partii zapisu w lokalnej bazie Firestore - bez czekania na potwierdzenie serwera.
+ * Zawiera tylko budżety, których kategoria i bieżący okres obejmują zmienioną transakcję
+ * (lub których okres właśnie się rozpoczął), z wydatkami przed i po zapisie.
+ */
+public final class TransactionChange {
+    private final String userId;
+    private final List<BudgetChange> budgetChanges;
+
+    TransactionChange(String userId, List<BudgetChange> budgetChanges) {
+        this.userId = userId;
+        this.budgetChanges = Collections.unmodifiableList(budgetChanges);
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public List<BudgetChange> getBudgetChanges() {
+        return budgetChanges;
+    }
+
+    /**
+     * Zmiana wydatków jednego budżetu w wyniku zapisu transakcji.
+     */
+    public static final class BudgetChange {
+        private final Budget budget;
+        private final Money spentBefore;
+        private final Money spentAfter;
+
+        BudgetChange(Budget budget, Money spentBefore, Money spentAfter) {
+            this.budget = budget;
+            this.spentBefore = spentBefore;
+            this.spentAfter = spentAfter;
+        }
+
+        /**
+         * @return Budżet przesunięty do bieżącego okresu.
+         */
+        public Budget getBudget() {
+            return budget;
+        }
+
+        /**
+         * @return Wydatki bieżącego okresu przed zapisem (0, jeśli okres właśnie się rozpoczął).
+         */
+        public Money getSpentBefore() {
+            return spentBefore;
+        }
+
+        public Money getSpentAfter() {
+            return spentAfter;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.paydaylay.firebase;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Przenosi dane użytkownika z płaskich kolekcji (transactions, categories, budgets filtrowanych
+ * po userId) do podkolekcji users/{uid}/...
+ * Dokumenty są kopiowane partiami po CHUNK_SIZE z zachowaniem identyfikatorów; dokumenty już
+ * obecne w podkolekcji nie są nadpisywane starszymi kopiami. Postęp (etap i identyfikator ostatniego
+ * skopiowanego dokumentu) jest zapisywany w tej samej transakcji co kopie w dokumencie
+ * users/{uid}/meta/migration, więc przerwana migracja jest wznawiana od ostatniej zatwierdzonej
+ * partii - również na innym urządzeniu.
+ * Kopie otrzymują nowy znacznik updatedAt (czas serwera), dzięki czemu przyrostowa synchronizacja
+ * urządzeń, które już zsynchronizowały podkolekcję, pobiera je mimo starszego czasu modyfikacji oryginału.
+ * Dokumenty w starych kolekcjach nie są usuwane.
+ */
+final class UserDataMigration {
+    private static final String TAG = "UserDataMigration";
+
+    // Kolejność etapów: kategorie i budżety przed transakcjami, do których się odwołują
+    private static final String[] COLLECTIONS = {"categories", "budgets", "transactions"};
+    private static final int CHUNK_SIZE = 200;
+
+    private static final String FIELD_STAGE = "stage";
+    private static final String FIELD_LAST_ID = "lastId";
+    private static final String FIELD_DONE = "done";
+    private static final String FIELD_UPDATED_AT = "updatedAt";
+
+    private final FirebaseFirestore db;
+    private final String userId;
+    private final DocumentReference progress;
+
+    UserDataMigration(FirebaseFirestore db, String userId) {
+        this.db = db;
+        this.userId = userId;
+        this.progress = db.collection("users").document(userId).collection("meta").document("migration");
+    }
+
+    /**
+     * Uruchamia lub wznawia migrację.
+     *
+     * @return Zadanie zakończone po skopiowaniu wszystkich dokumentów (od razu, jeśli migracja już się odbyła).
+     */
+    Task<Void> run() {
+        // Odczyty z serwera - bez sieci migracja kończy się błędem zamiast kopiować niepełne dane z pamięci podręcznej
+        return progress.get(Source.SERVER).onSuccessTask(snapshot -> {
+            if (snapshot.exists() && Boolean.TRUE.equals(snapshot.getBoolean(FIELD_DONE))) {
+                return Tasks.forResult(null);
+            }
+            Long stage = snapshot.exists() ? snapshot.getLong(FIELD_STAGE) : null;
+            String lastId = snapshot.exists() ? snapshot.getString(FIELD_LAST_ID) : null;
+            return copyChunk(stage != null ? stage.intValue() : 0, lastId);
+        });
+    }
+
+    /**
+     * Kopiuje jedną partię dokumentów etapu i zapisuje postęp, a następnie przechodzi do kolejnej partii.
+     *
+     * @param stage  Indeks kolekcji w COLLECTIONS.
+     * @param lastId Identyfikator ostatniego skopiowanego dokumentu etapu lub null.
+     * @return Zadanie zakończone po skopiowaniu wszystkich pozostałych dokumentów.
+     */
+    private Task<Void> copyChunk(int stage, String lastId) {
+        String collection = COLLECTIONS[stage];
+        Query query = db.collection(collection)
+                .whereEqualTo("userId", userId)
+                .orderBy(FieldPath.documentId())
+                .limit(CHUNK_SIZE);
+        if (lastId != null) {
+            query = query.startAfter(lastId);
+        }
+
+        return query.get(Source.SERVER).onSuccessTask(snapshots -> {
+            List<DocumentSnapshot> sources = snapshots.getDocuments();
+            String last = sources.isEmpty() ? null : sources.get(sources.size() - 1).getId();
+
+            // Niepełna partia kończy etap
+            boolean stageDone = sources.size() < CHUNK_SIZE;
+            int nextStage = stageDone ? stage + 1 : stage;
+            String nextLastId = stageDone ? null : last;
+            boolean done = nextStage >= COLLECTIONS.length;
+
+            return db.runTransaction(transaction -> {
+                // Dokumenty są odczytywane w transakcji, więc zapis aplikacji w podkolekcji
+                // wykonany w trakcie migracji nie zostanie nadpisany starszą kopią
+                List<DocumentSnapshot> targets = new ArrayList<>(sources.size());
+                for (DocumentSnapshot doc : sources) {
+                    targets.add(transaction.get(target(collection, doc.getId())));
+                }
+                int copied = 0;
+                for (int i = 0; i < sources.size(); i++) {
+                    if (shouldCopy(sources.get(i), targets.get(i))) {
+                        transaction.set(targets.get(i).getReference(), copyData(sources.get(i)));
+                        copied++;
+                    }
+                }
+                transaction.set(progress, progressMap(nextStage, nextLastId, done));
+                return copied;
+            }).onSuccessTask(copied -> {
+                Log.d(TAG, "Copied " + copied + " of " + sources.size() + " documents of " + collection);
+                return done ? Tasks.forResult(null) : copyChunk(nextStage, nextLastId);
+            });
+        });
+    }
+
+    /**
+     * Sprawdza, czy dokument ze starej kolekcji należy skopiować. Dokument istniejący już
+     * w podkolekcji (np. zapisany przez aplikację po częściowej migracji) jest zastępowany
+     * tylko wtedy, gdy kopia w starej kolekcji ma późniejszy znacznik updatedAt.
+     *
+     * @param source Dokument ze starej kolekcji.
+     * @param target Dokument w podkolekcji użytkownika.
+     * @return True, jeśli dokument należy skopiować.
+     */
+    private static boolean shouldCopy(DocumentSnapshot source, DocumentSnapshot target) {
+        if (!target.exists()) {
+            return true;
+        }
+        Timestamp sourceUpdatedAt = source.getTimestamp(FIELD_UPDATED_AT);
+        Timestamp targetUpdatedAt = target.getTimestamp(FIELD_UPDATED_AT);
+        return sourceUpdatedAt != null && (targetUpdatedAt == null || sourceUpdatedAt.compareTo(targetUpdatedAt) > 0);
+    }
+
+    /**
+     * Zwraca dane dokumentu do zapisu w podkolekcji z nowym znacznikiem updatedAt.
+     *
+     * @param source Dokument ze starej kolekcji.
+     * @return Mapa danych kopii.
+     */
+    private static Map<String, Object> copyData(DocumentSnapshot source) {
+        Map<String, Object> data = new HashMap<>(source.getData());
+        data.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        return data;
+    }
+
+    private DocumentReference target(String collection, String id) {
+        return db.collection("users").document(userId).collection(collection).document(id);
+    }
+
+    private static Map<String, Object> progressMap(int stage, String lastId, boolean done) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(FIELD_STAGE, stage);
+        map.put(FIELD_LAST_ID, lastId);
+        map.put(FIELD_DONE, done);
+        map.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        return map;
+    }
+}
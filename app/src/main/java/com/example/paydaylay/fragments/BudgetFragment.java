@@ -24,12 +24,16 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.example.paydaylay.R;
 import com.example.paydaylay.adapters.BudgetAdapter;
+import com.example.paydaylay.database.CategoryDictionary;
 import com.example.paydaylay.firebase.AuthManager;
 import com.example.paydaylay.firebase.DatabaseManager;
 import com.example.paydaylay.models.Budget;
 import com.example.paydaylay.models.Category;
-import com.example.paydaylay.utils.BudgetAlarmScheduler;
+import com.example.paydaylay.models.Money;
+import com.example.paydaylay.services.BackgroundScheduler;
+import com.example.paydaylay.utils.BudgetEvaluator;
 import com.example.paydaylay.utils.NotificationUtils;
+import com.google.android.gms.tasks.CancellationTokenSource;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 
@@ -59,10 +63,15 @@ public class BudgetFragment extends Fragment {
     private BudgetAdapter adapter;
     private List<Budget> budgets = new ArrayList<>();
     private List<Category> categories = new ArrayList<>();
+    private long categoryVersion;
+    private String observedUserId;
+    // Anuluje ładowanie budżetów po zniszczeniu widoku
+    private CancellationTokenSource loadCancellation = new CancellationTokenSource();
 
     private DatabaseManager databaseManager;
+    private BudgetEvaluator budgetEvaluator;
+    private CategoryDictionary categoryDictionary;
     private AuthManager authManager;
-    private BudgetAlarmScheduler alarmScheduler;
 
     /**
      * Tworzy widok fragmentu.
@@ -78,9 +87,10 @@ public class BudgetFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_budgets, container, false);
 
         // Inicjalizacja menedżerów
-        databaseManager = new DatabaseManager();
+        databaseManager = DatabaseManager.getInstance();
+        budgetEvaluator = new BudgetEvaluator(requireContext());
+        categoryDictionary = CategoryDictionary.getInstance(requireContext());
         authManager = new AuthManager();
-        alarmScheduler = new BudgetAlarmScheduler(requireContext());
 
         // Inicjalizacja widoków
         recyclerView = view.findViewById(R.id.recyclerViewBudgets);
@@ -92,7 +102,7 @@ public class BudgetFragment extends Fragment {
 
         // Konfiguracja RecyclerView
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new BudgetAdapter(budgets, categories);
+        adapter = new BudgetAdapter(budgets, categories, this::deleteBudget);
         recyclerView.setAdapter(adapter);
 
         // Konfiguracja SwipeRefreshLayout
@@ -106,9 +116,10 @@ public class BudgetFragment extends Fragment {
         switchNotifications.setOnCheckedChangeListener((buttonView, isChecked) -> {
             NotificationUtils.setNotificationsEnabled(requireContext(), isChecked);
             if (isChecked) {
-                alarmScheduler.scheduleAlarms();
+                BackgroundScheduler.scheduleBudgetChecks(requireContext());
+                BackgroundScheduler.checkBudgetsNow(requireContext());
             } else {
-                alarmScheduler.cancelAlarms();
+                BackgroundScheduler.cancelBudgetChecks(requireContext());
             }
         });
 
@@ -125,6 +136,52 @@ public class BudgetFragment extends Fragment {
         loadBudgets();
     }
 
+    /**
+     * Wywoływane przy wstrzymaniu fragmentu.
+     * Przestaje obserwować zmiany kategorii.
+     */
+    @Override
+    public void onPause() {
+        super.onPause();
+        if (observedUserId != null) {
+            categoryDictionary.removeObserver(observedUserId, categoriesListener);
+            observedUserId = null;
+        }
+    }
+
+    /**
+     * Wywoływane przy niszczeniu widoku fragmentu.
+     * Anuluje trwające zapytania, aby ich wyniki nie były parsowane ani dostarczane.
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        loadCancellation.cancel();
+        loadCancellation = new CancellationTokenSource();
+    }
+
+    /**
+     * Odbiera zmiany słownika kategorii - lista jest odświeżana tylko przy nowej wersji.
+     */
+    private final CategoryDictionary.OnCategoriesChangedListener categoriesListener =
+            new CategoryDictionary.OnCategoriesChangedListener() {
+                @Override
+                public void onCategoriesChanged(CategoryDictionary.Snapshot snapshot) {
+                    if (getActivity() == null || snapshot.getVersion() == categoryVersion) return;
+                    categoryVersion = snapshot.getVersion();
+                    categories = snapshot.getList();
+
+                    if (!budgets.isEmpty()) {
+                        updateUI();
+                    }
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    handleError("Error loading categories: " + e.getMessage());
+                }
+            };
+
     /**
      * Ładuje listę budżetów i kategorii użytkownika.
      */
@@ -134,37 +191,92 @@ public class BudgetFragment extends Fragment {
 
         showLoading();
 
-        // Najpierw ładuje kategorie
-        databaseManager.getCategories(userId, new DatabaseManager.OnCategoriesLoadedListener() {
-            @Override
-            public void onCategoriesLoaded(List<Category> loadedCategories) {
-                categories.clear();
-                categories.addAll(loadedCategories);
+        // Kategorie pochodzą ze współdzielonego słownika, budżety ładowane są równolegle
+        if (observedUserId == null) {
+            observedUserId = userId;
+            categoryDictionary.observe(userId, categoriesListener);
+        }
 
-                // Następnie ładuje budżety
-                databaseManager.getBudgets(userId, new DatabaseManager.OnBudgetsLoadedListener() {
-                    @Override
-                    public void onBudgetsLoaded(List<Budget> loadedBudgets) {
-                        budgets.clear();
-                        budgets.addAll(loadedBudgets);
+        databaseManager.getBudgets(userId, loadCancellation.getToken(), new DatabaseManager.OnBudgetsLoadedListener() {
+            @Override
+            public void onBudgetsLoaded(List<Budget> loadedBudgets) {
+                if (getActivity() == null) return;
+                evaluateBudgets(userId, loadedBudgets);
+            }
 
-                        updateUI();
+            @Override
+            public void onError(Exception e) {
+                handleError("Error loading budgets: " + e.getMessage());
+            }
+        });
+    }
 
-                        if (swipeRefreshLayout.isRefreshing()) {
-                            swipeRefreshLayout.setRefreshing(false);
+    /**
+     * Oblicza wydatki wszystkich budżetów jednym zapytaniem i przekazuje do adaptera
+     * kopie budżetów z obliczonymi wydatkami - wczytane obiekty pozostają niezmienione.
+     *
+     * @param userId        Identyfikator użytkownika.
+     * @param loadedBudgets Budżety użytkownika.
+     */
+    private void evaluateBudgets(String userId, List<Budget> loadedBudgets) {
+        budgetEvaluator.evaluate(userId, loadedBudgets, loadCancellation.getToken(),
+                new BudgetEvaluator.OnBudgetsEvaluatedListener() {
+                    @Override
+                    public void onBudgetsEvaluated(List<BudgetEvaluator.BudgetResult> results) {
+                        if (getActivity() == null) return;
+                        List<Budget> evaluated = new ArrayList<>(results.size());
+                        for (BudgetEvaluator.BudgetResult result : results) {
+                            evaluated.add(result.getBudget().withSpent(result.getSpent()));
                         }
+                        showBudgets(evaluated);
                     }
 
                     @Override
                     public void onError(Exception e) {
-                        handleError("Error loading budgets: " + e.getMessage());
+                        if (getActivity() == null) return;
+                        // Wyświetla budżety z ostatnio zapisanymi wydatkami
+                        showBudgets(loadedBudgets);
+                        handleError("Error loading budget progress: " + e.getMessage());
                     }
                 });
+    }
+
+    /**
+     * Wyświetla budżety z obliczonymi wydatkami.
+     *
+     * @param loadedBudgets Budżety do wyświetlenia.
+     */
+    private void showBudgets(List<Budget> loadedBudgets) {
+        budgets.clear();
+        budgets.addAll(loadedBudgets);
+
+        updateUI();
+
+        if (swipeRefreshLayout.isRefreshing()) {
+            swipeRefreshLayout.setRefreshing(false);
+        }
+    }
+
+    /**
+     * Usuwa budżet po potwierdzeniu przez użytkownika.
+     *
+     * @param budget Budżet do usunięcia.
+     */
+    private void deleteBudget(Budget budget) {
+        databaseManager.deleteBudget(budget, new DatabaseManager.OnCompletionListener() {
+            @Override
+            public void onSuccess() {
+                if (getActivity() == null) return;
+                budgets.remove(budget);
+                updateUI();
+                databaseManager.updateBudgetWidgets(requireContext());
             }
 
             @Override
             public void onError(Exception e) {
-                handleError("Error loading categories: " + e.getMessage());
+                if (getActivity() == null) return;
+                Toast.makeText(requireContext(), "Failed to delete budget: " + e.getMessage(),
+                        Toast.LENGTH_SHORT).show();
             }
         });
     }
@@ -256,7 +368,7 @@ public class BudgetFragment extends Fragment {
             Budget budget = new Budget();
             budget.setUserId(authManager.getCurrentUserId());
             budget.setCategoryId(categoryId);
-            budget.setLimit(limit);
+            budget.setLimit(Money.of(limit));
             budget.setPeriodType(periodType);
 
             // Ustawia datę początkową okresu na dzisiejszy dzień o 00:00:00
@@ -356,11 +468,10 @@ public class BudgetFragment extends Fragment {
         } else {
             recyclerView.setVisibility(View.VISIBLE);
             textViewNoBudgets.setVisibility(View.GONE);
-
-            // Aktualizuje adapter
-            adapter = new BudgetAdapter(budgets, categories);
-            recyclerView.setAdapter(adapter);
         }
+
+        // Aktualizuje dane istniejącego adaptera
+        adapter.updateData(budgets, categories);
     }
 
     /**
@@ -20,8 +20,8 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.paydaylay.R;
 import com.example.paydaylay.activities.CategoryActivity;
 import com.example.paydaylay.adapters.CategoryAdapter;
+import com.example.paydaylay.database.CategoryDictionary;
 import com.example.paydaylay.firebase.AuthManager;
-import com.example.paydaylay.firebase.DatabaseManager;
 import com.example.paydaylay.models.Category;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
@@ -37,7 +37,7 @@ public class CategoriesFragment extends Fragment implements CategoryAdapter.OnCa
     private RecyclerView recyclerViewCategories;
     private CategoryAdapter categoryAdapter;
     private List<Category> categories = new ArrayList<>();
-    private DatabaseManager databaseManager;
+    private CategoryDictionary categoryDictionary;
     private AuthManager authManager;
     private FloatingActionButton fabAddCategory;
 
@@ -75,7 +75,7 @@ public class CategoriesFragment extends Fragment implements CategoryAdapter.OnCa
         View view = inflater.inflate(R.layout.fragment_categories, container, false);
 
         // Inicjalizacja menedżerów
-        databaseManager = new DatabaseManager();
+        categoryDictionary = CategoryDictionary.getInstance(requireContext());
         authManager = new AuthManager();
 
         // Inicjalizacja RecyclerView
@@ -109,12 +109,13 @@ public class CategoriesFragment extends Fragment implements CategoryAdapter.OnCa
     private void loadCategories() {
         if (getContext() == null || authManager.getCurrentUserId() == null) return;
 
-        databaseManager.getCategories(authManager.getCurrentUserId(), new DatabaseManager.OnCategoriesLoadedListener() {
+        // Słownik kategorii jest aktualizowany na bieżąco, więc po powrocie z edytora zawiera już zmiany
+        categoryDictionary.getCategories(authManager.getCurrentUserId(), new CategoryDictionary.OnCategoriesChangedListener() {
             @Override
-            public void onCategoriesLoaded(List<Category> loadedCategories) {
+            public void onCategoriesChanged(CategoryDictionary.Snapshot snapshot) {
                 categories.clear();
-                categories.addAll(loadedCategories);
-                categoryAdapter.notifyDataSetChanged();
+                categories.addAll(snapshot.getList());
+                categoryAdapter.updateCategories(categories);
 
                 // Wyświetla widok pusty, jeśli brak kategorii
                 if (getView() != null) {
@@ -206,7 +207,7 @@ public class CategoriesFragment extends Fragment implements CategoryAdapter.OnCa
                             categories.sort((c1, c2) -> c2.getName().compareToIgnoreCase(c1.getName()));
                             break;
                     }
-                    categoryAdapter.notifyDataSetChanged();
+                    categoryAdapter.updateCategories(categories);
                 });
         builder.create().show();
     }
@@ -3,6 +3,7 @@ package com.example.paydaylay.fragments;
 import android.app.AlertDialog;
 import android.app.ProgressDialog;
 import android.content.Intent;
+import android.graphics.Color;
 import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
@@ -20,14 +21,17 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
 
 import com.example.paydaylay.R;
+import com.example.paydaylay.database.CategoryDictionary;
+import com.example.paydaylay.database.TransactionColumns;
+import com.example.paydaylay.database.TransactionDao;
+import com.example.paydaylay.database.TransactionRepository;
 import com.example.paydaylay.firebase.AuthManager;
-import com.example.paydaylay.firebase.DatabaseManager;
 import com.example.paydaylay.models.Category;
-import com.example.paydaylay.models.Transaction;
 import com.example.paydaylay.utils.PdfExporter;
 import com.github.mikephil.charting.charts.BarChart;
 import com.github.mikephil.charting.charts.Chart;
@@ -46,8 +50,9 @@ import com.github.mikephil.charting.utils.ColorTemplate;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -68,11 +73,15 @@ public class ChartsFragment extends Fragment {
     private Spinner spinnerTimeFrame;
     private TextView textViewNoData;
 
-    private DatabaseManager databaseManager;
+    private TransactionRepository transactionRepository;
+    private CategoryDictionary categoryDictionary;
     private AuthManager authManager;
-    private List<Category> categories = new ArrayList<>();
-    private List<Transaction> transactions = new ArrayList<>();
-    private Map<String, Category> categoryMap = new HashMap<>();
+    private TransactionColumns columns = TransactionColumns.EMPTY;
+    // Do wczytania migawki wykresy kołowe są liczone zapytaniem agregującym w SQLite
+    private boolean columnsLoaded;
+    private Map<String, Category> categoryMap = Collections.emptyMap();
+    private long categoryVersion;
+    private String observedUserId;
 
     /**
      * Wywoływane podczas tworzenia fragmentu.
@@ -100,7 +109,8 @@ public class ChartsFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_charts, container, false);
 
         // Inicjalizacja menedżerów
-        databaseManager = new DatabaseManager();
+        transactionRepository = TransactionRepository.getInstance(requireContext());
+        categoryDictionary = CategoryDictionary.getInstance(requireContext());
         authManager = new AuthManager();
 
         // Inicjalizacja widoków
@@ -127,7 +137,7 @@ public class ChartsFragment extends Fragment {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                 updateChartVisibility(position);
-                loadData();
+                renderCharts();
             }
 
             @Override
@@ -137,7 +147,7 @@ public class ChartsFragment extends Fragment {
         spinnerTimeFrame.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                loadData();
+                renderCharts();
             }
 
             @Override
@@ -157,6 +167,40 @@ public class ChartsFragment extends Fragment {
         loadData();
     }
 
+    /**
+     * Wywoływane przy wstrzymaniu fragmentu.
+     * Przestaje obserwować zmiany kategorii.
+     */
+    @Override
+    public void onPause() {
+        super.onPause();
+        if (observedUserId != null) {
+            categoryDictionary.removeObserver(observedUserId, categoriesListener);
+            observedUserId = null;
+        }
+    }
+
+    /**
+     * Odbiera zmiany słownika kategorii - wykresy są odświeżane tylko przy nowej wersji.
+     */
+    private final CategoryDictionary.OnCategoriesChangedListener categoriesListener =
+            new CategoryDictionary.OnCategoriesChangedListener() {
+                @Override
+                public void onCategoriesChanged(CategoryDictionary.Snapshot snapshot) {
+                    if (!isAdded() || snapshot.getVersion() == categoryVersion) {
+                        return;
+                    }
+                    categoryVersion = snapshot.getVersion();
+                    categoryMap = snapshot.getCategories();
+                    updateCharts();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    showError("Error loading categories: " + e.getMessage());
+                }
+            };
+
     /**
      * Aktualizuje widoczność wykresów w zależności od wybranego typu.
      *
@@ -183,25 +227,105 @@ public class ChartsFragment extends Fragment {
         String userId = authManager.getCurrentUserId();
         if (userId == null) return;
 
-        // Najpierw ładuje kategorie
-        databaseManager.getCategories(userId, new DatabaseManager.OnCategoriesLoadedListener() {
+        // Kategorie pochodzą ze współdzielonego słownika, a transakcje z repozytorium, które
+        // najpierw zwraca dane z pamięci podręcznej, a następnie dane po synchronizacji
+        if (observedUserId == null) {
+            observedUserId = userId;
+            categoryDictionary.observe(userId, categoriesListener);
+        }
+
+        if (spinnerChartType.getSelectedItemPosition() == CHART_TYPE_MONTHLY) {
+            loadMonthlyTotals(userId, getTimeFrameStart());
+        }
+
+        // Migawka obejmuje wszystkie transakcje - zmiana zakresu czasowego nie wymaga ponownego odczytu
+        transactionRepository.getTransactionColumns(userId,
+                new TransactionRepository.OnTransactionColumnsLoadedListener() {
             @Override
-            public void onCategoriesLoaded(List<Category> loadedCategories) {
-                categories = loadedCategories;
-                categoryMap.clear();
-                for (Category category : categories) {
-                    categoryMap.put(category.getId(), category);
+            public void onTransactionColumnsLoaded(TransactionColumns loadedColumns) {
+                if (!isAdded()) {
+                    return; // Przerwij jeśli fragment nie jest już dołączony
                 }
+                columns = loadedColumns;
+                columnsLoaded = true;
+                updateCharts();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                showError("Error loading transactions: " + e.getMessage());
+            }
+        });
+    }
 
-                // Następnie ładuje transakcje
-                databaseManager.getTransactions(userId, new DatabaseManager.OnTransactionsLoadedListener() {
+    /**
+     * Odświeża wykres po zmianie typu lub zakresu czasowego.
+     * Wykresy kołowe są liczone z migawki w pamięci, a wykres miesięczny z tabeli dziennych sum.
+     */
+    private void renderCharts() {
+        if (spinnerChartType.getSelectedItemPosition() != CHART_TYPE_MONTHLY) {
+            updateCharts();
+            return;
+        }
+        String userId = authManager.getCurrentUserId();
+        if (userId != null) {
+            loadMonthlyTotals(userId, getTimeFrameStart());
+        }
+    }
+
+    /**
+     * Wyświetla wykres kołowy wydatków lub przychodów w podziale na kategorie.
+     * Zakres czasowy jest wyznaczany wyszukiwaniem binarnym w migawce kolumnowej,
+     * a sumy kategorii są liczone w groszach pętlą po tablicach. Dopóki migawka nie zostanie
+     * wczytana, sumy pochodzą z zapytania agregującego (TransactionDao.sumByCategoryInRange).
+     */
+    private void updateCharts() {
+        if (!isAdded() || spinnerChartType.getSelectedItemPosition() == CHART_TYPE_MONTHLY) {
+            return;
+        }
+        boolean expense = spinnerChartType.getSelectedItemPosition() == CHART_TYPE_EXPENSES;
+        long startTime = getTimeFrameStart();
+        if (!columnsLoaded) {
+            loadCategoryTotals(expense, startTime);
+            return;
+        }
+        long[] sums = columns.sumByCategory(startTime, Long.MAX_VALUE, expense);
+        List<String> categoryIds = new ArrayList<>(sums.length);
+        for (int i = 0; i < sums.length; i++) {
+            categoryIds.add(columns.getCategoryId(i));
+        }
+        showPieChart(expense, categoryIds, sums);
+    }
+
+    /**
+     * Ładuje sumy kategorii z zapytania agregującego - wykres kołowy jest wyświetlany
+     * bez czekania na migawkę wszystkich transakcji.
+     *
+     * @param expense   True dla wydatków, false dla przychodów.
+     * @param startTime Początek wybranego zakresu czasowego.
+     */
+    private void loadCategoryTotals(boolean expense, long startTime) {
+        String userId = authManager.getCurrentUserId();
+        if (userId == null) return;
+
+        transactionRepository.getCategoryTotals(userId, expense, startTime, Long.MAX_VALUE,
+                new TransactionRepository.OnCategoryTotalsLoadedListener() {
                     @Override
-                    public void onTransactionsLoaded(List<Transaction> loadedTransactions) {
-                        if (!isAdded()) {
-                            return; // Przerwij jeśli fragment nie jest już dołączony
+                    public void onCategoryTotalsLoaded(List<TransactionDao.CategoryTotal> totals) {
+                        // Wynik jest pomijany, jeśli migawka już dotarła lub zmieniono wybór w spinnerach
+                        if (!isAdded() || columnsLoaded
+                                || spinnerChartType.getSelectedItemPosition() == CHART_TYPE_MONTHLY
+                                || (spinnerChartType.getSelectedItemPosition() == CHART_TYPE_EXPENSES) != expense
+                                || getTimeFrameStart() != startTime) {
+                            return;
                         }
-                        transactions = filterTransactionsByTimeFrame(loadedTransactions);
-                        updateCharts();
+                        List<String> categoryIds = new ArrayList<>(totals.size());
+                        long[] sums = new long[totals.size()];
+                        for (int i = 0; i < totals.size(); i++) {
+                            categoryIds.add(totals.get(i).categoryId);
+                            sums[i] = totals.get(i).total;
+                        }
+                        showPieChart(expense, categoryIds, sums);
                     }
 
                     @Override
@@ -209,30 +333,157 @@ public class ChartsFragment extends Fragment {
                         showError("Error loading transactions: " + e.getMessage());
                     }
                 });
-            }
+    }
 
-            @Override
-            public void onError(Exception e) {
-                showError("Error loading categories: " + e.getMessage());
+    /**
+     * Wyświetla wykres kołowy z sum kategorii.
+     *
+     * @param expense     True dla wydatków, false dla przychodów.
+     * @param categoryIds Identyfikatory kategorii.
+     * @param sums        Sumy w groszach odpowiadające kategoriom.
+     */
+    private void showPieChart(boolean expense, List<String> categoryIds, long[] sums) {
+        List<PieEntry> entries = new ArrayList<>();
+        List<Integer> colors = new ArrayList<>();
+        for (int i = 0; i < sums.length; i++) {
+            if (sums[i] == 0) {
+                continue;
             }
-        });
+            Category category = categoryMap.get(categoryIds.get(i));
+            String label = category != null ? category.getName() : getString(R.string.unknown_category);
+            entries.add(new PieEntry(sums[i] / 100f, label));
+            colors.add(category != null ? category.getColor() : Color.GRAY);
+        }
+
+        if (entries.isEmpty()) {
+            pieChart.clear();
+            pieChart.setVisibility(View.GONE);
+            textViewNoData.setVisibility(View.VISIBLE);
+            return;
+        }
+
+        PieDataSet dataSet = new PieDataSet(entries, "");
+        dataSet.setColors(colors);
+        dataSet.setValueTextSize(12f);
+        pieChart.setData(new PieData(dataSet));
+
+        Description description = new Description();
+        description.setText(getString(expense ? R.string.expenses_by_category : R.string.income_by_category));
+        pieChart.setDescription(description);
+
+        textViewNoData.setVisibility(View.GONE);
+        pieChart.setVisibility(View.VISIBLE);
+        pieChart.invalidate();
+    }
+
+    /**
+     * Ładuje sumy miesięczne do wykresu słupkowego z tabeli dziennych sum -
+     * kilkaset wierszy zamiast wszystkich transakcji z wybranego zakresu.
+     *
+     * @param userId    Identyfikator użytkownika.
+     * @param startTime Początek wybranego zakresu czasowego.
+     */
+    private void loadMonthlyTotals(String userId, long startTime) {
+        transactionRepository.getMonthlyTotals(userId, startTime,
+                new TransactionRepository.OnMonthlyTotalsLoadedListener() {
+                    @Override
+                    public void onMonthlyTotalsLoaded(List<TransactionRepository.MonthTotal> totals) {
+                        if (!isAdded()) {
+                            return;
+                        }
+                        showMonthlyChart(totals);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        showError("Error loading transactions: " + e.getMessage());
+                    }
+                });
     }
 
     /**
-     * Filtruje transakcje według wybranego zakresu czasowego.
+     * Wyświetla wykres słupkowy wydatków i przychodów w kolejnych miesiącach.
      *
-     * @param allTransactions Lista wszystkich transakcji.
-     * @return Lista przefiltrowanych transakcji.
+     * @param totals Sumy miesięczne posortowane według miesiąca.
      */
-    private List<Transaction> filterTransactionsByTimeFrame(List<Transaction> allTransactions) {
-        if (allTransactions == null || allTransactions.isEmpty()) {
-            return new ArrayList<>();
+    private void showMonthlyChart(List<TransactionRepository.MonthTotal> totals) {
+        // Każdy miesiąc musi mieć oba słupki, aby grupy były wyrównane
+        List<Integer> months = new ArrayList<>();
+        for (TransactionRepository.MonthTotal total : totals) {
+            if (months.isEmpty() || months.get(months.size() - 1) != total.month) {
+                months.add(total.month);
+            }
+        }
+        if (months.isEmpty()) {
+            barChart.clear();
+            barChart.setVisibility(View.GONE);
+            textViewNoData.setVisibility(View.VISIBLE);
+            return;
         }
 
-        List<Transaction> filtered = new ArrayList<>();
-        Calendar calendar = Calendar.getInstance();
-        long currentTime = calendar.getTimeInMillis();
+        float[] expenses = new float[months.size()];
+        float[] income = new float[months.size()];
+        int index = -1;
+        int lastMonth = -1;
+        for (TransactionRepository.MonthTotal total : totals) {
+            if (total.month != lastMonth) {
+                lastMonth = total.month;
+                index++;
+            }
+            if (total.isExpense) {
+                expenses[index] = total.total / 100f;
+            } else {
+                income[index] = total.total / 100f;
+            }
+        }
 
+        List<String> labels = new ArrayList<>(months.size());
+        List<BarEntry> expenseEntries = new ArrayList<>(months.size());
+        List<BarEntry> incomeEntries = new ArrayList<>(months.size());
+        for (int i = 0; i < months.size(); i++) {
+            int month = months.get(i);
+            labels.add(String.format(Locale.getDefault(), "%02d/%d", month % 100, month / 100));
+            expenseEntries.add(new BarEntry(i, expenses[i]));
+            incomeEntries.add(new BarEntry(i, income[i]));
+        }
+
+        BarDataSet expenseSet = new BarDataSet(expenseEntries, getString(R.string.expenses));
+        expenseSet.setColor(ContextCompat.getColor(requireContext(), R.color.expense_color));
+        BarDataSet incomeSet = new BarDataSet(incomeEntries, getString(R.string.income));
+        incomeSet.setColor(ContextCompat.getColor(requireContext(), R.color.income_color));
+
+        // (barWidth + barSpace) * 2 + groupSpace = 1 - jedna grupa na jednostkę osi X
+        float groupSpace = 0.3f;
+        float barSpace = 0.05f;
+        BarData data = new BarData(expenseSet, incomeSet);
+        data.setBarWidth(0.3f);
+        barChart.setData(data);
+
+        XAxis xAxis = barChart.getXAxis();
+        xAxis.setValueFormatter(new IndexAxisValueFormatter(labels));
+        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+        xAxis.setGranularity(1f);
+        xAxis.setCenterAxisLabels(true);
+        xAxis.setAxisMinimum(0f);
+        xAxis.setAxisMaximum(months.size());
+        barChart.groupBars(0f, groupSpace, barSpace);
+
+        Description description = new Description();
+        description.setText(getString(R.string.monthly_summary));
+        barChart.setDescription(description);
+
+        textViewNoData.setVisibility(View.GONE);
+        barChart.setVisibility(View.VISIBLE);
+        barChart.invalidate();
+    }
+
+    /**
+     * Wyznacza początek wybranego zakresu czasowego.
+     *
+     * @return Znacznik czasu początku zakresu lub 0 dla opcji "Cały czas".
+     */
+    private long getTimeFrameStart() {
+        Calendar calendar = Calendar.getInstance();
         int timeFramePosition = spinnerTimeFrame.getSelectedItemPosition();
 
         // Resetuje do początku dnia
@@ -258,19 +509,10 @@ public class ChartsFragment extends Fragment {
                 calendar.set(Calendar.DAY_OF_YEAR, 1);
                 break;
             case 5: // Cały czas
-                return new ArrayList<>(allTransactions);
-        }
-
-        long startTime = calendar.getTimeInMillis();
-
-        for (Transaction transaction : allTransactions) {
-            long transactionTime = transaction.getDate().getTime();
-            if (transactionTime >= startTime) {
-                filtered.add(transaction);
-            }
+                return 0;
         }
 
-        return filtered;
+        return calendar.getTimeInMillis();
     }
 
     /**
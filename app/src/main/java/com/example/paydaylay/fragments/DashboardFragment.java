@@ -17,9 +17,9 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.paydaylay.R;
 import com.example.paydaylay.activities.TransactionActivity;
 import com.example.paydaylay.adapters.TransactionAdapter;
+import com.example.paydaylay.database.CategoryDictionary;
+import com.example.paydaylay.database.TransactionRepository;
 import com.example.paydaylay.firebase.AuthManager;
-import com.example.paydaylay.firebase.DatabaseManager;
-import com.example.paydaylay.models.Category;
 import com.example.paydaylay.models.Transaction;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
@@ -41,9 +41,13 @@ public class DashboardFragment extends Fragment {
     private FloatingActionButton fabAddTransaction;
     private TransactionAdapter adapter;
 
+    private static final int RECENT_TRANSACTIONS_LIMIT = 5;
+
     private List<Transaction> recentTransactions = new ArrayList<>();
-    private List<Category> categories = new ArrayList<>();
-    private DatabaseManager databaseManager;
+    private TransactionRepository transactionRepository;
+    private CategoryDictionary categoryDictionary;
+    private long categoryVersion;
+    private String observedUserId;
     private AuthManager authManager;
 
     private NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.getDefault());
@@ -67,12 +71,13 @@ public class DashboardFragment extends Fragment {
         fabAddTransaction = view.findViewById(R.id.fab_add_transaction);
 
         // Inicjalizacja menedżerów
-        databaseManager = new DatabaseManager();
+        transactionRepository = TransactionRepository.getInstance(requireContext());
+        categoryDictionary = CategoryDictionary.getInstance(requireContext());
         authManager = new AuthManager();
 
         // Konfiguracja RecyclerView
         recyclerRecentTransactions.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new TransactionAdapter(getContext(), recentTransactions, categories);
+        adapter = new TransactionAdapter(getContext(), recentTransactions, Collections.emptyList());
         recyclerRecentTransactions.setAdapter(adapter);
 
         // Konfiguracja FAB
@@ -94,6 +99,38 @@ public class DashboardFragment extends Fragment {
         loadData();
     }
 
+    /**
+     * Wywoływane przy wstrzymaniu fragmentu.
+     * Przestaje obserwować zmiany kategorii.
+     */
+    @Override
+    public void onPause() {
+        super.onPause();
+        if (observedUserId != null) {
+            categoryDictionary.removeObserver(observedUserId, categoriesListener);
+            observedUserId = null;
+        }
+    }
+
+    /**
+     * Odbiera zmiany słownika kategorii - wiersze są przebudowywane tylko przy nowej wersji.
+     */
+    private final CategoryDictionary.OnCategoriesChangedListener categoriesListener =
+            new CategoryDictionary.OnCategoriesChangedListener() {
+                @Override
+                public void onCategoriesChanged(CategoryDictionary.Snapshot snapshot) {
+                    if (getActivity() == null || snapshot.getVersion() == categoryVersion) return;
+                    categoryVersion = snapshot.getVersion();
+                    adapter.updateCategories(snapshot.getCategories());
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    if (getActivity() == null) return;
+                    showError("Error loading categories: " + e.getMessage());
+                }
+            };
+
     /**
      * Ładuje dane użytkownika, w tym kategorie i transakcje.
      */
@@ -103,82 +140,33 @@ public class DashboardFragment extends Fragment {
         String userId = authManager.getCurrentUserId();
         if (userId == null) return;
 
-        // Najpierw ładuje kategorie
-        databaseManager.getCategories(userId, new DatabaseManager.OnCategoriesLoadedListener() {
+        // Kategorie pochodzą ze współdzielonego słownika, a bilans i ostatnie transakcje z repozytorium,
+        // które najpierw zwraca dane z bazy lokalnej, a następnie dane po synchronizacji
+        if (observedUserId == null) {
+            observedUserId = userId;
+            categoryDictionary.observe(userId, categoriesListener);
+        }
+
+        // Bilans pochodzi z podsumowania utrzymywanego w bazie - bez pobierania całej historii
+        transactionRepository.getLedger(userId, RECENT_TRANSACTIONS_LIMIT,
+                new TransactionRepository.OnLedgerLoadedListener() {
             @Override
-            public void onCategoriesLoaded(List<Category> loadedCategories) {
-                categories = loadedCategories;
-
-                // Następnie ładuje transakcje
-                databaseManager.getTransactions(userId, new DatabaseManager.OnTransactionsLoadedListener() {
-                    @Override
-                    public void onTransactionsLoaded(List<Transaction> loadedTransactions) {
-                        if (getActivity() == null) return;
-
-                        // Oblicza bilans
-                        double balance = calculateBalance(loadedTransactions);
-                        textBalance.setText(currencyFormat.format(balance));
-
-                        // Pobiera ostatnie transakcje (do 5)
-                        recentTransactions = getRecentTransactions(loadedTransactions, 5);
-                        adapter.updateData(recentTransactions, categories);
-                    }
-
-                    @Override
-                    public void onError(Exception e) {
-                        if (getActivity() == null) return;
-                        showError("Error loading transactions: " + e.getMessage());
-                    }
-                });
+            public void onLedgerLoaded(TransactionRepository.Ledger ledger) {
+                if (getActivity() == null) return;
+
+                textBalance.setText(currencyFormat.format(ledger.getBalance().toDouble()));
+                recentTransactions = ledger.recent;
+                adapter.updateTransactions(recentTransactions, null);
             }
 
             @Override
             public void onError(Exception e) {
                 if (getActivity() == null) return;
-                showError("Error loading categories: " + e.getMessage());
+                showError("Error loading transactions: " + e.getMessage());
             }
         });
     }
 
-    /**
-     * Oblicza bilans na podstawie listy transakcji.
-     *
-     * @param transactions Lista transakcji.
-     * @return Obliczony bilans.
-     */
-    private double calculateBalance(List<Transaction> transactions) {
-        double balance = 0;
-        for (Transaction transaction : transactions) {
-            if (transaction.isExpense()) {
-                balance -= transaction.getAmount();
-            } else {
-                balance += transaction.getAmount();
-            }
-        }
-        return balance;
-    }
-
-    /**
-     * Pobiera ostatnie transakcje z listy.
-     *
-     * @param allTransactions Lista wszystkich transakcji.
-     * @param limit Maksymalna liczba transakcji do zwrócenia.
-     * @return Lista ostatnich transakcji.
-     */
-    private List<Transaction> getRecentTransactions(List<Transaction> allTransactions, int limit) {
-        List<Transaction> sorted = new ArrayList<>(allTransactions);
-
-        // Sortuje transakcje według daty (od najnowszych)
-        Collections.sort(sorted, (t1, t2) -> t2.getDate().compareTo(t1.getDate()));
-
-        // Zwraca tylko określoną liczbę transakcji
-        if (sorted.size() <= limit) {
-            return sorted;
-        } else {
-            return sorted.subList(0, limit);
-        }
-    }
-
     /**
      * Wyświetla komunikat o błędzie.
      *
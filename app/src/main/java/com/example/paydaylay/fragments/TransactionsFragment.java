@@ -1,7 +1,10 @@
 package com.example.paydaylay.fragments;
 
+import android.content.Context;
 import android.content.Intent;
 import android.media.MediaScannerConnection;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.os.Bundle;
 import android.os.Environment;
 import android.view.LayoutInflater;
@@ -24,10 +27,13 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.paydaylay.R;
 import com.example.paydaylay.activities.TransactionActivity;
 import com.example.paydaylay.adapters.TransactionAdapter;
+import com.example.paydaylay.database.CategoryDictionary;
+import com.example.paydaylay.database.TransactionPager;
 import com.example.paydaylay.firebase.AuthManager;
 import com.example.paydaylay.firebase.DatabaseManager;
 import com.example.paydaylay.models.Category;
 import com.example.paydaylay.models.Transaction;
+import com.google.android.gms.tasks.CancellationTokenSource;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.io.FileWriter;
@@ -41,7 +47,6 @@ import com.opencsv.CSVWriter;
 
 import java.io.File;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -55,11 +60,16 @@ public class TransactionsFragment extends Fragment {
     private LinearLayout emptyView;
     private FloatingActionButton fabAddTransaction;
     private TransactionAdapter adapter;
+    private TransactionPager transactionPager;
+    private CategoryDictionary categoryDictionary;
     private DatabaseManager databaseManager;
     private AuthManager authManager;
     private List<Transaction> transactions;
-    private List<Category> categories;
+    private CategoryDictionary.Snapshot categorySnapshot = CategoryDictionary.Snapshot.EMPTY;
+    private String observedUserId;
     private ProgressBar progressBar;
+    // Anuluje pobieranie danych do eksportu po zniszczeniu widoku
+    private CancellationTokenSource exportCancellation = new CancellationTokenSource();
 
     /**
      * Wywoływane podczas tworzenia fragmentu.
@@ -93,18 +103,30 @@ public class TransactionsFragment extends Fragment {
         progressBar = view.findViewById(R.id.progressBar);
 
         // Inicjalizacja menedżerów
-        databaseManager = new DatabaseManager();
+        categoryDictionary = CategoryDictionary.getInstance(requireContext());
+        databaseManager = DatabaseManager.getInstance();
         authManager = new AuthManager();
 
         // Inicjalizacja list
         transactions = new ArrayList<>();
-        categories = new ArrayList<>();
 
         // Konfiguracja RecyclerView
-        recyclerViewTransactions.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new TransactionAdapter(getContext(), transactions, categories);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        recyclerViewTransactions.setLayoutManager(layoutManager);
+        adapter = new TransactionAdapter(getContext(), transactions, categorySnapshot.getList());
         recyclerViewTransactions.setAdapter(adapter);
 
+        // Doładowanie kolejnej strony, gdy użytkownik zbliża się do końca listy
+        recyclerViewTransactions.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && transactionPager != null) {
+                    transactionPager.onScrolled(layoutManager.findLastVisibleItemPosition(),
+                            adapter.getItemCount());
+                }
+            }
+        });
+
         // Konfiguracja FAB
         fabAddTransaction.setOnClickListener(v -> {
             Intent intent = new Intent(getActivity(), TransactionActivity.class);
@@ -115,15 +137,84 @@ public class TransactionsFragment extends Fragment {
     }
 
     /**
-     * Wywoływane po wznowieniu fragmentu.
+     * Ładuje dane transakcji i kategorii oraz obserwuje przywrócenie połączenia.
      * Ładuje dane transakcji i kategorii.
      */
     @Override
     public void onResume() {
         super.onResume();
         loadData();
+        connectivityManager().registerDefaultNetworkCallback(networkCallback);
+    }
+
+    /**
+     * Wywoływane przy wstrzymaniu fragmentu.
+     * Przestaje obserwować zmiany kategorii i stan połączenia.
+     */
+    @Override
+    public void onPause() {
+        super.onPause();
+        connectivityManager().unregisterNetworkCallback(networkCallback);
+        if (observedUserId != null) {
+            categoryDictionary.removeObserver(observedUserId, categoriesListener);
+            observedUserId = null;
+        }
+    }
+
+    /**
+     * Wywoływane przy niszczeniu widoku fragmentu.
+     * Anuluje trwające zapytania, aby ich wyniki nie były parsowane ani dostarczane.
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (transactionPager != null) {
+            transactionPager.cancel();
+        }
+        exportCancellation.cancel();
+        exportCancellation = new CancellationTokenSource();
+    }
+
+    private ConnectivityManager connectivityManager() {
+        return (ConnectivityManager) requireContext().getSystemService(Context.CONNECTIVITY_SERVICE);
     }
 
+    /**
+     * Po przywróceniu połączenia wznawia pobieranie stron z Firestore przerwane błędem.
+     */
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            if (getActivity() == null) return;
+            getActivity().runOnUiThread(() -> {
+                if (transactionPager != null) {
+                    transactionPager.retryRemote();
+                }
+            });
+        }
+    };
+
+    /**
+     * Odbiera zmiany słownika kategorii - wiersze są przebudowywane tylko przy nowej wersji.
+     */
+    private final CategoryDictionary.OnCategoriesChangedListener categoriesListener =
+            new CategoryDictionary.OnCategoriesChangedListener() {
+                @Override
+                public void onCategoriesChanged(CategoryDictionary.Snapshot snapshot) {
+                    if (getActivity() == null || snapshot.getVersion() == categorySnapshot.getVersion()) return;
+                    categorySnapshot = snapshot;
+                    adapter.updateCategories(snapshot.getCategories());
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    if (getActivity() == null) return;
+                    Toast.makeText(getActivity(),
+                            "Error loading categories: " + e.getMessage(),
+                            Toast.LENGTH_SHORT).show();
+                }
+            };
+
     /**
      * Ładuje dane użytkownika, w tym kategorie i transakcje.
      */
@@ -133,49 +224,50 @@ public class TransactionsFragment extends Fragment {
         String userId = authManager.getCurrentUserId();
         if (userId == null) return;
 
-        // Najpierw ładuje kategorie
-        databaseManager.getCategories(userId, new DatabaseManager.OnCategoriesLoadedListener() {
-            @Override
-            public void onCategoriesLoaded(List<Category> loadedCategories) {
-                categories = loadedCategories;
-
-                // Następnie ładuje transakcje
-                databaseManager.getTransactions(userId, new DatabaseManager.OnTransactionsLoadedListener() {
-                    @Override
-                    public void onTransactionsLoaded(List<Transaction> loadedTransactions) {
-                        if (getActivity() == null) return;
-
-                        transactions = loadedTransactions;
-                        adapter.updateData(transactions, categories);
+        // Kategorie pochodzą ze współdzielonego słownika, aktualizowanego na bieżąco
+        if (observedUserId == null) {
+            observedUserId = userId;
+            categoryDictionary.observe(userId, categoriesListener);
+        }
 
-                        // Wyświetla widok pusty, jeśli brak transakcji
-                        if (transactions.isEmpty()) {
-                            recyclerViewTransactions.setVisibility(View.GONE);
-                            emptyView.setVisibility(View.VISIBLE);
-                        } else {
-                            recyclerViewTransactions.setVisibility(View.VISIBLE);
-                            emptyView.setVisibility(View.GONE);
+        // Transakcje są ładowane stronami - z bazy Room, a po jej wyczerpaniu z Firestore
+        if (transactionPager == null) {
+            transactionPager = new TransactionPager(requireContext(), userId,
+                    new TransactionPager.OnPageLoadedListener() {
+                        @Override
+                        public void onPageLoaded(List<Transaction> page, boolean reset) {
+                            if (getActivity() == null) return;
+
+                            if (reset) {
+                                adapter.updateTransactions(page, TransactionsFragment.this::updateEmptyView);
+                            } else {
+                                adapter.appendTransactions(page, TransactionsFragment.this::updateEmptyView);
+                            }
                         }
-                    }
 
-                    @Override
-                    public void onError(Exception e) {
-                        if (getActivity() == null) return;
-                        Toast.makeText(getActivity(),
-                                "Error loading transactions: " + e.getMessage(),
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
-            }
+                        @Override
+                        public void onError(Exception e) {
+                            if (getActivity() == null) return;
+                            Toast.makeText(getActivity(),
+                                    "Error loading transactions: " + e.getMessage(),
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    });
+        }
+        transactionPager.refresh();
+    }
 
-            @Override
-            public void onError(Exception e) {
-                if (getActivity() == null) return;
-                Toast.makeText(getActivity(),
-                        "Error loading categories: " + e.getMessage(),
-                        Toast.LENGTH_SHORT).show();
-            }
-        });
+    /**
+     * Wyświetla widok pusty, jeśli brak transakcji.
+     */
+    private void updateEmptyView() {
+        if (adapter.getItemCount() == 0) {
+            recyclerViewTransactions.setVisibility(View.GONE);
+            emptyView.setVisibility(View.VISIBLE);
+        } else {
+            recyclerViewTransactions.setVisibility(View.VISIBLE);
+            emptyView.setVisibility(View.GONE);
+        }
     }
 
     /**
@@ -228,13 +320,44 @@ public class TransactionsFragment extends Fragment {
      * @param share True, jeśli plik ma być udostępniony, false, jeśli zapisany lokalnie.
      */
     private void exportTransactionsToCsv(boolean share) {
-        if (transactions.isEmpty()) {
-            showMessage("No transactions to export");
-            return;
-        }
+        String userId = authManager.getCurrentUserId();
+        if (userId == null) return;
 
         showLoading(true);
 
+        // Lista wyświetla tylko załadowane strony - do eksportu pobierana jest pełna historia
+        databaseManager.getTransactions(userId, exportCancellation.getToken(),
+                new DatabaseManager.OnTransactionsLoadedListener() {
+                    @Override
+                    public void onTransactionsLoaded(List<Transaction> allTransactions) {
+                        if (getActivity() == null) return;
+
+                        if (allTransactions.isEmpty()) {
+                            showLoading(false);
+                            showMessage("No transactions to export");
+                            return;
+                        }
+                        writeTransactionsToCsv(allTransactions, share);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (getActivity() == null) return;
+                        showLoading(false);
+                        showError("Export failed: " + e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Zapisuje transakcje do pliku CSV w wątku w tle.
+     *
+     * @param exportedTransactions Transakcje do eksportu.
+     * @param share True, jeśli plik ma być udostępniony, false, jeśli zapisany lokalnie.
+     */
+    private void writeTransactionsToCsv(List<Transaction> exportedTransactions, boolean share) {
+        Map<String, Category> categories = categorySnapshot.getCategories();
+
         // Pobiera katalog docelowy
         File directory;
         if (share) {
@@ -261,13 +384,9 @@ public class TransactionsFragment extends Fragment {
                 csvWriter.writeNext(header);
 
                 // Dane transakcji
-                Map<String, String> categoryMap = new HashMap<>();
-                for (Category category : categories) {
-                    categoryMap.put(category.getId(), category.getName());
-                }
-
-                for (Transaction transaction : transactions) {
-                    String categoryName = categoryMap.getOrDefault(transaction.getCategoryId(), "Unknown");
+                for (Transaction transaction : exportedTransactions) {
+                    Category category = categories.get(transaction.getCategoryId());
+                    String categoryName = category != null ? category.getName() : "Unknown";
                     String[] data = {
                             new SimpleDateFormat("yyyy-MM-dd").format(transaction.getDate()),
                             String.valueOf(transaction.getAmount()),
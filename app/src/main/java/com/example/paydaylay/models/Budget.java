@@ -1,8 +1,12 @@
 package com.example.paydaylay.models;
 
 import com.google.firebase.firestore.DocumentId;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,13 +18,15 @@ public class Budget implements Serializable {
 
     @DocumentId
     private String id; // Unikalny identyfikator budżetu
-    private double limit; // Limit budżetu
+    private Money limit = Money.ZERO; // Limit budżetu
     private String categoryId; // ID kategorii (null dla budżetu ogólnego)
     private String userId; // ID użytkownika
     private long periodStartDate; // Data rozpoczęcia okresu (timestamp)
     private int periodType; // Typ okresu (0 - dzienny, 1 - tygodniowy, 2 - miesięczny, 3 - roczny)
     private long createdAt; // Data utworzenia budżetu (timestamp)
-    private double spent = 0; // Kwota wydana w ramach budżetu
+    private Money spent = Money.ZERO; // Kwota wydana w ramach budżetu
+    private Date updatedAt; // Czas ostatniej modyfikacji (znacznik czasu serwera)
+    private boolean deleted; // Nagrobek - rekord usunięty, zachowany dla synchronizacji przyrostowej
 
     // Stałe reprezentujące typy okresów
     public static final int PERIOD_DAILY = 0;
@@ -43,7 +49,7 @@ public class Budget implements Serializable {
      * @param periodStartDate Data rozpoczęcia okresu (timestamp).
      * @param periodType     Typ okresu (0 - dzienny, 1 - tygodniowy, 2 - miesięczny, 3 - roczny).
      */
-    public Budget(double limit, String categoryId, String userId, long periodStartDate, int periodType) {
+    public Budget(Money limit, String categoryId, String userId, long periodStartDate, int periodType) {
         this.limit = limit;
         this.categoryId = categoryId;
         this.userId = userId;
@@ -51,6 +57,23 @@ public class Budget implements Serializable {
         this.periodType = periodType;
     }
 
+    /**
+     * Zwraca kopię budżetu z podanymi wydatkami. Obliczony stan jest nanoszony na kopię,
+     * bo obiekty budżetów są współdzielone przez ekrany i wspólne odczyty DatabaseManager.
+     *
+     * @param spent Kwota wydana w bieżącym okresie.
+     * @return Kopia budżetu.
+     */
+    public Budget withSpent(Money spent) {
+        Budget copy = new Budget(limit, categoryId, userId, periodStartDate, periodType);
+        copy.id = id;
+        copy.createdAt = createdAt;
+        copy.spent = spent;
+        copy.updatedAt = updatedAt;
+        copy.deleted = deleted;
+        return copy;
+    }
+
     /**
      * Konwertuje obiekt budżetu na mapę klucz-wartość.
      *
@@ -58,16 +81,70 @@ public class Budget implements Serializable {
      */
     public Map<String, Object> toMap() {
         Map<String, Object> map = new HashMap<>();
-        map.put("limit", limit);
+        map.put("limitMinor", limit.getMinorUnits());
+        map.put("limit", limit.toDouble());
         map.put("categoryId", categoryId);
         map.put("userId", userId);
         map.put("periodStartDate", periodStartDate);
         map.put("periodType", periodType);
         map.put("createdAt", createdAt);
-        map.put("spent", spent);
+        map.put("spentMinor", spent.getMinorUnits());
+        map.put("spent", spent.toDouble());
+        map.put("updatedAt", FieldValue.serverTimestamp());
+        map.put("deleted", false);
+        return map;
+    }
+
+    /**
+     * Konwertuje budżet na mapę pól zmienianych przy edycji przez użytkownika - bez wydatków
+     * (spentMinor, spent), które są licznikiem zwiększanym na serwerze przez zapisy transakcji.
+     *
+     * @return Mapa reprezentująca edytowany budżet.
+     */
+    public Map<String, Object> toEditMap() {
+        Map<String, Object> map = toMap();
+        map.remove("spentMinor");
+        map.remove("spent");
         return map;
     }
 
+    /**
+     * Tworzy budżet z dokumentu Firestore - odwrotność toMap().
+     *
+     * @param doc Dokument budżetu.
+     * @return Budżet z identyfikatorem dokumentu.
+     */
+    public static Budget fromDocument(DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return fromMap(doc.getId(), data != null ? data : Collections.emptyMap());
+    }
+
+    /**
+     * Tworzy budżet z danych dokumentu (DocumentSnapshot.getData()).
+     * Kwoty są odczytywane przez Money.fromMap; brakujące pola liczbowe mają wartość 0.
+     *
+     * @param id   Identyfikator dokumentu.
+     * @param data Dane dokumentu.
+     * @return Budżet.
+     */
+    public static Budget fromMap(String id, Map<String, Object> data) {
+        Budget budget = new Budget();
+        budget.id = id;
+        budget.limit = Money.fromMap(data, "limitMinor", "limit");
+        budget.categoryId = DocumentFields.getString(data, "categoryId");
+        budget.userId = DocumentFields.getString(data, "userId");
+        Long periodStartDate = DocumentFields.getLong(data, "periodStartDate");
+        budget.periodStartDate = periodStartDate != null ? periodStartDate : 0;
+        Long periodType = DocumentFields.getLong(data, "periodType");
+        budget.periodType = periodType != null ? periodType.intValue() : 0;
+        Long createdAt = DocumentFields.getLong(data, "createdAt");
+        budget.createdAt = createdAt != null ? createdAt : 0;
+        budget.spent = Money.fromMap(data, "spentMinor", "spent");
+        budget.updatedAt = DocumentFields.getDate(data, "updatedAt");
+        budget.deleted = Boolean.TRUE.equals(DocumentFields.getBoolean(data, "deleted"));
+        return budget;
+    }
+
     // Gettery i settery
 
     public String getId() {
@@ -78,11 +155,11 @@ public class Budget implements Serializable {
         this.id = id;
     }
 
-    public double getLimit() {
+    public Money getLimit() {
         return limit;
     }
 
-    public void setLimit(double limit) {
+    public void setLimit(Money limit) {
         this.limit = limit;
     }
 
@@ -131,7 +208,7 @@ public class Budget implements Serializable {
      *
      * @return Kwota wydana.
      */
-    public double getSpent() {
+    public Money getSpent() {
         return spent;
     }
 
@@ -140,7 +217,33 @@ public class Budget implements Serializable {
      *
      * @param spent Kwota wydana.
      */
-    public void setSpent(double spent) {
+    public void setSpent(Money spent) {
         this.spent = spent;
     }
-}
\ No newline at end of file
+
+    /**
+     * Zwraca czas ostatniej modyfikacji dokumentu nadany przez serwer.
+     *
+     * @return Czas modyfikacji lub null, jeśli zapis nie został jeszcze potwierdzony.
+     */
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Zwraca informację, czy dokument jest nagrobkiem (usuniętym rekordem).
+     *
+     * @return True, jeśli rekord został usunięty.
+     */
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
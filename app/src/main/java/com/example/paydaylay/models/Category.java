@@ -1,8 +1,12 @@
 package com.example.paydaylay.models;
 
 import com.google.firebase.firestore.DocumentId;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,6 +22,8 @@ public class Category implements Serializable {
     private int color; // Kolor kategorii (reprezentowany jako int)
     private String userId; // ID użytkownika, do którego należy kategoria
     private String iconName; // Nazwa ikony przypisanej do kategorii
+    private Date updatedAt; // Czas ostatniej modyfikacji (znacznik czasu serwera)
+    private boolean deleted; // Nagrobek - rekord usunięty, zachowany dla synchronizacji przyrostowej
 
     /**
      * Konstruktor domyślny wymagany przez Firestore.
@@ -51,9 +57,42 @@ public class Category implements Serializable {
         map.put("color", color);
         map.put("userId", userId);
         map.put("iconName", iconName);
+        map.put("updatedAt", FieldValue.serverTimestamp());
+        map.put("deleted", false);
         return map;
     }
 
+    /**
+     * Tworzy kategorię z dokumentu Firestore - odwrotność toMap().
+     *
+     * @param doc Dokument kategorii.
+     * @return Kategoria z identyfikatorem dokumentu.
+     */
+    public static Category fromDocument(DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return fromMap(doc.getId(), data != null ? data : Collections.emptyMap());
+    }
+
+    /**
+     * Tworzy kategorię z danych dokumentu (DocumentSnapshot.getData()).
+     *
+     * @param id   Identyfikator dokumentu.
+     * @param data Dane dokumentu.
+     * @return Kategoria.
+     */
+    public static Category fromMap(String id, Map<String, Object> data) {
+        Category category = new Category();
+        category.id = id;
+        category.name = DocumentFields.getString(data, "name");
+        Long color = DocumentFields.getLong(data, "color");
+        category.color = color != null ? color.intValue() : 0;
+        category.userId = DocumentFields.getString(data, "userId");
+        category.iconName = DocumentFields.getString(data, "iconName");
+        category.updatedAt = DocumentFields.getDate(data, "updatedAt");
+        category.deleted = Boolean.TRUE.equals(DocumentFields.getBoolean(data, "deleted"));
+        return category;
+    }
+
     // Gettery i settery
 
     public String getId() {
@@ -95,4 +134,30 @@ public class Category implements Serializable {
     public void setIconName(String iconName) {
         this.iconName = iconName;
     }
-}
\ No newline at end of file
+
+    /**
+     * Zwraca czas ostatniej modyfikacji dokumentu nadany przez serwer.
+     *
+     * @return Czas modyfikacji lub null, jeśli zapis nie został jeszcze potwierdzony.
+     */
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Zwraca informację, czy dokument jest nagrobkiem (usuniętym rekordem).
+     *
+     * @return True, jeśli rekord został usunięty.
+     */
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.paydaylay.models;
+
+import com.google.firebase.Timestamp;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Odczyt pól z danych dokumentu Firestore w postaci mapy (DocumentSnapshot.getData()).
+ * Typy odpowiadają zwracanym przez Firestore: liczby całkowite jako Long, ułamkowe jako Double,
+ * daty jako Timestamp. Brakujące pole lub pole innego typu daje null.
+ */
+final class DocumentFields {
+
+    private DocumentFields() {
+    }
+
+    static String getString(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof String ? (String) value : null;
+    }
+
+    static Long getLong(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    static Double getDouble(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+
+    static Boolean getBoolean(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof Boolean ? (Boolean) value : null;
+    }
+
+    static Date getDate(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toDate();
+        }
+        return value instanceof Date ? (Date) value : null;
+    }
+}
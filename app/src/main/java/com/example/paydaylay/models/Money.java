@@ -0,0 +1,165 @@
+package com.example.paydaylay.models;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Kwota pieniężna przechowywana jako liczba całkowita jednostek podrzędnych (groszy).
+ * Dodawanie i porównywanie kwot jest dokładne - w przeciwieństwie do double nie kumuluje
+ * błędów zaokrągleń, a sumowanie sprowadza się do operacji na long.
+ * Wartości double pojawiają się wyłącznie na granicach: przy wprowadzaniu kwoty przez
+ * użytkownika, wyświetlaniu oraz w starszych polach dokumentów Firestore.
+ */
+@JsonAdapter(Money.GsonAdapter.class)
+public final class Money implements Comparable<Money>, Serializable {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * Tworzy kwotę z liczby groszy.
+     *
+     * @param minorUnits Kwota w groszach.
+     * @return Kwota.
+     */
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Tworzy kwotę z wartości w złotych, zaokrąglając do pełnych groszy.
+     *
+     * @param amount Kwota w złotych.
+     * @return Kwota.
+     */
+    public static Money of(double amount) {
+        return ofMinor(toMinor(amount));
+    }
+
+    /**
+     * Zaokrągla kwotę w złotych do liczby groszy.
+     *
+     * @param amount Kwota w złotych.
+     * @return Kwota w groszach.
+     */
+    public static long toMinor(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Odczytuje kwotę z danych dokumentu - z pola w groszach, a dla dokumentów sprzed jego
+     * wprowadzenia z pola w złotych.
+     *
+     * @param data       Dane dokumentu Firestore.
+     * @param minorField Nazwa pola z kwotą w groszach.
+     * @param field      Nazwa pola z kwotą w złotych.
+     * @return Kwota lub Money.ZERO, jeśli dokument nie zawiera żadnego z pól.
+     */
+    static Money fromMap(Map<String, Object> data, String minorField, String field) {
+        Long minor = DocumentFields.getLong(data, minorField);
+        if (minor != null) {
+            return Money.ofMinor(minor);
+        }
+        Double value = DocumentFields.getDouble(data, field);
+        return value != null ? Money.of(value) : Money.ZERO;
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    /**
+     * Zwraca kwotę w złotych - do wyświetlania i obliczeń procentowych.
+     *
+     * @return Kwota jako double.
+     */
+    public double toDouble() {
+        return minorUnits / 100.0;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(minorUnits + other.minorUnits);
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(minorUnits - other.minorUnits);
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    /**
+     * Zwraca procent, jaki ta kwota stanowi z podanej (np. wydatki z limitu).
+     *
+     * @param whole Kwota odniesienia.
+     * @return Procent lub 0, jeśli kwota odniesienia nie jest dodatnia.
+     */
+    public double percentOf(Money whole) {
+        return whole.minorUnits > 0 ? minorUnits * 100.0 / whole.minorUnits : 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    /**
+     * @return Kwota z dwoma miejscami po przecinku, bez symbolu waluty (np. "12.50").
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s%d.%02d", minorUnits < 0 ? "-" : "",
+                Math.abs(minorUnits / 100), Math.abs(minorUnits % 100));
+    }
+
+    /**
+     * Zapisuje kwotę w JSON jako liczbę w złotych - zgodnie z danymi zapisanymi przed wprowadzeniem Money.
+     */
+    static final class GsonAdapter extends TypeAdapter<Money> {
+        @Override
+        public void write(JsonWriter out, Money value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.value(value.toDouble());
+            }
+        }
+
+        @Override
+        public Money read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return ZERO;
+            }
+            return Money.of(in.nextDouble());
+        }
+    }
+}
@@ -2,10 +2,13 @@ package com.example.paydaylay.models;
 
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentId;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.PropertyName;
 import com.google.firebase.firestore.Exclude;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,7 +21,7 @@ public class Transaction implements Serializable {
 
     @DocumentId
     private String id; // Unikalny identyfikator transakcji
-    private double amount; // Kwota transakcji
+    private Money amount = Money.ZERO; // Kwota transakcji
     private Date date; // Data transakcji
     private String categoryId; // ID kategorii przypisanej do transakcji
     private String description; // Opis transakcji
@@ -27,6 +30,8 @@ public class Transaction implements Serializable {
     // Pole odpowiadające strukturze w Firestore
     @PropertyName("isExpense")
     private Boolean isExpense; // Typ transakcji: true - wydatek, false - przychód
+    private Date updatedAt; // Czas ostatniej modyfikacji (znacznik czasu serwera)
+    private boolean deleted; // Nagrobek - rekord usunięty, zachowany dla synchronizacji przyrostowej
 
     /**
      * Konstruktor domyślny wymagany przez Firestore.
@@ -44,7 +49,7 @@ public class Transaction implements Serializable {
      * @param userId      ID użytkownika, do którego należy transakcja.
      * @param isExpense   Typ transakcji: true - wydatek, false - przychód.
      */
-    public Transaction(double amount, Date date, String categoryId, String description, String userId, boolean isExpense) {
+    public Transaction(Money amount, Date date, String categoryId, String description, String userId, boolean isExpense) {
         this.amount = amount;
         this.date = date;
         this.categoryId = categoryId;
@@ -60,15 +65,53 @@ public class Transaction implements Serializable {
      */
     public Map<String, Object> toMap() {
         Map<String, Object> map = new HashMap<>();
-        map.put("amount", amount);
+        // Dokładna kwota w groszach; pole amount (w złotych) pozostaje dla zgodności z istniejącymi dokumentami
+        map.put("amountMinor", amount.getMinorUnits());
+        map.put("amount", amount.toDouble());
         map.put("date", new Timestamp(date));
         map.put("categoryId", categoryId);
         map.put("description", description);
         map.put("userId", userId);
         map.put("isExpense", isExpense);
+        map.put("updatedAt", FieldValue.serverTimestamp());
+        map.put("deleted", false);
         return map;
     }
 
+    /**
+     * Tworzy transakcję z dokumentu Firestore - odwrotność toMap().
+     * Pola są odczytywane bezpośrednio, bez mapowania przez refleksję (toObject).
+     *
+     * @param doc Dokument transakcji.
+     * @return Transakcja z identyfikatorem dokumentu.
+     */
+    public static Transaction fromDocument(DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return fromMap(doc.getId(), data != null ? data : Collections.emptyMap());
+    }
+
+    /**
+     * Tworzy transakcję z danych dokumentu (DocumentSnapshot.getData()).
+     * Brakujące pola przyjmują wartości domyślne, tak jak przy toObject.
+     *
+     * @param id   Identyfikator dokumentu.
+     * @param data Dane dokumentu.
+     * @return Transakcja.
+     */
+    public static Transaction fromMap(String id, Map<String, Object> data) {
+        Transaction transaction = new Transaction();
+        transaction.id = id;
+        transaction.amount = Money.fromMap(data, "amountMinor", "amount");
+        transaction.date = DocumentFields.getDate(data, "date");
+        transaction.categoryId = DocumentFields.getString(data, "categoryId");
+        transaction.description = DocumentFields.getString(data, "description");
+        transaction.userId = DocumentFields.getString(data, "userId");
+        transaction.isExpense = DocumentFields.getBoolean(data, "isExpense");
+        transaction.updatedAt = DocumentFields.getDate(data, "updatedAt");
+        transaction.deleted = Boolean.TRUE.equals(DocumentFields.getBoolean(data, "deleted"));
+        return transaction;
+    }
+
     // Gettery i settery
 
     public String getId() {
@@ -79,11 +122,11 @@ public class Transaction implements Serializable {
         this.id = id;
     }
 
-    public double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -160,4 +203,30 @@ public class Transaction implements Serializable {
     public void setExpense(boolean expense) {
         this.isExpense = expense;
     }
-}
\ No newline at end of file
+
+    /**
+     * Zwraca czas ostatniej modyfikacji dokumentu nadany przez serwer.
+     *
+     * @return Czas modyfikacji lub null, jeśli zapis nie został jeszcze potwierdzony.
+     */
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Zwraca informację, czy dokument jest nagrobkiem (usuniętym rekordem).
+     *
+     * @return True, jeśli rekord został usunięty.
+     */
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
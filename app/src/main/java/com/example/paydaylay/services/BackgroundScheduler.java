@@ -0,0 +1,185 @@
+package com.example.paydaylay.services;
+
+import android.app.Notification;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.ForegroundInfo;
+import androidx.work.ListenableWorker;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import com.example.paydaylay.R;
+import com.example.paydaylay.utils.NotificationUtils;
+import com.example.paydaylay.widgets.BudgetWidgetProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jedyny planista pracy w tle aplikacji, oparty na WorkManager.
+ * Sprawdzanie budżetów i odświeżanie widżetów to po jednym unikalnym zadaniu okresowym
+ * oraz po jednym unikalnym zadaniu przyspieszonym (expedited) na żądanie. Unikalne nazwy
+ * deduplikują zadania - wielokrotne zaplanowanie nie tworzy kolejnych wybudzeń urządzenia,
+ * a WorkManager sam przywraca zadania po ponownym uruchomieniu urządzenia.
+ */
+public final class BackgroundScheduler {
+    private static final String TAG = "BackgroundScheduler";
+
+    private static final String WORK_BUDGET_CHECK = "budget_check";
+    private static final String WORK_BUDGET_CHECK_NOW = "budget_check_now";
+    private static final String WORK_WIDGET_REFRESH = "widget_refresh";
+    private static final String WORK_WIDGET_REFRESH_NOW = "widget_refresh_now";
+
+    private static final long BUDGET_CHECK_INTERVAL_HOURS = 24;
+    private static final long WIDGET_REFRESH_INTERVAL_HOURS = 1;
+    private static final long BACKOFF_DELAY_SECONDS = 30;
+
+    // Liczba prób zadania zakończonego błędem przed rezygnacją do następnego okresu
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final int NOTIFICATION_ID_BACKGROUND_WORK = 102;
+
+    private BackgroundScheduler() {
+    }
+
+    /**
+     * Planuje wszystkie zadania okresowe zgodnie z bieżącymi ustawieniami:
+     * sprawdzanie budżetów, jeśli powiadomienia są włączone, oraz odświeżanie widżetów,
+     * jeśli jakiś widżet jest na ekranie głównym. Wywoływane przy starcie aplikacji.
+     *
+     * @param context Kontekst aplikacji.
+     */
+    public static void schedule(Context context) {
+        if (NotificationUtils.areNotificationsEnabled(context)) {
+            scheduleBudgetChecks(context);
+        } else {
+            cancelBudgetChecks(context);
+        }
+
+        int[] appWidgetIds = AppWidgetManager.getInstance(context)
+                .getAppWidgetIds(new ComponentName(context, BudgetWidgetProvider.class));
+        if (appWidgetIds.length > 0) {
+            scheduleWidgetRefresh(context);
+        } else {
+            cancelWidgetRefresh(context);
+        }
+    }
+
+    /**
+     * Planuje codzienne sprawdzanie wszystkich budżetów użytkownika.
+     *
+     * @param context Kontekst aplikacji.
+     */
+    public static void scheduleBudgetChecks(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(BudgetCheckWorker.class,
+                BUDGET_CHECK_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(periodicConstraints())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_DELAY_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_BUDGET_CHECK, ExistingPeriodicWorkPolicy.KEEP, request);
+        Log.d(TAG, "Budget checks scheduled");
+    }
+
+    /**
+     * Anuluje sprawdzanie budżetów - okresowe i oczekujące na wykonanie.
+     *
+     * @param context Kontekst aplikacji.
+     */
+    public static void cancelBudgetChecks(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.cancelUniqueWork(WORK_BUDGET_CHECK);
+        workManager.cancelUniqueWork(WORK_BUDGET_CHECK_NOW);
+    }
+
+    /**
+     * Zleca natychmiastowe sprawdzenie budżetów. Zlecenia złożone przed wykonaniem
+     * poprzedniego są z nim łączone.
+     *
+     * @param context Kontekst aplikacji.
+     */
+    public static void checkBudgetsNow(Context context) {
+        enqueueNow(context, WORK_BUDGET_CHECK_NOW, BudgetCheckWorker.class);
+    }
+
+    /**
+     * Planuje cogodzinne odświeżanie widżetów budżetowych.
+     *
+     * @param context Kontekst aplikacji.
+     */
+    public static void scheduleWidgetRefresh(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(WidgetRefreshWorker.class,
+                WIDGET_REFRESH_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(periodicConstraints())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_DELAY_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_WIDGET_REFRESH, ExistingPeriodicWorkPolicy.KEEP, request);
+        Log.d(TAG, "Widget refresh scheduled");
+    }
+
+    /**
+     * Anuluje odświeżanie widżetów (np. po usunięciu ostatniego widżetu).
+     *
+     * @param context Kontekst aplikacji.
+     */
+    public static void cancelWidgetRefresh(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.cancelUniqueWork(WORK_WIDGET_REFRESH);
+        workManager.cancelUniqueWork(WORK_WIDGET_REFRESH_NOW);
+    }
+
+    /**
+     * Zleca natychmiastowe odświeżenie widżetów (np. po zmianie czasu systemowego).
+     *
+     * @param context Kontekst aplikacji.
+     */
+    public static void refreshWidgetsNow(Context context) {
+        enqueueNow(context, WORK_WIDGET_REFRESH_NOW, WidgetRefreshWorker.class);
+    }
+
+    private static void enqueueNow(Context context, String name, Class<? extends ListenableWorker> workerClass) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(workerClass)
+                .setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_DELAY_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(name, ExistingWorkPolicy.KEEP, request);
+    }
+
+    private static Constraints periodicConstraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+    }
+
+    /**
+     * Zwraca powiadomienie wymagane przez zadania przyspieszone na Androidzie starszym niż 12,
+     * gdzie są one wykonywane jako usługa pierwszoplanowa.
+     *
+     * @param context Kontekst aplikacji.
+     * @return Informacje o usłudze pierwszoplanowej.
+     */
+    static ForegroundInfo foregroundInfo(Context context) {
+        Notification notification = new NotificationCompat.Builder(context, NotificationUtils.CHANNEL_ID_BUDGET)
+                .setSmallIcon(R.drawable.ic_budget_alert)
+                .setContentTitle(context.getString(R.string.background_work_notification))
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setOngoing(true)
+                .build();
+        return new ForegroundInfo(NOTIFICATION_ID_BACKGROUND_WORK, notification);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.paydaylay.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.work.ForegroundInfo;
+import androidx.work.ListenableWorker;
+import androidx.work.WorkerParameters;
+
+import com.example.paydaylay.database.CategoryDictionary;
+import com.example.paydaylay.firebase.AuthManager;
+import com.example.paydaylay.firebase.MigrationStore;
+import com.example.paydaylay.firebase.DatabaseManager;
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Category;
+import com.example.paydaylay.utils.BudgetEngine;
+import com.example.paydaylay.utils.BudgetEvaluator;
+import com.example.paydaylay.utils.NotificationUtils;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Zadanie sprawdzające wszystkie budżety użytkownika jednym zapytaniem o transakcje.
+ * Progi wydatków ocenia BudgetEngine, który zgłasza je już przy zapisie transakcji -
+ * okresowe sprawdzenie jest zabezpieczeniem (np. po zmianach z innego urządzenia)
+ * i nie powtarza zgłoszonych powiadomień.
+ */
+public class BudgetCheckWorker extends ListenableWorker {
+    private static final String TAG = "BudgetCheckWorker";
+
+    public BudgetCheckWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Rozpoczyna sprawdzanie budżetów. Wywoływane w wątku głównym - operacje na danych
+     * są asynchroniczne, a wynik zadania jest ustawiany w ich interfejsach zwrotnych.
+     *
+     * @return Przyszły wynik zadania.
+     */
+    @NonNull
+    @Override
+    public ListenableFuture<Result> startWork() {
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            String userId = new AuthManager().getCurrentUserId();
+            // Zadanie zaplanowane przez wcześniejszą wersję aplikacji czeka na migrację danych użytkownika
+            if (userId == null || !new MigrationStore(getApplicationContext()).isMigrated(userId)
+                    || !NotificationUtils.areNotificationsEnabled(getApplicationContext())) {
+                completer.set(Result.success());
+                return TAG;
+            }
+
+            checkBudgets(userId, new OnCheckCompleteListener() {
+                @Override
+                public void onCheckComplete() {
+                    completer.set(Result.success());
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Budget check failed", e);
+                    completer.set(getRunAttemptCount() + 1 < BackgroundScheduler.MAX_ATTEMPTS
+                            ? Result.retry() : Result.failure());
+                }
+            });
+            return TAG;
+        });
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<ForegroundInfo> getForegroundInfoAsync() {
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            completer.set(BackgroundScheduler.foregroundInfo(getApplicationContext()));
+            return TAG;
+        });
+    }
+
+    /**
+     * Ładuje kategorie i budżety użytkownika, a następnie oblicza stan budżetów.
+     *
+     * @param userId   ID użytkownika.
+     * @param listener Interfejs zwrotny zakończenia sprawdzania.
+     */
+    private void checkBudgets(String userId, OnCheckCompleteListener listener) {
+        Context context = getApplicationContext();
+        CategoryDictionary.getInstance(context).readCategories(userId, new CategoryDictionary.OnCategoriesChangedListener() {
+            @Override
+            public void onCategoriesChanged(CategoryDictionary.Snapshot snapshot) {
+                Map<String, Category> categoryMap = snapshot.getCategories();
+
+                DatabaseManager.getInstance().getBudgets(userId, new DatabaseManager.OnBudgetsLoadedListener() {
+                    @Override
+                    public void onBudgetsLoaded(List<Budget> budgets) {
+                        evaluateBudgets(userId, budgets, categoryMap, listener);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        listener.onError(e);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Oblicza stan wszystkich budżetów jednym zapytaniem i przekazuje go do oceny progów.
+     */
+    private void evaluateBudgets(String userId, List<Budget> budgets, Map<String, Category> categoryMap,
+                                 OnCheckCompleteListener listener) {
+        Context context = getApplicationContext();
+        new BudgetEvaluator(context).evaluate(userId, budgets, new BudgetEvaluator.OnBudgetsEvaluatedListener() {
+            @Override
+            public void onBudgetsEvaluated(List<BudgetEvaluator.BudgetResult> results) {
+                BudgetEngine.getInstance(context).applyResults(results, categoryMap);
+                Log.d(TAG, "Checked " + results.size() + " budgets");
+                listener.onCheckComplete();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        });
+    }
+
+    private interface OnCheckCompleteListener {
+        void onCheckComplete();
+        void onError(Exception e);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.paydaylay.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.work.ForegroundInfo;
+import androidx.work.ListenableWorker;
+import androidx.work.WorkerParameters;
+
+import com.example.paydaylay.firebase.AuthManager;
+import com.example.paydaylay.firebase.MigrationStore;
+import com.example.paydaylay.widgets.BudgetWidgetDataHelper;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Zadanie odświeżające migawki wszystkich widżetów budżetowych - wydatki są obliczane
+ * jednym zapytaniem na użytkownika, a widżety otrzymują tylko zmienione pola.
+ * Zastępuje cogodzinne dokładne alarmy i JobIntentService aktualizacji widżetów.
+ */
+public class WidgetRefreshWorker extends ListenableWorker {
+    private static final String TAG = "WidgetRefreshWorker";
+
+    public WidgetRefreshWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<Result> startWork() {
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            // Do czasu migracji danych użytkownika widżety pokazują ostatni zapisany stan
+            String userId = new AuthManager().getCurrentUserId();
+            if (!new MigrationStore(getApplicationContext()).isMigrated(userId)) {
+                completer.set(Result.success());
+                return TAG;
+            }
+
+            BudgetWidgetDataHelper dataHelper = new BudgetWidgetDataHelper(getApplicationContext());
+            dataHelper.updateAllWidgets(new BudgetWidgetDataHelper.OnWidgetsRefreshedListener() {
+                @Override
+                public void onWidgetsRefreshed() {
+                    dataHelper.saveLastUpdateTime(System.currentTimeMillis());
+                    completer.set(Result.success());
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Widget refresh failed", e);
+                    completer.set(getRunAttemptCount() + 1 < BackgroundScheduler.MAX_ATTEMPTS
+                            ? Result.retry() : Result.failure());
+                }
+            });
+            return TAG;
+        });
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<ForegroundInfo> getForegroundInfoAsync() {
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            completer.set(BackgroundScheduler.foregroundInfo(getApplicationContext()));
+            return TAG;
+        });
+    }
+}
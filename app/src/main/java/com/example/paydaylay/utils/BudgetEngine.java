@@ -0,0 +1,231 @@
+package com.example.paydaylay.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.paydaylay.database.CategoryDictionary;
+import com.example.paydaylay.firebase.DatabaseManager;
+import com.example.paydaylay.firebase.TransactionChange;
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Silnik alertów budżetowych sterowany zdarzeniami.
+ * Po każdym zapisie transakcji otrzymuje od DatabaseManager tylko budżety, których kategoria
+ * i okres obejmują zmienioną transakcję, razem z wydatkami utrzymywanymi przez liczniki -
+ * bez ponownego obliczania pozostałych budżetów. Przekroczenie progu (75, 90, 100% limitu)
+ * jest zgłaszane od razu, jeden raz: próg jest ponownie uzbrajany dopiero, gdy wydatki spadną
+ * o HYSTERESIS_PERCENT punktów poniżej niego (np. po usunięciu transakcji) lub zacznie się nowy okres.
+ * Zdarzenia zapisu mogą jedynie podnosić poziom zgłoszonych progów - ponowne uzbrojenie następuje
+ * tylko przy pełnym obliczeniu stanu budżetów, więc rozbieżność między licznikami a pełnym
+ * obliczeniem nie powoduje powtórnych powiadomień.
+ * Zgłoszone progi są zapisywane w SharedPreferences, więc okresowe sprawdzanie budżetów
+ * (BudgetCheckWorker) jest tylko zabezpieczeniem i nie powtarza powiadomień.
+ * Wszystkie metody muszą być wywoływane w wątku głównym.
+ */
+public final class BudgetEngine implements DatabaseManager.OnTransactionChangedListener {
+    private static final String TAG = "BudgetEngine";
+    private static final String PREFS_NAME = "BudgetAlertPrefs";
+    private static final String KEY_LEVEL_PREFIX = "level_";
+    private static final String KEY_PERIOD_PREFIX = "period_";
+
+    // Progi powiadomień w procentach limitu, rosnąco; ostatni oznacza przekroczenie budżetu
+    private static final int[] THRESHOLDS = {75, 90, 100};
+    private static final double HYSTERESIS_PERCENT = 5;
+
+    private static BudgetEngine instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    private BudgetEngine(Context context) {
+        this.context = context;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Pobiera instancję silnika.
+     *
+     * @param context Kontekst aplikacji.
+     * @return Instancja BudgetEngine.
+     */
+    public static synchronized BudgetEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new BudgetEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Ocenia progi budżetów zmienionych przez zapis transakcji.
+     *
+     * @param change Zdarzenie zapisu transakcji.
+     */
+    @Override
+    public void onTransactionChanged(TransactionChange change) {
+        List<BudgetEvaluator.BudgetResult> results = new ArrayList<>(change.getBudgetChanges().size());
+        for (TransactionChange.BudgetChange budgetChange : change.getBudgetChanges()) {
+            results.add(new BudgetEvaluator.BudgetResult(budgetChange.getBudget(), budgetChange.getSpentAfter()));
+        }
+
+        applyResults(change.getUserId(), results, false);
+    }
+
+    /**
+     * Ocenia progi na podstawie obliczonego stanu budżetów użytkownika
+     * (np. przy odświeżaniu widżetów). Nazwy kategorii do powiadomień pobiera ze słownika kategorii.
+     *
+     * @param userId  Identyfikator użytkownika.
+     * @param results Obliczony stan budżetów.
+     */
+    public void applyResults(String userId, List<BudgetEvaluator.BudgetResult> results) {
+        applyResults(userId, results, true);
+    }
+
+    private void applyResults(String userId, List<BudgetEvaluator.BudgetResult> results, boolean canRearm) {
+        List<Crossing> crossings = evaluateThresholds(results, canRearm);
+        if (crossings.isEmpty()) {
+            return;
+        }
+        CategoryDictionary.getInstance(context).readCategories(userId,
+                new CategoryDictionary.OnCategoriesChangedListener() {
+                    @Override
+                    public void onCategoriesChanged(CategoryDictionary.Snapshot snapshot) {
+                        notifyCrossings(crossings, snapshot.getCategories());
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Log.w(TAG, "Categories unavailable, notifying without names", e);
+                        notifyCrossings(crossings, Collections.emptyMap());
+                    }
+                });
+    }
+
+    /**
+     * Ocenia progi na podstawie pełnego obliczenia stanu budżetów (okresowe sprawdzanie).
+     *
+     * @param results     Obliczony stan budżetów.
+     * @param categoryMap Mapa kategorii użytkownika.
+     */
+    public void applyResults(List<BudgetEvaluator.BudgetResult> results, Map<String, Category> categoryMap) {
+        notifyCrossings(evaluateThresholds(results, true), categoryMap);
+    }
+
+    /**
+     * Porównuje wydatki budżetów z progami i zapisuje nowy poziom zgłoszonych progów.
+     *
+     * @param results  Stan budżetów.
+     * @param canRearm Czy wynik pochodzi z pełnego obliczenia i może obniżyć poziom zgłoszonych progów.
+     * @return Budżety, które przekroczyły próg wyższy niż dotychczas zgłoszony.
+     */
+    private List<Crossing> evaluateThresholds(List<BudgetEvaluator.BudgetResult> results, boolean canRearm) {
+        List<Crossing> crossings = new ArrayList<>();
+        // Przy wyłączonych powiadomieniach progi nie są oznaczane jako zgłoszone
+        if (!NotificationUtils.areNotificationsEnabled(context)) {
+            return crossings;
+        }
+
+        SharedPreferences.Editor editor = prefs.edit();
+        boolean modified = false;
+        for (BudgetEvaluator.BudgetResult result : results) {
+            Budget budget = result.getBudget();
+            if (budget.getId() == null) {
+                continue;
+            }
+            String levelKey = KEY_LEVEL_PREFIX + budget.getId();
+            String periodKey = KEY_PERIOD_PREFIX + budget.getId();
+
+            // Nowy okres budżetu zeruje zgłoszone progi
+            long periodStart = BudgetPeriod.current(budget).start;
+            int notifiedLevel = prefs.getLong(periodKey, Long.MIN_VALUE) == periodStart
+                    ? prefs.getInt(levelKey, 0) : 0;
+
+            int newLevel = nextNotifiedLevel(notifiedLevel, result.getPercent(), canRearm);
+            if (newLevel > notifiedLevel) {
+                crossings.add(new Crossing(result, newLevel));
+            }
+
+            if (newLevel != prefs.getInt(levelKey, 0) || prefs.getLong(periodKey, Long.MIN_VALUE) != periodStart) {
+                editor.putInt(levelKey, newLevel).putLong(periodKey, periodStart);
+                modified = true;
+            }
+        }
+        if (modified) {
+            editor.apply();
+        }
+        return crossings;
+    }
+
+    /**
+     * Zwraca nowy poziom zgłoszonych progów budżetu. Poziom rośnie, gdy wydatki osiągną próg wyższy
+     * niż zgłoszony (przekroczenie progu), a maleje tylko przy canRearm i dopiero wtedy, gdy wydatki
+     * spadną o HYSTERESIS_PERCENT punktów poniżej zgłoszonego progu.
+     *
+     * @param notifiedLevel Liczba progów zgłoszonych w bieżącym okresie.
+     * @param percent       Procent wykorzystania budżetu.
+     * @param canRearm      Czy poziom może zostać obniżony.
+     * @return Nowy poziom; wartość większa niż notifiedLevel oznacza przekroczenie progu.
+     */
+    static int nextNotifiedLevel(int notifiedLevel, double percent, boolean canRearm) {
+        int level = levelAt(percent, 0);
+        if (level > notifiedLevel) {
+            return level;
+        }
+        if (!canRearm) {
+            return notifiedLevel;
+        }
+        // Próg pozostaje zgłoszony, dopóki wydatki nie spadną wyraźnie poniżej niego
+        return Math.min(notifiedLevel, levelAt(percent, HYSTERESIS_PERCENT));
+    }
+
+    /**
+     * Zwraca liczbę progów osiągniętych przy podanym procencie wykorzystania budżetu.
+     *
+     * @param percent Procent wykorzystania budżetu.
+     * @param margin  Liczba punktów procentowych, o którą obniżany jest każdy próg.
+     */
+    static int levelAt(double percent, double margin) {
+        int level = 0;
+        for (int threshold : THRESHOLDS) {
+            if (percent >= threshold - margin) {
+                level++;
+            }
+        }
+        return level;
+    }
+
+    private void notifyCrossings(List<Crossing> crossings, Map<String, Category> categoryMap) {
+        for (Crossing crossing : crossings) {
+            BudgetEvaluator.BudgetResult result = crossing.result;
+            Log.d(TAG, "Budget " + result.getBudget().getId() + " crossed "
+                    + THRESHOLDS[crossing.level - 1] + "%");
+            if (crossing.level == THRESHOLDS.length) {
+                NotificationUtils.showBudgetAlertNotification(context, result.getBudget(),
+                        result.getSpent(), categoryMap);
+            } else {
+                NotificationUtils.showBudgetWarningNotification(context, result.getBudget(),
+                        result.getSpent(), categoryMap);
+            }
+        }
+    }
+
+    /**
+     * Przekroczenie progu przez budżet.
+     */
+    private static final class Crossing {
+        final BudgetEvaluator.BudgetResult result;
+        final int level; // Liczba osiągniętych progów (1 - THRESHOLDS[0])
+
+        Crossing(BudgetEvaluator.BudgetResult result, int level) {
+            this.result = result;
+            this.level = level;
+        }
+    }
+}
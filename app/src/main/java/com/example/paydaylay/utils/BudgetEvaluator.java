@@ -0,0 +1,283 @@
+package com.example.paydaylay.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.paydaylay.database.AppDatabase;
+import com.example.paydaylay.database.DailyTotalEntity;
+import com.example.paydaylay.database.TransactionDao;
+import com.example.paydaylay.database.TransactionRepository;
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Money;
+import com.google.android.gms.tasks.CancellationToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Oblicza stan wielu budżetów jednocześnie.
+ * Po przyrostowej synchronizacji transakcji wydatki wszystkich budżetów są sumowane w lokalnej bazie
+ * w jednym przebiegu: dzienne sumy wydatków z łącznego zakresu okresów są odczytywane jednym
+ * zapytaniem i przypisywane do każdego pasującego budżetu (ogólnych i danej kategorii), a niepełne
+ * dni na krańcach okresów - zapytaniem grupującym po kategoriach, wspólnym dla budżetów o tym samym
+ * okresie. Koszt nie zależy od liczby transakcji w okresach. Kwoty są sumowane dokładnie, w groszach.
+ */
+public class BudgetEvaluator {
+    private static final String TAG = "BudgetEvaluator";
+
+    private final TransactionRepository transactionRepository;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public BudgetEvaluator(Context context) {
+        this.transactionRepository = TransactionRepository.getInstance(context);
+    }
+
+    /**
+     * Synchronizuje transakcje i oblicza stan budżetów.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param budgets  Budżety użytkownika.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void evaluate(String userId, List<Budget> budgets, OnBudgetsEvaluatedListener listener) {
+        evaluate(userId, budgets, null, listener);
+    }
+
+    /**
+     * Synchronizuje transakcje i oblicza stan budżetów, z możliwością anulowania.
+     * Bez połączenia stan jest obliczany z danych lokalnych, o ile zostały kiedyś zsynchronizowane.
+     *
+     * @param userId   Identyfikator użytkownika.
+     * @param budgets  Budżety użytkownika.
+     * @param token    Token anulowania lub null. Po anulowaniu listener nie zostanie wywołany.
+     * @param listener Interfejs zwrotny do obsługi wyniku operacji.
+     */
+    public void evaluate(String userId, List<Budget> budgets, CancellationToken token,
+                         OnBudgetsEvaluatedListener listener) {
+        if (budgets == null || budgets.isEmpty()) {
+            listener.onBudgetsEvaluated(Collections.emptyList());
+            return;
+        }
+
+        transactionRepository.sync(userId, new TransactionRepository.OnSyncListener() {
+            @Override
+            public void onSynced(boolean changed) {
+                sumLocal(userId, budgets, token, listener);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (token != null && token.isCancellationRequested()) {
+                    return;
+                }
+                if (transactionRepository.hasSynced(userId)) {
+                    Log.w(TAG, "Transaction sync failed, evaluating budgets from local data", e);
+                    sumLocal(userId, budgets, token, listener);
+                } else {
+                    listener.onError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sumuje wydatki bieżących okresów budżetów w lokalnej bazie.
+     */
+    private void sumLocal(String userId, List<Budget> budgets, CancellationToken token,
+                          OnBudgetsEvaluatedListener listener) {
+        long now = System.currentTimeMillis();
+        AppDatabase.databaseExecutor.execute(() -> {
+            long[] spent = sumSpent(budgets, now, new ExpenseSource() {
+                @Override
+                public List<DailyTotalEntity> expenseDays(int fromDay, int toDay) {
+                    return transactionRepository.getExpenseDays(userId, fromDay, toDay);
+                }
+
+                @Override
+                public List<TransactionDao.CategoryTotal> expensesByCategory(long startTime, long endTime) {
+                    return transactionRepository.sumExpensesByCategory(userId, startTime, endTime);
+                }
+            });
+            List<BudgetResult> results = new ArrayList<>(budgets.size());
+            for (int i = 0; i < budgets.size(); i++) {
+                results.add(new BudgetResult(budgets.get(i), Money.ofMinor(spent[i])));
+            }
+            mainHandler.post(() -> {
+                if (token == null || !token.isCancellationRequested()) {
+                    listener.onBudgetsEvaluated(results);
+                }
+            });
+        });
+    }
+
+    /**
+     * Sumuje wydatki bieżących okresów wszystkich budżetów w jednym przebiegu.
+     * Pełne dni (UTC) wszystkich okresów są odczytywane jednym zapytaniem o dzienne sumy z łącznego
+     * zakresu, a każdy wiersz jest doliczany do budżetów ogólnych i budżetów swojej kategorii, których
+     * okres go obejmuje. Niepełne dni na krańcach okresów (okres zaczyna się o północy czasu lokalnego)
+     * są sumowane po kategoriach raz dla każdego odrębnego zakresu.
+     *
+     * @param budgets Budżety do obliczenia.
+     * @param now     Chwila, dla której wyznaczane są bieżące okresy budżetów.
+     * @param source  Źródło sum wydatków.
+     * @return Wydatki w groszach, w kolejności budżetów.
+     */
+    static long[] sumSpent(List<Budget> budgets, long now, ExpenseSource source) {
+        int count = budgets.size();
+        int[] fromDays = new int[count];
+        int[] toDays = new int[count];
+        long[] spent = new long[count];
+
+        // Indeks budżetów: ogólne oraz według kategorii
+        List<Integer> overall = new ArrayList<>();
+        Map<String, List<Integer>> byCategory = new HashMap<>();
+        // Niepełne dni okresów - budżety o tym samym okresie mają wspólne krańce
+        Map<List<Long>, List<Integer>> edges = new LinkedHashMap<>();
+        int windowFrom = Integer.MAX_VALUE;
+        int windowTo = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            Budget budget = budgets.get(i);
+            BudgetPeriod.Range period = BudgetPeriod.containing(budget, now);
+            long firstFullDay = DailyTotalEntity.startOfDay(period.start) == period.start
+                    ? period.start
+                    : DailyTotalEntity.startOfNextDay(period.start);
+            long lastFullDayEnd = DailyTotalEntity.startOfDay(period.end);
+            if (firstFullDay >= lastFullDayEnd) {
+                addEdge(edges, period.start, period.end, i);
+            } else {
+                fromDays[i] = DailyTotalEntity.dayKey(firstFullDay);
+                toDays[i] = DailyTotalEntity.dayKey(lastFullDayEnd);
+                windowFrom = Math.min(windowFrom, fromDays[i]);
+                windowTo = Math.max(windowTo, toDays[i]);
+                addEdge(edges, period.start, firstFullDay, i);
+                addEdge(edges, lastFullDayEnd, period.end, i);
+            }
+
+            if (budget.getCategoryId() == null) {
+                overall.add(i);
+            } else {
+                List<Integer> indices = byCategory.get(budget.getCategoryId());
+                if (indices == null) {
+                    indices = new ArrayList<>();
+                    byCategory.put(budget.getCategoryId(), indices);
+                }
+                indices.add(i);
+            }
+        }
+
+        if (windowFrom < windowTo) {
+            for (DailyTotalEntity row : source.expenseDays(windowFrom, windowTo)) {
+                int day = row.getDay();
+                for (int i : overall) {
+                    if (day >= fromDays[i] && day < toDays[i]) {
+                        spent[i] += row.getTotal();
+                    }
+                }
+                List<Integer> categoryBudgets = byCategory.get(row.getCategoryId());
+                if (categoryBudgets != null) {
+                    for (int i : categoryBudgets) {
+                        if (day >= fromDays[i] && day < toDays[i]) {
+                            spent[i] += row.getTotal();
+                        }
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<List<Long>, List<Integer>> edge : edges.entrySet()) {
+            List<TransactionDao.CategoryTotal> totals =
+                    source.expensesByCategory(edge.getKey().get(0), edge.getKey().get(1));
+            for (TransactionDao.CategoryTotal total : totals) {
+                for (int i : edge.getValue()) {
+                    String categoryId = budgets.get(i).getCategoryId();
+                    if (categoryId == null || categoryId.equals(total.categoryId)) {
+                        spent[i] += total.total;
+                    }
+                }
+            }
+        }
+        return spent;
+    }
+
+    private static void addEdge(Map<List<Long>, List<Integer>> edges, long startTime, long endTime, int budget) {
+        if (startTime >= endTime) {
+            return;
+        }
+        List<Long> key = Arrays.asList(startTime, endTime);
+        List<Integer> budgets = edges.get(key);
+        if (budgets == null) {
+            budgets = new ArrayList<>();
+            edges.put(key, budgets);
+        }
+        budgets.add(budget);
+    }
+
+    /**
+     * Źródło sum wydatków dla {@link #sumSpent} - lokalna baza (w testach dane w pamięci).
+     * Wywoływane w AppDatabase.databaseExecutor.
+     */
+    interface ExpenseSource {
+        /** Dzienne sumy wydatków z dni [fromDay, toDay) (klucze rrrrmmdd w UTC). */
+        List<DailyTotalEntity> expenseDays(int fromDay, int toDay);
+
+        /** Sumy wydatków z zakresu [startTime, endTime) w podziale na kategorie. */
+        List<TransactionDao.CategoryTotal> expensesByCategory(long startTime, long endTime);
+    }
+
+    /**
+     * Stan pojedynczego budżetu.
+     */
+    public static class BudgetResult {
+        private final Budget budget;
+        private final Money spent;
+
+        BudgetResult(Budget budget, Money spent) {
+            this.budget = budget;
+            this.spent = spent;
+        }
+
+        public Budget getBudget() {
+            return budget;
+        }
+
+        public Money getSpent() {
+            return spent;
+        }
+
+        public Money getRemaining() {
+            Money remaining = budget.getLimit().minus(spent);
+            return remaining.isPositive() ? remaining : Money.ZERO;
+        }
+
+        /**
+         * @return True, jeśli wydatki przekroczyły limit.
+         */
+        public boolean isExceeded() {
+            return spent.compareTo(budget.getLimit()) > 0;
+        }
+
+        /**
+         * Zwraca procent wykorzystania budżetu (może przekraczać 100).
+         *
+         * @return Procent wykorzystania lub 0 dla budżetu bez limitu.
+         */
+        public double getPercent() {
+            return spent.percentOf(budget.getLimit());
+        }
+    }
+
+    /**
+     * Interfejs zwrotny dla obliczania stanu budżetów.
+     */
+    public interface OnBudgetsEvaluatedListener {
+        void onBudgetsEvaluated(List<BudgetResult> results);
+        void onError(Exception e);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.paydaylay.utils;
+
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Money;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kalkulator okresów budżetowych.
+ * Okres budżetu to przedział [start, end) wyznaczony od daty kotwicy (periodStartDate)
+ * krokami dnia, tygodnia, miesiąca lub roku w strefie czasowej urządzenia.
+ * Granice okresu są zapamiętywane dla (typ okresu, strefa, kotwica) - Calendar jest
+ * używany tylko wtedy, gdy podana chwila wypada poza zapamiętanym okresem.
+ */
+public final class BudgetPeriod {
+
+    // Przybliżone długości okresów - tylko do oszacowania liczby kroków od kotwicy
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long WEEK_MS = 7 * DAY_MS;
+    private static final long MONTH_MS = 2_629_746_000L; // 30.436875 dnia
+    private static final long YEAR_MS = 31_556_952_000L; // 365.2425 dnia
+
+    private static final Map<Key, Range> cache = new ConcurrentHashMap<>();
+
+    private BudgetPeriod() {
+    }
+
+    /**
+     * Zwraca bieżący okres budżetu.
+     *
+     * @param budget Obiekt budżetu.
+     * @return Okres zawierający chwilę obecną.
+     */
+    public static Range current(Budget budget) {
+        return containing(budget, System.currentTimeMillis());
+    }
+
+    /**
+     * Zwraca okres budżetu zawierający podaną chwilę.
+     *
+     * @param budget  Obiekt budżetu.
+     * @param instant Chwila w milisekundach.
+     * @return Okres zawierający chwilę.
+     */
+    public static Range containing(Budget budget, long instant) {
+        return containing(budget.getPeriodType(), budget.getPeriodStartDate(), instant);
+    }
+
+    /**
+     * Zwraca okres o podanym typie i kotwicy, zawierający podaną chwilę.
+     *
+     * @param periodType Typ okresu (Budget.PERIOD_*).
+     * @param anchor     Początek dowolnego okresu z tej serii (periodStartDate).
+     * @param instant    Chwila w milisekundach.
+     * @return Okres zawierający chwilę.
+     */
+    public static Range containing(int periodType, long anchor, long instant) {
+        TimeZone zone = TimeZone.getDefault();
+        Key key = new Key(periodType, zone.getID(), anchor);
+
+        Range cached = cache.get(key);
+        if (cached != null && cached.contains(instant)) {
+            return cached;
+        }
+
+        Range range = compute(periodType, zone, anchor, instant);
+        cache.put(key, range);
+        return range;
+    }
+
+    /**
+     * Przesuwa budżet do bieżącego okresu, jeśli jego okres już minął.
+     * Data początku okresu jest ustawiana na początek bieżącego okresu, a wydatki są zerowane.
+     *
+     * @param budget Obiekt budżetu.
+     * @param now    Chwila obecna w milisekundach.
+     * @return True, jeśli budżet został przesunięty i należy go zapisać.
+     */
+    public static boolean rollForward(Budget budget, long now) {
+        Range current = containing(budget, now);
+        if (current.start <= budget.getPeriodStartDate()) {
+            return false;
+        }
+        budget.setPeriodStartDate(current.start);
+        budget.setSpent(Money.ZERO);
+        return true;
+    }
+
+    /**
+     * Przesuwa listę budżetów do bieżących okresów.
+     *
+     * @param budgets Budżety do sprawdzenia.
+     * @param now     Chwila obecna w milisekundach.
+     * @return Budżety, które zostały przesunięte i należy je zapisać.
+     */
+    public static List<Budget> rollForward(List<Budget> budgets, long now) {
+        List<Budget> rolled = new ArrayList<>();
+        for (Budget budget : budgets) {
+            if (rollForward(budget, now)) {
+                rolled.add(budget);
+            }
+        }
+        return rolled;
+    }
+
+    /**
+     * Wyznacza okres zawierający chwilę, licząc każdą granicę od kotwicy
+     * (a nie od poprzedniej granicy), aby uniknąć dryfu końca miesiąca.
+     */
+    private static Range compute(int periodType, TimeZone zone, long anchor, long instant) {
+        Calendar calendar = Calendar.getInstance(zone);
+        int field;
+        int amount;
+        long approximateLength;
+        switch (periodType) {
+            case Budget.PERIOD_DAILY:
+                field = Calendar.DAY_OF_YEAR;
+                amount = 1;
+                approximateLength = DAY_MS;
+                break;
+            case Budget.PERIOD_WEEKLY:
+                field = Calendar.DAY_OF_YEAR;
+                amount = 7;
+                approximateLength = WEEK_MS;
+                break;
+            case Budget.PERIOD_YEARLY:
+                field = Calendar.YEAR;
+                amount = 1;
+                approximateLength = YEAR_MS;
+                break;
+            case Budget.PERIOD_MONTHLY:
+            default:
+                field = Calendar.MONTH;
+                amount = 1;
+                approximateLength = MONTH_MS;
+                break;
+        }
+
+        int steps = (int) Math.floorDiv(instant - anchor, approximateLength);
+        long start = boundary(calendar, anchor, field, amount, steps);
+        while (start > instant) {
+            steps--;
+            start = boundary(calendar, anchor, field, amount, steps);
+        }
+        long end = boundary(calendar, anchor, field, amount, steps + 1);
+        while (end <= instant) {
+            steps++;
+            start = end;
+            end = boundary(calendar, anchor, field, amount, steps + 1);
+        }
+        return new Range(start, end);
+    }
+
+    private static long boundary(Calendar calendar, long anchor, int field, int amount, int steps) {
+        calendar.setTimeInMillis(anchor);
+        calendar.add(field, amount * steps);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Okres budżetowy [start, end).
+     */
+    public static final class Range {
+        public final long start;
+        public final long end;
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public boolean contains(long instant) {
+            return instant >= start && instant < end;
+        }
+
+        /**
+         * Zwraca ostatnią chwilę okresu - do wyświetlania daty końcowej włącznie.
+         *
+         * @return Znacznik czasu end - 1.
+         */
+        public long getLastInstant() {
+            return end - 1;
+        }
+    }
+
+    /**
+     * Klucz pamięci podręcznej granic okresów.
+     */
+    private static final class Key {
+        private final int periodType;
+        private final String zoneId;
+        private final long anchor;
+
+        Key(int periodType, String zoneId, long anchor) {
+            this.periodType = periodType;
+            this.zoneId = zoneId;
+            this.anchor = anchor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return periodType == other.periodType && anchor == other.anchor && zoneId.equals(other.zoneId);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = periodType;
+            result = 31 * result + zoneId.hashCode();
+            result = 31 * result + (int) (anchor ^ (anchor >>> 32));
+            return result;
+        }
+    }
+}
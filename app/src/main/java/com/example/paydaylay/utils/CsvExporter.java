@@ -9,6 +9,7 @@ import androidx.core.content.FileProvider;
 
 import com.example.paydaylay.R;
 import com.example.paydaylay.models.Category;
+import com.example.paydaylay.models.Money;
 import com.example.paydaylay.models.Transaction;
 import com.opencsv.CSVWriter;
 
@@ -95,7 +96,7 @@ public class CsvExporter {
                 }
 
                 String amount = String.format(Locale.getDefault(), "%.2f %s",
-                        transaction.getAmount(), currencySymbol);
+                        transaction.getAmount().toDouble(), currencySymbol);
 
                 String type = transaction.isExpense() ?
                         context.getString(R.string.expense) :
@@ -152,27 +153,28 @@ public class CsvExporter {
      * @return Tablica danych podsumowania.
      */
     public String[][] getSummaryData(List<Transaction> transactions) {
-        double totalIncome = 0;
-        double totalExpense = 0;
+        // Sumy w groszach - dokładne niezależnie od liczby transakcji
+        long totalIncome = 0;
+        long totalExpense = 0;
 
         for (Transaction transaction : transactions) {
             if (transaction.isExpense()) {
-                totalExpense += transaction.getAmount();
+                totalExpense += transaction.getAmount().getMinorUnits();
             } else {
-                totalIncome += transaction.getAmount();
+                totalIncome += transaction.getAmount().getMinorUnits();
             }
         }
 
-        double balance = totalIncome - totalExpense;
+        long balance = totalIncome - totalExpense;
 
         return new String[][] {
                 {context.getString(R.string.summary_title), ""},
                 {context.getString(R.string.total_income),
-                        String.format(Locale.getDefault(), "%.2f %s", totalIncome, currencySymbol)},
+                        String.format(Locale.getDefault(), "%.2f %s", Money.ofMinor(totalIncome).toDouble(), currencySymbol)},
                 {context.getString(R.string.total_expenses),
-                        String.format(Locale.getDefault(), "%.2f %s", totalExpense, currencySymbol)},
+                        String.format(Locale.getDefault(), "%.2f %s", Money.ofMinor(totalExpense).toDouble(), currencySymbol)},
                 {context.getString(R.string.balance),
-                        String.format(Locale.getDefault(), "%.2f %s", balance, currencySymbol)}
+                        String.format(Locale.getDefault(), "%.2f %s", Money.ofMinor(balance).toDouble(), currencySymbol)}
         };
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.paydaylay.utils;
 
 import android.app.DatePickerDialog;
 import android.content.Context;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
@@ -10,6 +11,9 @@ import android.widget.TextView;
 import androidx.appcompat.app.AlertDialog;
 
 import com.example.paydaylay.R;
+import com.example.paydaylay.database.TransactionRepository;
+import com.example.paydaylay.firebase.AuthManager;
+import com.example.paydaylay.models.Money;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -21,6 +25,7 @@ import java.util.Locale;
  * Umożliwia użytkownikowi wybór daty początkowej i końcowej, a także szybki wybór predefiniowanych zakresów.
  */
 public class DateRangePickerDialog {
+    private static final String TAG = "DateRangePickerDialog";
 
     /**
      * Interfejs do obsługi zdarzeń wyboru zakresu dat.
@@ -39,8 +44,14 @@ public class DateRangePickerDialog {
     private final Calendar startDateCalendar;
     private final Calendar endDateCalendar;
     private final SimpleDateFormat dateFormat;
+    private final TransactionRepository transactionRepository;
+    private final String userId;
+    private final String currencySymbol;
     private TextView startDateText;
     private TextView endDateText;
+    private TextView summaryText;
+    // Odrzuca wyniki dla zakresów, które użytkownik zdążył już zmienić
+    private int summaryRequest;
 
     /**
      * Konstruktor klasy DateRangePickerDialog.
@@ -53,6 +64,9 @@ public class DateRangePickerDialog {
         this.startDateCalendar = Calendar.getInstance();
         this.endDateCalendar = Calendar.getInstance();
         this.dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+        this.transactionRepository = TransactionRepository.getInstance(context);
+        this.userId = new AuthManager().getCurrentUserId();
+        this.currencySymbol = context.getString(R.string.currency_symbol);
 
         // Domyślnie: start = pierwszy dzień miesiąca, koniec = dzisiaj
         startDateCalendar.set(Calendar.DAY_OF_MONTH, 1);
@@ -71,6 +85,7 @@ public class DateRangePickerDialog {
 
         startDateText = dialogView.findViewById(R.id.textViewStartDate);
         endDateText = dialogView.findViewById(R.id.textViewEndDate);
+        summaryText = dialogView.findViewById(R.id.textViewRangeSummary);
         Button buttonStartDate = dialogView.findViewById(R.id.buttonSelectStartDate);
         Button buttonEndDate = dialogView.findViewById(R.id.buttonSelectEndDate);
 
@@ -144,11 +159,62 @@ public class DateRangePickerDialog {
     }
 
     /**
-     * Aktualizuje teksty wyświetlane w polach daty początkowej i końcowej.
+     * Aktualizuje teksty wyświetlane w polach daty początkowej i końcowej
+     * oraz sumę i liczbę transakcji w wybranym zakresie.
      */
     private void updateDateTexts() {
         startDateText.setText(dateFormat.format(startDateCalendar.getTime()));
         endDateText.setText(dateFormat.format(endDateCalendar.getTime()));
+        updateSummary();
+    }
+
+    /**
+     * Odczytuje z indeksu sum dziennych sumy wydatków i przychodów z wybranego zakresu (włącznie z dniem końcowym).
+     */
+    private void updateSummary() {
+        if (userId == null) {
+            return;
+        }
+        int request = ++summaryRequest;
+        transactionRepository.getRangeTotals(userId, startOfDay(startDateCalendar, 0), startOfDay(endDateCalendar, 1),
+                new TransactionRepository.OnRangeTotalsLoadedListener() {
+                    @Override
+                    public void onRangeTotalsLoaded(TransactionRepository.RangeTotals totals) {
+                        if (request != summaryRequest) {
+                            return;
+                        }
+                        summaryText.setText(context.getString(R.string.range_summary,
+                                formatAmount(totals.expenses), totals.expenseCount,
+                                formatAmount(totals.income), totals.incomeCount));
+                        summaryText.setVisibility(View.VISIBLE);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        // Bez pełnej synchronizacji sumy byłyby niepełne - podsumowanie pozostaje ukryte
+                        Log.w(TAG, "Range totals unavailable", e);
+                        if (request == summaryRequest) {
+                            summaryText.setVisibility(View.GONE);
+                        }
+                    }
+                });
+    }
+
+    private String formatAmount(Money amount) {
+        return String.format(Locale.getDefault(), "%.2f %s", amount.toDouble(), currencySymbol);
+    }
+
+    /**
+     * Zwraca północ (czas lokalny) dnia wskazanego przez kalendarz, przesuniętego o podaną liczbę dni.
+     */
+    private static long startOfDay(Calendar date, int dayOffset) {
+        Calendar calendar = (Calendar) date.clone();
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, dayOffset);
+        return calendar.getTimeInMillis();
     }
 
     /**
@@ -19,9 +19,9 @@ import com.example.paydaylay.R;
 import com.example.paydaylay.activities.MainActivity;
 import com.example.paydaylay.models.Budget;
 import com.example.paydaylay.models.Category;
+import com.example.paydaylay.models.Money;
 
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
@@ -85,7 +85,7 @@ public class NotificationUtils {
      * @param currentSpending Aktualne wydatki.
      * @param categoryMap     Mapa kategorii przypisanych do budżetów.
      */
-    public static void showBudgetAlertNotification(Context context, Budget budget, double currentSpending,
+    public static void showBudgetAlertNotification(Context context, Budget budget, Money currentSpending,
                                                    Map<String, Category> categoryMap) {
         if (!areNotificationsEnabled(context)) {
             return;
@@ -121,14 +121,14 @@ public class NotificationUtils {
                 .setSmallIcon(R.drawable.ic_budget_alert)
                 .setContentTitle(context.getString(R.string.budget_alert_title))
                 .setContentText(context.getString(R.string.budget_alert_text,
-                        categoryName, String.format(Locale.getDefault(), "%.2f", currentSpending),
-                        String.format(Locale.getDefault(), "%.2f", budget.getLimit()),
+                        categoryName, String.format(Locale.getDefault(), "%.2f", currentSpending.toDouble()),
+                        String.format(Locale.getDefault(), "%.2f", budget.getLimit().toDouble()),
                         context.getString(R.string.currency_symbol)))
                 .setStyle(new NotificationCompat.BigTextStyle()
                         .bigText(context.getString(R.string.budget_alert_big_text,
                                 categoryName, periodText,
-                                String.format(Locale.getDefault(), "%.2f", currentSpending),
-                                String.format(Locale.getDefault(), "%.2f", budget.getLimit()),
+                                String.format(Locale.getDefault(), "%.2f", currentSpending.toDouble()),
+                                String.format(Locale.getDefault(), "%.2f", budget.getLimit().toDouble()),
                                 context.getString(R.string.currency_symbol))))
                 .setContentIntent(pendingIntent)
                 .setAutoCancel(true)
@@ -158,7 +158,7 @@ public class NotificationUtils {
      * @param categoryMap     Mapa kategorii przypisanych do budżetów.
      */
     public static void showBudgetWarningNotification(Context context, Budget budget,
-                                                     double currentSpending,
+                                                     Money currentSpending,
                                                      Map<String, Category> categoryMap) {
         if (!areNotificationsEnabled(context)) {
             return;
@@ -187,7 +187,7 @@ public class NotificationUtils {
             }
         }
 
-        int percentage = (int) ((currentSpending / budget.getLimit()) * 100);
+        int percentage = (int) currentSpending.percentOf(budget.getLimit());
 
         String periodText = getPeriodText(context, budget);
 
@@ -199,8 +199,8 @@ public class NotificationUtils {
                 .setStyle(new NotificationCompat.BigTextStyle()
                         .bigText(context.getString(R.string.budget_warning_big_text,
                                 categoryName, periodText, percentage,
-                                String.format(Locale.getDefault(), "%.2f", currentSpending),
-                                String.format(Locale.getDefault(), "%.2f", budget.getLimit()),
+                                String.format(Locale.getDefault(), "%.2f", currentSpending.toDouble()),
+                                String.format(Locale.getDefault(), "%.2f", budget.getLimit().toDouble()),
                                 context.getString(R.string.currency_symbol))))
                 .setContentIntent(pendingIntent)
                 .setAutoCancel(true)
@@ -240,27 +240,19 @@ public class NotificationUtils {
      */
     private static String getPeriodText(Context context, Budget budget) {
         SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-        Date startDate = new Date(budget.getPeriodStartDate());
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(budget.getPeriodStartDate());
+        BudgetPeriod.Range period = BudgetPeriod.current(budget);
+        String startText = dateFormat.format(new Date(period.start));
+        String endText = dateFormat.format(new Date(period.getLastInstant()));
 
         switch (budget.getPeriodType()) {
             case Budget.PERIOD_DAILY:
-                return context.getString(R.string.for_day, dateFormat.format(startDate));
+                return context.getString(R.string.for_day, startText);
             case Budget.PERIOD_WEEKLY:
-                calendar.add(Calendar.DAY_OF_YEAR, 6);
-                return context.getString(R.string.for_week,
-                        dateFormat.format(startDate), dateFormat.format(calendar.getTime()));
+                return context.getString(R.string.for_week, startText, endText);
             case Budget.PERIOD_MONTHLY:
-                calendar.add(Calendar.MONTH, 1);
-                calendar.add(Calendar.DAY_OF_MONTH, -1);
-                return context.getString(R.string.for_month,
-                        dateFormat.format(startDate), dateFormat.format(calendar.getTime()));
+                return context.getString(R.string.for_month, startText, endText);
             case Budget.PERIOD_YEARLY:
-                calendar.add(Calendar.YEAR, 1);
-                calendar.add(Calendar.DAY_OF_YEAR, -1);
-                return context.getString(R.string.for_year,
-                        dateFormat.format(startDate), dateFormat.format(calendar.getTime()));
+                return context.getString(R.string.for_year, startText, endText);
             default:
                 return "";
         }
@@ -2,7 +2,6 @@ package com.example.paydaylay.widgets;
 
 import android.appwidget.AppWidgetManager;
 import android.content.Intent;
-import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
@@ -16,11 +15,11 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.paydaylay.R;
 import com.example.paydaylay.adapters.BudgetSelectionAdapter;
+import com.example.paydaylay.database.CategoryDictionary;
 import com.example.paydaylay.firebase.AuthManager;
 import com.example.paydaylay.firebase.DatabaseManager;
 import com.example.paydaylay.models.Budget;
 import com.example.paydaylay.models.Category;
-import com.example.paydaylay.utils.AlarmPermissionHelper;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -51,7 +50,7 @@ public class BudgetWidgetConfigActivity extends AppCompatActivity implements Bud
         setContentView(R.layout.activity_widget_config);
 
         // Inicjalizacja menedżerów
-        databaseManager = new DatabaseManager();
+        databaseManager = DatabaseManager.getInstance();
         authManager = new AuthManager();
 
         // Inicjalizacja widoków
@@ -65,13 +64,6 @@ public class BudgetWidgetConfigActivity extends AppCompatActivity implements Bud
         adapter.setOnBudgetSelectedListener(this);
         recyclerView.setAdapter(adapter);
 
-        // Sprawdź uprawnienia do alarmów
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            if (!AlarmPermissionHelper.checkAlarmPermission(this)) {
-                AlarmPermissionHelper.requestAlarmPermission(this);
-            }
-        }
-
         // Pobieranie ID widgetu z intencji
         appWidgetId = getIntent().getIntExtra(AppWidgetManager.EXTRA_APPWIDGET_ID,
                 AppWidgetManager.INVALID_APPWIDGET_ID);
@@ -102,11 +94,11 @@ public class BudgetWidgetConfigActivity extends AppCompatActivity implements Bud
         showLoading(true);
 
         // Najpierw pobierz kategorie
-        databaseManager.getCategories(userId, new DatabaseManager.OnCategoriesLoadedListener() {
+        CategoryDictionary.getInstance(this).getCategories(userId, new CategoryDictionary.OnCategoriesChangedListener() {
             @Override
-            public void onCategoriesLoaded(List<Category> loadedCategories) {
+            public void onCategoriesChanged(CategoryDictionary.Snapshot snapshot) {
                 categories.clear();
-                categories.addAll(loadedCategories);
+                categories.addAll(snapshot.getList());
 
                 // Następnie pobierz budżety
                 databaseManager.getBudgets(userId, new DatabaseManager.OnBudgetsLoadedListener() {
@@ -140,8 +132,15 @@ public class BudgetWidgetConfigActivity extends AppCompatActivity implements Bud
         BudgetWidgetProvider.saveBudgetIdPref(this, appWidgetId, budget.getId());
 
         // Zapisz dane budżetu w SharedPreferences
+        String categoryName = null;
+        for (Category category : categories) {
+            if (category.getId().equals(budget.getCategoryId())) {
+                categoryName = category.getName();
+                break;
+            }
+        }
         BudgetWidgetDataHelper dataHelper = new BudgetWidgetDataHelper(this);
-        dataHelper.saveBudgetForWidget(appWidgetId, budget);
+        dataHelper.saveBudgetForWidget(appWidgetId, budget, categoryName);
 
         // Aktualizuj widget z wybranym budżetem
         AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(this);
@@ -161,9 +160,7 @@ public class BudgetWidgetConfigActivity extends AppCompatActivity implements Bud
         } else {
             recyclerView.setVisibility(View.VISIBLE);
             textViewNoBudgets.setVisibility(View.GONE);
-            adapter = new BudgetSelectionAdapter(this, budgets, categories);
-            adapter.setOnBudgetSelectedListener(this);
-            recyclerView.setAdapter(adapter);
+            adapter.updateData(budgets, categories);
         }
     }
 
@@ -4,20 +4,26 @@ import android.appwidget.AppWidgetManager;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-import com.example.paydaylay.firebase.DatabaseManager;
+import com.example.paydaylay.database.AppDatabase;
+import com.example.paydaylay.database.CategoryDao;
+import com.example.paydaylay.database.CategoryEntity;
 import com.example.paydaylay.models.Budget;
-import com.example.paydaylay.models.Transaction;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.example.paydaylay.utils.BudgetEngine;
+import com.example.paydaylay.utils.BudgetEvaluator;
+import com.example.paydaylay.utils.BudgetPeriod;
 
-import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Klasa pomocnicza do zarządzania danymi widżetów budżetowych.
@@ -25,15 +31,11 @@ import java.util.List;
  */
 public class BudgetWidgetDataHelper {
     private static final String TAG = "BudgetWidgetDataHelper";
-    private static final String PREFS_NAME = "BudgetWidgetPrefs";
-    private static final String KEY_ALL_BUDGETS = "allBudgets";
-    private static final String KEY_LAST_UPDATE = "lastUpdate";
-    private static final String KEY_BUDGET_PREFIX = "budget_";
 
     private final Context context;
-    private final SharedPreferences prefs;
-    private final Gson gson;
-    private final DatabaseManager databaseManager;
+    private final WidgetStore store;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private BudgetEvaluator budgetEvaluator; // Tworzony dopiero przy odświeżaniu
 
     /**
      * Konstruktor klasy BudgetWidgetDataHelper.
@@ -42,180 +44,282 @@ public class BudgetWidgetDataHelper {
      */
     public BudgetWidgetDataHelper(Context context) {
         this.context = context;
-        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.gson = new Gson();
-        this.databaseManager = new DatabaseManager();
+        this.store = WidgetStore.getInstance(context);
     }
 
     /**
-     * Zapisuje listę wszystkich budżetów w SharedPreferences.
+     * Zapisuje listę wszystkich budżetów w magazynie widżetów.
      *
      * @param budgets Lista budżetów do zapisania.
      */
     public void saveAllBudgets(List<Budget> budgets) {
-        String json = gson.toJson(budgets);
-        prefs.edit().putString(KEY_ALL_BUDGETS, json).apply();
+        store.putAllBudgets(budgets);
     }
 
     /**
-     * Pobiera listę wszystkich zapisanych budżetów z SharedPreferences.
+     * Pobiera listę wszystkich zapisanych budżetów z magazynu widżetów.
      *
      * @return Lista budżetów.
      */
     public List<Budget> getAllBudgets() {
-        String json = prefs.getString(KEY_ALL_BUDGETS, null);
-        if (json == null) {
-            return new ArrayList<>();
-        }
-        Type type = new TypeToken<List<Budget>>(){}.getType();
-        return gson.fromJson(json, type);
+        return store.getAllBudgets();
     }
 
     /**
-     * Zapisuje czas ostatniej aktualizacji danych w SharedPreferences.
+     * Zapisuje czas ostatniej aktualizacji danych w magazynie widżetów.
      *
      * @param timestamp Znacznik czasu ostatniej aktualizacji.
      */
     public void saveLastUpdateTime(long timestamp) {
-        prefs.edit().putLong(KEY_LAST_UPDATE, timestamp).apply();
+        store.putLastUpdate(timestamp);
     }
 
     /**
-     * Pobiera czas ostatniej aktualizacji danych z SharedPreferences.
+     * Pobiera czas ostatniej aktualizacji danych z magazynu widżetów.
      *
      * @return Znacznik czasu ostatniej aktualizacji.
      */
     public long getLastUpdateTime() {
-        return prefs.getLong(KEY_LAST_UPDATE, 0);
+        return store.getLastUpdate();
     }
 
     /**
-     * Aktualizuje wszystkie widżety budżetowe.
+     * Odświeża dane wszystkich widżetów budżetowych po zmianie danych.
+     * Widżety otrzymują tylko zmienione pola - pełny układ rysuje onUpdate.
      */
     public void updateAllWidgets() {
+        updateAllWidgets(null);
+    }
+
+    /**
+     * Odświeża dane wszystkich widżetów budżetowych i powiadamia o zakończeniu odświeżania.
+     *
+     * @param listener Interfejs zwrotny lub null.
+     */
+    public void updateAllWidgets(OnWidgetsRefreshedListener listener) {
         AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
         ComponentName widgetComponent = new ComponentName(context, BudgetWidgetProvider.class);
         int[] appWidgetIds = appWidgetManager.getAppWidgetIds(widgetComponent);
 
         if (appWidgetIds.length > 0) {
-            Intent updateIntent = new Intent(context, BudgetWidgetProvider.class);
-            updateIntent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-            updateIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, appWidgetIds);
-            context.sendBroadcast(updateIntent);
-
-            Log.d(TAG, "Zaktualizowano " + appWidgetIds.length + " widgetów");
+            refreshWidgetBudgets(appWidgetIds, listener);
+            Log.d(TAG, "Odświeżanie " + appWidgetIds.length + " widgetów");
+        } else if (listener != null) {
+            listener.onWidgetsRefreshed();
         }
     }
 
     /**
-     * Zapisuje budżet dla określonego widżetu w SharedPreferences.
+     * Zapisuje budżet wybrany dla widżetu jako jego migawkę i uruchamia odświeżenie wydatków.
      *
-     * @param appWidgetId ID widżetu.
-     * @param budget      Obiekt budżetu do zapisania.
+     * @param appWidgetId  ID widżetu.
+     * @param budget       Obiekt budżetu do zapisania.
+     * @param categoryName Nazwa kategorii budżetu lub null dla budżetu ogólnego.
      */
-    public void saveBudgetForWidget(int appWidgetId, Budget budget) {
+    public void saveBudgetForWidget(int appWidgetId, Budget budget, String categoryName) {
         if (budget == null) {
             Log.e(TAG, "Nie można zapisać pustego budżetu");
             return;
         }
 
-        String budgetJson = gson.toJson(budget);
-        prefs.edit()
-                .putString(KEY_BUDGET_PREFIX + appWidgetId, budgetJson)
-                .apply();
+        store.putSnapshot(appWidgetId, new WidgetSnapshot(budget, categoryName, 0));
 
         Log.d(TAG, "Zapisano budżet dla widgetu ID: " + appWidgetId);
         updateWidget(appWidgetId);
     }
 
     /**
-     * Pobiera budżet zapisany dla określonego widżetu.
+     * Pobiera migawkę danych widżetu - bez zapytań do bazy i sieci.
+     *
+     * @param appWidgetId ID widżetu.
+     * @return Migawka lub null, jeśli widżetowi nie przypisano budżetu.
+     */
+    public WidgetSnapshot getSnapshot(int appWidgetId) {
+        return store.getSnapshot(appWidgetId);
+    }
+
+    /**
+     * Pobiera budżet zapisany dla określonego widżetu (bez odświeżania wydatków -
+     * do tego służy {@link #refreshWidgetBudgets(int[])}).
      *
      * @param appWidgetId ID widżetu.
      * @return Obiekt budżetu lub null, jeśli nie znaleziono.
      */
     public Budget getBudgetForWidget(int appWidgetId) {
-        String budgetJson = prefs.getString(KEY_BUDGET_PREFIX + appWidgetId, null);
-        if (budgetJson == null) {
-            return null;
-        }
-
-        Budget budget = gson.fromJson(budgetJson, Budget.class);
+        WidgetSnapshot snapshot = getSnapshot(appWidgetId);
+        return snapshot != null ? snapshot.getBudget() : null;
+    }
 
-        if (budget != null) {
-            loadTransactionsAndUpdateBudget(budget, appWidgetId);
-        }
+    /**
+     * Usuwa migawkę usuniętego widżetu.
+     *
+     * @param appWidgetId ID widżetu.
+     */
+    public void removeSnapshot(int appWidgetId) {
+        store.removeSnapshot(appWidgetId);
+    }
 
-        return budget;
+    /**
+     * Odświeża migawki wszystkich podanych widżetów w jednym przebiegu: wydatki budżetów są
+     * obliczane jednym zapytaniem na użytkownika, a nazwy kategorii jednym odczytem lokalnej bazy.
+     * Nowe migawki są zapisywane w magazynie widżetów, a ponownie rysowane są tylko widżety,
+     * których dane się zmieniły.
+     *
+     * @param appWidgetIds Identyfikatory widżetów.
+     */
+    public void refreshWidgetBudgets(int[] appWidgetIds) {
+        refreshWidgetBudgets(appWidgetIds, null);
     }
 
     /**
-     * Ładuje transakcje dla budżetu i aktualizuje jego dane.
+     * Odświeża migawki podanych widżetów i powiadamia o zakończeniu odświeżania.
      *
-     * @param budget      Obiekt budżetu.
-     * @param appWidgetId ID widżetu.
+     * @param appWidgetIds Identyfikatory widżetów.
+     * @param listener     Interfejs zwrotny lub null.
      */
-    private void loadTransactionsAndUpdateBudget(Budget budget, int appWidgetId) {
-        if (budget == null || budget.getUserId() == null) {
-            return;
+    public void refreshWidgetBudgets(int[] appWidgetIds, OnWidgetsRefreshedListener listener) {
+        // Budżety widżetów pogrupowane według użytkownika (zwykle jeden)
+        Map<String, List<Budget>> budgetsByUser = new HashMap<>();
+        Map<Budget, Integer> widgetIds = new IdentityHashMap<>();
+        Map<Budget, WidgetSnapshot> snapshots = new IdentityHashMap<>();
+        Set<Budget> rolledBudgets = Collections.newSetFromMap(new IdentityHashMap<>());
+        long now = System.currentTimeMillis();
+        for (int appWidgetId : appWidgetIds) {
+            WidgetSnapshot snapshot = getSnapshot(appWidgetId);
+            if (snapshot == null || snapshot.getBudget() == null || snapshot.getBudget().getUserId() == null) {
+                continue;
+            }
+            Budget budget = snapshot.getBudget();
+            if (BudgetPeriod.rollForward(budget, now)) {
+                // Nowy okres - widżet trzeba przerysować nawet przy niezmienionych wydatkach
+                rolledBudgets.add(budget);
+            }
+            List<Budget> userBudgets = budgetsByUser.get(budget.getUserId());
+            if (userBudgets == null) {
+                userBudgets = new ArrayList<>();
+                budgetsByUser.put(budget.getUserId(), userBudgets);
+            }
+            userBudgets.add(budget);
+            widgetIds.put(budget, appWidgetId);
+            snapshots.put(budget, snapshot);
         }
 
-        Date startDate = new Date(budget.getPeriodStartDate());
-        Calendar endCal = Calendar.getInstance();
-        endCal.setTimeInMillis(budget.getPeriodStartDate());
-
-        switch (budget.getPeriodType()) {
-            case Budget.PERIOD_DAILY:
-                endCal.add(Calendar.DAY_OF_YEAR, 1);
-                break;
-            case Budget.PERIOD_WEEKLY:
-                endCal.add(Calendar.WEEK_OF_YEAR, 1);
-                break;
-            case Budget.PERIOD_MONTHLY:
-                endCal.add(Calendar.MONTH, 1);
-                break;
-            case Budget.PERIOD_YEARLY:
-                endCal.add(Calendar.YEAR, 1);
-                break;
+        if (budgetsByUser.isEmpty()) {
+            if (listener != null) {
+                listener.onWidgetsRefreshed();
+            }
+            return;
         }
 
-        databaseManager.getTransactionsForBudget(
-                budget.getUserId(),
-                budget.getCategoryId(),
-                startDate,
-                endCal.getTime(),
-                new DatabaseManager.OnTransactionsLoadedListener() {
-                    @Override
-                    public void onTransactionsLoaded(List<Transaction> transactions) {
-                        double totalSpent = 0;
-                        for (Transaction transaction : transactions) {
-                            if (transaction.isExpense()) {
-                                totalSpent += transaction.getAmount();
-                            }
+        // Odbiorca jest powiadamiany po obliczeniu budżetów wszystkich użytkowników
+        int[] remaining = {budgetsByUser.size()};
+        Exception[] failure = {null};
+        Runnable onUserDone = () -> {
+            if (--remaining[0] > 0 || listener == null) {
+                return;
+            }
+            if (failure[0] != null) {
+                listener.onError(failure[0]);
+            } else {
+                listener.onWidgetsRefreshed();
+            }
+        };
+
+        for (Map.Entry<String, List<Budget>> entry : budgetsByUser.entrySet()) {
+            getBudgetEvaluator().evaluate(entry.getKey(), entry.getValue(),
+                    new BudgetEvaluator.OnBudgetsEvaluatedListener() {
+                        @Override
+                        public void onBudgetsEvaluated(List<BudgetEvaluator.BudgetResult> results) {
+                            loadCategoryNames(entry.getValue(), names -> {
+                                applyResults(entry.getKey(), results, names, snapshots, widgetIds, rolledBudgets);
+                                onUserDone.run();
+                            });
                         }
 
-                        if (Math.abs(budget.getSpent() - totalSpent) > 0.01) {
-                            budget.setSpent(totalSpent);
+                        @Override
+                        public void onError(Exception e) {
+                            Log.e(TAG, "Błąd przy ładowaniu transakcji: " + e.getMessage());
+                            failure[0] = e;
+                            onUserDone.run();
+                        }
+                    });
+        }
+    }
 
-                            prefs.edit()
-                                    .putString(KEY_BUDGET_PREFIX + appWidgetId, gson.toJson(budget))
-                                    .apply();
+    /**
+     * Odczytuje nazwy kategorii budżetów z lokalnej bazy jednym zapytaniem (w wątku bazy danych)
+     * i przekazuje je do wątku głównego.
+     */
+    private void loadCategoryNames(List<Budget> budgets, Consumer<Map<String, String>> callback) {
+        List<String> categoryIds = new ArrayList<>();
+        for (Budget budget : budgets) {
+            if (budget.getCategoryId() != null) {
+                categoryIds.add(budget.getCategoryId());
+            }
+        }
+        if (categoryIds.isEmpty()) {
+            callback.accept(Collections.emptyMap());
+            return;
+        }
 
-                            Log.d(TAG, "Zaktualizowano wydatki: " + totalSpent + " zł");
+        CategoryDao categoryDao = AppDatabase.getInstance(context).categoryDao();
+        AppDatabase.databaseExecutor.execute(() -> {
+            Map<String, String> names = new HashMap<>();
+            for (CategoryEntity category : categoryDao.getByIds(categoryIds)) {
+                names.put(category.getId(), category.getName());
+            }
+            mainHandler.post(() -> callback.accept(names));
+        });
+    }
 
-                            BudgetNotificationManager notificationManager =
-                                    new BudgetNotificationManager(context);
-                            notificationManager.checkAndShowNotification(budget, appWidgetId);
-                        } else {
-                            Log.d(TAG, "Wydatki bez zmian: " + totalSpent + " zł");
-                        }
-                    }
+    /**
+     * Zapisuje nowe migawki widżetów w magazynie i wysyła do widżetów tylko zmienione pola.
+     * Obliczony stan budżetów jest też przekazywany do oceny progów powiadomień (BudgetEngine).
+     */
+    private void applyResults(String userId, List<BudgetEvaluator.BudgetResult> results, Map<String, String> categoryNames,
+                              Map<Budget, WidgetSnapshot> snapshots, Map<Budget, Integer> widgetIds,
+                              Set<Budget> rolledBudgets) {
+        long now = System.currentTimeMillis();
+        Map<Integer, WidgetSnapshot> previousSnapshots = new HashMap<>();
+        Map<Integer, WidgetSnapshot> newSnapshots = new HashMap<>();
+        for (BudgetEvaluator.BudgetResult result : results) {
+            Budget budget = result.getBudget();
+            WidgetSnapshot previous = snapshots.get(budget);
+            int appWidgetId = widgetIds.get(budget);
 
-                    @Override
-                    public void onError(Exception e) {
-                        Log.e(TAG, "Błąd przy ładowaniu transakcji: " + e.getMessage());
-                    }
-                });
+            String categoryName = categoryNames.get(budget.getCategoryId());
+            if (categoryName == null) {
+                categoryName = previous.getCategoryName();
+            }
+            WidgetSnapshot snapshot = new WidgetSnapshot(budget, categoryName, result.getSpent(),
+                    budget.getLimit(), now);
+            store.putSnapshot(appWidgetId, snapshot);
+            previousSnapshots.put(appWidgetId, previous);
+            newSnapshots.put(appWidgetId, snapshot);
+        }
+
+        BudgetEngine.getInstance(context).applyResults(userId, results);
+
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        for (Map.Entry<Integer, WidgetSnapshot> entry : newSnapshots.entrySet()) {
+            int appWidgetId = entry.getKey();
+            WidgetSnapshot snapshot = entry.getValue();
+            WidgetSnapshot previous = previousSnapshots.get(appWidgetId);
+
+            if (rolledBudgets.contains(snapshot.getBudget()) || !snapshot.getSpent().equals(previous.getSpent())) {
+                Log.d(TAG, "Zaktualizowano wydatki: " + snapshot.getSpent() + " zł");
+            }
+            if (!BudgetWidgetProvider.renderChanges(context, appWidgetManager, appWidgetId, previous, snapshot)) {
+                Log.d(TAG, "Widget bez zmian: " + appWidgetId);
+            }
+        }
+    }
+
+    private BudgetEvaluator getBudgetEvaluator() {
+        if (budgetEvaluator == null) {
+            budgetEvaluator = new BudgetEvaluator(context);
+        }
+        return budgetEvaluator;
     }
 
     /**
@@ -230,4 +334,12 @@ public class BudgetWidgetDataHelper {
         updateIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, new int[] { appWidgetId });
         context.sendBroadcast(updateIntent);
     }
-}
\ No newline at end of file
+
+    /**
+     * Interfejs zwrotny zakończenia odświeżania widżetów.
+     */
+    public interface OnWidgetsRefreshedListener {
+        void onWidgetsRefreshed();
+        void onError(Exception e);
+    }
+}
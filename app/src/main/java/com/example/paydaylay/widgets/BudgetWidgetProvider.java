@@ -12,9 +12,8 @@ import android.widget.RemoteViews;
 
 import com.example.paydaylay.R;
 import com.example.paydaylay.activities.MainActivity;
-import com.example.paydaylay.firebase.DatabaseManager;
-import com.example.paydaylay.models.Budget;
-import com.example.paydaylay.models.Category;
+import com.example.paydaylay.models.Money;
+import com.example.paydaylay.services.BackgroundScheduler;
 
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
@@ -26,84 +25,51 @@ public class BudgetWidgetProvider extends AppWidgetProvider {
     private static final String PREFS_NAME = "com.example.paydaylay.widgets.BudgetWidget";
     private static final String PREF_PREFIX_KEY = "budgetwidget_";
 
+    /**
+     * Rysuje widżety wyłącznie z zapisanych migawek (bez zapytań do bazy i sieci w wątku odbiornika),
+     * a następnie uruchamia jedno wspólne odświeżenie migawek wszystkich widżetów w tle.
+     */
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        // Aktualizuj każdy widget
+        BudgetWidgetDataHelper dataHelper = new BudgetWidgetDataHelper(context);
         for (int appWidgetId : appWidgetIds) {
-            // Pobierz dane budżetu dla tego widgetu
-            BudgetWidgetDataHelper dataHelper = new BudgetWidgetDataHelper(context);
-            Budget budget = dataHelper.getBudgetForWidget(appWidgetId);
-
-            if (budget != null) {
-                updateBudgetWidget(context, appWidgetManager, appWidgetId, budget);
+            WidgetSnapshot snapshot = dataHelper.getSnapshot(appWidgetId);
+            if (snapshot != null) {
+                renderSnapshot(context, appWidgetManager, appWidgetId, snapshot);
             } else {
                 // Brak konkretnego budżetu dla widgetu - pokaż ogólny stan
                 updateWidgetWithEmptyState(context, appWidgetManager, appWidgetId);
             }
         }
+
+        // Odśwież wydatki wszystkich widżetów jednym zapytaniem
+        dataHelper.refreshWidgetBudgets(appWidgetIds);
     }
 
-    // Metoda do aktualizacji widgetu z danymi budżetu
-    private static void updateBudgetWidget(Context context, AppWidgetManager appWidgetManager,
-                                           int appWidgetId, Budget budget) {
+    /**
+     * Rysuje pełny układ widżetu z migawki danych budżetu.
+     * Używane, gdy system wymaga pełnego widoku (onUpdate, konfiguracja widżetu) -
+     * zmiany danych po odświeżeniu są wysyłane przez {@link #renderChanges}.
+     *
+     * @param context          Kontekst aplikacji.
+     * @param appWidgetManager Menedżer widżetów.
+     * @param appWidgetId      ID widżetu.
+     * @param snapshot         Migawka danych widżetu.
+     */
+    static void renderSnapshot(Context context, AppWidgetManager appWidgetManager, int appWidgetId,
+                               WidgetSnapshot snapshot) {
         // Utwórz widok
         RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.budget_widget);
 
-        // Ustaw tytuł widgetu
-        if (budget.getCategoryId() != null) {
-            // Pobierz nazwę kategorii (opcjonalnie)
-            DatabaseManager dbManager = new DatabaseManager();
-            dbManager.getCategoryById(budget.getCategoryId(), new DatabaseManager.OnCategoryLoadedListener() {
-                @Override
-                public void onCategoryLoaded(Category category) {
-                    if (category != null) {
-                        RemoteViews updateViews = new RemoteViews(context.getPackageName(), R.layout.budget_widget);
-                        updateViews.setTextViewText(R.id.textViewWidgetCategory, category.getName());
-                        appWidgetManager.updateAppWidget(appWidgetId, updateViews);
-                    }
-                }
-
-                @Override
-                public void onError(Exception e) {
-                    Log.e("BudgetWidget", "Error loading category", e);
-                }
-            });
-        } else {
-            views.setTextViewText(R.id.textViewWidgetCategory, context.getString(R.string.overall_budget));
-        }
-
-        // Ustaw wartości budżetu
         views.setTextViewText(R.id.textViewWidgetTitle, context.getString(R.string.budget_status));
-
-        // Formatuj kwoty budżetu
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
-        double spent = budget.getSpent();
-        double limit = budget.getLimit();
-        double remaining = limit - spent;
-
-        views.setTextViewText(R.id.textViewWidgetAmount,
-                currencyFormat.format(spent) + " / " + currencyFormat.format(limit));
-
-        // Ustaw kwoty wydane i pozostałe
-        views.setTextViewText(R.id.textViewWidgetSpent,
-                context.getString(R.string.spent) + ": " + currencyFormat.format(spent));
-        views.setTextViewText(R.id.textViewWidgetRemaining,
-                context.getString(R.string.remaining) + ": " + currencyFormat.format(remaining));
-
-        // Ustaw pasek postępu
-        int progressPercent = (int) (limit > 0 ? (spent / limit * 100) : 0);
-        progressPercent = Math.min(100, progressPercent); // Limit do 100%
-        views.setProgressBar(R.id.progressBarBudget, 100, progressPercent, false);
-
-        // Ustaw datę ostatniej aktualizacji
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm", Locale.getDefault());
-        String lastUpdated = context.getString(R.string.updated) + ": " + dateFormat.format(new Date());
-        views.setTextViewText(R.id.textViewWidgetLastUpdated, lastUpdated);
+        views.setTextViewText(R.id.textViewWidgetCategory, categoryText(context, snapshot));
+        setAmounts(context, views, snapshot);
+        views.setTextViewText(R.id.textViewWidgetLastUpdated, renderedAtText(context, snapshot));
 
         // Dodaj interakcję - kliknięcie otwiera aplikację
         Intent intent = new Intent(context, MainActivity.class);
         intent.putExtra("OPEN_BUDGET_TAB", true);
-        intent.putExtra("BUDGET_ID", budget.getId());
+        intent.putExtra("BUDGET_ID", snapshot.getBudget().getId());
         PendingIntent pendingIntent = PendingIntent.getActivity(context, appWidgetId, intent,
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
         views.setOnClickPendingIntent(R.id.widget_root, pendingIntent);
@@ -113,8 +79,83 @@ public class BudgetWidgetProvider extends AppWidgetProvider {
 
         // Log dla debugowania
         Log.d(TAG, "Widget zaktualizowany. ID: " + appWidgetId +
-                ", Budżet: " + limit + ", Wydatki: " + spent +
-                ", Procent: " + progressPercent + "%");
+                ", Budżet: " + snapshot.getLimit() + ", Wydatki: " + snapshot.getSpent());
+    }
+
+    /**
+     * Wysyła do widżetu tylko pola, które różnią się między narysowaną a nową migawką
+     * (nazwa kategorii, kwoty, czas obliczenia), przez partiallyUpdateAppWidget -
+     * bez ponownego tworzenia całego układu.
+     *
+     * @param context          Kontekst aplikacji.
+     * @param appWidgetManager Menedżer widżetów.
+     * @param appWidgetId      ID widżetu.
+     * @param previous         Migawka, z której widżet został narysowany.
+     * @param current          Nowa migawka.
+     * @return True, jeśli wysłano jakąkolwiek zmianę.
+     */
+    static boolean renderChanges(Context context, AppWidgetManager appWidgetManager, int appWidgetId,
+                                 WidgetSnapshot previous, WidgetSnapshot current) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.budget_widget);
+        boolean changed = false;
+
+        String category = categoryText(context, current);
+        if (!category.equals(categoryText(context, previous))) {
+            views.setTextViewText(R.id.textViewWidgetCategory, category);
+            changed = true;
+        }
+        if (!current.getSpent().equals(previous.getSpent()) || !current.getLimit().equals(previous.getLimit())) {
+            setAmounts(context, views, current);
+            changed = true;
+        }
+        String renderedAt = renderedAtText(context, current);
+        if (!renderedAt.equals(renderedAtText(context, previous))) {
+            views.setTextViewText(R.id.textViewWidgetLastUpdated, renderedAt);
+            changed = true;
+        }
+
+        if (changed) {
+            appWidgetManager.partiallyUpdateAppWidget(appWidgetId, views);
+        }
+        return changed;
+    }
+
+    private static String categoryText(Context context, WidgetSnapshot snapshot) {
+        if (snapshot.getBudget().getCategoryId() == null) {
+            return context.getString(R.string.overall_budget);
+        }
+        return snapshot.getCategoryName() != null ? snapshot.getCategoryName() : context.getString(R.string.loading);
+    }
+
+    /**
+     * Ustawia kwoty budżetu (wydane / limit, wydane, pozostałe) i pasek postępu.
+     */
+    private static void setAmounts(Context context, RemoteViews views, WidgetSnapshot snapshot) {
+        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
+        Money spent = snapshot.getSpent();
+        Money limit = snapshot.getLimit();
+        Money remaining = limit.minus(spent);
+
+        views.setTextViewText(R.id.textViewWidgetAmount,
+                currencyFormat.format(spent.toDouble()) + " / " + currencyFormat.format(limit.toDouble()));
+        views.setTextViewText(R.id.textViewWidgetSpent,
+                context.getString(R.string.spent) + ": " + currencyFormat.format(spent.toDouble()));
+        views.setTextViewText(R.id.textViewWidgetRemaining,
+                context.getString(R.string.remaining) + ": " + currencyFormat.format(remaining.toDouble()));
+
+        int progressPercent = (int) spent.percentOf(limit);
+        progressPercent = Math.min(100, progressPercent); // Limit do 100%
+        views.setProgressBar(R.id.progressBarBudget, 100, progressPercent, false);
+    }
+
+    /**
+     * Zwraca tekst daty obliczenia danych (przed pierwszym odświeżeniem - bieżącą).
+     * Dokładność do minuty, więc odświeżenia w tej samej minucie nie zmieniają widżetu.
+     */
+    private static String renderedAtText(Context context, WidgetSnapshot snapshot) {
+        long renderedAt = snapshot.getRenderedAt() > 0 ? snapshot.getRenderedAt() : System.currentTimeMillis();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm", Locale.getDefault());
+        return context.getString(R.string.updated) + ": " + dateFormat.format(new Date(renderedAt));
     }
 
     // Metoda do wyświetlenia pustego stanu widgetu
@@ -147,13 +188,16 @@ public class BudgetWidgetProvider extends AppWidgetProvider {
     }
 
     static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
-        // Pobierz dane budżetu dla tego widgetu
-        BudgetWidgetDataHelper dataHelper = new BudgetWidgetDataHelper(context);
-        Budget budget = dataHelper.getBudgetForWidget(appWidgetId);
+        // Pobierz migawkę danych tego widgetu
+        updateAppWidget(context, appWidgetManager, appWidgetId,
+                new BudgetWidgetDataHelper(context).getSnapshot(appWidgetId));
+    }
 
-        if (budget != null) {
+    private static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId,
+                                        WidgetSnapshot snapshot) {
+        if (snapshot != null) {
             // Mamy dane budżetu - aktualizujemy widget
-            updateBudgetWidget(context, appWidgetManager, appWidgetId, budget);
+            renderSnapshot(context, appWidgetManager, appWidgetId, snapshot);
 
             // Log dla celów debugowania
             Log.d(TAG, "Zaktualizowano budżet dla widgetu ID: " + appWidgetId);
@@ -186,16 +230,28 @@ public class BudgetWidgetProvider extends AppWidgetProvider {
         }
     }
 
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        // Usuwa dane usuniętych widgetów
+        BudgetWidgetDataHelper dataHelper = new BudgetWidgetDataHelper(context);
+        for (int appWidgetId : appWidgetIds) {
+            dataHelper.removeSnapshot(appWidgetId);
+            deleteBudgetIdPref(context, appWidgetId);
+        }
+    }
+
     @Override
     public void onEnabled(Context context) {
         // Wywoływane przy dodaniu pierwszego widgetu
         Log.d(TAG, "Widget enabled");
+        BackgroundScheduler.scheduleWidgetRefresh(context);
     }
 
     @Override
     public void onDisabled(Context context) {
         // Wywoływane gdy wszystkie widgety zostaną usunięte
         Log.d(TAG, "Widget disabled");
+        BackgroundScheduler.cancelWidgetRefresh(context);
     }
 
     // Zapisuje ID budżetu dla danego widgetu
@@ -219,9 +275,11 @@ public class BudgetWidgetProvider extends AppWidgetProvider {
     }
 
     public static void updateAppWidgets(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        BudgetWidgetDataHelper dataHelper = new BudgetWidgetDataHelper(context);
         for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
+            updateAppWidget(context, appWidgetManager, appWidgetId, dataHelper.getSnapshot(appWidgetId));
         }
+        dataHelper.refreshWidgetBudgets(appWidgetIds);
     }
 
     public static ComponentName getComponentName(Context context) {
@@ -0,0 +1,61 @@
+package com.example.paydaylay.widgets;
+
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Money;
+
+/**
+ * Migawka danych jednego widżetu budżetowego: budżet, nazwa kategorii, wydatki, limit
+ * oraz chwila obliczenia. Wydatki i limit są kopiowane z budżetu przy tworzeniu migawki,
+ * więc późniejsze zmiany obiektu budżetu nie zmieniają narysowanych wartości.
+ * Widżet jest rysowany wyłącznie z migawki - bez zapytań do bazy i sieci.
+ * Migawki są obliczane wspólnym odświeżeniem wszystkich widżetów (BudgetWidgetDataHelper.refreshWidgetBudgets).
+ */
+public class WidgetSnapshot {
+    private Budget budget;
+    private String categoryName; // Null dla budżetu ogólnego lub gdy nazwa nie jest jeszcze znana
+    private Money spent;
+    private Money limit;
+    private long renderedAt; // Chwila obliczenia wydatków; 0 - jeszcze nie obliczono
+
+    /**
+     * Konstruktor domyślny wymagany przez Gson przy migracji danych zapisanych jako JSON.
+     */
+    public WidgetSnapshot() {
+    }
+
+    public WidgetSnapshot(Budget budget, String categoryName, long renderedAt) {
+        this.budget = budget;
+        this.categoryName = categoryName;
+        this.spent = budget.getSpent();
+        this.limit = budget.getLimit();
+        this.renderedAt = renderedAt;
+    }
+
+    WidgetSnapshot(Budget budget, String categoryName, Money spent, Money limit, long renderedAt) {
+        this.budget = budget;
+        this.categoryName = categoryName;
+        this.spent = spent;
+        this.limit = limit;
+        this.renderedAt = renderedAt;
+    }
+
+    public Budget getBudget() {
+        return budget;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public long getRenderedAt() {
+        return renderedAt;
+    }
+
+    public Money getSpent() {
+        return spent != null ? spent : budget.getSpent();
+    }
+
+    public Money getLimit() {
+        return limit != null ? limit : budget.getLimit();
+    }
+}
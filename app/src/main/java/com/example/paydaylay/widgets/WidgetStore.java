@@ -0,0 +1,310 @@
+package com.example.paydaylay.widgets;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Money;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Binarny magazyn danych widżetów budżetowych.
+ * Każdy rekord (migawka widżetu, lista budżetów, czas aktualizacji) jest osobnym plikiem
+ * w katalogu widgets, zapisanym strumieniem DataOutputStream z numerem wersji formatu na początku -
+ * odczyt migawki jednego widżetu czyta tylko jej plik, bez refleksji i bez parsowania całego
+ * pliku XML preferencji. Zapisy są wykonywane asynchronicznie w jednym wątku (AtomicFile);
+ * do czasu zapisania pliku odczyty zwracają dane z kolejki zapisu.
+ */
+final class WidgetStore {
+    private static final String TAG = "WidgetStore";
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String DIRECTORY = "widgets";
+    private static final String ALL_BUDGETS_FILE = "all_budgets";
+    private static final String LAST_UPDATE_FILE = "last_update";
+    private static final String SNAPSHOT_PREFIX = "snapshot_";
+
+    // Preferencje, w których dane widżetów były zapisywane jako JSON przed wprowadzeniem magazynu
+    private static final String LEGACY_PREFS_NAME = "BudgetWidgetPrefs";
+
+    // Znacznik usuniętego rekordu w kolejce zapisu
+    private static final byte[] DELETED = new byte[0];
+
+    private static volatile WidgetStore instance;
+
+    private final File directory;
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+    // Zawartość rekordów oczekujących na zapis, według nazwy pliku
+    private final Map<String, byte[]> pending = new ConcurrentHashMap<>();
+
+    private WidgetStore(Context context) {
+        directory = new File(context.getFilesDir(), DIRECTORY);
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create widget store directory");
+        }
+        migrateLegacyPreferences(context);
+    }
+
+    /**
+     * Pobiera współdzieloną instancję magazynu.
+     *
+     * @param context Kontekst aplikacji.
+     * @return Instancja WidgetStore.
+     */
+    static WidgetStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (WidgetStore.class) {
+                if (instance == null) {
+                    instance = new WidgetStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Odczytuje migawkę widżetu.
+     *
+     * @param appWidgetId ID widżetu.
+     * @return Migawka lub null, jeśli widżetowi nie przypisano budżetu.
+     */
+    WidgetSnapshot getSnapshot(int appWidgetId) {
+        return read(SNAPSHOT_PREFIX + appWidgetId, WidgetStore::readSnapshot);
+    }
+
+    /**
+     * Zapisuje migawkę widżetu (asynchronicznie).
+     *
+     * @param appWidgetId ID widżetu.
+     * @param snapshot    Migawka.
+     */
+    void putSnapshot(int appWidgetId, WidgetSnapshot snapshot) {
+        write(SNAPSHOT_PREFIX + appWidgetId, out -> writeSnapshot(out, snapshot));
+    }
+
+    /**
+     * Usuwa migawkę widżetu (asynchronicznie).
+     *
+     * @param appWidgetId ID widżetu.
+     */
+    void removeSnapshot(int appWidgetId) {
+        String name = SNAPSHOT_PREFIX + appWidgetId;
+        pending.put(name, DELETED);
+        writeExecutor.execute(() -> {
+            new AtomicFile(new File(directory, name)).delete();
+            pending.remove(name, DELETED);
+        });
+    }
+
+    List<Budget> getAllBudgets() {
+        List<Budget> budgets = read(ALL_BUDGETS_FILE, in -> {
+            int count = in.readInt();
+            List<Budget> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                list.add(readBudget(in));
+            }
+            return list;
+        });
+        return budgets != null ? budgets : new ArrayList<>();
+    }
+
+    void putAllBudgets(List<Budget> budgets) {
+        write(ALL_BUDGETS_FILE, out -> {
+            out.writeInt(budgets.size());
+            for (Budget budget : budgets) {
+                writeBudget(out, budget);
+            }
+        });
+    }
+
+    long getLastUpdate() {
+        Long lastUpdate = read(LAST_UPDATE_FILE, DataInputStream::readLong);
+        return lastUpdate != null ? lastUpdate : 0;
+    }
+
+    void putLastUpdate(long timestamp) {
+        write(LAST_UPDATE_FILE, out -> out.writeLong(timestamp));
+    }
+
+    // Zapis i odczyt rekordów
+
+    private interface Encoder {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface Decoder<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Koduje rekord w wątku wywołującego i zleca zapis pliku w wątku magazynu.
+     */
+    private void write(String name, Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            encoder.write(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot encode " + name, e);
+            return;
+        }
+        byte[] data = bytes.toByteArray();
+        pending.put(name, data);
+        writeExecutor.execute(() -> {
+            writeFile(name, data);
+            // Nowszy zapis tego samego rekordu pozostaje w kolejce
+            pending.remove(name, data);
+        });
+    }
+
+    private void writeFile(String name, byte[] data) {
+        AtomicFile file = new AtomicFile(new File(directory, name));
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            stream.write(data);
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write " + name, e);
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    private <T> T read(String name, Decoder<T> decoder) {
+        byte[] data = pending.get(name);
+        if (data == DELETED) {
+            return null;
+        }
+        try {
+            if (data == null) {
+                data = new AtomicFile(new File(directory, name)).readFully();
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            return decoder.read(in);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read " + name, e);
+            return null;
+        }
+    }
+
+    private static void writeSnapshot(DataOutputStream out, WidgetSnapshot snapshot) throws IOException {
+        writeBudget(out, snapshot.getBudget());
+        writeNullableString(out, snapshot.getCategoryName());
+        out.writeLong(minorUnits(snapshot.getSpent()));
+        out.writeLong(minorUnits(snapshot.getLimit()));
+        out.writeLong(snapshot.getRenderedAt());
+    }
+
+    private static WidgetSnapshot readSnapshot(DataInputStream in) throws IOException {
+        Budget budget = readBudget(in);
+        String categoryName = readNullableString(in);
+        Money spent = Money.ofMinor(in.readLong());
+        Money limit = Money.ofMinor(in.readLong());
+        long renderedAt = in.readLong();
+        return new WidgetSnapshot(budget, categoryName, spent, limit, renderedAt);
+    }
+
+    private static void writeBudget(DataOutputStream out, Budget budget) throws IOException {
+        writeNullableString(out, budget.getId());
+        writeNullableString(out, budget.getUserId());
+        writeNullableString(out, budget.getCategoryId());
+        out.writeLong(minorUnits(budget.getLimit()));
+        out.writeLong(minorUnits(budget.getSpent()));
+        out.writeLong(budget.getPeriodStartDate());
+        out.writeInt(budget.getPeriodType());
+        out.writeLong(budget.getCreatedAt());
+    }
+
+    private static Budget readBudget(DataInputStream in) throws IOException {
+        Budget budget = new Budget();
+        budget.setId(readNullableString(in));
+        budget.setUserId(readNullableString(in));
+        budget.setCategoryId(readNullableString(in));
+        budget.setLimit(Money.ofMinor(in.readLong()));
+        budget.setSpent(Money.ofMinor(in.readLong()));
+        budget.setPeriodStartDate(in.readLong());
+        budget.setPeriodType(in.readInt());
+        budget.setCreatedAt(in.readLong());
+        return budget;
+    }
+
+    // Kwoty odczytane ze starego JSON mogą być puste
+    private static long minorUnits(Money money) {
+        return money != null ? money.getMinorUnits() : 0;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Jednorazowo przenosi dane widżetów zapisane jako JSON w SharedPreferences do magazynu
+     * i usuwa plik preferencji.
+     */
+    private void migrateLegacyPreferences(Context context) {
+        File legacyFile = new File(new File(context.getApplicationInfo().dataDir, "shared_prefs"),
+                LEGACY_PREFS_NAME + ".xml");
+        if (!legacyFile.exists()) {
+            return;
+        }
+
+        SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+        Gson gson = new Gson();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            try {
+                if (key.equals("allBudgets") && value instanceof String) {
+                    List<Budget> budgets = gson.fromJson((String) value, new TypeToken<List<Budget>>(){}.getType());
+                    putAllBudgets(budgets != null ? budgets : Collections.emptyList());
+                } else if (key.equals("lastUpdate") && value instanceof Long) {
+                    putLastUpdate((Long) value);
+                } else if (key.startsWith("snapshot_") && value instanceof String) {
+                    int appWidgetId = Integer.parseInt(key.substring("snapshot_".length()));
+                    putSnapshot(appWidgetId, gson.fromJson((String) value, WidgetSnapshot.class));
+                } else if (key.startsWith("budget_") && value instanceof String
+                        && !prefs.contains("snapshot_" + key.substring("budget_".length()))) {
+                    int appWidgetId = Integer.parseInt(key.substring("budget_".length()));
+                    putSnapshot(appWidgetId, new WidgetSnapshot(gson.fromJson((String) value, Budget.class), null, 0));
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Skipping legacy widget entry " + key, e);
+            }
+        }
+        writeExecutor.execute(() -> context.deleteSharedPreferences(LEGACY_PREFS_NAME));
+        Log.d(TAG, "Migrated widget data from SharedPreferences");
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.paydaylay.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testy indeksu sum dziennych - przeliczania kluczy dni, zakresu indeksu i zapytań o sumy.
+ */
+public class DailyTotalsIndexTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final int TODAY = 20240615;
+
+    @Test
+    public void epochDay_matchesKnownDates() {
+        assertEquals(0, DailyTotalsIndex.epochDay(19700101));
+        assertEquals(-1, DailyTotalsIndex.epochDay(19691231));
+        assertEquals(59, DailyTotalsIndex.epochDay(19700301));
+        assertEquals(10957, DailyTotalsIndex.epochDay(20000101));
+        assertEquals(-719162, DailyTotalsIndex.epochDay(10101));
+    }
+
+    @Test
+    public void epochDay_countsLeapDays() {
+        // 2000 jest przestępny (podzielny przez 400), 1900 i 2100 nie są
+        assertEquals(1, DailyTotalsIndex.epochDay(20000301) - DailyTotalsIndex.epochDay(20000229));
+        assertEquals(2, DailyTotalsIndex.epochDay(20000301) - DailyTotalsIndex.epochDay(20000228));
+        assertEquals(1, DailyTotalsIndex.epochDay(19000301) - DailyTotalsIndex.epochDay(19000228));
+        assertEquals(1, DailyTotalsIndex.epochDay(21000301) - DailyTotalsIndex.epochDay(21000228));
+        assertEquals(366, DailyTotalsIndex.epochDay(20250101) - DailyTotalsIndex.epochDay(20240101));
+        assertEquals(365, DailyTotalsIndex.epochDay(20240101) - DailyTotalsIndex.epochDay(20230101));
+    }
+
+    @Test
+    public void epochDay_agreesWithDayKeyForEveryDayFrom1900To2100() {
+        Calendar calendar = new GregorianCalendar(UTC);
+        calendar.clear();
+        calendar.set(1900, Calendar.JANUARY, 1);
+        long timestamp = calendar.getTimeInMillis();
+        int expected = (int) Math.floorDiv(timestamp, DAY_MS);
+        for (int i = 0; i < 73_000; i++, timestamp += DAY_MS, expected++) {
+            int dayKey = DailyTotalEntity.dayKey(timestamp);
+            assertEquals("day " + dayKey, expected, DailyTotalsIndex.epochDay(dayKey));
+        }
+    }
+
+    @Test
+    public void sum_returnsTotalsPerTypeAndCategory() {
+        List<DailyTotalEntity> rows = new ArrayList<>();
+        rows.add(row(20240601, "food", true, 1000, 2));
+        rows.add(row(20240603, "food", true, 500, 1));
+        rows.add(row(20240603, "rent", true, 200_000, 1));
+        rows.add(row(20240610, null, false, 800_000, 1));
+        DailyTotalsIndex index = DailyTotalsIndex.build(rows, TODAY);
+
+        assertTotal(201_500, 4, index.sum(null, true, 20240601, 20240701));
+        assertTotal(800_000, 1, index.sum(null, false, 20240601, 20240701));
+        assertTotal(1500, 3, index.sum("food", true, 20240601, 20240701));
+        assertTotal(0, 0, index.sum("food", false, 20240601, 20240701));
+        assertTotal(0, 0, index.sum("unknown", true, 20240601, 20240701));
+
+        // Dzień końcowy nie należy do zakresu
+        assertTotal(1000, 2, index.sum("food", true, 20240601, 20240603));
+        assertTotal(500, 1, index.sum("food", true, 20240603, 20240604));
+        assertTotal(0, 0, index.sum(null, true, 20240604, 20240610));
+        assertTotal(0, 0, index.sum(null, true, 20240603, 20240603));
+    }
+
+    @Test
+    public void sum_clampsRangeToIndex() {
+        DailyTotalsIndex index = DailyTotalsIndex.build(
+                Collections.singletonList(row(20240601, "food", true, 1000, 1)), TODAY);
+
+        assertTotal(1000, 1, index.sum(null, true, 19000101, 21000101));
+        assertTotal(0, 0, index.sum(null, true, 19000101, 19010101));
+    }
+
+    @Test
+    public void add_updatesSumsAndCanBeReverted() {
+        DailyTotalsIndex index = DailyTotalsIndex.build(new ArrayList<>(), TODAY);
+        TransactionEntity entity = transaction("tx-1", 2_500, 20240614, "food", true);
+
+        assertTrue(index.add(entity, 1));
+        assertTotal(2_500, 1, index.sum("food", true, 20240614, 20240615));
+        assertTotal(2_500, 1, index.sum(null, true, 20240101, 20250101));
+
+        assertTrue(index.add(entity, -1));
+        assertTotal(0, 0, index.sum("food", true, 20240614, 20240615));
+        assertTotal(0, 0, index.sum(null, true, 20240101, 20250101));
+    }
+
+    @Test
+    public void add_acceptsDaysWithinMarginAndRejectsDaysBeyondIt() {
+        // Indeks zbudowany bez wierszy obejmuje MARGIN_DAYS (366) dni przed i po dniu bieżącym
+        DailyTotalsIndex index = DailyTotalsIndex.build(new ArrayList<>(), TODAY);
+        long today = timestamp(TODAY);
+
+        assertTrue(index.add(transaction("tx-1", 100, today - 366 * DAY_MS), 1));
+        assertTrue(index.add(transaction("tx-2", 100, today + 366 * DAY_MS), 1));
+        assertFalse(index.add(transaction("tx-3", 100, today - 367 * DAY_MS), 1));
+        assertFalse(index.add(transaction("tx-4", 100, today + 367 * DAY_MS), 1));
+
+        assertTotal(200, 2, index.sum(null, true, 20200101, 20300101));
+    }
+
+    @Test
+    public void build_extendsRangeToOldestRow() {
+        DailyTotalsIndex index = DailyTotalsIndex.build(
+                Collections.singletonList(row(19650310, null, true, 700, 1)), TODAY);
+
+        // Najstarszy wiersz przesuwa początek indeksu, a margines obejmuje rok wcześniej
+        assertTrue(index.add(transaction("tx-1", 300, timestamp(19640310)), 1));
+        assertFalse(index.add(transaction("tx-2", 300, timestamp(19640308)), 1));
+        assertTotal(1000, 2, index.sum(null, true, 19640101, 19660101));
+    }
+
+    private static DailyTotalEntity row(int day, String categoryId, boolean isExpense, long total, int count) {
+        DailyTotalEntity row = new DailyTotalEntity();
+        row.setUserId("user");
+        row.setDay(day);
+        row.setCategoryId(categoryId);
+        row.setExpense(isExpense);
+        row.setTotal(total);
+        row.setCount(count);
+        return row;
+    }
+
+    private static TransactionEntity transaction(String id, long amountMinor, int dayKey, String categoryId,
+                                                 boolean isExpense) {
+        return new TransactionEntity(id, amountMinor, timestamp(dayKey) + DAY_MS / 2, categoryId, null, "user",
+                isExpense);
+    }
+
+    private static TransactionEntity transaction(String id, long amountMinor, long dateTimestamp) {
+        return new TransactionEntity(id, amountMinor, dateTimestamp, null, null, "user", true);
+    }
+
+    private static long timestamp(int dayKey) {
+        Calendar calendar = new GregorianCalendar(UTC);
+        calendar.clear();
+        calendar.set(dayKey / 10000, dayKey / 100 % 100 - 1, dayKey % 100);
+        return calendar.getTimeInMillis();
+    }
+
+    private static void assertTotal(long amount, int count, DailyTotalsIndex.RangeTotal total) {
+        assertEquals(amount, total.amount);
+        assertEquals(count, total.count);
+    }
+}
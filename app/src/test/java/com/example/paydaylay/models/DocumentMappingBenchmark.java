@@ -0,0 +1,55 @@
+package com.example.paydaylay.models;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pomiar mapowania transakcji z danych dokumentu (DocumentSnapshot.getData()) przez Transaction.fromMap -
+ * tą samą ścieżką, którą DatabaseManager parsuje wyniki zapytań.
+ * Wynik (ns na dokument) jest wypisywany na standardowe wyjście; test sprawdza tylko poprawność sumy.
+ */
+public class DocumentMappingBenchmark {
+    private static final int DOCUMENTS = 10_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    @Test
+    public void mapTransactionsFromDocumentData() {
+        List<Map<String, Object>> documents = new ArrayList<>(DOCUMENTS);
+        long expectedTotal = 0;
+        for (int i = 0; i < DOCUMENTS; i++) {
+            long amount = 100 + i % 10_000;
+            expectedTotal += amount;
+            Transaction transaction = new Transaction(Money.ofMinor(amount), new Date(1_700_000_000_000L + i * 60_000L),
+                    "category-" + i % 12, "Transakcja " + i, "user", i % 3 != 0);
+            documents.add(DocumentMappingTest.firestoreData(transaction.toMap()));
+        }
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            assertEquals(expectedTotal, mapAll(documents));
+        }
+
+        long start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            assertEquals(expectedTotal, mapAll(documents));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Transaction.fromMap: %.1f ns/document%n",
+                (double) elapsed / ((long) MEASURED_ROUNDS * DOCUMENTS));
+    }
+
+    private static long mapAll(List<Map<String, Object>> documents) {
+        long total = 0;
+        for (int i = 0; i < documents.size(); i++) {
+            total += Transaction.fromMap("tx-" + i, documents.get(i)).getAmount().getMinorUnits();
+        }
+        return total;
+    }
+}
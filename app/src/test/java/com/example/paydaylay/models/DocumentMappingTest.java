@@ -0,0 +1,165 @@
+package com.example.paydaylay.models;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.FieldValue;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testy mapowania modeli na dokumenty Firestore i z powrotem (toMap -> fromMap).
+ * Dane dokumentu mają postać zwracaną przez DocumentSnapshot.getData().
+ */
+public class DocumentMappingTest {
+    private static final Date SERVER_TIME = new Date(1_700_000_000_123L);
+
+    @Test
+    public void transaction_roundTripsEveryField() {
+        Transaction original = new Transaction(Money.ofMinor(12_345), new Date(1_699_999_000_456L),
+                "category-1", "Zakupy", "user-1", true);
+
+        Transaction mapped = Transaction.fromMap("tx-1", firestoreData(original.toMap()));
+
+        assertEquals("tx-1", mapped.getId());
+        assertEquals(Money.ofMinor(12_345), mapped.getAmount());
+        assertEquals(original.getDate(), mapped.getDate());
+        assertEquals("category-1", mapped.getCategoryId());
+        assertEquals("Zakupy", mapped.getDescription());
+        assertEquals("user-1", mapped.getUserId());
+        assertEquals(Boolean.TRUE, mapped.getIsExpense());
+        assertTrue(mapped.isExpense());
+        assertEquals(SERVER_TIME, mapped.getUpdatedAt());
+        assertFalse(mapped.isDeleted());
+    }
+
+    @Test
+    public void transaction_legacyDoubleAmount_isRoundedToMinorUnits() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("amount", 19.99);
+        assertEquals(Money.ofMinor(1999), Transaction.fromMap("tx", data).getAmount());
+
+        // Kwota zapisana w konsoli jako liczba całkowita
+        data.put("amount", 12L);
+        assertEquals(Money.ofMinor(1200), Transaction.fromMap("tx", data).getAmount());
+
+        // Pole w groszach ma pierwszeństwo przed polem w złotych
+        data.put("amountMinor", 1250L);
+        assertEquals(Money.ofMinor(1250), Transaction.fromMap("tx", data).getAmount());
+    }
+
+    @Test
+    public void transaction_missingFields_useDefaults() {
+        Transaction mapped = Transaction.fromMap("tx", new HashMap<>());
+
+        assertEquals(Money.ZERO, mapped.getAmount());
+        assertNull(mapped.getDate());
+        assertNull(mapped.getIsExpense());
+        assertFalse(mapped.isExpense());
+        assertNull(mapped.getUpdatedAt());
+        assertFalse(mapped.isDeleted());
+    }
+
+    @Test
+    public void transaction_pendingServerTimestamp_isNull() {
+        Map<String, Object> data = new Transaction(Money.ofMinor(100), new Date(), null, null, "user", false).toMap();
+        data.put("updatedAt", null);
+
+        assertNull(Transaction.fromMap("tx", data).getUpdatedAt());
+    }
+
+    @Test
+    public void transaction_tombstone_isDeleted() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("deleted", true);
+
+        assertTrue(Transaction.fromMap("tx", data).isDeleted());
+    }
+
+    @Test
+    public void budget_roundTripsEveryField() {
+        Budget original = new Budget(Money.ofMinor(50_000), "category-1", "user-1", 1_698_796_800_000L,
+                Budget.PERIOD_WEEKLY);
+        original.setCreatedAt(1_698_000_000_000L);
+        original.setSpent(Money.ofMinor(12_301));
+
+        Budget mapped = Budget.fromMap("budget-1", firestoreData(original.toMap()));
+
+        assertEquals("budget-1", mapped.getId());
+        assertEquals(Money.ofMinor(50_000), mapped.getLimit());
+        assertEquals("category-1", mapped.getCategoryId());
+        assertEquals("user-1", mapped.getUserId());
+        assertEquals(1_698_796_800_000L, mapped.getPeriodStartDate());
+        assertEquals(Budget.PERIOD_WEEKLY, mapped.getPeriodType());
+        assertEquals(1_698_000_000_000L, mapped.getCreatedAt());
+        assertEquals(Money.ofMinor(12_301), mapped.getSpent());
+        assertEquals(SERVER_TIME, mapped.getUpdatedAt());
+        assertFalse(mapped.isDeleted());
+    }
+
+    @Test
+    public void budget_editMap_leavesSpentCounterUntouched() {
+        Budget budget = new Budget(Money.ofMinor(50_000), "category-1", "user-1", 1_698_796_800_000L,
+                Budget.PERIOD_MONTHLY);
+        budget.setSpent(Money.ofMinor(12_301));
+
+        Map<String, Object> data = budget.toEditMap();
+
+        assertFalse(data.containsKey("spentMinor"));
+        assertFalse(data.containsKey("spent"));
+        assertEquals(50_000L, data.get("limitMinor"));
+        assertEquals(1_698_796_800_000L, data.get("periodStartDate"));
+    }
+
+    @Test
+    public void budget_legacyDoubleAmounts_areRoundedToMinorUnits() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("limit", 1500.5);
+        data.put("spent", 0.1 + 0.2);
+
+        Budget mapped = Budget.fromMap("budget", data);
+
+        assertEquals(Money.ofMinor(150_050), mapped.getLimit());
+        assertEquals(Money.ofMinor(30), mapped.getSpent());
+        assertNull(mapped.getCategoryId());
+        assertEquals(0, mapped.getPeriodStartDate());
+        assertEquals(0, mapped.getPeriodType());
+    }
+
+    @Test
+    public void category_roundTripsEveryField() {
+        Category original = new Category("Jedzenie", 0xFF4CAF50, "user-1", "ic_food");
+
+        Category mapped = Category.fromMap("category-1", firestoreData(original.toMap()));
+
+        assertEquals("category-1", mapped.getId());
+        assertEquals("Jedzenie", mapped.getName());
+        assertEquals(0xFF4CAF50, mapped.getColor());
+        assertEquals("user-1", mapped.getUserId());
+        assertEquals("ic_food", mapped.getIconName());
+        assertEquals(SERVER_TIME, mapped.getUpdatedAt());
+        assertFalse(mapped.isDeleted());
+    }
+
+    /**
+     * Zamienia mapę z toMap() na postać odczytywaną z Firestore: liczby całkowite jako Long,
+     * a znacznik czasu serwera jako Timestamp nadany przez serwer.
+     */
+    static Map<String, Object> firestoreData(Map<String, Object> map) {
+        Map<String, Object> data = new HashMap<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Integer) {
+                value = ((Integer) value).longValue();
+            } else if (value instanceof FieldValue) {
+                value = new Timestamp(SERVER_TIME);
+            }
+            data.put(entry.getKey(), value);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.paydaylay.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testy kwot w groszach - zaokrąglanie zgodne z migracją bazy (ROUND(amount * 100)),
+ * arytmetyka i formatowanie.
+ */
+public class MoneyTest {
+
+    @Test
+    public void toMinor_matchesSqliteRoundForEveryCentAmount() {
+        for (long cents = 0; cents <= 1_000_000; cents++) {
+            double amount = cents / 100.0;
+            assertEquals("amount " + amount, sqliteRound(amount * 100), Money.toMinor(amount));
+            assertEquals("amount " + amount, cents, Money.toMinor(amount));
+        }
+    }
+
+    @Test
+    public void toMinor_matchesSqliteRoundForInexactDoubles() {
+        double[] amounts = {0.1 + 0.2, 1.005, 2.675, 1234.565, 99999.995, 0.125, 0.004999, 19.999};
+        for (double amount : amounts) {
+            assertEquals("amount " + amount, sqliteRound(amount * 100), Money.toMinor(amount));
+        }
+        assertEquals(30, Money.of(0.1 + 0.2).getMinorUnits());
+        assertEquals(100, Money.toMinor(1.005));
+    }
+
+    @Test
+    public void minus_isExactAndCanGoNegative() {
+        assertEquals(Money.ofMinor(-250), Money.ofMinor(1000).minus(Money.ofMinor(1250)));
+        assertEquals(Money.ofMinor(10), Money.of(0.3).minus(Money.of(0.2)));
+        assertSame(Money.ZERO, Money.ofMinor(1999).minus(Money.ofMinor(1999)));
+    }
+
+    @Test
+    public void percentOf_handlesOverspendingAndEmptyLimit() {
+        assertEquals(75.0, Money.ofMinor(750).percentOf(Money.ofMinor(1000)), 1e-9);
+        assertEquals(150.0, Money.ofMinor(1500).percentOf(Money.ofMinor(1000)), 1e-9);
+        assertEquals(0.0, Money.ofMinor(1500).percentOf(Money.ZERO), 0);
+        assertEquals(0.0, Money.ofMinor(1500).percentOf(Money.ofMinor(-100)), 0);
+    }
+
+    @Test
+    public void toString_formatsTwoDecimalsWithSign() {
+        assertEquals("0.00", Money.ZERO.toString());
+        assertEquals("0.05", Money.ofMinor(5).toString());
+        assertEquals("12.50", Money.ofMinor(1250).toString());
+        assertEquals("-0.05", Money.ofMinor(-5).toString());
+        assertEquals("-12.50", Money.ofMinor(-1250).toString());
+        assertEquals("1234567.89", Money.ofMinor(123456789).toString());
+    }
+
+    /**
+     * Odpowiednik funkcji ROUND(x) z SQLite (zero miejsc po przecinku) dla wartości nieujemnych,
+     * używanej przez AppDatabase.MIGRATION_4_5 do przeliczenia kwot na grosze.
+     */
+    private static long sqliteRound(double value) {
+        return (long) (value + 0.5);
+    }
+}
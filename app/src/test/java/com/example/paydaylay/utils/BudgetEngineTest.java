@@ -0,0 +1,87 @@
+package com.example.paydaylay.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testy progów alertów budżetowych (75, 90, 100%) i histerezy ich ponownego uzbrajania.
+ */
+public class BudgetEngineTest {
+
+    @Test
+    public void levelAt_countsReachedThresholds() {
+        assertEquals(0, BudgetEngine.levelAt(0, 0));
+        assertEquals(0, BudgetEngine.levelAt(74.99, 0));
+        assertEquals(1, BudgetEngine.levelAt(75, 0));
+        assertEquals(1, BudgetEngine.levelAt(89.99, 0));
+        assertEquals(2, BudgetEngine.levelAt(90, 0));
+        assertEquals(3, BudgetEngine.levelAt(100, 0));
+        assertEquals(3, BudgetEngine.levelAt(250, 0));
+    }
+
+    @Test
+    public void levelAt_lowersEveryThresholdByMargin() {
+        assertEquals(0, BudgetEngine.levelAt(69.99, 5));
+        assertEquals(1, BudgetEngine.levelAt(70, 5));
+        assertEquals(2, BudgetEngine.levelAt(85, 5));
+        assertEquals(3, BudgetEngine.levelAt(95, 5));
+    }
+
+    @Test
+    public void crossingThreshold_raisesLevelOnce() {
+        int level = BudgetEngine.nextNotifiedLevel(0, 76, true);
+        assertEquals(1, level);
+
+        // Kolejne wydatki poniżej następnego progu nie powodują ponownego zgłoszenia
+        assertEquals(1, BudgetEngine.nextNotifiedLevel(level, 80, true));
+        assertEquals(1, BudgetEngine.nextNotifiedLevel(level, 89, false));
+    }
+
+    @Test
+    public void jumpOverSeveralThresholds_reportsHighest() {
+        assertEquals(3, BudgetEngine.nextNotifiedLevel(0, 120, false));
+        assertEquals(3, BudgetEngine.nextNotifiedLevel(1, 100, true));
+    }
+
+    @Test
+    public void smallDropBelowThreshold_keepsItReported() {
+        // Spadek poniżej 90% o mniej niż 5 punktów nie uzbraja progu ponownie
+        int level = BudgetEngine.nextNotifiedLevel(2, 86, true);
+        assertEquals(2, level);
+        assertEquals(2, BudgetEngine.nextNotifiedLevel(level, 91, true));
+    }
+
+    @Test
+    public void dropBeyondHysteresis_rearmsThreshold() {
+        int level = BudgetEngine.nextNotifiedLevel(2, 84, true);
+        assertEquals(1, level);
+
+        // Ponowne osiągnięcie 90% jest zgłaszane
+        assertEquals(2, BudgetEngine.nextNotifiedLevel(level, 90, true));
+    }
+
+    @Test
+    public void rearming_requiresFullEvaluation() {
+        // Zdarzenie zapisu (canRearm = false) nie obniża poziomu nawet przy dużym spadku wydatków
+        assertEquals(3, BudgetEngine.nextNotifiedLevel(3, 10, false));
+        assertEquals(0, BudgetEngine.nextNotifiedLevel(3, 10, true));
+    }
+
+    @Test
+    public void oscillatingAroundThreshold_doesNotRepeatNotifications() {
+        int level = 0;
+        int crossings = 0;
+        double[] percents = {89, 90.5, 88, 91, 87, 90, 86, 92};
+        for (double percent : percents) {
+            int next = BudgetEngine.nextNotifiedLevel(level, percent, true);
+            if (next > level) {
+                crossings++;
+            }
+            level = next;
+        }
+        // 75% przy pierwszym odczycie i 90% jeden raz - wahania w granicach histerezy nie uzbrajają progu
+        assertEquals(2, crossings);
+        assertEquals(2, level);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.paydaylay.utils;
+
+import com.example.paydaylay.database.DailyTotalEntity;
+import com.example.paydaylay.database.TransactionDao;
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Money;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testy obliczania wydatków wielu budżetów w jednym przebiegu - pełne dni z dziennych sum (UTC),
+ * krańce okresów (północ czasu lokalnego) z sum kategorii.
+ */
+public class BudgetEvaluatorTest {
+    private static final TimeZone WARSAW = TimeZone.getTimeZone("Europe/Warsaw");
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private TimeZone defaultZone;
+    private final List<long[]> expenses = new ArrayList<>();
+    private final List<String> categories = new ArrayList<>();
+    private int dayQueries;
+    private int edgeQueries;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(WARSAW);
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void sumsEveryBudgetWithOneDailyTotalsRead() {
+        long june = at(2024, Calendar.JUNE, 1, 0);
+        Budget overall = budget(null, june, Budget.PERIOD_MONTHLY);
+        Budget food = budget("food", june, Budget.PERIOD_MONTHLY);
+        Budget rent = budget("rent", june, Budget.PERIOD_MONTHLY);
+
+        expense(at(2024, Calendar.JUNE, 3, 12), "food", 1_000);
+        expense(at(2024, Calendar.JUNE, 3, 18), "rent", 200_000);
+        expense(at(2024, Calendar.JUNE, 20, 9), null, 500);
+        expense(at(2024, Calendar.MAY, 31, 12), "food", 7_000);
+
+        long[] spent = sumSpent(Arrays.asList(overall, food, rent), at(2024, Calendar.JUNE, 15, 12));
+
+        assertArrayEquals(new long[]{201_500, 1_000, 200_000}, spent);
+        assertEquals(1, dayQueries);
+        // Wspólne krańce okresu dla trzech budżetów miesięcznych: początek i koniec miesiąca
+        assertEquals(2, edgeQueries);
+    }
+
+    @Test
+    public void expensesInFirstLocalHours_countForTheirLocalPeriod() {
+        long june = at(2024, Calendar.JUNE, 1, 0);
+        Budget overall = budget(null, june, Budget.PERIOD_MONTHLY);
+
+        // 1 czerwca 00:30 w Warszawie to jeszcze 31 maja w UTC
+        expense(at(2024, Calendar.JUNE, 1, 0) + HOUR_MS / 2, "food", 300);
+        // 1 lipca 01:00 w Warszawie należy już do kolejnego okresu
+        expense(at(2024, Calendar.JULY, 1, 1), "food", 900);
+        // 31 maja 23:30 w Warszawie należy do poprzedniego okresu
+        expense(at(2024, Calendar.MAY, 31, 23) + HOUR_MS / 2, "food", 50);
+
+        long[] spent = sumSpent(Arrays.asList(overall), at(2024, Calendar.JUNE, 15, 12));
+
+        assertArrayEquals(new long[]{300}, spent);
+    }
+
+    @Test
+    public void budgetsWithDifferentPeriods_matchNaiveSums() {
+        long now = at(2024, Calendar.MARCH, 27, 10);
+        List<Budget> budgets = Arrays.asList(
+                budget(null, at(2024, Calendar.JANUARY, 15, 0), Budget.PERIOD_MONTHLY),
+                budget("food", at(2024, Calendar.MARCH, 25, 0), Budget.PERIOD_WEEKLY),
+                budget("food", at(2024, Calendar.JANUARY, 1, 0), Budget.PERIOD_YEARLY),
+                budget("fuel", at(2024, Calendar.MARCH, 1, 0), Budget.PERIOD_MONTHLY));
+
+        // Co 7 godzin od lutego do kwietnia, przez zmianę czasu 31 marca
+        String[] cycle = {"food", "fuel", null, "food"};
+        int n = 0;
+        for (long t = at(2024, Calendar.FEBRUARY, 1, 0); t < at(2024, Calendar.APRIL, 30, 0); t += 7 * HOUR_MS) {
+            expense(t, cycle[n % cycle.length], 100 + n);
+            n++;
+        }
+
+        long[] spent = sumSpent(budgets, now);
+
+        for (int i = 0; i < budgets.size(); i++) {
+            assertEquals("budget " + i, naiveSum(budgets.get(i), now), spent[i]);
+        }
+        assertEquals(1, dayQueries);
+    }
+
+    @Test
+    public void noBudgets_readNothing() {
+        assertEquals(0, sumSpent(new ArrayList<>(), at(2024, Calendar.JUNE, 1, 0)).length);
+        assertEquals(0, dayQueries);
+        assertEquals(0, edgeQueries);
+    }
+
+    private long[] sumSpent(List<Budget> budgets, long now) {
+        return BudgetEvaluator.sumSpent(budgets, now, new BudgetEvaluator.ExpenseSource() {
+            @Override
+            public List<DailyTotalEntity> expenseDays(int fromDay, int toDay) {
+                dayQueries++;
+                Map<String, DailyTotalEntity> rows = new LinkedHashMap<>();
+                for (int i = 0; i < expenses.size(); i++) {
+                    int day = DailyTotalEntity.dayKey(expenses.get(i)[0]);
+                    if (day < fromDay || day >= toDay) {
+                        continue;
+                    }
+                    String categoryId = categories.get(i) != null ? categories.get(i) : "";
+                    DailyTotalEntity row = rows.get(day + "|" + categoryId);
+                    if (row == null) {
+                        row = new DailyTotalEntity();
+                        row.setDay(day);
+                        row.setCategoryId(categoryId);
+                        row.setExpense(true);
+                        rows.put(day + "|" + categoryId, row);
+                    }
+                    row.setTotal(row.getTotal() + expenses.get(i)[1]);
+                    row.setCount(row.getCount() + 1);
+                }
+                return new ArrayList<>(rows.values());
+            }
+
+            @Override
+            public List<TransactionDao.CategoryTotal> expensesByCategory(long startTime, long endTime) {
+                edgeQueries++;
+                Map<String, TransactionDao.CategoryTotal> totals = new LinkedHashMap<>();
+                for (int i = 0; i < expenses.size(); i++) {
+                    long time = expenses.get(i)[0];
+                    if (time < startTime || time >= endTime) {
+                        continue;
+                    }
+                    TransactionDao.CategoryTotal total = totals.get(categories.get(i));
+                    if (total == null) {
+                        total = new TransactionDao.CategoryTotal();
+                        total.categoryId = categories.get(i);
+                        totals.put(categories.get(i), total);
+                    }
+                    total.total += expenses.get(i)[1];
+                    total.count++;
+                }
+                return new ArrayList<>(totals.values());
+            }
+        });
+    }
+
+    private long naiveSum(Budget budget, long now) {
+        BudgetPeriod.Range period = BudgetPeriod.containing(budget, now);
+        long sum = 0;
+        for (int i = 0; i < expenses.size(); i++) {
+            boolean categoryMatches = budget.getCategoryId() == null
+                    || budget.getCategoryId().equals(categories.get(i));
+            if (categoryMatches && period.contains(expenses.get(i)[0])) {
+                sum += expenses.get(i)[1];
+            }
+        }
+        return sum;
+    }
+
+    private void expense(long time, String categoryId, long amountMinor) {
+        expenses.add(new long[]{time, amountMinor});
+        categories.add(categoryId);
+    }
+
+    private static Budget budget(String categoryId, long periodStartDate, int periodType) {
+        return new Budget(Money.ofMinor(100_000), categoryId, "user", periodStartDate, periodType);
+    }
+
+    private static long at(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance(WARSAW);
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.paydaylay.utils;
+
+import com.example.paydaylay.models.Budget;
+import com.example.paydaylay.models.Money;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testy granic okresów budżetowych w strefie z czasem letnim (Europe/Warsaw).
+ */
+public class BudgetPeriodTest {
+    private static final TimeZone WARSAW = TimeZone.getTimeZone("Europe/Warsaw");
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(WARSAW);
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void anchor_startsItsOwnPeriod() {
+        long anchor = at(2024, Calendar.JANUARY, 15, 0);
+
+        BudgetPeriod.Range range = BudgetPeriod.containing(Budget.PERIOD_MONTHLY, anchor, anchor);
+
+        assertEquals(anchor, range.start);
+        assertEquals(at(2024, Calendar.FEBRUARY, 15, 0), range.end);
+        assertEquals(range.end - 1, range.getLastInstant());
+    }
+
+    @Test
+    public void instantBeforeAnchor_fallsInPreviousPeriod() {
+        long anchor = at(2024, Calendar.JANUARY, 15, 0);
+
+        BudgetPeriod.Range range = BudgetPeriod.containing(Budget.PERIOD_MONTHLY, anchor, anchor - 1);
+
+        assertEquals(at(2023, Calendar.DECEMBER, 15, 0), range.start);
+        assertEquals(anchor, range.end);
+    }
+
+    @Test
+    public void weeklyPeriod_stepsSevenDaysFromAnchor() {
+        long anchor = at(2024, Calendar.JANUARY, 1, 0);
+
+        BudgetPeriod.Range range = BudgetPeriod.containing(Budget.PERIOD_WEEKLY, anchor,
+                at(2024, Calendar.JANUARY, 17, 12));
+
+        assertEquals(at(2024, Calendar.JANUARY, 15, 0), range.start);
+        assertEquals(at(2024, Calendar.JANUARY, 22, 0), range.end);
+    }
+
+    @Test
+    public void monthEndAnchor_doesNotDrift() {
+        long anchor = at(2024, Calendar.JANUARY, 31, 0);
+
+        // Luty jest krótszy - granica przypada na jego ostatni dzień
+        BudgetPeriod.Range february = BudgetPeriod.containing(Budget.PERIOD_MONTHLY, anchor,
+                at(2024, Calendar.MARCH, 5, 12));
+        assertEquals(at(2024, Calendar.FEBRUARY, 29, 0), february.start);
+        // Kolejna granica liczona od kotwicy, a nie od 29 lutego
+        assertEquals(at(2024, Calendar.MARCH, 31, 0), february.end);
+
+        BudgetPeriod.Range april = BudgetPeriod.containing(Budget.PERIOD_MONTHLY, anchor,
+                at(2024, Calendar.MAY, 1, 12));
+        assertEquals(at(2024, Calendar.APRIL, 30, 0), april.start);
+        assertEquals(at(2024, Calendar.MAY, 31, 0), april.end);
+    }
+
+    @Test
+    public void yearlyLeapDayAnchor_clampsToEndOfFebruary() {
+        long anchor = at(2024, Calendar.FEBRUARY, 29, 0);
+
+        BudgetPeriod.Range range = BudgetPeriod.containing(Budget.PERIOD_YEARLY, anchor,
+                at(2025, Calendar.MARCH, 1, 0));
+
+        assertEquals(at(2025, Calendar.FEBRUARY, 28, 0), range.start);
+        assertEquals(at(2026, Calendar.FEBRUARY, 28, 0), range.end);
+    }
+
+    @Test
+    public void dailyPeriod_followsLocalMidnightAcrossDst() {
+        long anchor = at(2024, Calendar.MARCH, 1, 0);
+
+        // 31 marca 2024 zegar przesuwa się z 2:00 na 3:00 - doba ma 23 godziny
+        BudgetPeriod.Range spring = BudgetPeriod.containing(Budget.PERIOD_DAILY, anchor,
+                at(2024, Calendar.MARCH, 31, 12));
+        assertEquals(at(2024, Calendar.MARCH, 31, 0), spring.start);
+        assertEquals(at(2024, Calendar.APRIL, 1, 0), spring.end);
+        assertEquals(23 * HOUR_MS, spring.end - spring.start);
+
+        // 27 października 2024 zegar cofa się z 3:00 na 2:00 - doba ma 25 godzin
+        BudgetPeriod.Range autumn = BudgetPeriod.containing(Budget.PERIOD_DAILY, anchor,
+                at(2024, Calendar.OCTOBER, 27, 12));
+        assertEquals(at(2024, Calendar.OCTOBER, 27, 0), autumn.start);
+        assertEquals(25 * HOUR_MS, autumn.end - autumn.start);
+    }
+
+    @Test
+    public void monthlyPeriod_acrossDst_keepsLocalMidnight() {
+        long anchor = at(2024, Calendar.FEBRUARY, 10, 0);
+
+        BudgetPeriod.Range range = BudgetPeriod.containing(Budget.PERIOD_MONTHLY, anchor,
+                at(2024, Calendar.MARCH, 20, 0));
+
+        assertEquals(at(2024, Calendar.MARCH, 10, 0), range.start);
+        assertEquals(at(2024, Calendar.APRIL, 10, 0), range.end);
+    }
+
+    @Test
+    public void rollForward_movesExpiredBudgetToCurrentPeriodAndResetsSpent() {
+        Budget budget = new Budget(Money.ofMinor(100_00), null, "user", at(2024, Calendar.JANUARY, 1, 0),
+                Budget.PERIOD_MONTHLY);
+        budget.setSpent(Money.ofMinor(50_00));
+        long now = at(2024, Calendar.MARCH, 10, 12);
+
+        assertTrue(BudgetPeriod.rollForward(budget, now));
+        assertEquals(at(2024, Calendar.MARCH, 1, 0), budget.getPeriodStartDate());
+        assertEquals(Money.ZERO, budget.getSpent());
+
+        // Budżet w bieżącym okresie nie jest ponownie przesuwany
+        budget.setSpent(Money.ofMinor(20_00));
+        assertFalse(BudgetPeriod.rollForward(budget, now));
+        assertEquals(Money.ofMinor(20_00), budget.getSpent());
+    }
+
+    private static long at(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance(WARSAW);
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0, 0);
+        return calendar.getTimeInMillis();
+    }
+}